@@ -0,0 +1,92 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.bucket.terms.ParsedStringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ParsedAvg;
+import org.elasticsearch.search.aggregations.metrics.ParsedSum;
+import org.elasticsearch.search.aggregations.metrics.SumAggregationBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+    Response bodies of elasticsearch for the benchmarks, and parsing of them the way
+    RestHighLevelClient does it ("typed_keys" aggregations included).
+*/
+final class CannedResponses {
+
+	private static final NamedXContentRegistry REGISTRY = new NamedXContentRegistry(List.of(
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(StringTerms.NAME),
+					(parser, name) -> ParsedStringTerms.fromXContent(parser, (String) name)),
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(SumAggregationBuilder.NAME),
+					(parser, name) -> ParsedSum.fromXContent(parser, (String) name)),
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(AvgAggregationBuilder.NAME),
+					(parser, name) -> ParsedAvg.fromXContent(parser, (String) name))));
+
+	private CannedResponses() {
+	}
+
+	static SearchResponse parse(byte[] body) throws IOException {
+		try (XContentParser parser = JsonXContent.jsonXContent.createParser(REGISTRY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION, body)) {
+			return SearchResponse.fromXContent(parser);
+		}
+	}
+
+	/*
+		"_search" of "hits" whole movies, as MovieDao searches get them.
+	*/
+	static byte[] movies(int hits) {
+		StringBuilder fullplot = new StringBuilder();
+		while (fullplot.length() < 3_000)
+			fullplot.append("A young man discovers that the world he lives in is not what it seems. ");
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < hits; i++) {
+			if (i > 0)
+				body.append(',');
+			body.append("{\"_index\":\"movies\",\"_type\":\"_doc\",\"_id\":\"").append(i).append("\",\"_score\":1.0,\"_source\":")
+					.append("{\"title\":\"Up ").append(i).append("\",\"year\":2009,\"plot\":\"")
+					.append(fullplot, 0, 300).append("\",\"fullplot\":\"").append(fullplot)
+					.append("\",\"genres\":[\"Animation\",\"Adventure\"],\"runtime\":96,")
+					.append("\"cast\":[\"Edward Asner\",\"Jordan Nagai\",\"John Ratzenberger\",\"Christopher Plummer\"],")
+					.append("\"directors\":[\"Pete Docter\",\"Bob Peterson\"],\"countries\":[\"USA\"],")
+					.append("\"languages\":[\"English\"],\"rated\":\"PG\",\"type\":\"movie\",\"metacritic\":88,")
+					.append("\"poster\":\"https://m.media-amazon.com/images/M/MV5BMTk3NDE2NzI4NF5BMl5BanBnXkFtZTgwNzE1MzEyMTE@._V1_SY1000_SX677_AL_.jpg\",")
+					.append("\"num_mflix_comments\":3,\"awards\":{\"wins\":79,\"nominations\":87,\"text\":\"Won 2 Oscars.\"},")
+					.append("\"imdb\":{\"rating\":8.3,\"votes\":716931,\"id\":1049413},")
+					.append("\"tomatoes\":{\"viewer\":{\"rating\":4.0,\"numReviews\":1000000,\"meter\":90},")
+					.append("\"critic\":{\"rating\":8.6,\"numReviews\":280,\"meter\":98},\"rotten\":6,\"fresh\":274}}}");
+		}
+		return ("{\"took\":1,\"timed_out\":false,"
+				+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+				+ "\"hits\":{\"total\":{\"value\":" + hits + ",\"relation\":\"eq\"},\"max_score\":1.0,"
+				+ "\"hits\":[" + body + "]}}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	/*
+		"_search" of MovieDao.directorsMovieMetricQuery(): 30 directors with their awards.
+	*/
+	static byte[] directorsMovieMetric() {
+		StringBuilder buckets = new StringBuilder();
+		for (int i = 0; i < 30; i++) {
+			if (i > 0)
+				buckets.append(',');
+			buckets.append("{\"key\":\"Director ").append(i).append("\",\"doc_count\":").append(60 - i)
+					.append(",\"sum#max-awards-agg\":{\"value\":").append(500 - 7 * i).append(".0}}");
+		}
+		return ("{\"took\":12,\"timed_out\":false,"
+				+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+				+ "\"hits\":{\"total\":{\"value\":10000,\"relation\":\"gte\"},\"max_score\":null,\"hits\":[]},"
+				+ "\"aggregations\":{\"sterms#my-term-agg\":{\"doc_count_error_upper_bound\":-1,"
+				+ "\"sum_other_doc_count\":21000,\"buckets\":[" + buckets + "]}}}").getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Runs the JMH benchmarks of src/jmh/java and writes their results as JSON, with
+    allocation per operation ("gc.alloc.rate.norm") next to the time, so that runs of
+    two releases can be compared.
+
+    Run with: mvn test -Pjmh
+    Options: -Djmh.include=<regex of benchmarks> -Djmh.result=<file>
+    (default: every *Benchmarks class, target/jmh-result.json)
+*/
+@Tag("benchmark")
+class JmhBenchmark {
+
+	@Test
+	void runBenchmarks() throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(System.getProperty("jmh.include", "com\\.example\\.SpringBootPlusElasticsearch\\..*Benchmarks\\."))
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(System.getProperty("jmh.result", "target/jmh-result.json"))
+				.shouldFailOnError(true)
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+		assertThat(results).isNotEmpty();
+	}
+}
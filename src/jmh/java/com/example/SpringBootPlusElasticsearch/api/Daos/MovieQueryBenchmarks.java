@@ -0,0 +1,80 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+    Building the queries of MovieDao, and turning them into the JSON sent to elasticsearch.
+    "singleFlightKey" is the SearchRequest.toString() SearchExecutor computes for every search.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieQueryBenchmarks {
+
+	@Param({"castMust", "title", "castShould", "fullPlot", "titleUpdated", "directors", "castExact",
+			"plot", "plot2", "plot3", "directorsMovieMetric", "languageBasedMetric"})
+	public String query;
+
+	private Supplier<SearchSourceBuilder> builder;
+	private SearchSourceBuilder built;
+
+	@Setup
+	public void setUp() {
+		String[] cast = {"Tom Hanks", "Tim Allen", "Don Rickles"};
+		switch (query) {
+			case "castMust": builder = () -> MovieDao.castMustQuery(cast); break;
+			case "title": builder = () -> MovieDao.titleQuery("The Dark Knight"); break;
+			case "castShould": builder = () -> MovieDao.castShouldQuery(2, cast); break;
+			case "fullPlot": builder = () -> MovieDao.fullPlotQuery("toys come to life when nobody is looking"); break;
+			case "titleUpdated": builder = () -> MovieDao.titleUpdatedQuery("Dark Knigt"); break;
+			case "directors": builder = () -> MovieDao.directorsQuery("Cristopher Nolan"); break;
+			case "castExact": builder = () -> MovieDao.castExactQuery("Tom Hanks"); break;
+			case "plot": builder = () -> MovieDao.plotQuery("toys come to li"); break;
+			case "plot2": builder = () -> MovieDao.plot2Query("toys come to li"); break;
+			case "plot3": builder = () -> MovieDao.plot3Query("toys come to life"); break;
+			case "directorsMovieMetric": builder = MovieDao::directorsMovieMetricQuery; break;
+			case "languageBasedMetric": builder = MovieDao::languageBasedMetricQuery; break;
+			default: throw new IllegalArgumentException("Unknown query: " + query);
+		}
+		built = builder.get();
+	}
+
+	@Benchmark
+	public SearchSourceBuilder build() {
+		return builder.get();
+	}
+
+	@Benchmark
+	public String serialize() {
+		return Strings.toString(built);
+	}
+
+	@Benchmark
+	public String buildAndSerialize() {
+		return Strings.toString(builder.get());
+	}
+
+	@Benchmark
+	public String singleFlightKey() {
+		return new SearchRequest("movies").source(built).toString();
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.JacksonConfig;
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Controller responses written as JSON, with the ObjectMapper Spring MVC gets:
+    Jackson2ObjectMapperBuilder customized by JacksonConfig (ParsedStringTerms mix-in).
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseJsonBenchmarks {
+
+	private ObjectMapper objectMapper;
+	private SearchHits<Movies> movies;
+	private Aggregations directorsMovieMetric;
+
+	@Setup
+	public void setUp() throws IOException {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		new JacksonConfig().changeKeyAsNumber().customize(builder);
+		objectMapper = builder.build();
+
+		try (RestHighLevelClient client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", 9)))) {
+			SearchBatchProperties batching = new SearchBatchProperties();
+			batching.setEnabled(false);
+			SlowQueryProperties slowQueries = new SlowQueryProperties();
+			slowQueries.setEnabled(false);
+			SearchExecutor searchExecutor = new SearchExecutor(client, new ElasticsearchRestTemplate(client), null,
+					batching, false, new EntityReaders(), true, new OperationMetrics(false), new SlowQueryLog(client, slowQueries),
+					new ConcurrencyLimiter(new ConcurrencyLimitProperties()), new SearchHedger(client, new HedgeProperties()),
+					new SearchRouting(new SearchRoutingProperties()));
+			movies = searchExecutor.mapHits(CannedResponses.parse(CannedResponses.movies(20)), Movies.class);
+		}
+		directorsMovieMetric = CannedResponses.parse(CannedResponses.directorsMovieMetric()).getAggregations();
+	}
+
+	@Benchmark
+	public byte[] searchHits() throws IOException {
+		return objectMapper.writeValueAsBytes(movies);
+	}
+
+	@Benchmark
+	public byte[] aggregations() throws IOException {
+		return objectMapper.writeValueAsBytes(directorsMovieMetric);
+	}
+}
@@ -0,0 +1,84 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    From response body of a movie search to SearchHits<Movies>: "parse" is what
+    RestHighLevelClient does, "parseAndMap" adds SearchExecutor.mapHits() with the
+    converter or with EntityReaders. Mapping is always measured on a freshly parsed
+    response, as SearchHit keeps the Map of "_source" once the converter asked for it.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResponseBenchmarks {
+
+	@Param({"10", "100"})
+	public int hits;
+
+	@Param({"converter", "readers"})
+	public String mapping;
+
+	private byte[] body;
+	private RestHighLevelClient client;
+	private SearchExecutor searchExecutor;
+
+	@Setup
+	public void setUp() {
+		body = CannedResponses.movies(hits);
+		// Never connected to, the template is only there for its converter.
+		client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", 9)));
+		SearchBatchProperties batching = new SearchBatchProperties();
+		batching.setEnabled(false);
+		SlowQueryProperties slowQueries = new SlowQueryProperties();
+		slowQueries.setEnabled(false);
+		searchExecutor = new SearchExecutor(client, new ElasticsearchRestTemplate(client), null, batching, false,
+				new EntityReaders(), "readers".equals(mapping), new OperationMetrics(false), new SlowQueryLog(client, slowQueries),
+				new ConcurrencyLimiter(new ConcurrencyLimitProperties()), new SearchHedger(client, new HedgeProperties()),
+				new SearchRouting(new SearchRoutingProperties()));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		client.close();
+	}
+
+	@Benchmark
+	public SearchResponse parse() throws IOException {
+		return CannedResponses.parse(body);
+	}
+
+	@Benchmark
+	public SearchHits<Movies> parseAndMap() throws IOException {
+		return searchExecutor.mapHits(CannedResponses.parse(body), Movies.class);
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Settings of precomputed aggregations, read from "movies.aggregations.*" in application.properties.
+    An aggregation is recomputed every "refreshSeconds", and also once "refreshAfterWrites"
+    writes were made to its index since it was last computed.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "movies.aggregations")
+public class AggregationRefreshProperties {
+
+    // When false, every request runs the aggregation on elasticsearch.
+    private boolean enabled = true;
+    private int refreshSeconds = 300;
+    private int refreshAfterWrites = 50;
+    // Recompute this long after the write which triggered it, so elasticsearch has refreshed the index.
+    private int writeRefreshDelayMs = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRefreshSeconds() {
+        return refreshSeconds;
+    }
+
+    public void setRefreshSeconds(int refreshSeconds) {
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    public int getRefreshAfterWrites() {
+        return refreshAfterWrites;
+    }
+
+    public void setRefreshAfterWrites(int refreshAfterWrites) {
+        this.refreshAfterWrites = refreshAfterWrites;
+    }
+
+    public int getWriteRefreshDelayMs() {
+        return writeRefreshDelayMs;
+    }
+
+    public void setWriteRefreshDelayMs(int writeRefreshDelayMs) {
+        this.writeRefreshDelayMs = writeRefreshDelayMs;
+    }
+}
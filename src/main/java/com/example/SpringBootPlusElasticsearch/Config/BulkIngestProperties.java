@@ -0,0 +1,93 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Settings of bulk ingestion, read from "movies.bulk.*" in application.properties.
+    A bulk request is flushed as soon as any one of actions, size or flush interval is reached.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "movies.bulk")
+public class BulkIngestProperties {
+
+    // Flush after this many documents.
+    private int actions = 1000;
+    // Flush after this many MB of request body.
+    private int sizeMb = 5;
+    // Flush whatever is pending after this many seconds.
+    private int flushIntervalSeconds = 5;
+    // Maximum number of bulk requests in flight. Adding documents blocks once it is reached.
+    private int concurrentRequests = 2;
+    // First delay of exponential back-off when elasticsearch rejects a bulk with 429.
+    private int backoffInitialDelayMs = 100;
+    private int backoffMaxRetries = 8;
+    // How long to wait for in-flight bulks when input is exhausted.
+    private int awaitCloseSeconds = 120;
+    // Maximum number of per-document failure messages kept in the report.
+    private int maxReportedFailures = 100;
+
+    public int getActions() {
+        return actions;
+    }
+
+    public void setActions(int actions) {
+        this.actions = actions;
+    }
+
+    public int getSizeMb() {
+        return sizeMb;
+    }
+
+    public void setSizeMb(int sizeMb) {
+        this.sizeMb = sizeMb;
+    }
+
+    public int getFlushIntervalSeconds() {
+        return flushIntervalSeconds;
+    }
+
+    public void setFlushIntervalSeconds(int flushIntervalSeconds) {
+        this.flushIntervalSeconds = flushIntervalSeconds;
+    }
+
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public void setConcurrentRequests(int concurrentRequests) {
+        this.concurrentRequests = concurrentRequests;
+    }
+
+    public int getBackoffInitialDelayMs() {
+        return backoffInitialDelayMs;
+    }
+
+    public void setBackoffInitialDelayMs(int backoffInitialDelayMs) {
+        this.backoffInitialDelayMs = backoffInitialDelayMs;
+    }
+
+    public int getBackoffMaxRetries() {
+        return backoffMaxRetries;
+    }
+
+    public void setBackoffMaxRetries(int backoffMaxRetries) {
+        this.backoffMaxRetries = backoffMaxRetries;
+    }
+
+    public int getAwaitCloseSeconds() {
+        return awaitCloseSeconds;
+    }
+
+    public void setAwaitCloseSeconds(int awaitCloseSeconds) {
+        this.awaitCloseSeconds = awaitCloseSeconds;
+    }
+
+    public int getMaxReportedFailures() {
+        return maxReportedFailures;
+    }
+
+    public void setMaxReportedFailures(int maxReportedFailures) {
+        this.maxReportedFailures = maxReportedFailures;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Settings of the adaptive concurrency limit (see ConcurrencyLimiter), read from "elasticsearch.limit.*"
+    in application.properties.
+    Limit starts at "initialLimit" and moves between "minLimit" and "maxLimit": +1 while calls to
+    elasticsearch are faster than "latencyThresholdMs", times "backoffRatio" when one is slower or overloaded.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "elasticsearch.limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 2;
+    private int maxLimit = 200;
+    private long latencyThresholdMs = 500;
+    private double backoffRatio = 0.9;
+    // Part of the limit which low priority requests may take, the rest is kept for searches.
+    private double lowPriorityShare = 0.25;
+    // Sent with 503 to a request which was turned away.
+    private int retryAfterSeconds = 1;
+    // Low priority requests (index management, bulk loads, exports). Ant patterns of request path.
+    private List<String> lowPriorityPaths = new ArrayList<>();
+    // Requests answered from memory, which take no permit (suggestions, local analyzers, counters).
+    private List<String> exemptPaths = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public long getLatencyThresholdMs() {
+        return latencyThresholdMs;
+    }
+
+    public void setLatencyThresholdMs(long latencyThresholdMs) {
+        this.latencyThresholdMs = latencyThresholdMs;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public double getLowPriorityShare() {
+        return lowPriorityShare;
+    }
+
+    public void setLowPriorityShare(double lowPriorityShare) {
+        this.lowPriorityShare = lowPriorityShare;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public List<String> getLowPriorityPaths() {
+        return lowPriorityPaths;
+    }
+
+    public void setLowPriorityPaths(List<String> lowPriorityPaths) {
+        this.lowPriorityPaths = lowPriorityPaths;
+    }
+
+    public List<String> getExemptPaths() {
+        return exemptPaths;
+    }
+
+    public void setExemptPaths(List<String> exemptPaths) {
+        this.exemptPaths = exemptPaths;
+    }
+}
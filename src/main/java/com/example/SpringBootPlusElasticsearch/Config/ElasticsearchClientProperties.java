@@ -0,0 +1,93 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Settings of RestHighLevelClient, read from "elasticsearch.client.*" in application.properties.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "elasticsearch.client")
+public class ElasticsearchClientProperties {
+
+    // Nodes requests are spread across (round-robin), as "host:port" or "scheme://host:port".
+    private List<String> nodes = new ArrayList<>(List.of("localhost:9200"));
+    // Size of connection pool, in total and per node.
+    private int maxConnTotal = 100;
+    private int maxConnPerRoute = 50;
+    // Idle pooled connections are closed after this many seconds.
+    private int keepAliveSeconds = 60;
+    private int connectTimeoutMs = 1000;
+    private int socketTimeoutMs = 30_000;
+    // Ask for gzip compressed responses and send "_bulk" bodies gzip compressed.
+    private boolean compression = true;
+    // Every node is checked this often, nodes which fail the check get no requests. 0 disables the check.
+    private int healthCheckSeconds = 10;
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<String> nodes) {
+        this.nodes = nodes;
+    }
+
+    public int getMaxConnTotal() {
+        return maxConnTotal;
+    }
+
+    public void setMaxConnTotal(int maxConnTotal) {
+        this.maxConnTotal = maxConnTotal;
+    }
+
+    public int getMaxConnPerRoute() {
+        return maxConnPerRoute;
+    }
+
+    public void setMaxConnPerRoute(int maxConnPerRoute) {
+        this.maxConnPerRoute = maxConnPerRoute;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public int getSocketTimeoutMs() {
+        return socketTimeoutMs;
+    }
+
+    public void setSocketTimeoutMs(int socketTimeoutMs) {
+        this.socketTimeoutMs = socketTimeoutMs;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public int getHealthCheckSeconds() {
+        return healthCheckSeconds;
+    }
+
+    public void setHealthCheckSeconds(int healthCheckSeconds) {
+        this.healthCheckSeconds = healthCheckSeconds;
+    }
+}
@@ -1,23 +1,97 @@
 package com.example.SpringBootPlusElasticsearch.Config;
 
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.elasticsearch.client.ClientConfiguration;
-import org.springframework.data.elasticsearch.client.RestClients;
 import org.springframework.data.elasticsearch.config.AbstractElasticsearchConfiguration;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+    RestHighLevelClient is built from "elasticsearch.client.*" (see ElasticsearchClientProperties):
+    - requests are sent round-robin to every configured node, skipping nodes which
+      ElasticsearchNodeMonitor found down. RestClient additionally backs off from a node
+      for a while after a request to it failed.
+    - connections come from a pool we create ourselves, so that its usage can be
+      reported by "/admin/client".
+    - with "compression" responses are asked for gzip compressed. RestClient (7.9) unwraps
+      them itself, a response with "Content-Encoding: gzip" gets a GzipDecompressingEntity, so
+      parsers of the high level client and raw searches read plain JSON.
+*/
 @Configuration
 public class ElasticsearchConfig extends AbstractElasticsearchConfiguration {
 
+    @Autowired
+    private ElasticsearchClientProperties properties;
+
     @Override
     @Bean
     public RestHighLevelClient elasticsearchClient() {
-        final ClientConfiguration clientConfiguration = ClientConfiguration.builder()
-                .connectedTo("localhost:9200")
+        PoolingNHttpClientConnectionManager connectionManager = elasticsearchConnectionManager();
+        ElasticsearchNodeMonitor nodeMonitor = elasticsearchNodeMonitor();
+        long keepAliveMillis = TimeUnit.SECONDS.toMillis(properties.getKeepAliveSeconds());
+
+        Header[] defaultHeaders = properties.isCompression()
+                ? new Header[]{new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "gzip")}
+                : new Header[0];
+
+        return new RestHighLevelClient(RestClient
+                .builder(hosts().toArray(new HttpHost[0]))
+                .setNodeSelector(nodeMonitor)
+                .setFailureListener(nodeMonitor)
+                .setDefaultHeaders(defaultHeaders)
+                .setRequestConfigCallback(requestConfig -> requestConfig
+                        .setConnectTimeout(properties.getConnectTimeoutMs())
+                        .setSocketTimeout(properties.getSocketTimeoutMs()))
+                .setHttpClientConfigCallback(httpClient -> httpClient
+                        .setConnectionManager(connectionManager)
+                        .setKeepAliveStrategy((response, context) -> keepAliveMillis)));
+    }
+
+    // Closed together with RestHighLevelClient, so no destroy method here.
+    @Bean(destroyMethod = "")
+    public PoolingNHttpClientConnectionManager elasticsearchConnectionManager() {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(Runtime.getRuntime().availableProcessors())
+                .setConnectTimeout(properties.getConnectTimeoutMs())
+                .setSoTimeout(properties.getSocketTimeoutMs())
+                .setSoKeepAlive(true)
                 .build();
+        try {
+            PoolingNHttpClientConnectionManager connectionManager =
+                    new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+            connectionManager.setMaxTotal(properties.getMaxConnTotal());
+            connectionManager.setDefaultMaxPerRoute(properties.getMaxConnPerRoute());
+            return connectionManager;
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Could not create I/O reactor of elasticsearch client", e);
+        }
+    }
+
+    @Bean(destroyMethod = "stop")
+    public ElasticsearchNodeMonitor elasticsearchNodeMonitor() {
+        ElasticsearchNodeMonitor nodeMonitor = new ElasticsearchNodeMonitor(hosts(), properties.getConnectTimeoutMs());
+        nodeMonitor.start(properties.getHealthCheckSeconds());
+        return nodeMonitor;
+    }
 
-        return RestClients.create(clientConfiguration).rest();
+    private List<HttpHost> hosts() {
+        return properties.getNodes().stream()
+                .map(String::trim)
+                .map(HttpHost::create)
+                .collect(Collectors.toList());
     }
 
     // For ElasticsearchRestTemplate (AbstractElasticsearchConfiguration will
@@ -0,0 +1,149 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ Keeps track of health of every configured elasticsearch node.
+
+ - Every "healthCheckSeconds" each node is sent "HEAD /". A node which does not answer
+   with 2xx is marked down, and marked up again by the first check it passes.
+ - A request which fails on a node (reported by RestClient through onFailure()) marks
+   that node down straight away, without waiting for the next check.
+ - As NodeSelector, it drops the nodes which are down from the nodes RestClient is about
+   to try. If every node is down, nothing is dropped and RestClient's own dead-node
+   back-off decides which node is retried.
+ **/
+public class ElasticsearchNodeMonitor extends RestClient.FailureListener implements NodeSelector {
+
+    private final Map<HttpHost, NodeHealth> health = new LinkedHashMap<>();
+    private final int timeoutMs;
+    private ScheduledExecutorService scheduler;
+
+    public ElasticsearchNodeMonitor(List<HttpHost> hosts, int timeoutMs) {
+        for (HttpHost host : hosts)
+            health.put(host, new NodeHealth());
+        this.timeoutMs = timeoutMs;
+    }
+
+    public synchronized void start(int intervalSeconds) {
+        if (intervalSeconds <= 0 || scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "elasticsearch-node-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    void checkAll() {
+        for (Map.Entry<HttpHost, NodeHealth> entry : health.entrySet()) {
+            boolean up = check(entry.getKey());
+            NodeHealth nodeHealth = entry.getValue();
+            nodeHealth.lastCheck = System.currentTimeMillis();
+            if (!up)
+                nodeHealth.failedChecks.incrementAndGet();
+            nodeHealth.up = up;
+        }
+    }
+
+    private boolean check(HttpHost host) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(host.toURI() + "/").openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(timeoutMs);
+            connection.setReadTimeout(timeoutMs);
+            int status = connection.getResponseCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null)
+                connection.disconnect();
+        }
+    }
+
+    @Override
+    public void onFailure(Node node) {
+        NodeHealth nodeHealth = health.get(node.getHost());
+        if (nodeHealth != null) {
+            nodeHealth.up = false;
+            nodeHealth.requestFailures.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        boolean anyUp = false;
+        for (Node node : nodes) {
+            if (isUp(node.getHost())) {
+                anyUp = true;
+                break;
+            }
+        }
+        if (!anyUp)
+            return;
+        Iterator<Node> itr = nodes.iterator();
+        while (itr.hasNext()) {
+            if (!isUp(itr.next().getHost()))
+                itr.remove();
+        }
+    }
+
+    public boolean isUp(HttpHost host) {
+        NodeHealth nodeHealth = health.get(host);
+        return nodeHealth == null || nodeHealth.up;
+    }
+
+    public List<HttpHost> getHosts() {
+        return new ArrayList<>(health.keySet());
+    }
+
+    public long getRequestFailures(HttpHost host) {
+        return health.get(host).requestFailures.get();
+    }
+
+    public long getFailedChecks(HttpHost host) {
+        return health.get(host).failedChecks.get();
+    }
+
+    public long getLastCheck(HttpHost host) {
+        return health.get(host).lastCheck;
+    }
+
+    @Override
+    public String toString() {
+        return "HEALTHY_NODES";
+    }
+
+    private static class NodeHealth {
+        // Optimistic until the first check, so requests are not held back at start up.
+        private volatile boolean up = true;
+        private volatile long lastCheck;
+        private final AtomicLong requestFailures = new AtomicLong();
+        private final AtomicLong failedChecks = new AtomicLong();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Settings of hedged searches (see SearchHedger), read from "elasticsearch.hedge.*" in application.properties.
+    A search of "operations" which has not answered after the "percentile" of its latency is sent once more,
+    as long as hedges stay under "budgetPercent" of those searches.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "elasticsearch.hedge")
+public class HedgeProperties {
+
+    private boolean enabled = false;
+    // DAO operations which are hedged, by prefix of their name (e.g. "MovieDao.").
+    private List<String> operations = new ArrayList<>();
+    private double percentile = 95;
+    // Bounds of the delay; "maxDelayMs" is used until "minSamples" latencies of an operation are known.
+    private long minDelayMs = 5;
+    private long maxDelayMs = 1000;
+    private int minSamples = 100;
+    // How often the delay of every operation is computed again, from latencies since the last time.
+    private int refreshSeconds = 10;
+    private double budgetPercent = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<String> operations) {
+        this.operations = operations;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public long getMinDelayMs() {
+        return minDelayMs;
+    }
+
+    public void setMinDelayMs(long minDelayMs) {
+        this.minDelayMs = minDelayMs;
+    }
+
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    public void setMaxDelayMs(long maxDelayMs) {
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public int getRefreshSeconds() {
+        return refreshSeconds;
+    }
+
+    public void setRefreshSeconds(int refreshSeconds) {
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public void setBudgetPercent(double budgetPercent) {
+        this.budgetPercent = budgetPercent;
+    }
+}
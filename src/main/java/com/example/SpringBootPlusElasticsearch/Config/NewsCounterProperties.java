@@ -0,0 +1,72 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Settings of headline counters per category and day (see NewsCounters), read from "news.counters.*"
+    in application.properties. Counters are written to "checkpointFile" every "checkpointSeconds"
+    when they changed, and once more on shutdown.
+    Only headlines dated from "firstDate" to "lastDate" ("yyyy-MM-dd", both included) are counted,
+    which bounds the memory of the counters; a headline outside is not counted.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "news.counters")
+public class NewsCounterProperties {
+
+    private boolean enabled = true;
+    private String checkpointFile = "news-counters.bin";
+    private int checkpointSeconds = 60;
+    // Wait for a refresh of the index before counting it again after a bulk load with failures.
+    private int rebuildDelaySeconds = 5;
+    private String firstDate = "1900-01-01";
+    private String lastDate = "2099-12-31";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public int getCheckpointSeconds() {
+        return checkpointSeconds;
+    }
+
+    public void setCheckpointSeconds(int checkpointSeconds) {
+        this.checkpointSeconds = checkpointSeconds;
+    }
+
+    public int getRebuildDelaySeconds() {
+        return rebuildDelaySeconds;
+    }
+
+    public void setRebuildDelaySeconds(int rebuildDelaySeconds) {
+        this.rebuildDelaySeconds = rebuildDelaySeconds;
+    }
+
+    public String getFirstDate() {
+        return firstDate;
+    }
+
+    public void setFirstDate(String firstDate) {
+        this.firstDate = firstDate;
+    }
+
+    public String getLastDate() {
+        return lastDate;
+    }
+
+    public void setLastDate(String lastDate) {
+        this.lastDate = lastDate;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Settings of monthly news partitions (see NewsPartitions), read from "news.partitions.*" in application.properties.
+    Headlines are written through "writeAlias" into "<prefix>yyyy.MM" of their date and read through "readAlias".
+    Partitions older than "writableMonths" are made read-only and force-merged to "forceMergeSegments".
+*/
+@Configuration
+@ConfigurationProperties(prefix = "news.partitions")
+public class NewsPartitionProperties {
+
+    private boolean enabled = true;
+    private String prefix = "news_headlines-";
+    private String writeAlias = "news_headlines_write";
+    private String readAlias = "news_headlines_read";
+    // Single index used before partitions; it is kept behind the read alias until it is reindexed.
+    private String legacyIndex = "news_headlines";
+    private String template = "news-partitions";
+    private String pipeline = "news-partition";
+    private int shards = 1;
+    // The current month and the ones before it which still take writes (late headlines).
+    private int writableMonths = 2;
+    private int forceMergeSegments = 1;
+    private int maintenanceMinutes = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getWriteAlias() {
+        return writeAlias;
+    }
+
+    public void setWriteAlias(String writeAlias) {
+        this.writeAlias = writeAlias;
+    }
+
+    public String getReadAlias() {
+        return readAlias;
+    }
+
+    public void setReadAlias(String readAlias) {
+        this.readAlias = readAlias;
+    }
+
+    public String getLegacyIndex() {
+        return legacyIndex;
+    }
+
+    public void setLegacyIndex(String legacyIndex) {
+        this.legacyIndex = legacyIndex;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(String template) {
+        this.template = template;
+    }
+
+    public String getPipeline() {
+        return pipeline;
+    }
+
+    public void setPipeline(String pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getWritableMonths() {
+        return writableMonths;
+    }
+
+    public void setWritableMonths(int writableMonths) {
+        this.writableMonths = writableMonths;
+    }
+
+    public int getForceMergeSegments() {
+        return forceMergeSegments;
+    }
+
+    public void setForceMergeSegments(int forceMergeSegments) {
+        this.forceMergeSegments = forceMergeSegments;
+    }
+
+    public int getMaintenanceMinutes() {
+        return maintenanceMinutes;
+    }
+
+    public void setMaintenanceMinutes(int maintenanceMinutes) {
+        this.maintenanceMinutes = maintenanceMinutes;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Settings of query result cache, read from "movies.cache.*" in application.properties.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "movies.cache")
+public class QueryCacheProperties {
+
+    private boolean enabled = true;
+    // Total estimated size of all the entries, hits weigh their content as JSON (see QueryResultCache).
+    private long maxBytes = 64L * 1024 * 1024;
+    // Entry is dropped this many seconds after it was loaded, even if index did not change.
+    private long ttlSeconds = 300;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
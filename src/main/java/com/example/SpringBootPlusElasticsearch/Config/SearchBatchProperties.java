@@ -0,0 +1,42 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Settings of "_msearch" batching of searches, read from "elasticsearch.msearch.*" in application.properties.
+    A batch is sent as soon as it has "maxBatchSize" searches, or "windowMicros" after its first search.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "elasticsearch.msearch")
+public class SearchBatchProperties {
+
+    private boolean enabled = true;
+    // Longest time a search waits for others to join its batch.
+    private long windowMicros = 500;
+    private int maxBatchSize = 50;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowMicros() {
+        return windowMicros;
+    }
+
+    public void setWindowMicros(long windowMicros) {
+        this.windowMicros = windowMicros;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+}
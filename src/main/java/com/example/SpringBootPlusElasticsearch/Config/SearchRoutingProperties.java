@@ -0,0 +1,76 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Settings of cache-affine routing of searches (see SearchRouting), read from "elasticsearch.routing.*"
+    in application.properties. Searches of "operations" get a stable "preference": the value of
+    "sessionHeader" of the HTTP request when it has one, otherwise one of "spread" keys of their operation.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "elasticsearch.routing")
+public class SearchRoutingProperties {
+
+    private boolean enabled = true;
+    // DAO operations which are routed, by prefix of their name (e.g. "MovieDao.").
+    private List<String> operations = new ArrayList<>();
+    private String sessionHeader = "X-Session-Id";
+    // Preference keys per operation; searches of one operation are spread over this many of them by their query.
+    private int spread = 4;
+    // Searches without hits ("size": 0, e.g. aggregations) are sent with "request_cache=true".
+    private boolean requestCache = true;
+    // Indices whose shard request cache is reported by "/admin/request-cache".
+    private List<String> statsIndices = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<String> operations) {
+        this.operations = operations;
+    }
+
+    public String getSessionHeader() {
+        return sessionHeader;
+    }
+
+    public void setSessionHeader(String sessionHeader) {
+        this.sessionHeader = sessionHeader;
+    }
+
+    public int getSpread() {
+        return spread;
+    }
+
+    public void setSpread(int spread) {
+        this.spread = spread;
+    }
+
+    public boolean isRequestCache() {
+        return requestCache;
+    }
+
+    public void setRequestCache(boolean requestCache) {
+        this.requestCache = requestCache;
+    }
+
+    public List<String> getStatsIndices() {
+        return statsIndices;
+    }
+
+    public void setStatsIndices(List<String> statsIndices) {
+        this.statsIndices = statsIndices;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Settings of slow query capture (see SlowQueryLog), read from "elasticsearch.slow-query.*" in application.properties.
+    A search slower than "thresholdMs" is kept; "sampleRate" of those are run again with profiling.
+*/
+@Configuration
+@ConfigurationProperties(prefix = "elasticsearch.slow-query")
+public class SlowQueryProperties {
+
+    private boolean enabled = true;
+    // Whole call as the DAO sees it, not only "took" of elasticsearch.
+    private long thresholdMs = 500;
+    // 0 to never profile, 1 to profile every slow query.
+    private double sampleRate = 0.1;
+    // Slow queries kept in memory, oldest is dropped first.
+    private int capacity = 100;
+    // Profiling runs the query again, so only this many run at the same time.
+    private int maxProfilesInFlight = 2;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getThresholdMs() {
+        return thresholdMs;
+    }
+
+    public void setThresholdMs(long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getMaxProfilesInFlight() {
+        return maxProfilesInFlight;
+    }
+
+    public void setMaxProfilesInFlight(int maxProfilesInFlight) {
+        this.maxProfilesInFlight = maxProfilesInFlight;
+    }
+}
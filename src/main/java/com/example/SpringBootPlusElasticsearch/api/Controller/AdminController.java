@@ -0,0 +1,125 @@
+package com.example.SpringBootPlusElasticsearch.api.Controller;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.ElasticsearchClientStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.HedgeStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.LimiterStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.OperationStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryPlan;
+import com.example.SpringBootPlusElasticsearch.api.Models.RequestCacheReport;
+import com.example.SpringBootPlusElasticsearch.api.Models.SearchStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.SlowQuery;
+import com.example.SpringBootPlusElasticsearch.api.Service.AdminService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/*
+    Methods from this class will accept http request prefix by "/admin".
+    They report state of the application, e.g. connection pool of elasticsearch client.
+*/
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final AdminService adminService;
+    @Autowired
+    public AdminController(AdminService adminService){
+        this.adminService = adminService;
+    }
+
+    /*
+        Connection pool usage (in total and per node) and health of every node.
+    */
+    @GetMapping("/client")
+    public ElasticsearchClientStats getClientStats()
+    {
+        return adminService.getClientStats();
+    }
+
+    /*
+        How many searches were asked for, and how many of them were collapsed
+        into an identical search which was already in flight.
+    */
+    @GetMapping("/searches")
+    public SearchStats getSearchStats()
+    {
+        return adminService.getSearchStats();
+    }
+
+    /*
+        Latency (total, "took" of elasticsearch, and the rest), hits, bytes and errors
+        of every DAO operation on every index, since start of the application.
+    */
+    @GetMapping("/operations")
+    public List<OperationStats> getOperationStats()
+    {
+        return adminService.getOperationStats();
+    }
+
+    /*
+        Slow searches, newest first; those which were run again with "profile": true have the
+        breakdown of every shard. E.g. "/admin/slow-queries?operation=MovieDao.getMoviesByPlot_3&minMillis=1000".
+    */
+    @GetMapping("/slow-queries")
+    public List<SlowQuery> getSlowQueries(@RequestParam(value = "operation", required = false) String operation,
+                                          @RequestParam(value = "minMillis", defaultValue = "0") long minMillis,
+                                          @RequestParam(value = "limit", defaultValue = "20") int limit)
+    {
+        return adminService.getSlowQueries(operation, minMillis, limit);
+    }
+
+    /*
+        Adaptive limit of requests in flight (see ConcurrencyLimiter): where it is now,
+        how many requests hold it, and how many were turned away with 503.
+    */
+    @GetMapping("/limiter")
+    public LimiterStats getLimiterStats()
+    {
+        return adminService.getLimiterStats();
+    }
+
+    /*
+        Hedged searches (see SearchHedger): how many searches were hedged, how often the
+        hedge answered first, and the current delay of every operation.
+    */
+    @GetMapping("/hedging")
+    public HedgeStats getHedgeStats()
+    {
+        return adminService.getHedgeStats();
+    }
+
+    /*
+        Hit rates of the shard request cache per index (see RequestCacheMonitor): "before" up to
+        the baseline taken at start up, "after" since then; and how searches were routed.
+        502 when elasticsearch does not give its stats.
+    */
+    @GetMapping("/request-cache")
+    public RequestCacheReport getRequestCacheReport()
+    {
+        return adminService.getRequestCacheReport();
+    }
+
+    /*
+        Start counting "after" again, e.g. once other routing settings are deployed.
+    */
+    @PostMapping("/request-cache/baseline")
+    public void resetRequestCacheBaseline()
+    {
+        adminService.resetRequestCacheBaseline();
+    }
+
+    /*
+        Last query of every DAO operation as it was built and as QueryPlanner rewrote it, with
+        the list of changes. E.g. "/admin/query-plans?operation=BankDao.getAllByState".
+    */
+    @GetMapping("/query-plans")
+    public List<QueryPlan> getQueryPlans(@RequestParam(value = "operation", required = false) String operation)
+    {
+        return adminService.getQueryPlans(operation);
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /*
     Methods from this class will accept http request prefix by "/bank".
@@ -36,21 +37,21 @@ public class BankController {
     }
 
     @RequestMapping("/FName/{FirstName}")
-    public SearchHits<Bank> getAllByFirstName(@PathVariable("FirstName") String name)
+    public CompletableFuture<SearchHits<Bank>> getAllByFirstName(@PathVariable("FirstName") String name)
     {
-        return bankService.getAllByFirstName(name);
+        return bankService.getAllByFirstNameAsync(name);
     }
 
     @RequestMapping("/city/{CityName}")
-    public SearchHits<Bank> getAllByCity(@PathVariable("CityName") String name)
+    public CompletableFuture<SearchHits<Bank>> getAllByCity(@PathVariable("CityName") String name)
     {
-        return bankService.getAllByCity(name);
+        return bankService.getAllByCityAsync(name);
     }
 
     @RequestMapping("/state/{StateName}")
-    public SearchHits<Bank> getAllByState(@PathVariable("StateName") String name)
+    public CompletableFuture<SearchHits<Bank>> getAllByState(@PathVariable("StateName") String name)
     {
-        return bankService.getAllByState(name);
+        return bankService.getAllByStateAsync(name);
     }
 
 }
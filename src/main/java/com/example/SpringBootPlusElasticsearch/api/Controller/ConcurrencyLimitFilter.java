@@ -0,0 +1,111 @@
+package com.example.SpringBootPlusElasticsearch.api.Controller;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.api.Daos.ConcurrencyLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/*
+    Every request (but "/admin/...", which must answer while elasticsearch is struggling, and
+    paths of "elasticsearch.limit.exempt-paths", which are answered from memory)
+    takes a permit of ConcurrencyLimiter, or is answered 503 with "Retry-After" at once.
+    Permit is held until the response is complete, also when it is completed asynchronously
+    (CompletableFuture or streamed results).
+    Paths of "elasticsearch.limit.low-priority-paths" run with low priority.
+*/
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final ConcurrencyLimiter limiter;
+    private final List<String> lowPriorityPaths;
+    private final List<String> exemptPaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper pathHelper = new UrlPathHelper();
+
+    public ConcurrencyLimitFilter(ConcurrencyLimiter limiter, ConcurrencyLimitProperties properties) {
+        this.limiter = limiter;
+        this.lowPriorityPaths = properties.getLowPriorityPaths();
+        this.exemptPaths = properties.getExemptPaths();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !limiter.isEnabled() || isExempt(pathHelper.getPathWithinApplication(request));
+    }
+
+    boolean isExempt(String path) {
+        if (path.startsWith("/admin/"))
+            return true;
+        for (String pattern : exemptPaths)
+            if (pathMatcher.match(pattern, path))
+                return true;
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException
+    {
+        ConcurrencyLimiter.Priority priority = priority(pathHelper.getPathWithinApplication(request));
+        if (!limiter.tryAcquire(priority)) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(limiter.getRetryAfterSeconds()));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many requests in flight to elasticsearch");
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+            if (async)
+                request.getAsyncContext().addListener(new Release(priority));
+        } finally {
+            if (!async)
+                limiter.release(priority);
+        }
+    }
+
+    ConcurrencyLimiter.Priority priority(String path) {
+        for (String pattern : lowPriorityPaths)
+            if (pathMatcher.match(pattern, path))
+                return ConcurrencyLimiter.Priority.LOW;
+        return ConcurrencyLimiter.Priority.HIGH;
+    }
+
+    // onComplete comes last for every async request, also after a timeout or an error.
+    private class Release implements AsyncListener {
+        private final ConcurrencyLimiter.Priority priority;
+
+        Release(ConcurrencyLimiter.Priority priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release(priority);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package com.example.SpringBootPlusElasticsearch.api.Controller;
 
+import com.example.SpringBootPlusElasticsearch.api.Daos.CompositeCursor;
+import com.example.SpringBootPlusElasticsearch.api.Daos.MovieProjection;
+import com.example.SpringBootPlusElasticsearch.api.Daos.RefreshAheadValue;
+import com.example.SpringBootPlusElasticsearch.api.Models.AnalyzedToken;
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
+import com.example.SpringBootPlusElasticsearch.api.Models.CompositePage;
 import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryCacheStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.TitleSuggestion;
 import com.example.SpringBootPlusElasticsearch.api.Service.MovieService;
-import org.elasticsearch.client.indices.AnalyzeResponse;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.junit.Assert;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /*
     Methods from this class will accept http request prefix by "/bank".
@@ -31,10 +44,62 @@ public class MovieController {
         return movieService.getAllMovies();
     }
 
+    /*
+        Streaming version of "/getAll". Each movie is written as one line of NDJSON
+        as soon as its page arrives, e.g. "/movies/export?pageSize=500&fields=title,year"
+    */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportAllMovies(@RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                 @RequestParam(value = "fields", required = false) String[] ListOfFields)
+    {
+        return out -> movieService.exportAllMovies(out, pageSize, ListOfFields);
+    }
+
+    @GetMapping("/cacheStats")
+    public QueryCacheStats getCacheStats()
+    {
+        return movieService.getCacheStats();
+    }
+
+    /*
+        Title type-ahead, e.g. "/movies/suggest?prefix=the matr&size=5".
+        Answered from memory, so it can be called on every keystroke.
+    */
+    @GetMapping("/suggest")
+    public List<TitleSuggestion> suggestTitles(@RequestParam("prefix") String prefix,
+                                               @RequestParam(value = "size", required = false) Integer size)
+    {
+        return movieService.suggestTitles(prefix, size);
+    }
+
+    /*
+        Every search below takes "fields=", e.g. "/movies/title/matrix?fields=title,year,imdb.rating".
+        Hits then hold only those fields (MovieSummary instead of Movies), and elasticsearch
+        sends nothing else. "fields=" without value gives title, year and imdb.rating.
+
+        With "raw=true" (and optional "from", "size") the same search answers with "_source"
+        of each hit as elasticsearch sent it, without mapping hits into objects and back:
+        {"total":..,"totalRelation":..,"from":..,"size":..,"took":..,"hits":[{"_id":..,"_source":{..}}]}
+        Its parameters are checked before the body is returned, a bad one answers 400.
+    */
     @GetMapping("/title/{name}")
-    public SearchHits<Movies> getMoviesByTitle(@PathVariable("name") String movieTitle)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByTitle(@PathVariable("name") String movieTitle,
+                                                                       @RequestParam(value = "fields", required = false) String[] ListOfFields)
     {
-        return movieService.getMoviesByTitle(movieTitle);
+        if (ListOfFields == null)
+            return movieService.getMoviesByTitleAsync(movieTitle);
+        return movieService.getMoviesByTitleAsync(movieTitle, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/title/{name}", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByTitleRaw(@PathVariable("name") String movieTitle,
+                                                     @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                     @RequestParam(value = "from", defaultValue = "0") int from,
+                                                     @RequestParam(value = "size", defaultValue = "10") int size)
+    {
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByTitleRaw(movieTitle, projection, from, size, out);
     }
 
     @PostMapping("/addData")
@@ -48,88 +113,267 @@ public class MovieController {
     {
         String returnId = movieService.deleteData(DocId);
         Assert.assertEquals("ID of deleted Document Should be same as Given ID", DocId, returnId);
-        return movieService.deleteData(DocId);
+        return returnId;
     }
 
     @GetMapping("/castMust")
-    public SearchHits<Movies> getMoviesByCastMust(@RequestBody  String... cast)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByCastMust(@RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                                          @RequestBody  String... cast)
+    {
+        if (ListOfFields == null)
+            return movieService.getMoviesByCastMustAsync(cast);
+        return movieService.getMoviesByCastMustAsync(cast, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/castMust", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByCastMustRaw(@RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                        @RequestBody String[] cast,
+                                                        @RequestParam(value = "from", defaultValue = "0") int from,
+                                                        @RequestParam(value = "size", defaultValue = "10") int size)
     {
-        return movieService.getMoviesByCastMust(cast);
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByCastMustRaw(cast, projection, from, size, out);
     }
 
     @GetMapping("/castShould/{minShouldMatch}")
-    public SearchHits<Movies> getMoviesByCastShould(@PathVariable("minShouldMatch") int minMatch,
-                                                    @RequestBody String... cast)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByCastShould(@PathVariable("minShouldMatch") int minMatch,
+                                                                            @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                                            @RequestBody String... cast)
     {
-        return movieService.getMoviesByCastShould(minMatch,cast);
+        if (ListOfFields == null)
+            return movieService.getMoviesByCastShouldAsync(minMatch,cast);
+        return movieService.getMoviesByCastShouldAsync(minMatch, cast, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/castShould/{minShouldMatch}", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByCastShouldRaw(@PathVariable("minShouldMatch") int minMatch,
+                                                          @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                          @RequestBody String[] cast,
+                                                          @RequestParam(value = "from", defaultValue = "0") int from,
+                                                          @RequestParam(value = "size", defaultValue = "10") int size)
+    {
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkMinShouldMatch(minMatch, cast);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByCastShouldRaw(minMatch, cast, projection, from, size, out);
     }
 
     @GetMapping("/FullPlotSearch")
-    public SearchHits<Movies> getMoviesByFullPlot(@RequestBody String plotData)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByFullPlot(@RequestBody String plotData,
+                                                                          @RequestParam(value = "fields", required = false) String[] ListOfFields)
+    {
+        if (ListOfFields == null)
+            return movieService.getMoviesByFullPlotAsync(plotData);
+        return movieService.getMoviesByFullPlotAsync(plotData, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/FullPlotSearch", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByFullPlotRaw(@RequestBody String plotData,
+                                                        @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                        @RequestParam(value = "from", defaultValue = "0") int from,
+                                                        @RequestParam(value = "size", defaultValue = "10") int size)
     {
-        return movieService.getMoviesByFullPlot(plotData);
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByFullPlotRaw(plotData, projection, from, size, out);
     }
 
     @GetMapping("/Analyzer/{type}")
-    public List<AnalyzeResponse.AnalyzeToken> trialAnalyzer(@PathVariable("type") String analyzerType,
-                                                            @RequestBody String... textToAnalyze)
+    public CompletableFuture<List<AnalyzedToken>> trialAnalyzer(@PathVariable("type") String analyzerType,
+                                                               @RequestBody String... textToAnalyze)
     {
         System.out.println(textToAnalyze);
-        return movieService.trialAnalyzer(analyzerType, textToAnalyze);
+        return movieService.trialAnalyzerAsync(analyzerType, textToAnalyze);
     }
 
     @GetMapping("/titleUp")
-    public SearchHits<Movies> getMoviesByTitleUpdated(@RequestBody String movie)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByTitleUpdated(@RequestBody String movie,
+                                                                              @RequestParam(value = "fields", required = false) String[] ListOfFields)
+    {
+        if (ListOfFields == null)
+            return movieService.getMoviesByTitleUpdatedAsync(movie);
+        return movieService.getMoviesByTitleUpdatedAsync(movie, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/titleUp", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByTitleUpdatedRaw(@RequestBody String movie,
+                                                            @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                            @RequestParam(value = "from", defaultValue = "0") int from,
+                                                            @RequestParam(value = "size", defaultValue = "10") int size)
     {
-        return movieService.getMoviesByTitleUpdated(movie);
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByTitleUpdatedRaw(movie, projection, from, size, out);
     }
 
     @GetMapping("/director/{DirectorName}")
-    public SearchHits<Movies> getMoviesOfDirectors(@PathVariable("DirectorName") String directorName)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesOfDirectors(@PathVariable("DirectorName") String directorName,
+                                                                           @RequestParam(value = "fields", required = false) String[] ListOfFields)
+    {
+        if (ListOfFields == null)
+            return movieService.getMoviesOfDirectorsAsync(directorName);
+        return movieService.getMoviesOfDirectorsAsync(directorName, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/director/{DirectorName}", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesOfDirectorsRaw(@PathVariable("DirectorName") String directorName,
+                                                         @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                         @RequestParam(value = "from", defaultValue = "0") int from,
+                                                         @RequestParam(value = "size", defaultValue = "10") int size)
     {
-        return movieService.getMoviesOfDirectors(directorName);
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesOfDirectorsRaw(directorName, projection, from, size, out);
     }
 
     @GetMapping("/castExact/{name}")
-    public SearchHits<Movies> getMoviesByCastExact(@PathVariable("name") String castName)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByCastExact(@PathVariable("name") String castName,
+                                                                           @RequestParam(value = "fields", required = false) String[] ListOfFields)
     {
-        return movieService.getMoviesByCastExact(castName);
+        if (ListOfFields == null)
+            return movieService.getMoviesByCastExactAsync(castName);
+        return movieService.getMoviesByCastExactAsync(castName, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/castExact/{name}", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByCastExactRaw(@PathVariable("name") String castName,
+                                                         @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                         @RequestParam(value = "from", defaultValue = "0") int from,
+                                                         @RequestParam(value = "size", defaultValue = "10") int size)
+    {
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByCastExactRaw(castName, projection, from, size, out);
     }
 
     @GetMapping("/castExactCustomFields/{name}")
-    public org.elasticsearch.search.SearchHits getMoviesByCastExact(@PathVariable("name") String castName,@RequestBody String... ListOfFields)
+    public CompletableFuture<org.elasticsearch.search.SearchHits> getMoviesByCastExactCustomFields(@PathVariable("name") String castName,@RequestBody String... ListOfFields)
     {
-        return movieService.getMoviesByCastExact(castName, ListOfFields);
+        return movieService.getMoviesByCastExactAsync(castName, ListOfFields);
     }
 
     @GetMapping("/PlotSearch1")
-    public SearchHits<Movies> getMoviesByPlot(@RequestBody String movieDescription)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByPlot(@RequestBody String movieDescription,
+                                                                      @RequestParam(value = "fields", required = false) String[] ListOfFields)
     {
-        return movieService.getMoviesByPlot(movieDescription);
+        if (ListOfFields == null)
+            return movieService.getMoviesByPlotAsync(movieDescription);
+        return movieService.getMoviesByPlotAsync(movieDescription, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/PlotSearch1", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByPlotRaw(@RequestBody String movieDescription,
+                                                    @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                    @RequestParam(value = "from", defaultValue = "0") int from,
+                                                    @RequestParam(value = "size", defaultValue = "10") int size)
+    {
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByPlotRaw(movieDescription, projection, from, size, out);
     }
 
     @GetMapping("/PlotSearch2")
-    public SearchHits<Movies> getMoviesByPlot_2(@RequestBody String movieDescription)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByPlot_2(@RequestBody String movieDescription,
+                                                                        @RequestParam(value = "fields", required = false) String[] ListOfFields)
+    {
+        if (ListOfFields == null)
+            return movieService.getMoviesByPlot_2Async(movieDescription);
+        return movieService.getMoviesByPlot_2Async(movieDescription, MovieProjection.of(ListOfFields));
+    }
+
+    @GetMapping(value = "/PlotSearch2", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByPlot_2Raw(@RequestBody String movieDescription,
+                                                      @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                      @RequestParam(value = "from", defaultValue = "0") int from,
+                                                      @RequestParam(value = "size", defaultValue = "10") int size)
     {
-        return movieService.getMoviesByPlot_2(movieDescription);
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByPlot_2Raw(movieDescription, projection, from, size, out);
     }
 
     @GetMapping("/PlotSearch3")
-    public SearchHits<Movies> getMoviesByPlot_3(@RequestBody String PlotData)
+    public CompletableFuture<? extends SearchHits<?>> getMoviesByPlot_3(@RequestBody String PlotData,
+                                                                        @RequestParam(value = "fields", required = false) String[] ListOfFields)
     {
-        return movieService.getMoviesByPlot_3(PlotData);
+        if (ListOfFields == null)
+            return movieService.getMoviesByPlot_3Async(PlotData);
+        return movieService.getMoviesByPlot_3Async(PlotData, MovieProjection.of(ListOfFields));
     }
 
+    @GetMapping(value = "/PlotSearch3", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getMoviesByPlot_3Raw(@RequestBody String PlotData,
+                                                      @RequestParam(value = "fields", required = false) String[] ListOfFields,
+                                                      @RequestParam(value = "from", defaultValue = "0") int from,
+                                                      @RequestParam(value = "size", defaultValue = "10") int size)
+    {
+        MovieProjection projection = ListOfFields == null ? null : MovieProjection.of(ListOfFields);
+        MovieService.checkPage(from, size);
+        return out -> movieService.getMoviesByPlot_3Raw(PlotData, projection, from, size, out);
+    }
+
+    /*
+        Aggregations below are precomputed. How old they are is reported in headers:
+        "Age" (seconds), "X-Computed-At" (epoch millis) and "X-Writes-Since".
+    */
     @GetMapping("/AggDirector")
-    public Aggregations getDirectorsMovieMetric(@RequestBody String... ListOfFields)
+    public CompletableFuture<ResponseEntity<Aggregations>> getDirectorsMovieMetric(@RequestBody String... ListOfFields)
     {
-        return movieService.getDirectorsMovieMetric(ListOfFields);
+        return movieService.getDirectorsMovieMetricAsync(ListOfFields).thenApply(MovieController::withStaleness);
     }
 
     @GetMapping("/AggDirLang")
-    public Aggregations getLanguageBasedMetric_1()
+    public CompletableFuture<ResponseEntity<Aggregations>> getLanguageBasedMetric_1()
+    {
+        return movieService.getLanguageBasedMetric_1Async().thenApply(MovieController::withStaleness);
+    }
+
+    /*
+        Every director (not only top 30) with its awards, one page per request, e.g.
+        "/movies/AggDirector/page?pageSize=500" and then "...&after=<after of previous page>"
+    */
+    @GetMapping("/AggDirector/page")
+    public CompletableFuture<CompositePage> getDirectorsMovieMetricPage(@RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                                       @RequestParam(value = "after", required = false) String after)
+    {
+        return movieService.getDirectorsMovieMetricPageAsync(pageSize, after);
+    }
+
+    @GetMapping("/AggDirLang/page")
+    public CompletableFuture<CompositePage> getLanguageBasedMetricPage(@RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                                      @RequestParam(value = "after", required = false) String after)
+    {
+        return movieService.getLanguageBasedMetricPageAsync(pageSize, after);
+    }
+
+    /*
+        All pages of "/AggDirector/page" in one response, one page per NDJSON line.
+    */
+    @GetMapping(value = "/AggDirector/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportDirectorsMovieMetric(@RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                            @RequestParam(value = "after", required = false) String after)
+    {
+        Map<String, Object> afterKey = CompositeCursor.decode(after);
+        return out -> movieService.exportDirectorMetrics(out, false, pageSize, afterKey);
+    }
+
+    @GetMapping(value = "/AggDirLang/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportLanguageBasedMetric(@RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                           @RequestParam(value = "after", required = false) String after)
+    {
+        Map<String, Object> afterKey = CompositeCursor.decode(after);
+        return out -> movieService.exportDirectorMetrics(out, true, pageSize, afterKey);
+    }
+
+    private static <T> ResponseEntity<T> withStaleness(RefreshAheadValue.Snapshot<T> snapshot)
     {
-        return movieService.getLanguageBasedMetric_1();
+        long ageSeconds = Math.max(0, System.currentTimeMillis() - snapshot.getComputedAt()) / 1000;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, Long.toString(ageSeconds))
+                .header("X-Computed-At", Long.toString(snapshot.getComputedAt()))
+                .header("X-Writes-Since", Long.toString(snapshot.getWritesSince()))
+                .body(snapshot.getValue());
     }
 
     @PutMapping("/CreateIndexTemplate")
@@ -172,9 +416,9 @@ public class MovieController {
     }
 
     @PutMapping("/IndexDocs/{indexName}/{indexFilename}/{pipelineName}")
-    public void IndexDocumentWithPipeline(@PathVariable String indexName,
-                                          @PathVariable String indexFilename,
-                                          @PathVariable String pipelineName){
-        movieService.IndexDocumentWithPipeline(indexName, indexFilename, pipelineName);
+    public BulkIngestReport IndexDocumentWithPipeline(@PathVariable String indexName,
+                                                      @PathVariable String indexFilename,
+                                                      @PathVariable String pipelineName){
+        return movieService.IndexDocumentWithPipeline(indexName, indexFilename, pipelineName);
     }
 }
@@ -1,13 +1,24 @@
 package com.example.SpringBootPlusElasticsearch.api.Controller;
 
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
 import com.example.SpringBootPlusElasticsearch.api.Models.NewsHeadLine;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHistogram;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsPartition;
 import com.example.SpringBootPlusElasticsearch.api.Service.NewsHeadLineService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /*
     Methods from this class will accept http request prefix by "/bank".
@@ -25,10 +36,65 @@ public class NewsHeadLineController {
     }
 
     @RequestMapping("/getAll")
-    public List<NewsHeadLine> getAllDoc()
+    public CompletableFuture<List<NewsHeadLine>> getAllDoc()
     {
-        List<NewsHeadLine> newsList = new ArrayList<>();
-        newsList = newsHeadLineService.getAllDoc();
-        return newsList;
+        return newsHeadLineService.getAllDocAsync();
+    }
+
+    /*
+        "/news/getAll?raw=true&from=0&size=100": one page of headlines, each "_source" passed
+        through as elasticsearch sent it (same envelope as "raw=true" of movie searches).
+    */
+    @RequestMapping(value = "/getAll", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody getAllDocRaw(@RequestParam(value = "from", defaultValue = "0") int from,
+                                              @RequestParam(value = "size", defaultValue = "10") int size)
+    {
+        NewsHeadLineService.checkPage(from, size);
+        return out -> newsHeadLineService.getAllDocRaw(from, size, out);
+    }
+
+    /*
+        "/news/range?from=2018-01-01&to=2018-02-28": headlines of that range, newest first. Only
+        the monthly partitions of January and February 2018 are searched.
+    */
+    @GetMapping("/range")
+    public CompletableFuture<List<NewsHeadLine>> getByDateRange(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to)
+    {
+        return newsHeadLineService.getByDateRangeAsync(from, to);
+    }
+
+    /*
+        "/news/histogram?from=2018-01-01&to=2018-01-31": headlines per category of each day, answered
+        from counters in memory; without "from" or "to" the histogram starts or ends with the headlines.
+        "ready" is false until the counters are known, "lastFailure" tells why they may not be.
+    */
+    @GetMapping("/histogram")
+    public NewsHistogram getHistogram(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to)
+    {
+        return newsHeadLineService.getHistogram(from, to);
+    }
+
+    /*
+        Bulk load of a file of headlines into their monthly partitions. Headlines of any month are
+        taken, also of old read-only partitions: those are opened for writes during the load, and
+        force-merged and made read-only again once it ends.
+    */
+    @PutMapping("/IndexDocs/{indexFilename}")
+    public BulkIngestReport IndexDocs(@PathVariable String indexFilename)
+    {
+        return newsHeadLineService.IndexDocs(indexFilename);
+    }
+
+    /*
+        Monthly partitions, which one takes writes and which are read-only.
+    */
+    @GetMapping("/partitions")
+    public List<NewsPartition> getPartitions()
+    {
+        return newsHeadLineService.getPartitions();
     }
 }
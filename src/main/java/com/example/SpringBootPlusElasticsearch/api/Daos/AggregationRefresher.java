@@ -0,0 +1,92 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.AggregationRefreshProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ Keeps precomputed aggregations (RefreshAheadValue) of each index up to date:
+ - every value is computed once at start up and then every "refreshSeconds",
+ - writes to an index are reported with recordWrites(index, count); after "refreshAfterWrites"
+   of them, every value of that index is recomputed.
+ With "movies.aggregations.enabled=false" values are not kept, each get() runs the query.
+ A refresh in background takes a low priority permit of ConcurrencyLimiter like a request
+ would; when none is left it is skipped, and the value is refreshed at its next turn.
+ **/
+@Component
+public class AggregationRefresher {
+
+    private final AggregationRefreshProperties properties;
+    private final ConcurrencyLimiter limiter;
+    private final Map<String, List<RefreshAheadValue<?>>> values = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public AggregationRefresher(AggregationRefreshProperties properties, ConcurrencyLimiter limiter) {
+        this.properties = properties;
+        this.limiter = limiter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aggregation-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+        Create a value of "index" which is computed by "loader".
+    */
+    public <T> RefreshAheadValue<T> register(String index, Supplier<CompletableFuture<T>> loader) {
+        RefreshAheadValue<T> value = new RefreshAheadValue<>(loader, System::currentTimeMillis);
+        if (!properties.isEnabled())
+            return value;
+
+        values.computeIfAbsent(index, name -> new CopyOnWriteArrayList<>()).add(value);
+        scheduler.scheduleWithFixedDelay(() -> refresh(value),
+                0, properties.getRefreshSeconds(), TimeUnit.SECONDS);
+        return value;
+    }
+
+    /*
+        Get the precomputed result of "value", or run its query when values are not kept.
+    */
+    public <T> CompletableFuture<RefreshAheadValue.Snapshot<T>> get(RefreshAheadValue<T> value) {
+        return properties.isEnabled() ? value.get() : value.refresh();
+    }
+
+    public void recordWrites(String index, long count) {
+        for (RefreshAheadValue<?> value : values.getOrDefault(index, List.of())) {
+            long writes = value.recordWrites(count);
+            // Only the write which crosses the limit schedules the refresh.
+            if (writes >= properties.getRefreshAfterWrites() && writes - count < properties.getRefreshAfterWrites())
+                scheduler.schedule(() -> refresh(value), properties.getWriteRefreshDelayMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void refresh(RefreshAheadValue<?> value) {
+        boolean limited = limiter.isEnabled();
+        if (limited && !limiter.tryAcquire(ConcurrencyLimiter.Priority.LOW))
+            return;
+        value.refresh().whenComplete((snapshot, failure) -> {
+            if (limited)
+                limiter.release(ConcurrencyLimiter.Priority.LOW);
+            if (failure != null)
+                failure.printStackTrace();
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
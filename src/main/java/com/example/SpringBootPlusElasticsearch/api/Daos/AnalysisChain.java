@@ -0,0 +1,124 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.elasticsearch.client.indices.AnalyzeRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ Definition of a custom analyzer written the way elasticsearch takes it:
+ tokenizer, char filters and token filters, each either a built-in name ("lowercase")
+ or a settings map ({"type": "stop", "stopwords": "_english_"}).
+
+ Same definition is sent to "_analyze" by the cluster path, and turned into a Lucene
+ analyzer by LocalAnalyzers, so both always describe the same chain.
+ Instances are immutable and compare by value, so equal definitions share one analyzer.
+ **/
+public final class AnalysisChain {
+
+    private final Map<String, Object> tokenizer;
+    private final List<Object> charFilters;
+    private final List<Object> tokenFilters;
+
+    private AnalysisChain(Map<String, Object> tokenizer, List<Object> charFilters, List<Object> tokenFilters) {
+        this.tokenizer = Collections.unmodifiableMap(tokenizer);
+        this.charFilters = Collections.unmodifiableList(charFilters);
+        this.tokenFilters = Collections.unmodifiableList(tokenFilters);
+    }
+
+    public Map<String, Object> getTokenizer() {
+        return tokenizer;
+    }
+
+    public List<Object> getCharFilters() {
+        return charFilters;
+    }
+
+    public List<Object> getTokenFilters() {
+        return tokenFilters;
+    }
+
+    /*
+        Same chain as "_analyze" request of the cluster, for "texts".
+    */
+    @SuppressWarnings("unchecked")
+    public AnalyzeRequest toAnalyzeRequest(String... texts) {
+        AnalyzeRequest.CustomAnalyzerBuilder builder = AnalyzeRequest.buildCustomAnalyzer(tokenizer);
+        for (Object charFilter : charFilters) {
+            if (charFilter instanceof Map)
+                builder.addCharFilter((Map<String, Object>) charFilter);
+            else
+                builder.addCharFilter((String) charFilter);
+        }
+        for (Object tokenFilter : tokenFilters) {
+            if (tokenFilter instanceof Map)
+                builder.addTokenFilter((Map<String, Object>) tokenFilter);
+            else
+                builder.addTokenFilter((String) tokenFilter);
+        }
+        return builder.build(texts);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof AnalysisChain))
+            return false;
+        AnalysisChain that = (AnalysisChain) o;
+        return tokenizer.equals(that.tokenizer) && charFilters.equals(that.charFilters)
+                && tokenFilters.equals(that.tokenFilters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tokenizer, charFilters, tokenFilters);
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisChain{tokenizer=" + tokenizer + ", charFilters=" + charFilters
+                + ", tokenFilters=" + tokenFilters + '}';
+    }
+
+    public static class Builder {
+        private final Map<String, Object> tokenizer;
+        private final List<Object> charFilters = new ArrayList<>();
+        private final List<Object> tokenFilters = new ArrayList<>();
+
+        public Builder(String tokenizerType) {
+            this.tokenizer = new LinkedHashMap<>();
+            this.tokenizer.put("type", tokenizerType);
+        }
+
+        public Builder(Map<String, Object> tokenizer) {
+            this.tokenizer = new LinkedHashMap<>();
+            // Arrays (e.g. "token_chars") become lists, so that definitions compare by value.
+            tokenizer.forEach((key, value) -> this.tokenizer.put(key,
+                    value instanceof Object[] ? List.of((Object[]) value) : value));
+        }
+
+        public Builder addCharFilter(String name) {
+            charFilters.add(name);
+            return this;
+        }
+
+        public Builder addTokenFilter(String name) {
+            tokenFilters.add(name);
+            return this;
+        }
+
+        public Builder addTokenFilter(Map<String, Object> settings) {
+            tokenFilters.add(Collections.unmodifiableMap(new LinkedHashMap<>(settings)));
+            return this;
+        }
+
+        public AnalysisChain build() {
+            return new AnalysisChain(tokenizer, charFilters, tokenFilters);
+        }
+    }
+}
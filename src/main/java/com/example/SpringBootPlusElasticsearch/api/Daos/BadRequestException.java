@@ -0,0 +1,21 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/*
+    Parameter of a request which can not be used, e.g. a cursor which was not made by
+    CompositeCursor or a field MovieProjection does not know. Answered 400 instead of 500
+    when it reaches a controller.
+*/
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends IllegalArgumentException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
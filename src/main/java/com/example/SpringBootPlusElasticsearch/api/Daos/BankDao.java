@@ -3,18 +3,18 @@ package com.example.SpringBootPlusElasticsearch.api.Daos;
 import com.example.SpringBootPlusElasticsearch.api.Models.Bank;
 import com.example.SpringBootPlusElasticsearch.api.Repository.BankRepository;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
-import org.springframework.data.elasticsearch.core.query.Query;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * All the query operations, related to "bank" Index, are performed in this class and
@@ -24,14 +24,20 @@ import java.util.List;
  **/
 @Component
 public class BankDao {
+    private static final String BANK_INDEX = "bank";
 
     private ElasticsearchOperations elasticsearchRestTemplate;
     private BankRepository bankRepository;
+    private SearchExecutor searchExecutor;
+    private QueryPlanner queryPlanner;
 
     @Autowired
-    public BankDao(ElasticsearchOperations elasticsearchRestTemplate, BankRepository bankRepository) {
+    public BankDao(ElasticsearchOperations elasticsearchRestTemplate, BankRepository bankRepository,
+                   SearchExecutor searchExecutor, QueryPlanner queryPlanner) {
         this.elasticsearchRestTemplate = elasticsearchRestTemplate;
         this.bankRepository = bankRepository;
+        this.searchExecutor = searchExecutor;
+        this.queryPlanner = queryPlanner;
     }
 
     /*
@@ -49,9 +55,12 @@ public class BankDao {
         FirstName is "name"
     */
     public SearchHits<Bank> getAllByFirstName(String name) {
-        Criteria criteria = new Criteria("firstname").is(name);
-        Query query = new CriteriaQuery(criteria);
-        return elasticsearchRestTemplate.search(query, Bank.class);
+        return SearchExecutor.await(getAllByFirstNameAsync(name));
+    }
+
+    public CompletableFuture<SearchHits<Bank>> getAllByFirstNameAsync(String name) {
+        // Same as Criteria("firstname").is(name)
+        return search("BankDao.getAllByFirstName", QueryBuilders.matchQuery("firstname", name).operator(Operator.AND));
     }
 
     /*
@@ -59,9 +68,12 @@ public class BankDao {
         living in given city.
     */
     public SearchHits<Bank> getAllByCity(String name) {
-        Criteria criteria = new Criteria("city").is(name);
-        Query query = new CriteriaQuery(criteria);
-        return elasticsearchRestTemplate.search(query, Bank.class);
+        return SearchExecutor.await(getAllByCityAsync(name));
+    }
+
+    public CompletableFuture<SearchHits<Bank>> getAllByCityAsync(String name) {
+        // Same as Criteria("city").is(name)
+        return search("BankDao.getAllByCity", QueryBuilders.matchQuery("city", name).operator(Operator.AND));
     }
 
     /*
@@ -71,16 +83,28 @@ public class BankDao {
             SHOULD have age between 30 and 23.
     */
     public SearchHits<Bank> getAllByState(String name) {
+        return SearchExecutor.await(getAllByStateAsync(name));
+    }
+
+    public CompletableFuture<SearchHits<Bank>> getAllByStateAsync(String name) {
 
         //for "String" type fields, Filter/Aggregation works on only keyword field (Not text field)
+        // Should clauses stay optional (in filter they would be required), constant_score only spares
+        // scoring them: range and prefix already give every match the same score.
         BoolQueryBuilder TrialboolQueryBuilder = QueryBuilders.boolQuery()
-                .should(QueryBuilders.rangeQuery("age").lt(30).gt(23))
-                .should(QueryBuilders.prefixQuery("firstname", "ha"))
+                .should(QueryBuilders.constantScoreQuery(QueryBuilders.rangeQuery("age").lt(30).gt(23)))
+                .should(QueryBuilders.constantScoreQuery(QueryBuilders.prefixQuery("firstname", "ha")))
                 .filter(QueryBuilders.termQuery("state.keyword", name));
 
-        Query query2 = new NativeSearchQuery(TrialboolQueryBuilder);
+        return search("BankDao.getAllByState", TrialboolQueryBuilder);
+    }
 
-        return elasticsearchRestTemplate.search(query2, Bank.class);
+    /*
+        Every query goes through QueryPlanner, which moves exact conditions into filter context.
+    */
+    private CompletableFuture<SearchHits<Bank>> search(String operation, QueryBuilder query) {
+        SearchSourceBuilder source = new SearchSourceBuilder().query(queryPlanner.plan(operation, Bank.class, query));
+        return searchExecutor.searchAsync(operation, BANK_INDEX, source, Bank.class);
     }
 
 }
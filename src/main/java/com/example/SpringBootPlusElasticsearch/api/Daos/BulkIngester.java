@@ -0,0 +1,275 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.BulkIngestProperties;
+import com.example.SpringBootPlusElasticsearch.Config.ElasticsearchClientProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ Sends a stream of JSON documents to elasticsearch as "_bulk" requests.
+
+ - Bulk is flushed by document count, byte size or time (whichever comes first).
+ - Only "concurrentRequests" bulks are in flight at a time. Once the limit is reached,
+   adding next document blocks, so reading of input file is slowed down to the speed
+   of elasticsearch (back-pressure).
+ - Bulks rejected with 429 (EsRejectedExecutionException) are retried with exponential back-off.
+ - With "elasticsearch.client.compression" the bulk body is sent gzip compressed.
+ **/
+@Component
+public class BulkIngester {
+
+    private final RestHighLevelClient restHighLevelClient;
+    private final BulkIngestProperties properties;
+    private final BulkSender sender;
+
+    @Autowired
+    public BulkIngester(RestHighLevelClient restHighLevelClient, BulkIngestProperties properties,
+                        ElasticsearchClientProperties clientProperties) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.properties = properties;
+        this.sender = clientProperties.isCompression()
+                ? this::compressedBulkAsync
+                : (request, bulkListener) -> restHighLevelClient.bulkAsync(request, RequestOptions.DEFAULT, bulkListener);
+    }
+
+    BulkIngester(BulkIngestProperties properties, BulkSender sender) {
+        this.restHighLevelClient = null;
+        this.properties = properties;
+        this.sender = sender;
+    }
+
+    /*
+        Sends one bulk and answers "bulkListener" once elasticsearch did.
+    */
+    interface BulkSender {
+        void send(BulkRequest request, ActionListener<BulkResponse> bulkListener);
+    }
+
+    /*
+        Index every document of "documents" into "indexName" through "pipelineName"
+        (pipeline can be null) and return the summary once all bulks are finished.
+    */
+    public BulkIngestReport ingest(String indexName, String pipelineName, Iterator<BytesReference> documents) {
+        Stats stats = new Stats(properties.getMaxReportedFailures());
+
+        BackoffPolicy backoffPolicy = BackoffPolicy.wrap(
+                BackoffPolicy.exponentialBackoff(
+                        TimeValue.timeValueMillis(properties.getBackoffInitialDelayMs()),
+                        properties.getBackoffMaxRetries()),
+                stats.retries::incrementAndGet);
+
+        BulkProcessor bulkProcessor = BulkProcessor.builder(sender::send, stats)
+                .setBulkActions(properties.getActions())
+                .setBulkSize(new ByteSizeValue(properties.getSizeMb(), ByteSizeUnit.MB))
+                .setFlushInterval(TimeValue.timeValueSeconds(properties.getFlushIntervalSeconds()))
+                .setConcurrentRequests(properties.getConcurrentRequests())
+                .setBackoffPolicy(backoffPolicy)
+                .build();
+
+        long start = System.nanoTime();
+        long added = 0;
+        boolean completed = false;
+        try {
+            while (documents.hasNext()) {
+                IndexRequest request = new IndexRequest(indexName)
+                        .source(documents.next(), XContentType.JSON);
+                if (pipelineName != null)
+                    request.setPipeline(pipelineName);
+                bulkProcessor.add(request);
+                added++;
+            }
+        } finally {
+            try {
+                completed = bulkProcessor.awaitClose(properties.getAwaitCloseSeconds(), TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        BulkIngestReport report = new BulkIngestReport();
+        report.setIndex(indexName);
+        report.setDocuments(added);
+        report.setFailed(stats.failed.get());
+        report.setBytes(stats.bytes.get());
+        report.setBulkRequests(stats.bulkRequests.get());
+        report.setRetries(stats.retries.get());
+        report.setTookMillis(tookMillis);
+        report.setCompleted(completed);
+        report.setFailures(stats.failures());
+        return report;
+    }
+
+    /*
+        Same as restHighLevelClient.bulkAsync(), but body is sent with "Content-Encoding: gzip".
+        (RestHighLevelClient of 7.9 has no option to compress request bodies.)
+    */
+    private void compressedBulkAsync(BulkRequest bulkRequest, ActionListener<BulkResponse> bulkListener) {
+        Request request = new Request("POST", "/_bulk");
+        try {
+            NByteArrayEntity entity = new NByteArrayEntity(gzipBulkBody(bulkRequest),
+                    ContentType.create("application/x-ndjson"));
+            entity.setContentEncoding("gzip");
+            request.setEntity(entity);
+        } catch (IOException e) {
+            bulkListener.onFailure(e);
+            return;
+        }
+
+        restHighLevelClient.getLowLevelClient().performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                try (InputStream body = response.getEntity().getContent();
+                     XContentParser parser = XContentType.JSON.xContent().createParser(
+                             NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, body)) {
+                    bulkListener.onResponse(BulkResponse.fromXContent(parser));
+                } catch (Exception e) {
+                    bulkListener.onFailure(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                bulkListener.onFailure(exception);
+            }
+        });
+    }
+
+    /*
+        NDJSON body of "_bulk": action line and source line of every document.
+        Only IndexRequests with JSON source are added to bulk by ingest().
+    */
+    static byte[] gzipBulkBody(BulkRequest bulkRequest) throws IOException {
+        // JSON usually compresses to well under a quarter of its size.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                (int) Math.min(Integer.MAX_VALUE - 8, bulkRequest.estimatedSizeInBytes() / 4 + 64));
+        try (OutputStream out = new GZIPOutputStream(bytes, 64 * 1024)) {
+            for (DocWriteRequest<?> docWriteRequest : bulkRequest.requests()) {
+                IndexRequest request = (IndexRequest) docWriteRequest;
+                try (XContentBuilder action = XContentFactory.jsonBuilder()) {
+                    action.startObject().startObject("index").field("_index", request.index());
+                    if (request.id() != null)
+                        action.field("_id", request.id());
+                    if (request.getPipeline() != null)
+                        action.field("pipeline", request.getPipeline());
+                    action.endObject().endObject();
+                    BytesReference.bytes(action).writeTo(out);
+                }
+                out.write('\n');
+                writeSingleLine(request.source(), out);
+                out.write('\n');
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /*
+        Source of a document must be on one line in NDJSON. Inside JSON strings line breaks
+        are always escaped, so every raw CR/LF byte is whitespace and can become a space.
+    */
+    private static void writeSingleLine(BytesReference source, OutputStream out) throws IOException {
+        BytesRef bytes = source.toBytesRef();
+        byte[] line = bytes.bytes;
+        int start = bytes.offset;
+        int end = bytes.offset + bytes.length;
+        for (int i = start; i < end; i++) {
+            if (line[i] == '\n' || line[i] == '\r') {
+                out.write(line, start, i - start);
+                out.write(' ');
+                start = i + 1;
+            }
+        }
+        out.write(line, start, end - start);
+    }
+
+    /*
+        Listener of one ingestion. Bulk responses come back on client I/O threads,
+        so every counter here must be thread safe.
+    */
+    private static class Stats implements BulkProcessor.Listener {
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong bulkRequests = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        private final int maxReportedFailures;
+
+        Stats(int maxReportedFailures) {
+            this.maxReportedFailures = maxReportedFailures;
+        }
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            bulkRequests.incrementAndGet();
+            bytes.addAndGet(request.estimatedSizeInBytes());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            if (!response.hasFailures())
+                return;
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    failed.incrementAndGet();
+                    addFailure("item " + item.getItemId() + " of bulk " + executionId + ": " + item.getFailureMessage());
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            failed.addAndGet(request.numberOfActions());
+            addFailure("bulk " + executionId + " (" + request.numberOfActions() + " docs): " + failure);
+        }
+
+        private void addFailure(String message) {
+            if (failures.size() < maxReportedFailures)
+                failures.add(message);
+        }
+
+        List<String> failures() {
+            synchronized (failures) {
+                return new ArrayList<>(failures);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/*
+    "after_key" of composite aggregation, as an opaque string which is safe in a URL:
+    base64url of the JSON of the key, e.g. {"director":"Woody Allen"}.
+*/
+public final class CompositeCursor {
+
+    private CompositeCursor() {
+    }
+
+    public static String encode(Map<String, Object> afterKey) {
+        if (afterKey == null)
+            return null;
+        try {
+            String json = Strings.toString(XContentFactory.jsonBuilder().map(afterKey));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Map<String, Object> decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return null;
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return XContentHelper.convertToMap(XContentType.JSON.xContent(), json, false);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
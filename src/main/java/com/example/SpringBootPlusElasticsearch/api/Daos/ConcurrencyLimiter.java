@@ -0,0 +1,177 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.LimiterStats;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Adaptive limit of requests in flight which need elasticsearch (AIMD).
+
+ Requests take a permit before they start (see ConcurrencyLimitFilter; AggregationRefresher
+ does the same for refreshes in background) and give it back
+ when their response is complete. There is no queue: a request which finds the limit
+ taken is turned away straight away (503 with "Retry-After"), instead of blocking a
+ thread which would wait on an elasticsearch that is already too slow.
+
+ The limit follows latency of calls to elasticsearch, reported by SearchExecutor:
+ - a call faster than "latencyThresholdMs", while at least half of the limit is in use,
+   raises the limit by one (additive increase);
+ - a slower call, or one that elasticsearch rejected (429, 503, 504) or that failed on
+   the connection, cuts it to "backoffRatio" of itself (multiplicative decrease).
+ Limit stays between "minLimit" and "maxLimit".
+
+ Low priority requests (index management, bulk loads, exports) may hold only
+ "lowPriorityShare" of the limit, so they cannot starve searches.
+ **/
+@Component
+public class ConcurrencyLimiter {
+
+    public enum Priority { HIGH, LOW }
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final double lowPriorityShare;
+    private final int retryAfterSeconds;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger inFlightLowPriority = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rejectedLowPriority = new LongAdder();
+    private final LongAdder increases = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+
+    public ConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.minLimit = Math.max(1, properties.getMinLimit());
+        this.maxLimit = Math.max(minLimit, properties.getMaxLimit());
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLatencyThresholdMs());
+        this.backoffRatio = properties.getBackoffRatio();
+        this.lowPriorityShare = properties.getLowPriorityShare();
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+        this.limit = new AtomicInteger(Math.min(maxLimit, Math.max(minLimit, properties.getInitialLimit())));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /*
+        Take a permit, false when none is left for "priority". Every true must be
+        followed by release() with the same priority.
+    */
+    public boolean tryAcquire(Priority priority) {
+        int current = limit.get();
+        if (priority == Priority.LOW) {
+            int lowLimit = Math.max(1, (int) (current * lowPriorityShare));
+            if (!increment(inFlightLowPriority, lowLimit)) {
+                rejected.increment();
+                rejectedLowPriority.increment();
+                return false;
+            }
+        }
+        if (!increment(inFlight, current)) {
+            if (priority == Priority.LOW) {
+                inFlightLowPriority.decrementAndGet();
+                rejectedLowPriority.increment();
+            }
+            rejected.increment();
+            return false;
+        }
+        accepted.increment();
+        return true;
+    }
+
+    public void release(Priority priority) {
+        inFlight.decrementAndGet();
+        if (priority == Priority.LOW)
+            inFlightLowPriority.decrementAndGet();
+    }
+
+    /*
+        A call to elasticsearch completed in "latencyNanos".
+    */
+    public void onSample(long latencyNanos) {
+        if (!enabled)
+            return;
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+            return;
+        }
+        // Raising a limit which is not used would let it grow without bound.
+        int current = limit.get();
+        if (current < maxLimit && inFlight.get() * 2 >= current && limit.compareAndSet(current, current + 1))
+            increases.increment();
+    }
+
+    /*
+        A call to elasticsearch failed; only failures that tell it is overloaded cut the limit.
+    */
+    public void onError(Throwable error) {
+        if (enabled && isOverload(error))
+            decrease();
+    }
+
+    public LimiterStats stats() {
+        return new LimiterStats(limit.get(), minLimit, maxLimit, inFlight.get(), inFlightLowPriority.get(),
+                accepted.sum(), rejected.sum(), rejectedLowPriority.sum(), increases.sum(), decreases.sum());
+    }
+
+    private void decrease() {
+        int current;
+        int next;
+        do {
+            current = limit.get();
+            next = Math.max(minLimit, (int) (current * backoffRatio));
+            if (next == current)
+                return;
+        } while (!limit.compareAndSet(current, next));
+        decreases.increment();
+    }
+
+    private static boolean increment(AtomicInteger counter, int max) {
+        int current;
+        do {
+            current = counter.get();
+            if (current >= max)
+                return false;
+        } while (!counter.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    static boolean isOverload(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchStatusException) {
+                RestStatus status = ((ElasticsearchStatusException) cause).status();
+                return status == RestStatus.TOO_MANY_REQUESTS
+                        || status == RestStatus.SERVICE_UNAVAILABLE
+                        || status == RestStatus.GATEWAY_TIMEOUT;
+            }
+            // Low level client (raw searches) reports a status as an IOException too.
+            if (cause instanceof ResponseException) {
+                int status = ((ResponseException) cause).getResponse().getStatusLine().getStatusCode();
+                return status == 429 || status == 503 || status == 504;
+            }
+            // Timeouts and refused connections.
+            if (cause instanceof IOException)
+                return true;
+        }
+        return false;
+    }
+}
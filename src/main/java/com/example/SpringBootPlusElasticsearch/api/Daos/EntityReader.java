@@ -0,0 +1,14 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/*
+    Builds one entity straight from "_source" tokens of a hit. "parser" is on START_OBJECT
+    of "_source" and must be left on its END_OBJECT. See EntityReaders.
+*/
+@FunctionalInterface
+public interface EntityReader<T> {
+    T read(JsonParser parser, String id) throws IOException;
+}
@@ -0,0 +1,358 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.Awards;
+import com.example.SpringBootPlusElasticsearch.api.Models.Bank;
+import com.example.SpringBootPlusElasticsearch.api.Models.Critic;
+import com.example.SpringBootPlusElasticsearch.api.Models.IMDB;
+import com.example.SpringBootPlusElasticsearch.api.Models.MovieSummary;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHeadLine;
+import com.example.SpringBootPlusElasticsearch.api.Models.tomatoes;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchDateConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ Hand written readers from "_source" of a hit to Movies, MovieSummary, Bank and NewsHeadLine.
+
+ MappingElasticsearchConverter first turns every "_source" into a Map (with a Map for each
+ nested object and a List for each array), and then sets each property by reflection.
+ These readers go straight from Jackson tokens to setters, so the only objects created are
+ the entity, its nested objects and its values. Field names are matched against names
+ Jackson keeps canonical, so they are not allocated either.
+
+ Values are converted the way the converter does it: numbers given as strings are parsed,
+ a single string for a list is split on commas, an array for a string is joined with commas,
+ dates use the DateFormat of @Field. Unknown fields are skipped.
+ SearchExecutor uses a reader for every entity class registered here, and the converter
+ for everything else.
+ **/
+@Component
+public class EntityReaders {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final byte[] EMPTY_SOURCE = {'{', '}'};
+    private static final ElasticsearchDateConverter DATE = ElasticsearchDateConverter.of(DateFormat.date);
+    private static final ElasticsearchDateConverter DATE_TIME = ElasticsearchDateConverter.of(DateFormat.date_time);
+
+    private final Map<Class<?>, EntityReader<?>> readers = new ConcurrentHashMap<>();
+
+    public EntityReaders() {
+        register(Movies.class, EntityReaders::readMovie);
+        register(MovieSummary.class, EntityReaders::readMovieSummary);
+        register(Bank.class, EntityReaders::readBank);
+        register(NewsHeadLine.class, EntityReaders::readNewsHeadLine);
+    }
+
+    public <T> void register(Class<T> type, EntityReader<T> reader) {
+        readers.put(type, reader);
+    }
+
+    /*
+        Reader of "type", or null when hits of "type" are left to the converter.
+    */
+    @SuppressWarnings("unchecked")
+    public <T> EntityReader<T> get(Class<T> type) {
+        return (EntityReader<T>) readers.get(type);
+    }
+
+    /*
+        Entity of hit with "id" and "source" (null when hit has no "_source").
+    */
+    public static <T> T read(EntityReader<T> reader, BytesReference source, String id) throws IOException {
+        JsonParser parser;
+        if (source == null) {
+            parser = JSON.createParser(EMPTY_SOURCE);
+        } else {
+            BytesRef bytes = source.toBytesRef();
+            parser = JSON.createParser(bytes.bytes, bytes.offset, bytes.length);
+        }
+        try (parser) {
+            expectObject(parser, parser.nextToken());
+            return reader.read(parser, id);
+        }
+    }
+
+    static Movies readMovie(JsonParser parser, String id) throws IOException {
+        Movies movie = new Movies();
+        movie.setId(id);
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "title": movie.setTitle(readString(parser, token)); break;
+                case "plot": movie.setPlot(readString(parser, token)); break;
+                case "fullplot": movie.setFullplot(readString(parser, token)); break;
+                case "genres": movie.setGenres(readStrings(parser, token)); break;
+                case "runtime": movie.setRuntime(readInteger(parser, token)); break;
+                case "cast": movie.setCast(readStrings(parser, token)); break;
+                case "num_mflix_comments": movie.setNum_mflix_comments(readInteger(parser, token)); break;
+                case "countries": movie.setCountries(readStrings(parser, token)); break;
+                case "directors": movie.setDirectors(readStrings(parser, token)); break;
+                case "rated": movie.setRated(readString(parser, token)); break;
+                case "year": movie.setYear(readInteger(parser, token)); break;
+                case "type": movie.setType(readString(parser, token)); break;
+                case "poster": movie.setPoster(readString(parser, token)); break;
+                case "metacritic": movie.setMetacritic(readInteger(parser, token)); break;
+                case "languages": movie.setLanguages(readStrings(parser, token)); break;
+                case "imdb": movie.setImdb(readImdb(parser, token)); break;
+                case "tomatoes": movie.setTomatoes(readTomatoes(parser, token)); break;
+                case "awards": movie.setAwards(readAwards(parser, token)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return movie;
+    }
+
+    static MovieSummary readMovieSummary(JsonParser parser, String id) throws IOException {
+        MovieSummary movie = new MovieSummary();
+        movie.setId(id);
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "title": movie.setTitle(readString(parser, token)); break;
+                case "year": movie.setYear(readInteger(parser, token)); break;
+                case "rated": movie.setRated(readString(parser, token)); break;
+                case "runtime": movie.setRuntime(readInteger(parser, token)); break;
+                case "type": movie.setType(readString(parser, token)); break;
+                case "genres": movie.setGenres(readStrings(parser, token)); break;
+                case "directors": movie.setDirectors(readStrings(parser, token)); break;
+                case "cast": movie.setCast(readStrings(parser, token)); break;
+                case "languages": movie.setLanguages(readStrings(parser, token)); break;
+                case "countries": movie.setCountries(readStrings(parser, token)); break;
+                case "metacritic": movie.setMetacritic(readInteger(parser, token)); break;
+                case "imdb": movie.setImdb(readImdb(parser, token)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return movie;
+    }
+
+    static Bank readBank(JsonParser parser, String id) throws IOException {
+        Bank bank = new Bank();
+        bank.setId(id);
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "account_number": bank.setAcc_num(readInteger(parser, token)); break;
+                case "city": bank.setCity(readString(parser, token)); break;
+                case "age": bank.setAge(readInteger(parser, token)); break;
+                case "balance": bank.setBalance(readInteger(parser, token)); break;
+                case "address": bank.setAddress(readString(parser, token)); break;
+                case "email": bank.setEmail(readString(parser, token)); break;
+                case "employer": bank.setEmployer(readString(parser, token)); break;
+                case "firstname": bank.setFirstname(readString(parser, token)); break;
+                case "lastname": bank.setLastname(readString(parser, token)); break;
+                case "gender": bank.setGender(readString(parser, token)); break;
+                case "state": bank.setState(readString(parser, token)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return bank;
+    }
+
+    static NewsHeadLine readNewsHeadLine(JsonParser parser, String id) throws IOException {
+        NewsHeadLine news = new NewsHeadLine();
+        news.setId(id);
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "date": news.setDate(readDate(parser, token, DATE)); break;
+                case "@timestamp": news.setTimestamp(readDate(parser, token, DATE_TIME)); break;
+                case "authors": news.setAuthors(readString(parser, token)); break;
+                case "category": news.setCategory(readString(parser, token)); break;
+                case "headline": news.setHeadline(readString(parser, token)); break;
+                case "link": news.setLink(readString(parser, token)); break;
+                case "short_description": news.setShort_des(readString(parser, token)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return news;
+    }
+
+    private static IMDB readImdb(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        expectObject(parser, token);
+        IMDB imdb = new IMDB();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "rating": imdb.setRating(readDouble(parser, value)); break;
+                case "votes": imdb.setVotes(readInteger(parser, value)); break;
+                case "id": imdb.setId(readInteger(parser, value)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return imdb;
+    }
+
+    private static tomatoes readTomatoes(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        expectObject(parser, token);
+        tomatoes tomatoes = new tomatoes();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "website": tomatoes.setWebsite(readString(parser, value)); break;
+                case "boxOffice": tomatoes.setBoxOffice(readString(parser, value)); break;
+                case "production": tomatoes.setProduction(readString(parser, value)); break;
+                case "viewer": tomatoes.setViewer(readCritic(parser, value)); break;
+                case "critic": tomatoes.setCritic(readCritic(parser, value)); break;
+                case "rotten": tomatoes.setRotten(readInteger(parser, value)); break;
+                case "fresh": tomatoes.setFresh(readInteger(parser, value)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return tomatoes;
+    }
+
+    private static Critic readCritic(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        expectObject(parser, token);
+        Critic critic = new Critic();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "rating": critic.setRating(readDouble(parser, value)); break;
+                case "numReviews": critic.setNumReviews(readInteger(parser, value)); break;
+                case "meter": critic.setMeter(readInteger(parser, value)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return critic;
+    }
+
+    private static Awards readAwards(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        expectObject(parser, token);
+        Awards awards = new Awards();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "wins": awards.setWins(readInteger(parser, value)); break;
+                case "nominations": awards.setNominations(readInteger(parser, value)); break;
+                case "text": awards.setText(readString(parser, value)); break;
+                default: parser.skipChildren();
+            }
+        }
+        return awards;
+    }
+
+    private static String readString(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getText();
+            case START_ARRAY:
+                return String.join(",", readStrings(parser, token));
+            default:
+                throw unexpected(parser, token, "a string");
+        }
+    }
+
+    private static List<String> readStrings(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token != JsonToken.START_ARRAY) {
+            String value = readString(parser, token);
+            if (value.indexOf(',') < 0)
+                return new ArrayList<>(Collections.singletonList(value.trim()));
+            List<String> values = new ArrayList<>();
+            for (String part : value.split(","))
+                values.add(part.trim());
+            return values;
+        }
+        List<String> values = new ArrayList<>();
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY)
+            values.add(readString(parser, element));
+        return values;
+    }
+
+    private static Integer readInteger(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+                return parser.getIntValue();
+            case VALUE_NUMBER_FLOAT:
+                return (int) parser.getDoubleValue();
+            case VALUE_STRING:
+                return Integer.valueOf(parser.getText().trim());
+            default:
+                throw unexpected(parser, token, "a number");
+        }
+    }
+
+    private static Double readDouble(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+                return Double.valueOf(parser.getText().trim());
+            default:
+                throw unexpected(parser, token, "a number");
+        }
+    }
+
+    private static Date readDate(JsonParser parser, JsonToken token, ElasticsearchDateConverter format) throws IOException {
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token == JsonToken.VALUE_NUMBER_INT)
+            return new Date(parser.getLongValue());
+        if (token != JsonToken.VALUE_STRING)
+            throw unexpected(parser, token, "a date");
+        return format.parse(parser.getText());
+    }
+
+    private static void expectObject(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT)
+            throw unexpected(parser, token, "an object");
+    }
+
+    private static IOException unexpected(JsonParser parser, JsonToken token, String expected) {
+        return new JsonParseException(parser, "Expected " + expected + " for \"" + currentName(parser)
+                + "\" but got " + token);
+    }
+
+    private static String currentName(JsonParser parser) {
+        try {
+            return parser.getCurrentName();
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ Reads JSON documents out of a file, one document at a time, without parsing them.
+
+ File can be any of:
+ - a single JSON object (index template, pipeline, one movie...)
+ - a top-level array of objects: [ {...}, {...} ]
+ - NDJSON / concatenated objects: {...}\n{...}\n
+
+ File is read through a FileChannel in fixed size chunks and only bytes of the current
+ document are kept in memory, so size of the file does not matter. Bytes of each document
+ are handed over as they are in the file (no decoding to String and no re-encoding).
+ **/
+public class JsonDocumentReader implements Iterator<BytesReference>, Closeable {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+    // Bytes of document which is being read. Grows up to size of the largest document.
+    private byte[] document = new byte[CHUNK_SIZE];
+    private int length;
+
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private boolean endOfFile;
+    private BytesReference next;
+
+    public JsonDocumentReader(FileChannel channel) {
+        this.channel = channel;
+        this.chunk.flip();
+    }
+
+    public static JsonDocumentReader open(Path file) throws IOException {
+        return new JsonDocumentReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /*
+        Read the first (and normally only) document of a file,
+        e.g. index template, index settings or pipeline definition.
+    */
+    public static BytesReference readSingleDocument(Path file) throws IOException {
+        try (JsonDocumentReader reader = open(file)) {
+            return reader.hasNext() ? reader.next() : null;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !endOfFile) {
+            try {
+                next = readDocument();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public BytesReference next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        BytesReference current = next;
+        next = null;
+        return current;
+    }
+
+    private BytesReference readDocument() throws IOException {
+        while (true) {
+            if (!chunk.hasRemaining()) {
+                chunk.clear();
+                int read = channel.read(chunk);
+                chunk.flip();
+                if (read < 0) {
+                    endOfFile = true;
+                    if (depth != 0)
+                        throw new IOException("Unexpected end of file inside a JSON document");
+                    return null;
+                }
+                continue;
+            }
+
+            byte b = chunk.get();
+            if (depth == 0) {
+                // Between documents: skip whitespace, commas, brackets of top-level array and BOM.
+                if (b == '{') {
+                    length = 0;
+                    append(b);
+                    depth = 1;
+                } else if (!isSeparator(b)) {
+                    throw new IOException("Unexpected character '" + (char) b + "' between JSON documents");
+                }
+                continue;
+            }
+
+            append(b);
+            if (inString) {
+                if (escaped)
+                    escaped = false;
+                else if (b == '\\')
+                    escaped = true;
+                else if (b == '"')
+                    inString = false;
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth == 0)
+                    return new BytesArray(Arrays.copyOf(document, length));
+            }
+        }
+    }
+
+    private void append(byte b) {
+        if (length == document.length)
+            document = Arrays.copyOf(document, document.length * 2);
+        document[length++] = b;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == ',' || b == '[' || b == ']'
+                || b == (byte) 0xEF || b == (byte) 0xBB || b == (byte) 0xBF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.AnalyzedToken;
+import com.example.SpringBootPlusElasticsearch.api.Models.EdgeNgramTokenizer;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.charfilter.HTMLStripCharFilter;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenizer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ Runs analysis chains (AnalysisChain) in this JVM with Lucene, the same classes
+ elasticsearch uses for them, instead of a "_analyze" round trip to the cluster.
+
+ - Each distinct chain is built into a Lucene Analyzer once and cached. An Analyzer
+   is thread safe and keeps one token stream per thread, which it reuses for every text.
+ - Positions and offsets of several texts are counted the way "_analyze" counts them
+   (position gap of 100 and offset gap of 1 between texts).
+ - analyze(chain, consumer, text) hands every token over in the reused term buffer,
+   without creating a String or object per token.
+
+ Supported: tokenizers "standard" and "edge_ngram" (with "token_chars"), char filter
+ "html_strip", token filters "lowercase", "asciifolding", "stop" and "edge_ngram".
+ **/
+@Component
+public class LocalAnalyzers {
+
+    // Chains of "/movies/Analyzer/{type}" (see MovieDao.TrialAnalyzer).
+    public static final AnalysisChain TRIAL_STANDARD = new AnalysisChain.Builder("standard")
+            .addCharFilter("html_strip")
+            .addTokenFilter("lowercase")
+            .addTokenFilter(Map.of("type", "stop", "stopwords", "_english_"))
+            .build();
+
+    public static final AnalysisChain TRIAL_EDGE_NGRAM = new AnalysisChain.Builder(
+            new EdgeNgramTokenizer.Builder()
+                    .setMinGram(3)
+                    .setMaxGram(6)
+                    .setTokenChars(new String[]{"letter", "digit"})
+                    .build()
+                    .getTokenizer())
+            .addCharFilter("html_strip")
+            .addTokenFilter("lowercase")
+            .build();
+
+    // "title-EdgeNgram" of MoviesIndexTemplate.json.
+    public static final AnalysisChain MOVIES_TITLE = new AnalysisChain.Builder(Map.of(
+            "type", "edge_ngram", "min_gram", 1, "max_gram", 20, "token_chars", List.of("letter", "digit")))
+            .addTokenFilter("lowercase")
+            .build();
+
+    // "Plot-FullPlot-analyzer" of MoviesIndexTemplate.json. Its char filter is under the
+    // misspelt key "char_filer" in the template, so elasticsearch does not apply html_strip.
+    public static final AnalysisChain MOVIES_PLOT = new AnalysisChain.Builder("standard")
+            .addTokenFilter("lowercase")
+            .build();
+
+    // "my-standard-analyzer" of BankIndexTemplate.json.
+    public static final AnalysisChain BANK_ADDRESS = new AnalysisChain.Builder("standard")
+            .addCharFilter("html_strip")
+            .addTokenFilter("lowercase")
+            .addTokenFilter(Map.of("type", "edge_ngram", "min_gram", 2, "max_gram", 15))
+            .addTokenFilter("asciifolding")
+            .build();
+
+    // Chains by name: analyzer names of the templates, and type names of TrialAnalyzer.
+    public static final Map<String, AnalysisChain> CHAINS;
+
+    static {
+        Map<String, AnalysisChain> chains = new LinkedHashMap<>();
+        chains.put("standard", TRIAL_STANDARD);
+        chains.put("edge_ngram", TRIAL_EDGE_NGRAM);
+        chains.put("title-EdgeNgram", MOVIES_TITLE);
+        chains.put("Plot-FullPlot-analyzer", MOVIES_PLOT);
+        chains.put("my-standard-analyzer", BANK_ADDRESS);
+        CHAINS = Collections.unmodifiableMap(chains);
+    }
+
+    // Same as position_increment_gap / offset gap of custom analyzers in elasticsearch.
+    private static final int POSITION_INCREMENT_GAP = 100;
+    private static final int OFFSET_GAP = 1;
+
+    private final Map<AnalysisChain, Analyzer> analyzers = new ConcurrentHashMap<>();
+
+    /*
+        Receives tokens of analyze(chain, consumer, text). "term" is a buffer which is
+        reused for the next token, only its first "length" chars belong to this token.
+    */
+    @FunctionalInterface
+    public interface TokenConsumer {
+        void accept(char[] term, int length, int position, int positionLength,
+                    int startOffset, int endOffset, String type);
+    }
+
+    public List<AnalyzedToken> analyze(String chainName, String... texts) {
+        AnalysisChain chain = CHAINS.get(chainName);
+        if (chain == null)
+            throw new IllegalArgumentException("Unknown analyzer: " + chainName);
+        return analyze(chain, texts);
+    }
+
+    public List<AnalyzedToken> analyze(AnalysisChain chain, String... texts) {
+        List<AnalyzedToken> tokens = new ArrayList<>();
+        analyze(chain, (term, length, position, positionLength, startOffset, endOffset, type) ->
+                tokens.add(new AnalyzedToken(new String(term, 0, length), position, positionLength,
+                        startOffset, endOffset, type)), texts);
+        return tokens;
+    }
+
+    public void analyze(AnalysisChain chain, TokenConsumer consumer, String... texts) {
+        Analyzer analyzer = analyzer(chain);
+        int lastPosition = -1;
+        int lastOffset = 0;
+        for (String text : texts) {
+            try (TokenStream stream = analyzer.tokenStream("", text)) {
+                CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+                PositionIncrementAttribute positionIncrement = stream.addAttribute(PositionIncrementAttribute.class);
+                PositionLengthAttribute positionLength = stream.addAttribute(PositionLengthAttribute.class);
+                OffsetAttribute offset = stream.addAttribute(OffsetAttribute.class);
+                TypeAttribute type = stream.addAttribute(TypeAttribute.class);
+
+                stream.reset();
+                while (stream.incrementToken()) {
+                    int increment = positionIncrement.getPositionIncrement();
+                    if (increment > 0)
+                        lastPosition += increment;
+                    consumer.accept(term.buffer(), term.length(), lastPosition, positionLength.getPositionLength(),
+                            lastOffset + offset.startOffset(), lastOffset + offset.endOffset(), type.type());
+                }
+                stream.end();
+                lastOffset += offset.endOffset();
+                lastPosition += positionIncrement.getPositionIncrement();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lastPosition += analyzer.getPositionIncrementGap("");
+            lastOffset += analyzer.getOffsetGap("");
+        }
+    }
+
+    public int size() {
+        return analyzers.size();
+    }
+
+    Analyzer analyzer(AnalysisChain chain) {
+        return analyzers.computeIfAbsent(chain, LocalAnalyzers::build);
+    }
+
+    private static Analyzer build(AnalysisChain chain) {
+        // Fail on unsupported definitions now, not on first text.
+        createTokenizer(chain.getTokenizer());
+        chain.getCharFilters().forEach(charFilter -> createCharFilter(charFilter, Reader.nullReader()));
+        chain.getTokenFilters().forEach(tokenFilter -> createTokenFilter(tokenFilter, new StandardTokenizer()));
+
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = createTokenizer(chain.getTokenizer());
+                TokenStream stream = tokenizer;
+                for (Object tokenFilter : chain.getTokenFilters())
+                    stream = createTokenFilter(tokenFilter, stream);
+                return new TokenStreamComponents(tokenizer, stream);
+            }
+
+            @Override
+            protected Reader initReader(String fieldName, Reader reader) {
+                for (Object charFilter : chain.getCharFilters())
+                    reader = createCharFilter(charFilter, reader);
+                return reader;
+            }
+
+            @Override
+            public int getPositionIncrementGap(String fieldName) {
+                return POSITION_INCREMENT_GAP;
+            }
+
+            @Override
+            public int getOffsetGap(String fieldName) {
+                return OFFSET_GAP;
+            }
+        };
+    }
+
+    private static Tokenizer createTokenizer(Map<String, Object> settings) {
+        String type = (String) settings.get("type");
+        switch (type) {
+            case "standard": {
+                StandardTokenizer tokenizer = new StandardTokenizer();
+                tokenizer.setMaxTokenLength(intSetting(settings, "max_token_length", StandardAnalyzer.DEFAULT_MAX_TOKEN_LENGTH));
+                return tokenizer;
+            }
+            case "edge_ngram": {
+                int minGram = intSetting(settings, "min_gram", 1);
+                int maxGram = intSetting(settings, "max_gram", 2);
+                IntPredicate tokenChars = tokenChars(settings.get("token_chars"));
+                if (tokenChars == null)
+                    return new EdgeNGramTokenizer(minGram, maxGram);
+                return new EdgeNGramTokenizer(minGram, maxGram) {
+                    @Override
+                    protected boolean isTokenChar(int chr) {
+                        return tokenChars.test(chr);
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported tokenizer: " + settings);
+        }
+    }
+
+    private static Reader createCharFilter(Object definition, Reader reader) {
+        if ("html_strip".equals(type(definition)))
+            return new HTMLStripCharFilter(reader);
+        throw new IllegalArgumentException("Unsupported char filter: " + definition);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TokenStream createTokenFilter(Object definition, TokenStream input) {
+        Map<String, Object> settings = definition instanceof Map ? (Map<String, Object>) definition : Map.of();
+        switch (type(definition)) {
+            case "lowercase":
+                return new LowerCaseFilter(input);
+            case "asciifolding":
+                return new ASCIIFoldingFilter(input, Boolean.parseBoolean(String.valueOf(settings.getOrDefault("preserve_original", false))));
+            case "stop":
+                return new StopFilter(input, stopWords(settings.getOrDefault("stopwords", "_english_")));
+            case "edge_ngram":
+                return new EdgeNGramTokenFilter(input, intSetting(settings, "min_gram", 1), intSetting(settings, "max_gram", 2),
+                        Boolean.parseBoolean(String.valueOf(settings.getOrDefault("preserve_original", false))));
+            default:
+                throw new IllegalArgumentException("Unsupported token filter: " + definition);
+        }
+    }
+
+    private static String type(Object definition) {
+        return definition instanceof Map ? String.valueOf(((Map<?, ?>) definition).get("type")) : String.valueOf(definition);
+    }
+
+    private static int intSetting(Map<String, Object> settings, String name, int defaultValue) {
+        Object value = settings.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+
+    private static CharArraySet stopWords(Object stopWords) {
+        if ("_english_".equals(stopWords))
+            return EnglishAnalyzer.ENGLISH_STOP_WORDS_SET;
+        if ("_none_".equals(stopWords))
+            return CharArraySet.EMPTY_SET;
+        if (stopWords instanceof Collection)
+            return new CharArraySet((Collection<?>) stopWords, false);
+        throw new IllegalArgumentException("Unsupported stopwords: " + stopWords);
+    }
+
+    private static IntPredicate tokenChars(Object tokenChars) {
+        if (tokenChars == null)
+            return null;
+        IntPredicate matcher = chr -> false;
+        for (Object tokenChar : (Collection<?>) tokenChars) {
+            switch (tokenChar.toString()) {
+                case "letter":
+                    matcher = matcher.or(Character::isLetter);
+                    break;
+                case "digit":
+                    matcher = matcher.or(Character::isDigit);
+                    break;
+                case "whitespace":
+                    matcher = matcher.or(Character::isWhitespace);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported token_chars: " + tokenChar);
+            }
+        }
+        return matcher;
+    }
+
+    @PreDestroy
+    public void close() {
+        analyzers.values().forEach(Analyzer::close);
+        analyzers.clear();
+    }
+}
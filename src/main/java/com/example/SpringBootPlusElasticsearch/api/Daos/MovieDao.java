@@ -1,46 +1,60 @@
 package com.example.SpringBootPlusElasticsearch.api.Daos;
 
-import com.example.SpringBootPlusElasticsearch.api.Models.EdgeNgramTokenizer;
+import com.example.SpringBootPlusElasticsearch.api.Models.AnalyzedToken;
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
+import com.example.SpringBootPlusElasticsearch.api.Models.CompositeBucket;
+import com.example.SpringBootPlusElasticsearch.api.Models.CompositePage;
+import com.example.SpringBootPlusElasticsearch.api.Models.MovieSummary;
 import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryCacheStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.TitleSuggestion;
 import com.example.SpringBootPlusElasticsearch.api.Repository.MovieRepository;
-import net.minidev.json.JSONObject;
-import net.minidev.json.parser.ParseException;
-import net.minidev.json.parser.JSONParser;
 import org.elasticsearch.action.admin.indices.template.delete.DeleteIndexTemplateRequest;
-import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.ingest.PutPipelineRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.*;
-import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.unit.Fuzziness;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.*;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
 import org.elasticsearch.search.aggregations.metrics.SumAggregationBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.data.elasticsearch.core.query.*;
 import org.springframework.stereotype.Component;
 
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.*;
-
-import static net.minidev.json.parser.JSONParser.DEFAULT_PERMISSIVE_MODE;
-import static org.springframework.data.domain.Sort.Order.desc;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
     All the query and aggregation operations, related to "Movie" Index, are performed in this class and
@@ -51,16 +65,59 @@ import static org.springframework.data.domain.Sort.Order.desc;
 
 @Component
 public class MovieDao {
+    private static final String MOVIES_INDEX = "movies";
+    // Largest page of composite aggregation, so one response never holds too many buckets.
+    public static final int MAX_COMPOSITE_PAGE_SIZE = 1000;
+
     private final ElasticsearchOperations elasticsearchOperations;
     private final MovieRepository movieRepository;
     private final RestHighLevelClient restHighLevelClient;
+    private final BulkIngester bulkIngester;
+    private final QueryResultCache queryResultCache;
+    private final SearchExecutor searchExecutor;
+    private final AggregationRefresher aggregationRefresher;
+    private final TitleSuggester titleSuggester;
+    private final LocalAnalyzers localAnalyzers;
+    private final QueryPlanner queryPlanner;
+    private final OperationMetrics operationMetrics;
+    private final boolean analyzeLocally;
+    // Aggregations over whole "movies" index, kept precomputed (see AggregationRefresher).
+    private final RefreshAheadValue<Aggregations> directorsMovieMetric;
+    private final RefreshAheadValue<Aggregations> languageBasedMetric;
 
         public MovieDao(ElasticsearchOperations elasticsearchOperations,
                     MovieRepository movieRepository,
-                        RestHighLevelClient restHighLevelClient){
+                        RestHighLevelClient restHighLevelClient,
+                        BulkIngester bulkIngester,
+                        QueryResultCache queryResultCache,
+                        SearchExecutor searchExecutor,
+                        AggregationRefresher aggregationRefresher,
+                        TitleSuggester titleSuggester,
+                        LocalAnalyzers localAnalyzers,
+                        QueryPlanner queryPlanner,
+                        OperationMetrics operationMetrics,
+                        @Value("${movies.analyze.local:true}") boolean analyzeLocally){
         this.elasticsearchOperations = elasticsearchOperations;
         this.movieRepository = movieRepository;
         this.restHighLevelClient = restHighLevelClient;
+        this.bulkIngester = bulkIngester;
+        this.queryResultCache = queryResultCache;
+        this.searchExecutor = searchExecutor;
+        this.aggregationRefresher = aggregationRefresher;
+        this.titleSuggester = titleSuggester;
+        this.localAnalyzers = localAnalyzers;
+        this.queryPlanner = queryPlanner;
+        this.operationMetrics = operationMetrics;
+        this.analyzeLocally = analyzeLocally;
+        this.directorsMovieMetric = aggregationRefresher.register(MOVIES_INDEX, this::computeDirectorsMovieMetric);
+        this.languageBasedMetric = aggregationRefresher.register(MOVIES_INDEX, this::computeLanguageBasedMetric_1);
+    }
+
+    /*
+        Hit/miss/eviction counters of query result cache.
+    */
+    public QueryCacheStats getCacheStats() {
+        return queryResultCache.stats();
     }
 
     /*
@@ -68,25 +125,90 @@ public class MovieDao {
     */
     public List<Movies> getAllMovies() {
         List<Movies> allMovieList = new ArrayList<>();
-        movieRepository.findAll(Pageable.unpaged()).forEach(allMovieList::add);
+        operationMetrics.time("MovieDao.getAllMovies", MOVIES_INDEX, () -> {
+            movieRepository.findAll(Pageable.unpaged()).forEach(allMovieList::add);
+            return null;
+        });
         return allMovieList;
     }
 
+    /*
+        Walk through all the documents of movies, one page at a time, and hand over
+        each movie to "consumer" as soon as its page arrives. Only one page is kept
+        in memory, no matter how big the index is.
+
+        The 7.9 client has no point-in-time API, so the scroll context behind
+        searchForStream keeps the view consistent across pages. Sorting on "_doc"
+        is the cheapest order for this kind of walk.
+    */
+    public long streamAllMovies(int pageSize, String[] ListOfFields, Consumer<Movies> consumer) {
+        Query query = new NativeSearchQuery(QueryBuilders.matchAllQuery())
+                .setPageable(PageRequest.of(0, pageSize, Sort.by("_doc")));
+
+        if (ListOfFields != null && ListOfFields.length > 0)
+            query.addSourceFilter(new FetchSourceFilter(ListOfFields, null));
+
+        long start = System.nanoTime();
+        long count = 0;
+        try (SearchHitsIterator<Movies> hits = elasticsearchOperations.searchForStream(query, Movies.class)) {
+            while (hits.hasNext()) {
+                consumer.accept(hits.next().getContent());
+                count++;
+            }
+        } catch (RuntimeException e) {
+            operationMetrics.recordError("MovieDao.streamAllMovies", MOVIES_INDEX, e);
+            throw e;
+        }
+        // Time of the whole walk, including the consumer (writing the export).
+        operationMetrics.record("MovieDao.streamAllMovies", MOVIES_INDEX, start, -1, count, -1);
+        return count;
+    }
+
     /*
          Insert movie into "movie" index.
     */
     public Movies insertMovie(Movies moviesObj) {
-        return movieRepository.save(moviesObj);
+        // Repository refreshes the index after save(), so the movie is visible before cached results are dropped.
+        Movies saved = operationMetrics.time("MovieDao.insertMovie", MOVIES_INDEX, () -> movieRepository.save(moviesObj));
+        queryResultCache.invalidate(MOVIES_INDEX);
+        aggregationRefresher.recordWrites(MOVIES_INDEX, 1);
+        titleSuggester.put(saved);
+        return saved;
+    }
+
+    /*
+        Make a bulk load to "movies" visible to searches, before cached results are dropped (see QueryResultCache).
+    */
+    private void refreshMovies() {
+        elasticsearchOperations.indexOps(IndexCoordinates.of(MOVIES_INDEX)).refresh();
     }
 
     /*
         Delete movie from index.
     */
     public String deleteData(String docId) {
-        Movies moviesObj = new Movies();
-        moviesObj.setId(docId);
         //movieRepository.deleteById(docId);
-        return elasticsearchOperations.delete(moviesObj);
+        // Answered once the delete is visible to searches, without forcing a refresh of the index.
+        DeleteRequest request = new DeleteRequest(MOVIES_INDEX, docId)
+                .setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
+        String deletedId;
+        try {
+            deletedId = operationMetrics.time("MovieDao.deleteData", MOVIES_INDEX,
+                    () -> restHighLevelClient.delete(request, RequestOptions.DEFAULT).getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        queryResultCache.invalidate(MOVIES_INDEX);
+        aggregationRefresher.recordWrites(MOVIES_INDEX, 1);
+        titleSuggester.remove(docId);
+        return deletedId;
+    }
+
+    /*
+        Type-ahead of titles, answered from memory by TitleSuggester (no query to elasticsearch).
+    */
+    public List<TitleSuggestion> suggestTitles(String prefix, int size) {
+        return titleSuggester.suggest(prefix, size);
     }
 
     /*
@@ -94,19 +216,52 @@ public class MovieDao {
         must be in movies...
      */
     public SearchHits<Movies> getMoviesByCastMust(String... cast) {
+        return SearchExecutor.await(getMoviesByCastMustAsync(cast));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByCastMustAsync(String... cast) {
+        return searchMovies("MovieDao.getMoviesByCastMust", castMustQuery(cast), Movies.class, null, null);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByCastMustAsync(String[] cast, MovieProjection projection) {
+        return searchMovies("MovieDao.getMoviesByCastMust", castMustQuery(cast), MovieSummary.class, projection, null);
+    }
+
+    public void getMoviesByCastMustRaw(String[] cast, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        searchMoviesRaw("MovieDao.getMoviesByCastMust", castMustQuery(cast), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder castMustQuery(String[] cast) {
         BoolQueryBuilder boolQueryBuilder = new BoolQueryBuilder();
         for(String itr:cast){
             boolQueryBuilder.must(new MatchQueryBuilder("cast",itr));
         }
         //MatchQueryBuilder matchQueryBuilder = new MatchQueryBuilder("cast",cast);
-        Query query = new NativeSearchQuery(boolQueryBuilder);
-        return elasticsearchOperations.search(query, Movies.class);
+        SearchSourceBuilder source = new SearchSourceBuilder().query(boolQueryBuilder);
+        return source;
     }
 
     public SearchHits<Movies> getMoviesByTitle(String movieTitle) {
-        Criteria criteria = new Criteria("title").is(movieTitle);
-        Query query = new CriteriaQuery(criteria);
-        return elasticsearchOperations.search(query, Movies.class);
+        return SearchExecutor.await(getMoviesByTitleAsync(movieTitle));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByTitleAsync(String movieTitle) {
+        return searchMovies("MovieDao.getMoviesByTitle", titleQuery(movieTitle), Movies.class, null, "title", movieTitle);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByTitleAsync(String movieTitle, MovieProjection projection) {
+        return searchMovies("MovieDao.getMoviesByTitle", titleQuery(movieTitle), MovieSummary.class, projection, "title", movieTitle);
+    }
+
+    public void getMoviesByTitleRaw(String movieTitle, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        searchMoviesRaw("MovieDao.getMoviesByTitle", titleQuery(movieTitle), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder titleQuery(String movieTitle) {
+        // Same as Criteria("title").is(movieTitle): all the terms of title must match.
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.matchQuery("title", movieTitle).operator(Operator.AND));
+        return source;
     }
 
     /*
@@ -115,6 +270,22 @@ public class MovieDao {
         "minMatch" number of cast-members.
     */
     public SearchHits<Movies> getMoviesByCastShould(int minMatch, String[] cast) {
+        return SearchExecutor.await(getMoviesByCastShouldAsync(minMatch, cast));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByCastShouldAsync(int minMatch, String[] cast) {
+        return searchMovies("MovieDao.getMoviesByCastShould", castShouldQuery(minMatch, cast), Movies.class, null, null);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByCastShouldAsync(int minMatch, String[] cast, MovieProjection projection) {
+        return searchMovies("MovieDao.getMoviesByCastShould", castShouldQuery(minMatch, cast), MovieSummary.class, projection, null);
+    }
+
+    public void getMoviesByCastShouldRaw(int minMatch, String[] cast, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        searchMoviesRaw("MovieDao.getMoviesByCastShould", castShouldQuery(minMatch, cast), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder castShouldQuery(int minMatch, String[] cast) {
         BoolQueryBuilder boolQueryBuilder = new BoolQueryBuilder();
 
         /* Equivalent elasticsearch query:
@@ -161,14 +332,30 @@ public class MovieDao {
         // minimum number of should clauses must be satisfied by document in order to be included into result set
         // We can explicitly set it with any value less than number of should clauses.
         boolQueryBuilder.minimumShouldMatch(minMatch);
-        Query query = new NativeSearchQuery(boolQueryBuilder);
-        return elasticsearchOperations.search(query, Movies.class);
+        SearchSourceBuilder source = new SearchSourceBuilder().query(boolQueryBuilder);
+        return source;
     }
 
     /*
         Full-text-search query using match on "fullplot" field
     */
     public SearchHits<Movies> getMoviesByFullPlot(String plotData) {
+        return SearchExecutor.await(getMoviesByFullPlotAsync(plotData));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByFullPlotAsync(String plotData) {
+        return searchMovies("MovieDao.getMoviesByFullPlot", fullPlotQuery(plotData), Movies.class, null, "fullPlot", plotData);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByFullPlotAsync(String plotData, MovieProjection projection) {
+        return searchMovies("MovieDao.getMoviesByFullPlot", fullPlotQuery(plotData), MovieSummary.class, projection, "fullPlot", plotData);
+    }
+
+    public void getMoviesByFullPlotRaw(String plotData, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        searchMoviesRaw("MovieDao.getMoviesByFullPlot", fullPlotQuery(plotData), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder fullPlotQuery(String plotData) {
 
         /* Equivalent elasticsearch query:
          *     "query":{
@@ -185,100 +372,116 @@ public class MovieDao {
         MatchQueryBuilder matchQueryBuilder = new MatchQueryBuilder("fullplot",plotData)
                 .analyzer("standard");
 
-        Query query = new NativeSearchQuery(matchQueryBuilder);
-        return elasticsearchOperations.search(query, Movies.class);
+        SearchSourceBuilder source = new SearchSourceBuilder().query(matchQueryBuilder);
+        return source;
     }
 
-    private List<AnalyzeResponse.AnalyzeToken> buildTokens(AnalyzeRequest requestAnalyzer)
+    /*
+        Search "movies" and map hits into "type". With a projection, only its fields are
+        fetched from "_source" (see MovieProjection). Result is cached under "shape" and
+        "params" (each projection apart), unless "shape" is null.
+    */
+    private <T> CompletableFuture<SearchHits<T>> searchMovies(String operation, SearchSourceBuilder source, Class<T> type,
+                                                              MovieProjection projection,
+                                                              String shape, String... params)
     {
-        try{
-            AnalyzeResponse response = restHighLevelClient.indices().analyze(requestAnalyzer, RequestOptions.DEFAULT);
-            List<AnalyzeResponse.AnalyzeToken> tokenList = response.getTokens();
-            for(AnalyzeResponse.AnalyzeToken itr: tokenList)
-                System.out.println(itr.getTerm());
-/*
-             System.out.println(tokenList.size());
-             toStringAnalyzeToken is now serializable and can be used in place of AnalyeToken.
-             List<toStringAnalyzeToken> finalTokenList = new ArrayList<>();
-             for(AnalyzeResponse.AnalyzeToken itr:tokenList){
-                finalTokenList.add(new toStringAnalyzeToken(itr));
-                System.out.println(finalTokenList);
-             }
-*/
-            return tokenList;
+        source.query(queryPlanner.plan(operation, Movies.class, source.query()));
+        if (projection != null) {
+            source.fetchSource(projection.getIncludes(), null);
+            if (shape != null)
+                shape = shape + "[" + projection.cacheKey() + "]";
         }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
-        return null;
+        if (shape == null)
+            return searchExecutor.searchAsync(operation, MOVIES_INDEX, source, type);
+        return queryResultCache.getAsync(MOVIES_INDEX, shape,
+                () -> searchExecutor.searchAsync(operation, MOVIES_INDEX, source, type), params);
+    }
+
+    /*
+        Same search as searchMovies(), but hits are not mapped: "_source" of each hit is
+        written to "out" as elasticsearch sent it (see RawHitsWriter). Not cached.
+    */
+    private void searchMoviesRaw(String operation, SearchSourceBuilder source, MovieProjection projection,
+                                 int from, int size, OutputStream out) throws IOException
+    {
+        source.query(queryPlanner.plan(operation, Movies.class, source.query()));
+        source.from(from).size(size);
+        if (projection != null)
+            source.fetchSource(projection.getIncludes(), null);
+        RawHitsWriter.write(searchExecutor.searchRaw(operation, MOVIES_INDEX, source), from, size, out);
+    }
+
+    private CompletableFuture<List<AnalyzedToken>> buildTokens(AnalyzeRequest requestAnalyzer)
+    {
+        return searchExecutor.analyzeAsync("MovieDao.TrialAnalyzer", requestAnalyzer).thenApply(response -> {
+            List<AnalyzedToken> tokenList = new ArrayList<>(response.getTokens().size());
+            for(AnalyzeResponse.AnalyzeToken itr: response.getTokens())
+                tokenList.add(new AnalyzedToken(itr));
+            return tokenList;
+        });
     }
 
     /*
             Below code is equivalent to what we can do with below endpoint
             "GET movies/_analyze".
+            With "movies.analyze.local=true" the same chain runs inside this JVM
+            (see LocalAnalyzers), without a round trip to the cluster.
     */
-    public List<AnalyzeResponse.AnalyzeToken> TrialAnalyzer(String AnalyzerType, String... textToAnalyze)
+    public List<AnalyzedToken> TrialAnalyzer(String AnalyzerType, String... textToAnalyze)
     {
-        // All the Token filters (and Char_filers also) defined here anyone(any analyzer) can use it.
-        Map<String, Object> StandardTokenizer = new LinkedHashMap<>();
-        StandardTokenizer.put("type", "standard");
-
-        // Using builder class, it helps to write cleaner code compare to writing all the properties
-        // manually everytime.
-        EdgeNgramTokenizer edgeNgramTokenizer =
-                new EdgeNgramTokenizer.Builder()
-                        .setMinGram(3)
-                        .setMaxGram(6)
-                        .setTokenChars(new String[]{"letter","digit"})
-                        .build();
+        return SearchExecutor.awaitOrNull(TrialAnalyzerAsync(AnalyzerType, textToAnalyze));
+    }
 
+    public CompletableFuture<List<AnalyzedToken>> TrialAnalyzerAsync(String AnalyzerType, String... textToAnalyze)
+    {
         /*
-             Another way of configuring tokenizer or any filters.
-             Map<String, Object> EdgeNgramTokenizer = new LinkedHashMap<>();
-             EdgeNgramTokenizer.put("type","edge_ngram");
-             EdgeNgramTokenizer.put("min_gram",3);
-             EdgeNgramTokenizer.put("max_gram",6);
-             EdgeNgramTokenizer.put("token_chars",new String[]{"letter","digit"});
-
-            This particularly will break the token whenever it encounters a character which
-            doesn't belong to list of token_chars --> array. Helps to create(break) a big text
-            into meaningful token(as well as its edge_ngram tokens).
-
-         */
-
-        Map<String, Object> StopwordTokenFilter = new LinkedHashMap<>();
-        StopwordTokenFilter.put("type", "stop");
-        StopwordTokenFilter.put("stopwords", "_english_");
-
+            "standard": standard tokenizer, html_strip char filter, lowercase and english stop words.
+            "edge_ngram": edge_ngram tokenizer (3 to 6 chars, breaking on anything other than
+            letters and digits), html_strip char filter and lowercase.
+            Both chains are defined once in LocalAnalyzers, the cluster gets the same definition.
+        */
+        AnalysisChain chain;
         switch (AnalyzerType)
         {
             case "standard":
-            {
-                AnalyzeRequest analyzeRequestOnStandard = AnalyzeRequest.buildCustomAnalyzer(StandardTokenizer)
-                        .addCharFilter("html_strip")
-                        .addTokenFilter("lowercase")
-                        .addTokenFilter(StopwordTokenFilter)
-                        .build(textToAnalyze);
-                return buildTokens(analyzeRequestOnStandard);
-            }
+                chain = LocalAnalyzers.TRIAL_STANDARD;
+                break;
             case "edge_ngram":
-            {
-                AnalyzeRequest analyzeRequestOnEdgeNgram =
-                        AnalyzeRequest.buildCustomAnalyzer(edgeNgramTokenizer.getTokenizer())
-                        .addTokenFilter("lowercase")
-                        .addCharFilter("html_strip")
-                        .build(textToAnalyze);
-                return buildTokens(analyzeRequestOnEdgeNgram);
-            }
+                chain = LocalAnalyzers.TRIAL_EDGE_NGRAM;
+                break;
             default:
             {
                 System.out.println("Enter valid Analyzer name....\n");
-                return null;
+                return CompletableFuture.completedFuture(null);
             }
         }
+
+        if (analyzeLocally)
+            return CompletableFuture.completedFuture(localAnalyzers.analyze(chain, textToAnalyze));
+        return buildTokens(chain.toAnalyzeRequest(textToAnalyze));
     }
 
     public SearchHits<Movies> getMoviesByTitleUpdated(String movie)
+    {
+        return SearchExecutor.await(getMoviesByTitleUpdatedAsync(movie));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByTitleUpdatedAsync(String movie)
+    {
+        return searchMovies("MovieDao.getMoviesByTitleUpdated", titleUpdatedQuery(movie), Movies.class, null, null);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByTitleUpdatedAsync(String movie, MovieProjection projection)
+    {
+        return searchMovies("MovieDao.getMoviesByTitleUpdated", titleUpdatedQuery(movie), MovieSummary.class, projection, null);
+    }
+
+    public void getMoviesByTitleUpdatedRaw(String movie, MovieProjection projection, int from, int size, OutputStream out) throws IOException
+    {
+        searchMoviesRaw("MovieDao.getMoviesByTitleUpdated", titleUpdatedQuery(movie), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder titleUpdatedQuery(String movie)
     {
         /* Equivalent elasticsearch query:
         *     "query":{
@@ -299,10 +502,11 @@ public class MovieDao {
                 .fuzziness(Fuzziness.AUTO)
                 .operator(Operator.AND);
 
-        Query query = new NativeSearchQuery(matchQueryBuilder)
-                .addSort(Sort.by(desc("awards.wins")));
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(matchQueryBuilder)
+                .sort("awards.wins", SortOrder.DESC);
 
-        return elasticsearchOperations.search(query, Movies.class);
+        return source;
     }
 
     /*
@@ -312,14 +516,35 @@ public class MovieDao {
     */
 
     public SearchHits<Movies> getMoviesOfDirectors(String directorName)
+    {
+        return SearchExecutor.await(getMoviesOfDirectorsAsync(directorName));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesOfDirectorsAsync(String directorName)
+    {
+        return searchMovies("MovieDao.getMoviesOfDirectors", directorsQuery(directorName), Movies.class, null, "directors", directorName);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesOfDirectorsAsync(String directorName, MovieProjection projection)
+    {
+        return searchMovies("MovieDao.getMoviesOfDirectors", directorsQuery(directorName), MovieSummary.class, projection, "directors", directorName);
+    }
+
+    public void getMoviesOfDirectorsRaw(String directorName, MovieProjection projection, int from, int size, OutputStream out) throws IOException
+    {
+        searchMoviesRaw("MovieDao.getMoviesOfDirectors", directorsQuery(directorName), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder directorsQuery(String directorName)
     {
         MatchQueryBuilder matchQueryBuilder = new MatchQueryBuilder("directors", directorName)
                 .fuzziness(Fuzziness.AUTO);
 
-        Query query = new NativeSearchQuery(matchQueryBuilder)
-                .addSort(Sort.by(desc("imdb.rating")));
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(matchQueryBuilder)
+                .sort("imdb.rating", SortOrder.DESC);
 
-        return elasticsearchOperations.search(query, Movies.class);
+        return source;
     }
 
     /*
@@ -327,6 +552,22 @@ public class MovieDao {
            as part of "cast" Array field.
     */
     public SearchHits<Movies> getMoviesByCastExact(String castName) {
+        return SearchExecutor.await(getMoviesByCastExactAsync(castName));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByCastExactAsync(String castName) {
+        return searchMovies("MovieDao.getMoviesByCastExact", castExactQuery(castName), Movies.class, null, "castExact", castName);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByCastExactAsync(String castName, MovieProjection projection) {
+        return searchMovies("MovieDao.getMoviesByCastExact", castExactQuery(castName), MovieSummary.class, projection, "castExact", castName);
+    }
+
+    public void getMoviesByCastExactRaw(String castName, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        searchMoviesRaw("MovieDao.getMoviesByCastExact", castExactQuery(castName), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder castExactQuery(String castName) {
 
             /* Equivalent elasticsearch query:
             * {
@@ -338,8 +579,9 @@ public class MovieDao {
             * }
             * */
 
-            Criteria criteria = new Criteria("cast").matches(castName);
-            /* Equivalent elasticsearch query:
+            // Same as Criteria("cast").matches(castName)
+            MatchQueryBuilder matchQueryBuilder = QueryBuilders.matchQuery("cast", castName);
+            /* Criteria("cast").in(castName) would be equivalent to below query:
              * {
              *      "query": {
              *           "match":{
@@ -351,10 +593,9 @@ public class MovieDao {
              *       }
              * } */
 
-            Criteria criteria2 = new Criteria("cast").in(castName);
-            Query query = new CriteriaQuery(criteria);
+            SearchSourceBuilder source = new SearchSourceBuilder().query(matchQueryBuilder);
 
-        return elasticsearchOperations.search(query, Movies.class);
+        return source;
     }
 
     /*
@@ -364,6 +605,11 @@ public class MovieDao {
     */
 
     public org.elasticsearch.search.SearchHits getMoviesByCastExact(String castName, String... ListOfFields)
+    {
+        return SearchExecutor.awaitOrNull(getMoviesByCastExactAsync(castName, ListOfFields));
+    }
+
+    public CompletableFuture<org.elasticsearch.search.SearchHits> getMoviesByCastExactAsync(String castName, String... ListOfFields)
     {
         // How one can project specific fields in query.
         String[] excludeFields = new String[] {};
@@ -374,17 +620,11 @@ public class MovieDao {
         searchSourceBuilder.fetchSource(ListOfFields,excludeFields);
         searchRequest.source(searchSourceBuilder);
 
-        try{
-            SearchResponse searchResponse = restHighLevelClient.search(searchRequest, RequestOptions.DEFAULT);
+        return searchExecutor.searchAsync("MovieDao.getMoviesByCastExact", searchRequest).thenApply(searchResponse -> {
             org.elasticsearch.search.SearchHits hits = searchResponse.getHits();
             System.out.println(hits.getTotalHits());
             return hits;
-        }
-        catch(IOException e)
-        {
-            e.printStackTrace();
-        }
-        return null;
+        });
     }
 
     /*
@@ -392,6 +632,22 @@ public class MovieDao {
            (can be applied to FullPlot field)
     */
     public SearchHits<Movies> getMoviesByPlot(String movieDescription) {
+        return SearchExecutor.await(getMoviesByPlotAsync(movieDescription));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByPlotAsync(String movieDescription) {
+        return searchMovies("MovieDao.getMoviesByPlot", plotQuery(movieDescription), Movies.class, null, "plot", movieDescription);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByPlotAsync(String movieDescription, MovieProjection projection) {
+        return searchMovies("MovieDao.getMoviesByPlot", plotQuery(movieDescription), MovieSummary.class, projection, "plot", movieDescription);
+    }
+
+    public void getMoviesByPlotRaw(String movieDescription, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        searchMoviesRaw("MovieDao.getMoviesByPlot", plotQuery(movieDescription), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder plotQuery(String movieDescription) {
 
             /*  query for "Avenger save Uni"
                 In MatchPhrasePrefixQuery, Order of terms in query will remain same as given
@@ -430,8 +686,8 @@ public class MovieDao {
                     .minimumShouldMatch("75%");
             // Fraction of words in given string that should be matched in order to be able to put
             // document in result set.
-            Query query = new NativeSearchQuery(matchingBuilder);
-            return elasticsearchOperations.search(query, Movies.class);
+            SearchSourceBuilder source = new SearchSourceBuilder().query(matchingBuilder);
+            return source;
     }
 
     /*
@@ -440,6 +696,22 @@ public class MovieDao {
            (can be applied to FullPlot field)
     */
     public SearchHits<Movies> getMoviesByPlot_2(String movieDescription) {
+        return SearchExecutor.await(getMoviesByPlot_2Async(movieDescription));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByPlot_2Async(String movieDescription) {
+        return searchMovies("MovieDao.getMoviesByPlot_2", plot2Query(movieDescription), Movies.class, null, "plot2", movieDescription);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByPlot_2Async(String movieDescription, MovieProjection projection) {
+        return searchMovies("MovieDao.getMoviesByPlot_2", plot2Query(movieDescription), MovieSummary.class, projection, "plot2", movieDescription);
+    }
+
+    public void getMoviesByPlot_2Raw(String movieDescription, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        searchMoviesRaw("MovieDao.getMoviesByPlot_2", plot2Query(movieDescription), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder plot2Query(String movieDescription) {
 
             /*  query for "Avenger Saves Uni"
                 In MatchPhrasePrefixQuery, Order of terms in query will remain same as given
@@ -468,8 +740,8 @@ public class MovieDao {
         MatchPhrasePrefixQueryBuilder matchingBuilder =
                 new MatchPhrasePrefixQueryBuilder("plot",movieDescription);
 
-        Query query = new NativeSearchQuery(matchingBuilder);
-        return elasticsearchOperations.search(query, Movies.class);
+        SearchSourceBuilder source = new SearchSourceBuilder().query(matchingBuilder);
+        return source;
     }
 
     /*
@@ -477,6 +749,26 @@ public class MovieDao {
             on Plot and FullPlot fields using different types.
     */
     public SearchHits<Movies> getMoviesByPlot_3(String PlotData)
+    {
+        return SearchExecutor.await(getMoviesByPlot_3Async(PlotData));
+    }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByPlot_3Async(String PlotData)
+    {
+        return searchMovies("MovieDao.getMoviesByPlot_3", plot3Query(PlotData), Movies.class, null, "plot3", PlotData);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByPlot_3Async(String PlotData, MovieProjection projection)
+    {
+        return searchMovies("MovieDao.getMoviesByPlot_3", plot3Query(PlotData), MovieSummary.class, projection, "plot3", PlotData);
+    }
+
+    public void getMoviesByPlot_3Raw(String PlotData, MovieProjection projection, int from, int size, OutputStream out) throws IOException
+    {
+        searchMoviesRaw("MovieDao.getMoviesByPlot_3", plot3Query(PlotData), projection, from, size, out);
+    }
+
+    static SearchSourceBuilder plot3Query(String PlotData)
     {
         // To get all the words in string which are space separated.
         //String[] words = PlotData.split("\\s+");
@@ -519,7 +811,7 @@ public class MovieDao {
                 .tieBreaker(0.5F)
                 .minimumShouldMatch("50%");
 
-        Query BestFieldQuery = new NativeSearchQuery(multiMatchQueryBuilder);
+        SearchSourceBuilder BestFieldQuery = new SearchSourceBuilder().query(multiMatchQueryBuilder);
 
         /*
                 "MOST FIELDS"
@@ -568,7 +860,7 @@ public class MovieDao {
                 .minimumShouldMatch("50%")
                 .fields(ScoreMap);
 
-        Query MostFieldQuery = new NativeSearchQuery(multiMatchQueryBuilder1);
+        SearchSourceBuilder MostFieldQuery = new SearchSourceBuilder().query(multiMatchQueryBuilder1);
         /*
                 "CROSS FIELDS"
         */
@@ -596,14 +888,14 @@ public class MovieDao {
                 .fields(ScoreMapMultiMatch)
                 .operator(Operator.AND);
 
-        Query CrossFieldQuery = new NativeSearchQuery(multiMatchQueryBuilder2);
+        SearchSourceBuilder CrossFieldQuery = new SearchSourceBuilder().query(multiMatchQueryBuilder2);
         /*
             There are other types also like BoolPrefix, Phrase, PrefixPhrase.
             They are exactly same as BestType just difference is that they apply
             match_bool_prefix, match_phrase, match_prefix_phrase clauses respectively
             instead of match.
         */
-        return elasticsearchOperations.search(CrossFieldQuery, Movies.class);
+        return CrossFieldQuery;
     }
 
     // Some other full-text search queries are remaining.
@@ -612,6 +904,30 @@ public class MovieDao {
         Top-30 Directors on basis of Total number of awards.
      */
     public Aggregations getDirectorsMovieMetric(String... ListOfFields)
+    {
+        RefreshAheadValue.Snapshot<Aggregations> snapshot =
+                SearchExecutor.awaitOrNull(getDirectorsMovieMetricAsync(ListOfFields));
+        return snapshot == null ? null : snapshot.getValue();
+    }
+
+    /*
+        Served from memory, the aggregation is recomputed in background.
+        "ListOfFields" only filtered source of hits, which were never part of the result,
+        so it does not change the aggregations.
+    */
+    public CompletableFuture<RefreshAheadValue.Snapshot<Aggregations>> getDirectorsMovieMetricAsync(String... ListOfFields)
+    {
+        return aggregationRefresher.get(directorsMovieMetric);
+    }
+
+    private CompletableFuture<Aggregations> computeDirectorsMovieMetric()
+    {
+        SearchRequest searchRequest = new SearchRequest("movies");
+        searchRequest.source(directorsMovieMetricQuery());
+        return searchExecutor.searchAsync("MovieDao.getDirectorsMovieMetric", searchRequest).thenApply(SearchResponse::getAggregations);
+    }
+
+    static SearchSourceBuilder directorsMovieMetricQuery()
     {
         SumAggregationBuilder MaxSubAgg = new SumAggregationBuilder("max-awards-agg")
                 .field("awards.wins");
@@ -622,22 +938,12 @@ public class MovieDao {
                 .order(BucketOrder.aggregation("max-awards-agg",false))
                 .size(30);
 
-        SearchRequest searchRequest = new SearchRequest("movies");
-
+        // Only aggregations are used, so no hit is fetched.
         SearchSourceBuilder searchSourceBuilder =  new SearchSourceBuilder()
                     .aggregation(aggregationBuilder)
-                    .fetchSource(ListOfFields, null);
+                    .size(0);
 
-        searchRequest.source(searchSourceBuilder);
-        try{
-            SearchResponse searchResponse = restHighLevelClient.search(searchRequest, RequestOptions.DEFAULT);
-            return searchResponse.getAggregations();
-        }
-        catch(IOException e)
-        {
-            e.printStackTrace();
-        }
-        return null;
+        return searchSourceBuilder;
     }
 
     /*
@@ -646,6 +952,25 @@ public class MovieDao {
                     for each movie language finding one Metric-Avg Imdb Rating.
     */
     public Aggregations getLanguageBasedMetric_1()
+    {
+        RefreshAheadValue.Snapshot<Aggregations> snapshot =
+                SearchExecutor.awaitOrNull(getLanguageBasedMetric_1Async());
+        return snapshot == null ? null : snapshot.getValue();
+    }
+
+    public CompletableFuture<RefreshAheadValue.Snapshot<Aggregations>> getLanguageBasedMetric_1Async()
+    {
+        return aggregationRefresher.get(languageBasedMetric);
+    }
+
+    private CompletableFuture<Aggregations> computeLanguageBasedMetric_1()
+    {
+        SearchRequest searchRequest = new SearchRequest("movies");
+        searchRequest.source(languageBasedMetricQuery());
+        return searchExecutor.searchAsync("MovieDao.getLanguageBasedMetric_1", searchRequest).thenApply(SearchResponse::getAggregations);
+    }
+
+    static SearchSourceBuilder languageBasedMetricQuery()
     {
         AvgAggregationBuilder AvgSubAgg = new AvgAggregationBuilder("sub-max-rating-agg")
                 .field("imdb.rating");
@@ -659,7 +984,6 @@ public class MovieDao {
                 .size(20)
                 .subAggregation(TermSubAgg);
 
-        SearchRequest searchRequest = new SearchRequest("movies");
         /*
               Unlike query filter, PostFilter will not affect aggregation.
 
@@ -669,30 +993,84 @@ public class MovieDao {
         */
 
         SearchSourceBuilder searchSourceBuilder =  new SearchSourceBuilder()
-                .aggregation(aggregationBuilder);
+                .aggregation(aggregationBuilder)
+                .size(0);
 
-        searchRequest.source(searchSourceBuilder);
-        try{
-            SearchResponse searchResponse = restHighLevelClient.search(searchRequest, RequestOptions.DEFAULT);
-            return searchResponse.getAggregations();
-        }
-        catch(IOException e)
-        {
-            e.printStackTrace();
-        }
-        return null;
+        return searchSourceBuilder;
+    }
+
+    /*
+        Complete set of director metrics, one page at a time.
+
+        Terms aggregations above return only the top 30/20 directors, and asking them for
+        every director would make coordinating node build all buckets in memory at once.
+        Composite aggregation returns buckets in key order, "pageSize" at a time, and next
+        page starts after the key of last bucket ("after" cursor, see CompositeCursor).
+        So every bucket can be pulled with bounded memory, but not ordered by metric.
+        "afterKey" is the decoded cursor, null for the first page.
+    */
+    public CompletableFuture<CompositePage> getDirectorsMovieMetricPageAsync(int pageSize, Map<String, Object> afterKey)
+    {
+        return getCompositePageAsync("MovieDao.getDirectorsMovieMetricPage",
+                List.of(new TermsValuesSourceBuilder("director").field("directors.keyword")),
+                new SumAggregationBuilder("awards_wins").field("awards.wins"),
+                pageSize, afterKey);
+    }
+
+    /*
+        Same as above, with a bucket for each (director, language) pair.
+    */
+    public CompletableFuture<CompositePage> getLanguageBasedMetricPageAsync(int pageSize, Map<String, Object> afterKey)
+    {
+        return getCompositePageAsync("MovieDao.getLanguageBasedMetricPage",
+                List.of(new TermsValuesSourceBuilder("director").field("directors.keyword"),
+                        new TermsValuesSourceBuilder("language").field("languages")),
+                new AvgAggregationBuilder("avg_imdb_rating").field("imdb.rating"),
+                pageSize, afterKey);
+    }
+
+    private CompletableFuture<CompositePage> getCompositePageAsync(String operation,
+                                                                   List<CompositeValuesSourceBuilder<?>> sources,
+                                                                   AggregationBuilder metric,
+                                                                   int pageSize, Map<String, Object> afterKey)
+    {
+        int size = Math.max(1, Math.min(pageSize, MAX_COMPOSITE_PAGE_SIZE));
+        CompositeAggregationBuilder aggregationBuilder = new CompositeAggregationBuilder("pages", sources)
+                .size(size)
+                .subAggregation(metric);
+        if (afterKey != null)
+            aggregationBuilder.aggregateAfter(afterKey);
+
+        SearchRequest searchRequest = new SearchRequest(MOVIES_INDEX)
+                .source(new SearchSourceBuilder().aggregation(aggregationBuilder).size(0));
+
+        return searchExecutor.searchAsync(operation, searchRequest).thenApply(response -> {
+            CompositeAggregation composite = response.getAggregations().get("pages");
+            List<CompositeBucket> buckets = new ArrayList<>(composite.getBuckets().size());
+            for (CompositeAggregation.Bucket bucket : composite.getBuckets()) {
+                Map<String, Double> metrics = new LinkedHashMap<>();
+                for (Aggregation aggregation : bucket.getAggregations()) {
+                    double value = ((NumericMetricsAggregation.SingleValue) aggregation).value();
+                    // avg of a bucket without rating is NaN, which is not valid JSON.
+                    metrics.put(aggregation.getName(), Double.isFinite(value) ? value : null);
+                }
+                buckets.add(new CompositeBucket(bucket.getKey(), bucket.getDocCount(), metrics));
+            }
+            // A page shorter than asked for is the last one.
+            String next = buckets.size() < size ? null : CompositeCursor.encode(composite.afterKey());
+            return new CompositePage(buckets, next);
+        });
     }
 
     /*
         Creating index template and using it.
+        Read the JSON document from file as raw bytes, which can be sent to
+        elasticsearch as it is.
     */
-    private String ConvertJsonToString(String fileName){
-        /*DEFAULT_PERMISSIVE_MODE*/
-        JSONParser parser = new JSONParser(DEFAULT_PERMISSIVE_MODE);
-        try (Reader reader = new FileReader(fileName)) {
-            JSONObject jsonObject = (JSONObject) parser.parse(reader);
-            return jsonObject.toJSONString();
-        } catch (IOException | ParseException e) {
+    private BytesReference ReadJsonDocument(String fileName){
+        try {
+            return JsonDocumentReader.readSingleDocument(Paths.get(fileName));
+        } catch (IOException e) {
             e.printStackTrace();
         }
         return null;
@@ -703,12 +1081,14 @@ public class MovieDao {
     */
     public boolean CreateIndexTemplate(String NameOfTemplate){
         PutIndexTemplateRequest TemplateRequest = new PutIndexTemplateRequest(NameOfTemplate);
-        String IndexTemplateInString = ConvertJsonToString("MoviesIndexTemplate.json");
-        TemplateRequest.source(IndexTemplateInString, XContentType.JSON);
+        BytesReference IndexTemplate = ReadJsonDocument("MoviesIndexTemplate.json");
+        if (IndexTemplate == null)
+            return false;
+        TemplateRequest.source(IndexTemplate, XContentType.JSON);
 //                .create(true);  // Forcing to create template even if there is template of same name.
         try{
-            AcknowledgedResponse putTemplateResponse = restHighLevelClient.indices()
-                    .putTemplate(TemplateRequest, RequestOptions.DEFAULT);
+            AcknowledgedResponse putTemplateResponse = operationMetrics.time("MovieDao.CreateIndexTemplate", null,
+                    () -> restHighLevelClient.indices().putTemplate(TemplateRequest, RequestOptions.DEFAULT));
             return putTemplateResponse.isAcknowledged();
         }
         catch(IOException  e){
@@ -722,8 +1102,8 @@ public class MovieDao {
         deleteRequest.name(templateName);
 
         try{
-            AcknowledgedResponse deleteTemplateResponse = restHighLevelClient.indices()
-                    .deleteTemplate(deleteRequest, RequestOptions.DEFAULT);
+            AcknowledgedResponse deleteTemplateResponse = operationMetrics.time("MovieDao.DeleteIndexTemplate", null,
+                    () -> restHighLevelClient.indices().deleteTemplate(deleteRequest, RequestOptions.DEFAULT));
             return deleteTemplateResponse.isAcknowledged();
         }
         catch(IOException  e){
@@ -752,13 +1132,15 @@ public class MovieDao {
         */
 
         CreateIndexRequest indexRequest = new CreateIndexRequest(indexName);
-        // Converting content of JSON file from Json to string object
+        // Reading content of JSON file as it is
         String FileName = "MovieIndex.json";
-        String IndexInString = ConvertJsonToString(FileName);
-        indexRequest.source(IndexInString, XContentType.JSON);
+        BytesReference IndexSource = ReadJsonDocument(FileName);
+        if (IndexSource == null)
+            return false;
+        indexRequest.source(IndexSource, XContentType.JSON);
         try{
-            CreateIndexResponse createIndexResponse = restHighLevelClient.indices()
-                    .create(indexRequest, RequestOptions.DEFAULT);
+            CreateIndexResponse createIndexResponse = operationMetrics.time("MovieDao.CreateIndex", indexName,
+                    () -> restHighLevelClient.indices().create(indexRequest, RequestOptions.DEFAULT));
             return createIndexResponse.isAcknowledged();
         }
         catch(IOException  e){
@@ -768,17 +1150,16 @@ public class MovieDao {
     }
 
     public boolean CreatePipeline(String pipelineName, String fileName){
-        String sourcePipelineString = ConvertJsonToString(fileName);
-        PutPipelineRequest pipelineRequest = null;
-        if (sourcePipelineString != null) {
-            pipelineRequest = new PutPipelineRequest(
+        BytesReference sourcePipeline = ReadJsonDocument(fileName);
+        if (sourcePipeline != null) {
+            PutPipelineRequest pipelineRequest = new PutPipelineRequest(
                     pipelineName,
-                    new BytesArray(sourcePipelineString.getBytes(StandardCharsets.UTF_8)),
+                    sourcePipeline,
                     XContentType.JSON
             );
             try{
-                AcknowledgedResponse response = restHighLevelClient.ingest()
-                        .putPipeline(pipelineRequest, RequestOptions.DEFAULT);
+                AcknowledgedResponse response = operationMetrics.time("MovieDao.CreatePipeline", null,
+                        () -> restHighLevelClient.ingest().putPipeline(pipelineRequest, RequestOptions.DEFAULT));
                 return response.isAcknowledged();
             }
             catch (IOException e){
@@ -793,31 +1174,35 @@ public class MovieDao {
 
     }
 
-    public void IndexDocumentWithPipeline(String indexName,
-                                          String indexFilename,
-                                          String pipelineName){
-
-        String IndexDocsInString = ConvertJsonToString(indexFilename);
-        IndexRequest request = new IndexRequest(indexName)
-                .setPipeline(pipelineName)
-                .source(XContentType.JSON, IndexDocsInString);
-
-        /*
-            "indexFilename" is a file which has document which is supposed to add in
-            "indexName" index using "pipelineName" pipeline.
-        */
+    /*
+        "indexFilename" is a file which has documents which are supposed to add in
+        "indexName" index using "pipelineName" pipeline.
+        File can hold one document, an array of documents or one document per line.
+        Documents are read one at a time and sent as "_bulk" requests, so whole file
+        is never kept in memory.
+    */
+    public BulkIngestReport IndexDocumentWithPipeline(String indexName,
+                                                      String indexFilename,
+                                                      String pipelineName){
 
-        try {
-            IndexResponse response = restHighLevelClient.index(request, RequestOptions.DEFAULT);
+        try (JsonDocumentReader documents = JsonDocumentReader.open(Paths.get(indexFilename))) {
             /*
-                We can observe somethings in response.
-                1) Whether document is created or updated.
-                2) get ID, get name of Index.
+                We can observe somethings in report.
+                1) How many documents are indexed, and how many failed (with reason).
+                2) docs/sec and bytes/sec of whole ingestion.
             */
-        } catch (IOException e) {
+            BulkIngestReport report = operationMetrics.time("MovieDao.IndexDocumentWithPipeline", indexName,
+                    () -> bulkIngester.ingest(indexName, pipelineName, documents));
+            if (MOVIES_INDEX.equals(indexName)) {
+                queryResultCache.invalidateAfter(MOVIES_INDEX, this::refreshMovies);
+                aggregationRefresher.recordWrites(MOVIES_INDEX, report.getDocuments());
+                titleSuggester.reload();
+            }
+            return report;
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
         }
-
+        return null;
     }
 
 }
@@ -0,0 +1,63 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ "fields=" parameter of movie searches, turned into "_source" includes of the search.
+
+ Only fields of MovieSummary can be asked for, either whole ("imdb") or one of its leaf
+ fields ("imdb.rating"); every allowed path is listed in FIELDS. Without any field, DEFAULT_FIELDS are fetched: what a list of movies shows.
+ Elasticsearch then leaves everything else out of each hit, so plot text and posters are
+ neither sent over the network nor parsed.
+ **/
+public final class MovieProjection {
+
+    public static final String[] DEFAULT_FIELDS = {"title", "year", "imdb.rating"};
+
+    // Full paths: a sub field of a field which is not an object ("title.foo") is unknown as well.
+    private static final Set<String> FIELDS = Set.of("title", "year", "rated", "runtime", "type", "genres",
+            "directors", "cast", "languages", "countries", "metacritic",
+            "imdb", "imdb.rating", "imdb.votes", "imdb.id");
+
+    private final String[] includes;
+
+    private MovieProjection(String[] includes) {
+        this.includes = includes;
+    }
+
+    /*
+        Projection on "fields" (each may hold several names split by commas).
+        Unknown fields are rejected with BadRequestException (400).
+    */
+    public static MovieProjection of(String... fields) {
+        Set<String> includes = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields) {
+                for (String name : field.split(",")) {
+                    name = name.trim();
+                    if (name.isEmpty())
+                        continue;
+                    if (!FIELDS.contains(name))
+                        throw new BadRequestException("Unknown field: " + name + ", allowed: " + FIELDS);
+                    includes.add(name);
+                }
+            }
+        }
+        return new MovieProjection(includes.isEmpty() ? DEFAULT_FIELDS.clone() : includes.toArray(new String[0]));
+    }
+
+    public String[] getIncludes() {
+        return includes.clone();
+    }
+
+    /*
+        Part of query result cache key, so different projections of one query are cached apart.
+    */
+    String cacheKey() {
+        String[] sorted = includes.clone();
+        Arrays.sort(sorted);
+        return String.join(",", sorted);
+    }
+}
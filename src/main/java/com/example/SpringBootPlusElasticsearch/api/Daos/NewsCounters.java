@@ -0,0 +1,584 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.NewsCounterProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHistogram;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.core.CountRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.DateHistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ Number of headlines per category and day, kept up to date in memory while headlines are
+ ingested, so "/news/histogram" of any date range is answered without an aggregation.
+
+ - Counters are one int[] per category, indexed by day (epoch day minus the first day of the
+   table). Rows grow by a year at a time on the side a new day falls, so a backfill of old
+   headlines does not copy them for every day. Only days from "firstDate" to "lastDate" are
+   counted (so a headline dated 0001-01-01 can not make rows of two thousand years); the
+   index is counted within the same days, so its total still agrees with the counters.
+ - Every headline handed to the bulk load (see counting()) adds one to its category and day.
+   A headline without either is not counted. A bulk load with failures, or one which did not
+   complete, counted headlines which may not be indexed, so the counters are counted again
+   from the index "rebuildDelaySeconds" later.
+ - Counters are written to "checkpointFile" when they changed (every "checkpointSeconds", and
+   on shutdown). At start up the checkpoint is read back and used as long as its total is
+   the number of headlines of the index with a category and a date; otherwise every counter is
+   counted from the index with a composite aggregation (category x day), page by page.
+ - Headlines ingested while the index is being counted may or may not be part of the count,
+   so one more count follows.
+ - Last count, checkpoint or restore which failed is part of every histogram ("lastFailure").
+ **/
+@Component
+public class NewsCounters {
+
+    /*
+        Headlines of the index, as the counters see them.
+    */
+    interface IndexSource {
+        // Headlines with a category and a date.
+        long total() throws IOException;
+
+        void forEachBucket(BucketConsumer consumer) throws IOException;
+    }
+
+    interface BucketConsumer {
+        void accept(String category, LocalDate day, long count);
+    }
+
+    private static final int CHECKPOINT_MAGIC = 0x4e435431;
+    private static final int CHECKPOINT_VERSION = 1;
+    private static final int GROWTH_DAYS = 366;
+    private static final int COMPOSITE_PAGE_SIZE = 1000;
+    private static final long RETRY_AFTER_FAILURE_SECONDS = 60;
+
+    private final IndexSource source;
+    private final boolean enabled;
+    private final Path checkpointFile;
+    private final long rebuildDelaySeconds;
+    // Epoch days of the first and last day counted.
+    private final long firstDay;
+    private final long lastDay;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    // Guarded by "this", replaced as a whole by a count from the index.
+    private Table table = new Table();
+    private boolean ready;
+    // Headlines added since start, and how many of them the last checkpoint holds.
+    private long changes;
+    private long checkpointed;
+    private volatile String lastFailure;
+
+    @Autowired
+    public NewsCounters(RestHighLevelClient restHighLevelClient, NewsPartitions newsPartitions,
+                        NewsCounterProperties properties) {
+        this(restHighLevelClient == null ? null : new ReadAliasSource(restHighLevelClient, newsPartitions,
+                properties.getFirstDate(), properties.getLastDate()), properties);
+        if (scheduler != null && source != null)
+            scheduler.execute(this::start);
+    }
+
+    NewsCounters(IndexSource source, NewsCounterProperties properties) {
+        this.source = source;
+        this.enabled = properties.isEnabled();
+        this.checkpointFile = Paths.get(properties.getCheckpointFile());
+        this.rebuildDelaySeconds = properties.getRebuildDelaySeconds();
+        this.firstDay = LocalDate.parse(properties.getFirstDate()).toEpochDay();
+        this.lastDay = LocalDate.parse(properties.getLastDate()).toEpochDay();
+        if (!enabled) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "news-counters");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkpoint, properties.getCheckpointSeconds(),
+                properties.getCheckpointSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler == null)
+            return;
+        scheduler.shutdownNow();
+        checkpoint();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+        "documents" (JSON of headlines) as they are, each one counted when it is taken.
+    */
+    public Iterator<BytesReference> counting(Iterator<BytesReference> documents) {
+        if (!enabled)
+            return documents;
+        return new Iterator<BytesReference>() {
+            @Override
+            public boolean hasNext() {
+                return documents.hasNext();
+            }
+
+            @Override
+            public BytesReference next() {
+                BytesReference document = documents.next();
+                add(document);
+                return document;
+            }
+        };
+    }
+
+    public void add(BytesReference document) {
+        String[] categoryAndDate;
+        try {
+            categoryAndDate = categoryAndDate(document);
+        } catch (IOException | RuntimeException e) {
+            // Bulk load reports the broken document.
+            return;
+        }
+        add(categoryAndDate[0], day(categoryAndDate[1]));
+    }
+
+    private boolean counted(long day) {
+        return day >= firstDay && day <= lastDay;
+    }
+
+    public synchronized void add(String category, LocalDate day) {
+        if (!enabled || category == null || day == null || !counted(day.toEpochDay()))
+            return;
+        table.add(category, day.toEpochDay(), 1);
+        changes++;
+    }
+
+    /*
+        Count every headline from the index again, "rebuildDelaySeconds" from now, so headlines
+        just indexed are visible by then. Calls until it runs share one count.
+    */
+    public void rebuildLater() {
+        if (scheduler != null && source != null && rebuildScheduled.compareAndSet(false, true))
+            scheduler.schedule(this::rebuildFromIndex, rebuildDelaySeconds, TimeUnit.SECONDS);
+    }
+
+    /*
+        Headlines per category of every day from "from" to "to" (both included), null meaning
+        from the first or to the last day with headlines.
+    */
+    public NewsHistogram histogram(LocalDate from, LocalDate to) {
+        List<String> names = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        long first;
+        long last;
+        boolean isReady;
+        synchronized (this) {
+            isReady = ready;
+            first = from == null ? table.minDay : Math.max(from.toEpochDay(), table.minDay);
+            last = to == null ? table.maxDay : Math.min(to.toEpochDay(), table.maxDay);
+            if (first <= last) {
+                int start = (int) (first - table.firstDay);
+                int end = (int) (last - table.firstDay) + 1;
+                for (int category = 0; category < table.size; category++) {
+                    int[] row = table.counts[category];
+                    for (int day = start; day < end; day++) {
+                        if (row[day] != 0) {
+                            names.add(table.categories[category]);
+                            rows.add(Arrays.copyOfRange(row, start, end));
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        if (first > last)
+            return new NewsHistogram(isReady, lastFailure, null, null, Collections.emptyList(), new long[0], 0,
+                    Collections.emptyList());
+
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> names.get(a).compareTo(names.get(b)));
+
+        List<String> categories = new ArrayList<>(order.length);
+        long[] totals = new long[order.length];
+        long total = 0;
+        int length = (int) (last - first) + 1;
+        int[][] byDay = new int[length][order.length];
+        for (int column = 0; column < order.length; column++) {
+            categories.add(names.get(order[column]));
+            int[] row = rows.get(order[column]);
+            for (int day = 0; day < length; day++) {
+                byDay[day][column] = row[day];
+                totals[column] += row[day];
+            }
+            total += totals[column];
+        }
+        List<NewsHistogram.Day> days = new ArrayList<>(length);
+        for (int day = 0; day < length; day++)
+            days.add(new NewsHistogram.Day(LocalDate.ofEpochDay(first + day).toString(), byDay[day]));
+        return new NewsHistogram(isReady, lastFailure, LocalDate.ofEpochDay(first).toString(),
+                LocalDate.ofEpochDay(last).toString(), categories, totals, total, days);
+    }
+
+    /*
+        Restore the checkpoint, then keep it when it agrees with the index, or count the index.
+    */
+    void start() {
+        restore();
+        verify();
+    }
+
+    void verify() {
+        try {
+            long indexed = source.total();
+            synchronized (this) {
+                if (ready && indexed == table.total)
+                    return;
+            }
+            count();
+        } catch (IOException | RuntimeException e) {
+            failed("Count of the index", e);
+            scheduler.schedule(this::verify, RETRY_AFTER_FAILURE_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    void rebuildFromIndex() {
+        rebuildScheduled.set(false);
+        try {
+            count();
+        } catch (IOException | RuntimeException e) {
+            failed("Count of the index", e);
+            rebuildLater();
+        }
+    }
+
+    private void count() throws IOException {
+        long changesBefore;
+        synchronized (this) {
+            changesBefore = changes;
+        }
+        Table counted = new Table();
+        source.forEachBucket((category, day, count) -> {
+            if (counted(day.toEpochDay()))
+                counted.add(category, day.toEpochDay(), count);
+        });
+        boolean changedMeanwhile;
+        synchronized (this) {
+            table = counted;
+            ready = true;
+            changedMeanwhile = changes != changesBefore;
+            // Make sure the new table is written out.
+            checkpointed = -1;
+        }
+        checkpoint();
+        if (changedMeanwhile)
+            rebuildLater();
+    }
+
+    /*
+        Write counters to the checkpoint file, when they changed since the last time.
+    */
+    void checkpoint() {
+        Table copy;
+        long changesCopied;
+        synchronized (this) {
+            if (!ready || changes == checkpointed)
+                return;
+            copy = table.copy();
+            changesCopied = changes;
+        }
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                copy.write(out);
+            }
+            // A crash half way leaves the previous checkpoint as it was.
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            failed("Checkpoint to " + checkpointFile, e);
+            return;
+        }
+        synchronized (this) {
+            checkpointed = changesCopied;
+        }
+    }
+
+    void restore() {
+        Table restored;
+        try (InputStream file = Files.newInputStream(checkpointFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            restored = Table.read(in, firstDay, lastDay);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | RuntimeException e) {
+            // Index is counted instead.
+            failed("Restore from " + checkpointFile, e);
+            return;
+        }
+        synchronized (this) {
+            // Headlines counted before the checkpoint was read are in the index, and may not be in it.
+            // A checkpoint of a wider range of days is cut, and no longer agrees with the index.
+            if (changes > 0)
+                return;
+            table = restored;
+            ready = true;
+            checkpointed = changes;
+        }
+    }
+
+    private void failed(String what, Exception e) {
+        lastFailure = Instant.now() + " " + what + ": " + e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    /*
+        Top level "category" and "date" of a headline, either may be null.
+    */
+    static String[] categoryAndDate(BytesReference document) throws IOException {
+        String[] values = new String[2];
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, document.streamInput())) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT)
+                return values;
+            while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                String field = parser.currentName();
+                XContentParser.Token token = parser.nextToken();
+                if (token == XContentParser.Token.VALUE_STRING && field.equals("category"))
+                    values[0] = parser.text();
+                else if (token == XContentParser.Token.VALUE_STRING && field.equals("date"))
+                    values[1] = parser.text();
+                else
+                    parser.skipChildren();
+                if (values[0] != null && values[1] != null)
+                    break;
+            }
+        }
+        return values;
+    }
+
+    // "date" of a headline is "yyyy-MM-dd" (see NewsHeadLine); a time after it is ignored.
+    static LocalDate day(String date) {
+        if (date == null || date.length() < 10)
+            return null;
+        try {
+            return LocalDate.parse(date.substring(0, 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /*
+        Counters of every category, "counts[category][day - firstDay]".
+    */
+    private static class Table {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] categories = new String[0];
+        private int[][] counts = new int[0][];
+        private int size;
+        private long firstDay;
+        private int days;
+        // First and last day with a headline, empty range while there is none.
+        private long minDay = Long.MAX_VALUE;
+        private long maxDay = Long.MIN_VALUE;
+        private long total;
+
+        void add(String category, long day, long count) {
+            cover(day);
+            int id = ids.computeIfAbsent(category, this::newCategory);
+            counts[id][(int) (day - firstDay)] += (int) count;
+            total += count;
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+
+        private int newCategory(String category) {
+            if (size == categories.length) {
+                int capacity = Math.max(16, size * 2);
+                categories = Arrays.copyOf(categories, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            categories[size] = category;
+            counts[size] = new int[days];
+            return size++;
+        }
+
+        private void cover(long day) {
+            if (days == 0) {
+                firstDay = day;
+                resize(day, GROWTH_DAYS);
+            } else if (day < firstDay) {
+                resize(day - GROWTH_DAYS, (int) (firstDay + days - day + GROWTH_DAYS));
+            } else if (day >= firstDay + days) {
+                resize(firstDay, (int) (day - firstDay + 1 + GROWTH_DAYS));
+            }
+        }
+
+        private void resize(long first, int length) {
+            int shift = (int) (firstDay - first);
+            for (int category = 0; category < size; category++) {
+                int[] row = new int[length];
+                System.arraycopy(counts[category], 0, row, shift, days);
+                counts[category] = row;
+            }
+            firstDay = first;
+            days = length;
+        }
+
+        Table copy() {
+            Table copy = new Table();
+            copy.ids.putAll(ids);
+            copy.categories = Arrays.copyOf(categories, size);
+            copy.counts = new int[size][];
+            for (int category = 0; category < size; category++)
+                copy.counts[category] = counts[category].clone();
+            copy.size = size;
+            copy.firstDay = firstDay;
+            copy.days = days;
+            copy.minDay = minDay;
+            copy.maxDay = maxDay;
+            copy.total = total;
+            return copy;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeLong(firstDay);
+            out.writeInt(days);
+            out.writeInt(size);
+            for (int category = 0; category < size; category++) {
+                out.writeUTF(categories[category]);
+                for (int day = 0; day < days; day++)
+                    out.writeInt(counts[category][day]);
+            }
+        }
+
+        // Days before "first" or after "last" are left out.
+        static Table read(DataInputStream in, long first, long last) throws IOException {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION)
+                throw new IOException("Not a checkpoint of news counters");
+            Table table = new Table();
+            long firstDay = in.readLong();
+            int days = in.readInt();
+            int size = in.readInt();
+            for (int category = 0; category < size; category++) {
+                String name = in.readUTF();
+                for (int day = 0; day < days; day++) {
+                    int count = in.readInt();
+                    if (count != 0 && firstDay + day >= first && firstDay + day <= last)
+                        table.add(name, firstDay + day, count);
+                }
+            }
+            return table;
+        }
+    }
+
+    /*
+        Headlines behind the read alias of the partitions (or the single index without them).
+    */
+    private static class ReadAliasSource implements IndexSource {
+        private final RestHighLevelClient restHighLevelClient;
+        private final NewsPartitions newsPartitions;
+        private final String firstDate;
+        private final String lastDate;
+
+        ReadAliasSource(RestHighLevelClient restHighLevelClient, NewsPartitions newsPartitions,
+                        String firstDate, String lastDate) {
+            this.restHighLevelClient = restHighLevelClient;
+            this.newsPartitions = newsPartitions;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+        }
+
+        // Composite aggregation leaves out headlines without either value, so the count does too.
+        // Days which are not counted are left out of both.
+        private QueryBuilder counted() {
+            return QueryBuilders.boolQuery()
+                    .filter(QueryBuilders.existsQuery("category"))
+                    .filter(QueryBuilders.rangeQuery("date").gte(firstDate).lte(lastDate).format("yyyy-MM-dd"));
+        }
+
+        @Override
+        public long total() throws IOException {
+            CountRequest request = new CountRequest(newsPartitions.readIndex()).query(counted());
+            // No news yet counts as none.
+            request.indicesOptions(IndicesOptions.lenientExpandOpen());
+            return restHighLevelClient.count(request, RequestOptions.DEFAULT).getCount();
+        }
+
+        @Override
+        public void forEachBucket(BucketConsumer consumer) throws IOException {
+            CompositeAggregationBuilder composite = new CompositeAggregationBuilder("days", List.of(
+                    new TermsValuesSourceBuilder("category").field("category"),
+                    new DateHistogramValuesSourceBuilder("day").field("date")
+                            .calendarInterval(DateHistogramInterval.DAY)))
+                    .size(COMPOSITE_PAGE_SIZE);
+            while (true) {
+                SearchRequest request = new SearchRequest(newsPartitions.readIndex())
+                        .indicesOptions(IndicesOptions.lenientExpandOpen())
+                        .source(new SearchSourceBuilder().query(counted()).aggregation(composite).size(0));
+                SearchResponse response = restHighLevelClient.search(request, RequestOptions.DEFAULT);
+                CompositeAggregation page = response.getAggregations() == null
+                        ? null : response.getAggregations().get("days");
+                if (page == null)
+                    return;
+                for (CompositeAggregation.Bucket bucket : page.getBuckets()) {
+                    // Day is the epoch millisecond of its start (UTC).
+                    long millis = ((Number) bucket.getKey().get("day")).longValue();
+                    consumer.accept(String.valueOf(bucket.getKey().get("category")),
+                            Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC).toLocalDate(), bucket.getDocCount());
+                }
+                if (page.getBuckets().size() < COMPOSITE_PAGE_SIZE || page.afterKey() == null)
+                    return;
+                composite.aggregateAfter(page.afterKey());
+            }
+        }
+    }
+}
@@ -1,42 +1,156 @@
 package com.example.SpringBootPlusElasticsearch.api.Daos;
 
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
 import com.example.SpringBootPlusElasticsearch.api.Models.NewsHeadLine;
-import com.example.SpringBootPlusElasticsearch.api.Repository.NewsHeadLineRepository;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHistogram;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsPartition;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  All the query operations, related to "news_headline" Index, are performed in this class and
  All the related model classes, that are used in this class, can be found inside Model Package.
 
+ Headlines are kept in monthly partitions (see NewsPartitions): searches of a date range only
+ go to the partitions of its months, everything else reads through the read alias.
+ Headlines per category and day are counted in memory as they are ingested (see NewsCounters).
+
  Path: "com.example.SpringBootPlusElasticsearch.Models"
  **/
 
 @Component
 public class NewsHeadLineDao {
+    public static final int MAX_RESULT_WINDOW = 10_000;
 
     private ElasticsearchOperations elasticsearchOperations;
-    private NewsHeadLineRepository newsHeadLineRepository;
+    private SearchExecutor searchExecutor;
+    private NewsPartitions newsPartitions;
+    private BulkIngester bulkIngester;
+    private NewsCounters newsCounters;
+    private OperationMetrics operationMetrics;
 
     @Autowired
     public NewsHeadLineDao(ElasticsearchOperations elasticsearchOperations,
-                           NewsHeadLineRepository newsHeadLineRepository){
+                           SearchExecutor searchExecutor,
+                           NewsPartitions newsPartitions,
+                           BulkIngester bulkIngester,
+                           NewsCounters newsCounters,
+                           OperationMetrics operationMetrics){
         this.elasticsearchOperations = elasticsearchOperations;
-        this.newsHeadLineRepository = newsHeadLineRepository;
+        this.searchExecutor = searchExecutor;
+        this.newsPartitions = newsPartitions;
+        this.bulkIngester = bulkIngester;
+        this.newsCounters = newsCounters;
+        this.operationMetrics = operationMetrics;
     }
 
+    /*
+        Not through NewsHeadLineRepository: its index is fixed by @Document, while headlines are
+        read from NewsPartitions.readIndex() (the read alias, or the single index without partitions).
+    */
     public List<NewsHeadLine> getAllDoc() {
-        List<NewsHeadLine> newsDocs =  new ArrayList<>();
-        Pageable pageable = Pageable.unpaged();
-        newsHeadLineRepository.findAll(pageable).forEach(newsDocs::add);
+        return SearchExecutor.await(getAllDocAsync());
+    }
+
+    /*
+        Async version of getAllDoc(), at most max_result_window (10000) documents.
+    */
+    public CompletableFuture<List<NewsHeadLine>> getAllDocAsync() {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.matchAllQuery())
+                .size(MAX_RESULT_WINDOW);
+        return searchExecutor.searchAsync("NewsHeadLineDao.getAllDoc", newsPartitions.readIndex(), source, NewsHeadLine.class)
+                .thenApply(NewsHeadLineDao::contents);
+    }
+
+    /*
+        Headlines dated from "from" to "to" (both included, either may be null), newest first.
+        Only partitions of months of the range are searched.
+    */
+    public CompletableFuture<List<NewsHeadLine>> getByDateRangeAsync(LocalDate from, LocalDate to) {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.boolQuery().filter(QueryBuilders.rangeQuery("date")
+                        .gte(from == null ? null : from.toString())
+                        .lte(to == null ? null : to.toString())
+                        .format("yyyy-MM-dd")))
+                .sort("date", SortOrder.DESC)
+                .size(MAX_RESULT_WINDOW);
+        return searchExecutor.searchAsync("NewsHeadLineDao.getByDateRange", newsPartitions.pattern(),
+                newsPartitions.indices(from, to), source, NewsHeadLine.class)
+                .thenApply(NewsHeadLineDao::contents);
+    }
+
+    private static List<NewsHeadLine> contents(SearchHits<NewsHeadLine> hits) {
+        List<NewsHeadLine> newsDocs = new ArrayList<>();
+        hits.forEach(hit -> newsDocs.add(hit.getContent()));
         return newsDocs;
     }
 
+    /*
+        One page of all headlines, "_source" of each hit written to "out" as elasticsearch
+        sent it (see RawHitsWriter), without mapping into NewsHeadLine.
+    */
+    public void getAllDocRaw(int from, int size, OutputStream out) throws IOException {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.matchAllQuery())
+                .from(from)
+                .size(size);
+        RawHitsWriter.write(searchExecutor.searchRaw("NewsHeadLineDao.getAllDoc", newsPartitions.readIndex(), source), from, size, out);
+    }
+
+    /*
+        Index every headline of "indexFilename" (one JSON document per line) through the write alias;
+        the pipeline of the partitions puts each one into the partition of its date. Read-only partitions
+        take writes again during the load, and are blocked again after it (see NewsPartitions).
+    */
+    public BulkIngestReport IndexDocs(String indexFilename) {
+        newsPartitions.ingestStarted();
+        try (JsonDocumentReader documents = JsonDocumentReader.open(Paths.get(indexFilename))) {
+            BulkIngestReport report = operationMetrics.time("NewsHeadLineDao.IndexDocs", newsPartitions.writeIndex(), () -> {
+                newsPartitions.prepareIngest();
+                return bulkIngester.ingest(newsPartitions.writeIndex(), null, newsCounters.counting(documents));
+            });
+            // Headlines that were counted but not indexed are only dropped by counting the index again.
+            if (report.getFailed() > 0 || !report.isCompleted())
+                newsCounters.rebuildLater();
+            return report;
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        } finally {
+            newsPartitions.ingestFinished();
+        }
+        return null;
+    }
+
+    /*
+        Headlines per category of every day from "from" to "to", from the counters in memory.
+    */
+    public NewsHistogram getHistogram(LocalDate from, LocalDate to) {
+        return newsCounters.histogram(from, to);
+    }
+
+    public List<NewsPartition> getPartitions() {
+        try {
+            return newsPartitions.partitions();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
 
 }
@@ -0,0 +1,373 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.NewsPartitionProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHeadLine;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsPartition;
+import org.elasticsearch.ResourceAlreadyExistsException;
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.ingest.PutPipelineRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.GetIndexResponse;
+import org.elasticsearch.client.indices.PutIndexTemplateRequest;
+import org.elasticsearch.cluster.metadata.AliasMetadata;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ Headlines live in one index per month of their "date" ("news_headlines-2018.05"), so
+ searches of a date range only touch the months it overlaps, and old months, which are
+ not written any more, can be merged down and cached for good.
+
+ - An index template gives every partition its mapping (from NewsHeadLine), the read alias
+   and a default pipeline with a "date_index_name" processor. Headlines are written to the
+   write alias (the partition of the current month), and the pipeline sends each one on to
+   the partition of its date; one without a date stays in the current month.
+ - Every "maintenanceMinutes" (and RETRY_AFTER_FAILURE_SECONDS after a failure, as the read
+   alias only exists once this ran) the partition of the current month is created and the write
+   alias moved to it (so the alias rolls over monthly), and partitions older than
+   "writableMonths" are force-merged to "forceMergeSegments" and get a write block.
+ - A bulk load of news (ingestStarted() .. ingestFinished()) lifts the write block of every
+   partition first (prepareIngest()), as its headlines may be of any month, and partitions
+   are not blocked while it runs. Once the last load ends, maintenance runs again and blocks
+   them again. Start of a load and the check before blocking hold the same lock, so a load
+   which starts during maintenance waits for it instead of running into a block.
+ - Reads: indices(from, to) names every month of a range as a wildcard, which matches
+   nothing (instead of failing) when a month has no partition. Years of a long range are
+   named with one wildcard each.
+ - Index of the time before partitions ("legacyIndex") is put behind the read alias and is
+   part of every range, as its dates are unknown, until it is reindexed through the write
+   alias and deleted.
+ - Maintenance and preparation of a bulk load are recorded in OperationMetrics
+   ("NewsPartitions.*" of "<prefix>*"), with the last failure; partitions() shows their state.
+ **/
+@Component
+public class NewsPartitions {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy.MM");
+    private static final String WRITE_BLOCK = "index.blocks.write";
+    // Ranges longer than this name whole years with one wildcard each.
+    private static final int MAX_MONTH_PATTERNS = 24;
+    // Maintenance which failed (e.g. elasticsearch not up yet) is tried again after this, not a whole period later.
+    static final long RETRY_AFTER_FAILURE_SECONDS = 30;
+
+    private final RestHighLevelClient restHighLevelClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final NewsPartitionProperties properties;
+    private final OperationMetrics operationMetrics;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger ingestsRunning = new AtomicInteger();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    private volatile boolean installed;
+    private volatile boolean legacyExists;
+
+    @Autowired
+    public NewsPartitions(RestHighLevelClient restHighLevelClient, ElasticsearchOperations elasticsearchOperations,
+                          NewsPartitionProperties properties, OperationMetrics operationMetrics) {
+        this(restHighLevelClient, elasticsearchOperations, properties, operationMetrics, Clock.systemUTC());
+    }
+
+    NewsPartitions(RestHighLevelClient restHighLevelClient, ElasticsearchOperations elasticsearchOperations,
+                   NewsPartitionProperties properties, OperationMetrics operationMetrics, Clock clock) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.properties = properties;
+        this.operationMetrics = operationMetrics;
+        this.clock = clock;
+        if (!properties.isEnabled() || restHighLevelClient == null) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "news-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, properties.getMaintenanceMinutes(), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    public String readIndex() {
+        return properties.isEnabled() ? properties.getReadAlias() : properties.getLegacyIndex();
+    }
+
+    public String writeIndex() {
+        return properties.isEnabled() ? properties.getWriteAlias() : properties.getLegacyIndex();
+    }
+
+    // Every partition; the name searches of partitions are timed under.
+    public String pattern() {
+        return properties.isEnabled() ? properties.getPrefix() + "*" : properties.getLegacyIndex();
+    }
+
+    public String partition(YearMonth month) {
+        return properties.getPrefix() + MONTH.format(month);
+    }
+
+    /*
+        Indices holding headlines dated from "from" to "to" (both included); null "from" means
+        since ever, null "to" until today. A range ending before it starts is a BadRequestException.
+    */
+    public String[] indices(LocalDate from, LocalDate to) {
+        if (!properties.isEnabled())
+            return new String[] { properties.getLegacyIndex() };
+        if (from == null)
+            return new String[] { properties.getReadAlias() };
+        YearMonth first = YearMonth.from(from);
+        YearMonth last = YearMonth.from(to == null ? LocalDate.now(clock) : to);
+        if (last.isBefore(first))
+            throw new BadRequestException("\"to\" must not be before \"from\"");
+
+        List<String> indices = new ArrayList<>();
+        boolean byYear = first.until(last, ChronoUnit.MONTHS) >= MAX_MONTH_PATTERNS;
+        for (YearMonth month = first; !month.isAfter(last); ) {
+            if (byYear && month.getMonthValue() == 1 && !month.plusMonths(11).isAfter(last)) {
+                indices.add(properties.getPrefix() + month.getYear() + ".*");
+                month = month.plusYears(1);
+            } else {
+                indices.add(partition(month) + "*");
+                month = month.plusMonths(1);
+            }
+        }
+        if (legacyExists)
+            indices.add(properties.getLegacyIndex());
+        return indices.toArray(new String[0]);
+    }
+
+    /*
+        Month of partition "index", null when it is not a partition.
+    */
+    YearMonth month(String index) {
+        if (!index.startsWith(properties.getPrefix()))
+            return null;
+        try {
+            return YearMonth.parse(index.substring(properties.getPrefix().length()), MONTH);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    boolean isWritable(YearMonth month) {
+        return !month.isBefore(YearMonth.now(clock).minusMonths(Math.max(1, properties.getWritableMonths()) - 1));
+    }
+
+    /*
+        A bulk load of news starts or ends; old partitions are not blocked while one runs,
+        and are blocked again after the last one.
+    */
+    public synchronized void ingestStarted() {
+        ingestsRunning.incrementAndGet();
+    }
+
+    public synchronized void ingestFinished() {
+        if (ingestsRunning.decrementAndGet() == 0 && scheduler != null)
+            scheduler.execute(this::maintain);
+    }
+
+    public List<NewsPartition> partitions() throws IOException {
+        GetIndexResponse existing = existing();
+        List<NewsPartition> partitions = new ArrayList<>();
+        for (String index : existing.getIndices()) {
+            YearMonth month = month(index);
+            if (month != null)
+                partitions.add(new NewsPartition(index, month.toString(),
+                        hasAlias(existing, index, properties.getWriteAlias()),
+                        "true".equals(existing.getSetting(index, WRITE_BLOCK))));
+        }
+        partitions.sort((a, b) -> a.getIndex().compareTo(b.getIndex()));
+        return partitions;
+    }
+
+    /*
+        Template, pipeline and write alias are in place, so writes can go to the write alias.
+    */
+    public synchronized void prepareWrites() throws IOException {
+        if (!properties.isEnabled())
+            return;
+        install();
+        rollOver(existing());
+    }
+
+    /*
+        Same as prepareWrites(), and partitions of every month take writes again; between
+        ingestStarted() and ingestFinished().
+    */
+    public synchronized void prepareIngest() throws IOException {
+        if (!properties.isEnabled())
+            return;
+        operationMetrics.time("NewsPartitions.prepareIngest", pattern(), () -> {
+            prepareWrites();
+            List<String> blocked = blocked(existing());
+            if (!blocked.isEmpty())
+                restHighLevelClient.indices().putSettings(new UpdateSettingsRequest(blocked.toArray(new String[0]))
+                        .settings(Settings.builder().put(WRITE_BLOCK, false)), RequestOptions.DEFAULT);
+            return null;
+        });
+    }
+
+    synchronized void maintain() {
+        try {
+            operationMetrics.time("NewsPartitions.maintain", pattern(), () -> {
+                prepareWrites();
+                closeOldPartitions(existing());
+                return null;
+            });
+        } catch (IOException | RuntimeException e) {
+            // Until then the read alias may not exist, and searches of headlines fail.
+            if (scheduler != null && retryScheduled.compareAndSet(false, true))
+                scheduler.schedule(() -> {
+                    retryScheduled.set(false);
+                    maintain();
+                }, RETRY_AFTER_FAILURE_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    boolean isRetryScheduled() {
+        return retryScheduled.get();
+    }
+
+    private void install() throws IOException {
+        if (installed)
+            return;
+        XContentBuilder pipeline = XContentFactory.jsonBuilder().startObject()
+                .field("description", "Sends every headline to the partition of the month of its date")
+                .startArray("processors").startObject().startObject("date_index_name")
+                .field("if", "ctx.date != null")
+                .field("field", "date")
+                .field("index_name_prefix", properties.getPrefix())
+                .field("date_rounding", "M")
+                .field("index_name_format", "yyyy.MM")
+                .array("date_formats", "yyyy-MM-dd", "ISO8601")
+                .endObject().endObject().endArray()
+                .endObject();
+        restHighLevelClient.ingest().putPipeline(new PutPipelineRequest(properties.getPipeline(),
+                BytesReference.bytes(pipeline), XContentType.JSON), RequestOptions.DEFAULT);
+
+        PutIndexTemplateRequest template = new PutIndexTemplateRequest(properties.getTemplate())
+                .patterns(Collections.singletonList(properties.getPrefix() + "*"))
+                .settings(Settings.builder()
+                        .put("index.number_of_shards", properties.getShards())
+                        .put("index.default_pipeline", properties.getPipeline()))
+                .mapping(elasticsearchOperations.indexOps(NewsHeadLine.class).createMapping())
+                .alias(new Alias(properties.getReadAlias()));
+        restHighLevelClient.indices().putTemplate(template, RequestOptions.DEFAULT);
+        installed = true;
+    }
+
+    private void rollOver(GetIndexResponse existing) throws IOException {
+        String current = partition(YearMonth.now(clock));
+        if (!Arrays.asList(existing.getIndices()).contains(current)) {
+            try {
+                restHighLevelClient.indices().create(new CreateIndexRequest(current), RequestOptions.DEFAULT);
+            } catch (ResourceAlreadyExistsException e) {
+                // Created by another instance, or by a headline of this month.
+            }
+        }
+
+        IndicesAliasesRequest aliases = new IndicesAliasesRequest();
+        for (String index : existing.getIndices())
+            if (!index.equals(current) && hasAlias(existing, index, properties.getWriteAlias()))
+                aliases.addAliasAction(IndicesAliasesRequest.AliasActions.remove()
+                        .index(index).alias(properties.getWriteAlias()));
+        if (!hasAlias(existing, current, properties.getWriteAlias()))
+            aliases.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                    .index(current).alias(properties.getWriteAlias()).writeIndex(true));
+
+        legacyExists = restHighLevelClient.indices().exists(
+                new GetIndexRequest(properties.getLegacyIndex()), RequestOptions.DEFAULT);
+        if (legacyExists && !hasLegacyReadAlias())
+            aliases.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                    .index(properties.getLegacyIndex()).alias(properties.getReadAlias()));
+
+        if (!aliases.getAliasActions().isEmpty())
+            restHighLevelClient.indices().updateAliases(aliases, RequestOptions.DEFAULT);
+    }
+
+    /*
+        Partitions to force-merge and block: not writable any more, not blocked yet, and no bulk load running.
+    */
+    List<String> toClose(GetIndexResponse existing) {
+        List<String> indices = new ArrayList<>();
+        if (ingestsRunning.get() > 0)
+            return indices;
+        for (String index : existing.getIndices()) {
+            YearMonth month = month(index);
+            if (month != null && !isWritable(month) && !"true".equals(existing.getSetting(index, WRITE_BLOCK)))
+                indices.add(index);
+        }
+        return indices;
+    }
+
+    List<String> blocked(GetIndexResponse existing) {
+        List<String> indices = new ArrayList<>();
+        for (String index : existing.getIndices())
+            if (month(index) != null && "true".equals(existing.getSetting(index, WRITE_BLOCK)))
+                indices.add(index);
+        return indices;
+    }
+
+    private void closeOldPartitions(GetIndexResponse existing) throws IOException {
+        for (String index : toClose(existing)) {
+            // Merged before the block: a merge which fails (or times out here) is tried again next time.
+            restHighLevelClient.indices().forcemerge(new ForceMergeRequest(index)
+                    .maxNumSegments(properties.getForceMergeSegments()), RequestOptions.DEFAULT);
+            restHighLevelClient.indices().putSettings(new UpdateSettingsRequest(index)
+                    .settings(Settings.builder().put(WRITE_BLOCK, true)), RequestOptions.DEFAULT);
+        }
+    }
+
+    private GetIndexResponse existing() throws IOException {
+        GetIndexRequest request = new GetIndexRequest(properties.getPrefix() + "*")
+                .indicesOptions(IndicesOptions.lenientExpandOpen());
+        return restHighLevelClient.indices().get(request, RequestOptions.DEFAULT);
+    }
+
+    private boolean hasLegacyReadAlias() throws IOException {
+        GetIndexResponse legacy = restHighLevelClient.indices().get(
+                new GetIndexRequest(properties.getLegacyIndex()), RequestOptions.DEFAULT);
+        return hasAlias(legacy, properties.getLegacyIndex(), properties.getReadAlias());
+    }
+
+    private static boolean hasAlias(GetIndexResponse response, String index, String alias) {
+        for (AliasMetadata metadata : response.getAliases().getOrDefault(index, Collections.emptyList()))
+            if (metadata.alias().equals(alias))
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.OperationStats;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Latency, hits, bytes and errors of every DAO operation, per index. Reported by "/admin/operations".
+ Searches are recorded by SearchExecutor; every other call to elasticsearch (index and template
+ management, writes, bulk loads, scroll exports) is wrapped by its DAO in time().
+
+ Bytes are counted where they are known: "sourceBytes" is the "_source" of the hits of a parsed
+ response, "responseBytes" the whole body of a response the DAO reads as bytes (raw searches).
+
+ Three latencies are kept for each call:
+ - total: from the DAO handing the request over, until its result is ready. For searches that
+   is the parsed response; mapping hits into entities is not part of it, since searches collapsed
+   by SingleFlight share one response and it is recorded once.
+ - took: what elasticsearch reported it spent on the search ("took" of the response).
+ - overhead: total minus took, i.e. what the application and the network added: building and
+   serializing the request, waiting in the batch window and for a connection, HTTP, parsing
+   and mapping the response.
+ Calls which failed are only counted (with their last error), their latency is not recorded.
+
+ Recording is lock free: counters are LongAdders, latencies go into HdrHistogram Recorders,
+ which writers never wait on. Only reading the stats swaps and merges histograms.
+ Latencies are in microseconds, kept with 2 significant digits (1% error).
+ **/
+@Component
+public class OperationMetrics {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    // operation -> index -> its metrics. Two levels, so that no key is built on every call.
+    private final Map<String, Map<String, Operation>> operations = new ConcurrentHashMap<>();
+    private final boolean enabled;
+
+    public OperationMetrics(@Value("${elasticsearch.metrics.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /*
+        Call to elasticsearch made by "operation" outside of SearchExecutor.
+    */
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /*
+        Run "call" of "operation" on "index" and record it: its latency, or its failure, which is
+        thrown on to the caller.
+    */
+    public <T, E extends Exception> T time(String operation, String index, Call<T, E> call) throws E {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.call();
+        } catch (Exception e) {
+            recordError(operation, index, e);
+            throw e;
+        }
+        record(operation, index, start, -1, -1, -1);
+        return result;
+    }
+
+    public void record(String operation, String index, long startNanos, long tookMillis, long hits, long sourceBytes) {
+        record(operation, index, startNanos, tookMillis, hits, sourceBytes, -1);
+    }
+
+    /*
+        Successful call of "operation" on "index", started at "startNanos" (System.nanoTime()).
+        "tookMillis", "hits", "sourceBytes" or "responseBytes" are negative when not known.
+    */
+    public void record(String operation, String index, long startNanos, long tookMillis, long hits,
+                       long sourceBytes, long responseBytes) {
+        if (!enabled)
+            return;
+        long totalMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        Operation metrics = operation(operation, index);
+        metrics.calls.increment();
+        metrics.total.recordValue(totalMicros);
+        if (tookMillis >= 0) {
+            long tookMicros = TimeUnit.MILLISECONDS.toMicros(tookMillis);
+            metrics.took.recordValue(tookMicros);
+            metrics.overhead.recordValue(Math.max(0, totalMicros - tookMicros));
+        }
+        if (hits >= 0)
+            metrics.hits.add(hits);
+        if (sourceBytes >= 0)
+            metrics.sourceBytes.add(sourceBytes);
+        if (responseBytes >= 0)
+            metrics.responseBytes.add(responseBytes);
+    }
+
+    public void recordError(String operation, String index, Throwable error) {
+        if (!enabled)
+            return;
+        Operation metrics = operation(operation, index);
+        metrics.calls.increment();
+        metrics.errors.increment();
+        metrics.lastError = error.getClass().getSimpleName() + ": " + error.getMessage();
+    }
+
+    public List<OperationStats> stats() {
+        List<OperationStats> stats = new ArrayList<>();
+        operations.forEach((operation, indices) -> indices.forEach((index, metrics) ->
+                stats.add(metrics.stats(operation, index))));
+        stats.sort(Comparator.comparing(OperationStats::getOperation).thenComparing(OperationStats::getIndex));
+        return stats;
+    }
+
+    private Operation operation(String operation, String index) {
+        Map<String, Operation> indices = operations.get(operation);
+        if (indices == null)
+            indices = operations.computeIfAbsent(operation, key -> new ConcurrentHashMap<>());
+        String key = index == null ? "" : index;
+        Operation metrics = indices.get(key);
+        return metrics != null ? metrics : indices.computeIfAbsent(key, k -> new Operation());
+    }
+
+    private static class Operation {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder sourceBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final Recorder total = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder took = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder overhead = new Recorder(SIGNIFICANT_DIGITS);
+        private volatile String lastError;
+
+        // Everything recorded so far, guarded by "this". Only touched when stats are read.
+        private final Histogram totalSoFar = new Histogram(SIGNIFICANT_DIGITS);
+        private final Histogram tookSoFar = new Histogram(SIGNIFICANT_DIGITS);
+        private final Histogram overheadSoFar = new Histogram(SIGNIFICANT_DIGITS);
+
+        synchronized OperationStats stats(String operation, String index) {
+            totalSoFar.add(total.getIntervalHistogram());
+            tookSoFar.add(took.getIntervalHistogram());
+            overheadSoFar.add(overhead.getIntervalHistogram());
+            return new OperationStats(operation, index, calls.sum(), errors.sum(), hits.sum(), sourceBytes.sum(),
+                    responseBytes.sum(), lastError, latency(totalSoFar), latency(tookSoFar), latency(overheadSoFar));
+        }
+
+        private static OperationStats.Latency latency(Histogram histogram) {
+            return new OperationStats.Latency(histogram.getTotalCount(),
+                    (long) histogram.getMean(),
+                    histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9),
+                    histogram.getMaxValue());
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryPlan;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Rewrites queries of the DAOs before they are sent, without changing which documents match.
+
+ Every clause is classified by whether it affects ranking. Exact conditions (term, terms,
+ range, prefix, exists, ids, and match without fuzziness) on keyword, numeric, date, boolean
+ or ip fields do not: their score is a constant or an idf of an exact value. Which field is
+ of which kind is read from the mapping of the index of the entity class (sub-fields such as
+ "<field>.keyword" included), once per class, since an index template or dynamic mapping may
+ disagree with the Java type (e.g. "languages" is a List<String> but a keyword). Fields
+ missing from the mapping, and every field while the mapping can not be read, count as
+ ranking, so their clauses are left where they are.
+
+ - Non ranking "must" clauses, and every "must" clause of a bool in filter context, move
+   to "filter", where elasticsearch skips scoring and caches them per segment. A query
+   which is one non ranking clause is wrapped into "constant_score".
+ - "filter" and "must_not" clauses are ordered by estimated selectivity (ids, term, terms,
+   range, prefix, exists), so equal conditions always give equal JSON (and share
+   SingleFlight, request cache and slowlog entries).
+ - Duplicate "filter" and "must_not" clauses, "filter" clauses which are also "must"
+   clauses, and "match_all" next to other clauses are dropped.
+ - "should" clauses stay: they are optional when there is a "must" or "filter", and moving
+   them would make them required.
+
+ Last plan of every operation, as JSON before and after, is kept for "/admin/query-plans".
+ **/
+@Component
+public class QueryPlanner {
+
+    enum Kind { TEXT, EXACT }
+
+    private static final Set<String> EXACT_TYPES = Set.of("keyword", "constant_keyword", "wildcard",
+            "long", "integer", "short", "byte", "double", "float", "half_float", "scaled_float", "unsigned_long",
+            "date", "date_nanos", "boolean", "ip");
+    // How long a mapping which could not be read is not asked for again.
+    private static final long MAPPING_RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MappingSource mappingSource;
+    private final OperationMetrics operationMetrics;
+    private final boolean enabled;
+    private final Map<Class<?>, Map<String, Kind>> fields = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Long> mappingFailedAt = new ConcurrentHashMap<>();
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QueryPlanner(ElasticsearchOperations elasticsearchOperations,
+                        OperationMetrics operationMetrics,
+                        @Value("${elasticsearch.query-planner.enabled:true}") boolean enabled) {
+        this(entityClass -> elasticsearchOperations.indexOps(entityClass).getMapping(), operationMetrics, enabled);
+    }
+
+    QueryPlanner(MappingSource mappingSource, OperationMetrics operationMetrics, boolean enabled) {
+        this.mappingSource = mappingSource;
+        this.operationMetrics = operationMetrics;
+        this.enabled = enabled;
+    }
+
+    /*
+        Mapping of the index of "entityClass", as "GET <index>/_mapping" returns it for that index.
+    */
+    interface MappingSource {
+        Map<String, Object> mapping(Class<?> entityClass);
+    }
+
+    /*
+        Planned version of "query" of "operation" on the index of "entityClass"; "query" is not changed.
+    */
+    public QueryBuilder plan(String operation, Class<?> entityClass, QueryBuilder query) {
+        if (!enabled || query == null)
+            return query;
+        Map<String, Kind> kinds = fieldKinds(entityClass);
+        List<String> changes = new ArrayList<>();
+        QueryBuilder planned = plan(query, kinds, false, changes);
+        if (!(planned instanceof BoolQueryBuilder) && !(planned instanceof ConstantScoreQueryBuilder)
+                && !(planned instanceof MatchAllQueryBuilder) && !ranks(planned, kinds)) {
+            changes.add("query -> constant_score: " + describe(planned));
+            planned = QueryBuilders.constantScoreQuery(planned);
+        }
+        plans.put(operation, new Plan(Instant.now(), query, planned, changes));
+        return planned;
+    }
+
+    /*
+        Last plan of "operation" (of every operation when null), sorted by operation.
+    */
+    public List<QueryPlan> plans(String operation) {
+        List<QueryPlan> result = new ArrayList<>();
+        for (Map.Entry<String, Plan> entry : new TreeMap<>(plans).entrySet()) {
+            if (operation != null && !operation.equals(entry.getKey()))
+                continue;
+            Plan plan = entry.getValue();
+            result.add(new QueryPlan(entry.getKey(), plan.time, Strings.toString(plan.before),
+                    Strings.toString(plan.after), plan.changes));
+        }
+        return result;
+    }
+
+    private QueryBuilder plan(QueryBuilder query, Map<String, Kind> kinds, boolean filterContext, List<String> changes) {
+        if (query instanceof BoolQueryBuilder)
+            return planBool((BoolQueryBuilder) query, kinds, filterContext, changes);
+        if (query instanceof ConstantScoreQueryBuilder) {
+            ConstantScoreQueryBuilder constantScore = (ConstantScoreQueryBuilder) query;
+            QueryBuilder inner = plan(constantScore.innerQuery(), kinds, true, changes);
+            if (inner == constantScore.innerQuery())
+                return query;
+            return new ConstantScoreQueryBuilder(inner).boost(constantScore.boost()).queryName(constantScore.queryName());
+        }
+        return query;
+    }
+
+    private BoolQueryBuilder planBool(BoolQueryBuilder bool, Map<String, Kind> kinds, boolean filterContext,
+                                      List<String> changes) {
+        List<QueryBuilder> must = new ArrayList<>();
+        List<QueryBuilder> filter = new ArrayList<>();
+        List<QueryBuilder> should = new ArrayList<>();
+        List<QueryBuilder> mustNot = new ArrayList<>();
+        for (QueryBuilder clause : bool.must()) {
+            QueryBuilder planned = plan(clause, kinds, filterContext, changes);
+            if (filterContext || !ranks(planned, kinds)) {
+                changes.add("must -> filter: " + describe(planned));
+                filter.add(planned);
+            } else {
+                must.add(planned);
+            }
+        }
+        for (QueryBuilder clause : bool.filter())
+            filter.add(plan(clause, kinds, true, changes));
+        for (QueryBuilder clause : bool.should())
+            should.add(plan(clause, kinds, filterContext, changes));
+        for (QueryBuilder clause : bool.mustNot())
+            mustNot.add(plan(clause, kinds, true, changes));
+
+        dropDuplicates("filter", filter, changes);
+        dropDuplicates("must_not", mustNot, changes);
+        for (QueryBuilder clause : must)
+            if (filter.remove(clause))
+                changes.add("dropped filter, same as must: " + describe(clause));
+        dropMatchAll(must, filter, changes);
+        orderBySelectivity("filter", filter, changes);
+        orderBySelectivity("must_not", mustNot, changes);
+
+        BoolQueryBuilder planned = QueryBuilders.boolQuery()
+                .boost(bool.boost())
+                .queryName(bool.queryName())
+                .minimumShouldMatch(bool.minimumShouldMatch())
+                .adjustPureNegative(bool.adjustPureNegative());
+        must.forEach(planned::must);
+        filter.forEach(planned::filter);
+        should.forEach(planned::should);
+        mustNot.forEach(planned::mustNot);
+        return planned;
+    }
+
+    private static void dropDuplicates(String occur, List<QueryBuilder> clauses, List<String> changes) {
+        for (int i = clauses.size() - 1; i > 0; i--)
+            if (clauses.indexOf(clauses.get(i)) < i)
+                changes.add("dropped duplicate " + occur + ": " + describe(clauses.remove(i)));
+    }
+
+    /*
+        "match_all" matches every document (and adds the same score to every one of them in "must"),
+        so it only matters when it is the only "must" or "filter": that decides whether "should" is required.
+    */
+    private static void dropMatchAll(List<QueryBuilder> must, List<QueryBuilder> filter, List<String> changes) {
+        for (List<QueryBuilder> clauses : List.of(must, filter)) {
+            for (int i = clauses.size() - 1; i >= 0; i--) {
+                if (clauses.get(i) instanceof MatchAllQueryBuilder && must.size() + filter.size() > 1) {
+                    clauses.remove(i);
+                    changes.add("dropped match_all");
+                }
+            }
+        }
+    }
+
+    private static void orderBySelectivity(String occur, List<QueryBuilder> clauses, List<String> changes) {
+        List<QueryBuilder> ordered = new ArrayList<>(clauses);
+        ordered.sort(Comparator.comparingInt(QueryPlanner::cost));
+        if (ordered.equals(clauses))
+            return;
+        clauses.clear();
+        clauses.addAll(ordered);
+        changes.add(occur + " ordered by selectivity");
+    }
+
+    // Lower is more selective; ordering only, elasticsearch still leads with its cheapest iterator.
+    private static int cost(QueryBuilder query) {
+        if (query instanceof IdsQueryBuilder)
+            return 0;
+        if (query instanceof TermQueryBuilder || query instanceof MatchQueryBuilder)
+            return 1;
+        if (query instanceof TermsQueryBuilder)
+            return 2;
+        if (query instanceof RangeQueryBuilder)
+            return 3;
+        if (query instanceof PrefixQueryBuilder)
+            return 4;
+        if (query instanceof ExistsQueryBuilder)
+            return 5;
+        return 6;
+    }
+
+    boolean ranks(QueryBuilder query, Map<String, Kind> kinds) {
+        if (query instanceof MatchAllQueryBuilder || query instanceof ConstantScoreQueryBuilder
+                || query instanceof IdsQueryBuilder || query instanceof ExistsQueryBuilder)
+            return false;
+        if (query instanceof TermQueryBuilder || query instanceof TermsQueryBuilder
+                || query instanceof RangeQueryBuilder || query instanceof PrefixQueryBuilder)
+            return kinds.get(field(query)) != Kind.EXACT;
+        if (query instanceof MatchQueryBuilder)
+            return kinds.get(field(query)) != Kind.EXACT || ((MatchQueryBuilder) query).fuzziness() != null;
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            for (QueryBuilder clause : bool.must())
+                if (ranks(clause, kinds))
+                    return true;
+            for (QueryBuilder clause : bool.should())
+                if (ranks(clause, kinds))
+                    return true;
+            return false;
+        }
+        return true;
+    }
+
+    private static String field(QueryBuilder query) {
+        if (query instanceof TermQueryBuilder)
+            return ((TermQueryBuilder) query).fieldName();
+        if (query instanceof TermsQueryBuilder)
+            return ((TermsQueryBuilder) query).fieldName();
+        if (query instanceof RangeQueryBuilder)
+            return ((RangeQueryBuilder) query).fieldName();
+        if (query instanceof PrefixQueryBuilder)
+            return ((PrefixQueryBuilder) query).fieldName();
+        if (query instanceof MatchQueryBuilder)
+            return ((MatchQueryBuilder) query).fieldName();
+        if (query instanceof ExistsQueryBuilder)
+            return ((ExistsQueryBuilder) query).fieldName();
+        return null;
+    }
+
+    private static String describe(QueryBuilder query) {
+        String field = field(query);
+        return field == null ? query.getName() : query.getName() + " [" + field + "]";
+    }
+
+    /*
+        Kind of every field of the index of "entityClass". Empty (every field ranks) while its
+        mapping can not be read; the failure is recorded as "QueryPlanner.readMapping".
+    */
+    Map<String, Kind> fieldKinds(Class<?> entityClass) {
+        Map<String, Kind> kinds = fields.get(entityClass);
+        if (kinds != null)
+            return kinds;
+        Long failedAt = mappingFailedAt.get(entityClass);
+        if (failedAt != null && System.nanoTime() - failedAt < MAPPING_RETRY_NANOS)
+            return Collections.emptyMap();
+
+        Map<String, Object> mapping;
+        try {
+            mapping = operationMetrics.time("QueryPlanner.readMapping", entityClass.getSimpleName(),
+                    () -> mappingSource.mapping(entityClass));
+        } catch (RuntimeException e) {
+            mappingFailedAt.put(entityClass, System.nanoTime());
+            return Collections.emptyMap();
+        }
+        kinds = new HashMap<>();
+        collect(mapping, "", kinds);
+        fields.put(entityClass, kinds);
+        mappingFailedAt.remove(entityClass);
+        return kinds;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collect(Map<String, Object> mapping, String prefix, Map<String, Kind> kinds) {
+        Object properties = mapping == null ? null : mapping.get("properties");
+        if (!(properties instanceof Map))
+            return;
+        ((Map<String, Object>) properties).forEach((name, definition) -> {
+            if (!(definition instanceof Map))
+                return;
+            Map<String, Object> field = (Map<String, Object>) definition;
+            // Objects and nested objects have "properties" of their own.
+            if (field.containsKey("properties")) {
+                collect(field, prefix + name + ".", kinds);
+                return;
+            }
+            kinds.put(prefix + name, kind(field));
+            Object subFields = field.get("fields");
+            if (subFields instanceof Map)
+                ((Map<String, Object>) subFields).forEach((subName, subField) -> {
+                    if (subField instanceof Map)
+                        kinds.put(prefix + name + "." + subName, kind((Map<String, Object>) subField));
+                });
+        });
+    }
+
+    private static Kind kind(Map<String, Object> field) {
+        return EXACT_TYPES.contains(field.get("type")) ? Kind.EXACT : Kind.TEXT;
+    }
+
+    private static class Plan {
+        private final Instant time;
+        private final QueryBuilder before;
+        private final QueryBuilder after;
+        private final List<String> changes;
+
+        Plan(Instant time, QueryBuilder before, QueryBuilder after, List<String> changes) {
+            this.time = time;
+            this.before = before;
+            this.after = after;
+            this.changes = changes;
+        }
+    }
+}
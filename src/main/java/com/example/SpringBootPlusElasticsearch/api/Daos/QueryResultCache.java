@@ -0,0 +1,313 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.QueryCacheProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryCacheStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ Bounded cache of search results, shared by the DAO classes.
+
+ - Key is index + shape of query (name of DAO method) + normalized parameters.
+ - Size of cache is measured in bytes: every hit weighs its content serialized as JSON
+   (what the response carries of it) plus HIT_OVERHEAD_BYTES, so a hit with its "fullplot"
+   weighs more than one with a title only. Least recently used entries are evicted once
+   "maxBytes" is crossed.
+ - Entries are spread over SEGMENTS segments by key, each an access ordered map with its
+   own lock and an equal part of "maxBytes" (segmented LRU), so lookups of different keys
+   rarely wait on each other.
+ - Entries expire "ttlSeconds" after they were loaded.
+ - Writes to an index must call invalidate(index), which drops every entry of that index,
+   once the write is visible to searches (invalidateAfter(index, refresh) when the write
+   itself does not wait for that). A result which was being loaded while invalidate() ran
+   is not stored, so stale results can never come back into cache. Invalidating before the
+   write is visible would not do: a search in between still reads the old documents and
+   would keep them cached for "ttlSeconds".
+ **/
+@Component
+public class QueryResultCache {
+
+    private static final int SEGMENTS = 16;
+    // Hit apart from its content (id, score, index, objects), and entry apart from its hits.
+    static final long HIT_OVERHEAD_BYTES = 128;
+    static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final ToLongFunction<Object> weigher;
+
+    private final Segment[] segments;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public QueryResultCache(QueryCacheProperties properties, ObjectMapper objectMapper) {
+        this(properties.isEnabled(), properties.getMaxBytes(),
+                TimeUnit.SECONDS.toNanos(properties.getTtlSeconds()), System::nanoTime, SEGMENTS,
+                value -> weigh(objectMapper, value));
+    }
+
+    QueryResultCache(boolean enabled, long maxBytes, long ttlNanos, LongSupplier clock, int segments,
+                     ToLongFunction<Object> weigher) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.weigher = weigher;
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++)
+            this.segments[i] = new Segment(maxBytes / segments);
+    }
+
+    /*
+        Return cached result of query "shape" with "params" on "index",
+        or run "loader" and cache its result. Null results are never cached.
+    */
+    public <T> T get(String index, String shape, Supplier<T> loader, String... params) {
+        if (!enabled)
+            return loader.get();
+
+        String key = key(index, shape, params);
+        long now = clock.getAsLong();
+        T cached = lookup(key, now);
+        if (cached != null)
+            return cached;
+
+        long generation = generation(index).get();
+        T value = loader.get();
+        if (value != null)
+            put(index, key, value, generation, now);
+        return value;
+    }
+
+    /*
+        Same as get(), for loaders which return the result as CompletableFuture.
+        Result is cached once the future completes successfully.
+    */
+    public <T> CompletableFuture<T> getAsync(String index, String shape,
+                                             Supplier<CompletableFuture<T>> loader, String... params) {
+        if (!enabled)
+            return loader.get();
+
+        String key = key(index, shape, params);
+        long now = clock.getAsLong();
+        T cached = lookup(key, now);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        long generation = generation(index).get();
+        return loader.get().thenApply(value -> {
+            if (value != null)
+                put(index, key, value, generation, now);
+            return value;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(String key, long now) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                segment.remove(key, entry);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /*
+        Drop every cached result of "index". Must be called after each write to the index.
+    */
+    public void invalidate(String index) {
+        generation(index).incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<Map.Entry<String, Entry>> itr = segment.entries.entrySet().iterator();
+                while (itr.hasNext()) {
+                    Entry entry = itr.next().getValue();
+                    if (entry.index.equals(index)) {
+                        segment.bytes -= entry.bytes;
+                        itr.remove();
+                        invalidations.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        Run "refresh" (which makes a write to "index" visible to searches), then invalidate(index),
+        also when the refresh failed.
+    */
+    public void invalidateAfter(String index, Runnable refresh) {
+        try {
+            refresh.run();
+        } finally {
+            invalidate(index);
+        }
+    }
+
+    public QueryCacheStats stats() {
+        int entries = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.entries.size();
+                bytes += segment.bytes;
+            }
+        }
+        return new QueryCacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(),
+                invalidations.sum(), entries, bytes, maxBytes);
+    }
+
+    private void put(String index, String key, Object value, long generation, long loadedAt) {
+        // Weighed outside of the lock, it serializes every hit.
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * key.length() + weigher.applyAsLong(value);
+        Segment segment = segment(key);
+        if (bytes > segment.maxBytes)
+            return;
+
+        synchronized (segment) {
+            // Index was written while we were loading, result may already be stale.
+            if (generation(index).get() != generation)
+                return;
+
+            Entry entry = new Entry(index, value, bytes, loadedAt);
+            Entry previous = segment.entries.put(key, entry);
+            if (previous != null)
+                segment.bytes -= previous.bytes;
+            segment.bytes += entry.bytes;
+
+            Iterator<Entry> itr = segment.entries.values().iterator();
+            while (segment.bytes > segment.maxBytes && itr.hasNext()) {
+                Entry eldest = itr.next();
+                segment.bytes -= eldest.bytes;
+                itr.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private Segment segment(String key) {
+        int hash = key.hashCode();
+        return segments[((hash ^ (hash >>> 16)) & 0x7fffffff) % segments.length];
+    }
+
+    private AtomicLong generation(String index) {
+        return generations.computeIfAbsent(index, name -> new AtomicLong());
+    }
+
+    /*
+        Bytes of "value" as JSON, hit by hit for SearchHits. Long.MAX_VALUE (never cached) when
+        it can not be serialized.
+    */
+    static long weigh(ObjectMapper objectMapper, Object value) {
+        CountingStream counter = new CountingStream();
+        try {
+            if (value instanceof SearchHits) {
+                long bytes = 0;
+                for (SearchHit<?> hit : ((SearchHits<?>) value).getSearchHits()) {
+                    if (hit.getContent() != null)
+                        objectMapper.writeValue(counter, hit.getContent());
+                    bytes += HIT_OVERHEAD_BYTES;
+                }
+                return bytes + counter.count;
+            }
+            objectMapper.writeValue(counter, value);
+            return counter.count;
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /*
+        Same query written with different case or spacing ("The  Matrix" and "the matrix")
+        maps to same key. All the cached queries run on analyzed text fields, so this
+        does not change their result.
+    */
+    static String key(String index, String shape, String... params) {
+        StringBuilder key = new StringBuilder(index).append('|').append(shape);
+        for (String param : params) {
+            key.append('|');
+            if (param != null)
+                key.append(param.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT));
+        }
+        return key.toString();
+    }
+
+    // Access ordered, so iteration starts from least recently used entry. Guarded by itself.
+    private static class Segment {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        void remove(String key, Entry entry) {
+            entries.remove(key);
+            bytes -= entry.bytes;
+        }
+    }
+
+    private static class Entry {
+        private final String index;
+        private final Object value;
+        private final long bytes;
+        private final long loadedAt;
+
+        Entry(String index, Object value, long bytes, long loadedAt) {
+            this.index = index;
+            this.value = value;
+            this.bytes = bytes;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    // Counts what is written, keeps nothing. Jackson closes it after every value, which is ignored.
+    private static class CountingStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
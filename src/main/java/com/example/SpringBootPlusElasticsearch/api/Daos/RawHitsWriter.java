@@ -0,0 +1,136 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ Writes a "_search" response body of elasticsearch to "out" in this envelope:
+
+     {"total":123,"totalRelation":"eq","from":0,"size":10,"took":5,
+      "hits":[{"_id":"...","_source":{...}}, ...]}
+
+ "_source" of each hit is copied byte for byte out of the response: the response is only
+ scanned for where each "_source" starts and ends, no entity, map or String is built from it.
+ "total" and "totalRelation" are null when the search did not count hits.
+ **/
+public final class RawHitsWriter {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID_FIRST = "{\"_id\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID_NEXT = ",{\"_id\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SOURCE = ",\"_source\":".getBytes(StandardCharsets.UTF_8);
+
+    private RawHitsWriter() {
+    }
+
+    public static int write(byte[] response, int from, int size, OutputStream out) throws IOException {
+        Long total = null;
+        String relation = null;
+        long took = -1;
+        List<String> ids = new ArrayList<>();
+        // Start and end offset of "_source" of each hit, -1 when hit has none.
+        int[] sources = new int[32];
+
+        try (JsonParser parser = JSON.createParser(response)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("took".equals(field)) {
+                    took = parser.getLongValue();
+                } else if ("hits".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String hitsField = parser.getCurrentName();
+                        JsonToken hitsValue = parser.nextToken();
+                        if ("total".equals(hitsField) && hitsValue == JsonToken.START_OBJECT) {
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String totalField = parser.getCurrentName();
+                                parser.nextToken();
+                                if ("value".equals(totalField))
+                                    total = parser.getLongValue();
+                                else if ("relation".equals(totalField))
+                                    relation = parser.getText();
+                                else
+                                    parser.skipChildren();
+                            }
+                        } else if ("total".equals(hitsField) && hitsValue == JsonToken.VALUE_NUMBER_INT) {
+                            // "rest_total_hits_as_int" form.
+                            total = parser.getLongValue();
+                            relation = "eq";
+                        } else if ("hits".equals(hitsField) && hitsValue == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                int hit = ids.size();
+                                if (sources.length < 2 * (hit + 1))
+                                    sources = Arrays.copyOf(sources, sources.length * 2);
+                                sources[2 * hit] = -1;
+                                String id = null;
+                                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                    String hitField = parser.getCurrentName();
+                                    JsonToken hitValue = parser.nextToken();
+                                    if ("_id".equals(hitField)) {
+                                        id = parser.getText();
+                                    } else if ("_source".equals(hitField) && hitValue == JsonToken.START_OBJECT) {
+                                        sources[2 * hit] = (int) parser.getTokenLocation().getByteOffset();
+                                        parser.skipChildren();
+                                        sources[2 * hit + 1] = (int) parser.getTokenLocation().getByteOffset() + 1;
+                                    } else {
+                                        parser.skipChildren();
+                                    }
+                                }
+                                ids.add(id);
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        StringBuilder head = new StringBuilder("{\"total\":").append(total)
+                .append(",\"totalRelation\":").append(relation == null ? "null" : "\"" + relation + "\"")
+                .append(",\"from\":").append(from)
+                .append(",\"size\":").append(size)
+                .append(",\"took\":").append(took)
+                .append(",\"hits\":[");
+        out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+        for (int hit = 0; hit < ids.size(); hit++) {
+            out.write(hit == 0 ? ID_FIRST : ID_NEXT);
+            if (ids.get(hit) == null) {
+                out.write(NULL);
+            } else {
+                out.write('"');
+                out.write(encoder.quoteAsUTF8(ids.get(hit)));
+                out.write('"');
+            }
+            out.write(SOURCE);
+            int start = sources[2 * hit];
+            if (start < 0)
+                out.write(NULL);
+            else
+                out.write(response, start, sources[2 * hit + 1] - start);
+            out.write('}');
+        }
+        out.write(']');
+        out.write('}');
+        return ids.size();
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected)
+            throw new IOException("Unexpected search response, " + expected + " expected but got " + actual);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ Result of an expensive query, computed in background and served from memory.
+
+ - get() returns the last computed result straight away. Only the very first get()
+   (before anything was computed) waits for the query.
+ - refresh() recomputes the result while the old one is still being served, and swaps
+   it in once the query succeeds (refresh-ahead). A failed refresh keeps the old result.
+   Only one refresh runs at a time.
+ - Every result carries the time it was computed and the number of writes since then,
+   so callers can tell how stale it is.
+ **/
+public class RefreshAheadValue<T> {
+
+    private final Supplier<CompletableFuture<T>> loader;
+    private final LongSupplier clock;
+
+    private volatile Snapshot<T> snapshot;
+    // Refresh which is running, null when none is.
+    private CompletableFuture<Snapshot<T>> refreshing;
+    // Writes made since the last refresh started.
+    private final AtomicLong writes = new AtomicLong();
+
+    public RefreshAheadValue(Supplier<CompletableFuture<T>> loader, LongSupplier clock) {
+        this.loader = loader;
+        this.clock = clock;
+    }
+
+    public CompletableFuture<Snapshot<T>> get() {
+        Snapshot<T> current = snapshot;
+        if (current == null)
+            return refresh().thenApply(this::withWrites);
+        return CompletableFuture.completedFuture(withWrites(current));
+    }
+
+    public synchronized CompletableFuture<Snapshot<T>> refresh() {
+        if (refreshing != null)
+            return refreshing;
+
+        writes.set(0);
+        long startedAt = clock.getAsLong();
+        CompletableFuture<Snapshot<T>> future;
+        try {
+            future = loader.get().thenApply(value -> new Snapshot<>(value, startedAt, 0));
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        refreshing = future;
+        CompletableFuture<Snapshot<T>> started = future;
+        future.whenComplete((result, failure) -> {
+            if (result != null)
+                snapshot = result;
+            synchronized (this) {
+                if (refreshing == started)
+                    refreshing = null;
+            }
+        });
+        return future;
+    }
+
+    /*
+        Count "count" writes to the data behind the value. Returns the number of writes
+        since the last refresh started, for the caller to decide when to refresh.
+    */
+    public long recordWrites(long count) {
+        return writes.addAndGet(count);
+    }
+
+    public boolean isComputed() {
+        return snapshot != null;
+    }
+
+    private Snapshot<T> withWrites(Snapshot<T> current) {
+        return new Snapshot<>(current.value, current.computedAt, writes.get());
+    }
+
+    public static class Snapshot<T> {
+        private final T value;
+        private final long computedAt;
+        private final long writesSince;
+
+        Snapshot(T value, long computedAt, long writesSince) {
+            this.value = value;
+            this.computedAt = computedAt;
+            this.writesSince = writesSince;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        // Epoch millis at which the query which produced "value" was started.
+        public long getComputedAt() {
+            return computedAt;
+        }
+
+        public long getWritesSince() {
+            return writesSince;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.RequestCacheReport;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ Hit rates of the shard request cache, to tell whether SearchRouting pays off.
+
+ Counters of elasticsearch ("_stats/request_cache") count from the start of every node,
+ so they are kept as a baseline once this application is ready, before it routes any
+ search: "before" is what the counters held then (searches routed the old way), "after"
+ is what was added since. When elasticsearch could not be asked then, the first report
+ takes the baseline. resetBaseline() starts "after" again, e.g. after the routing settings changed.
+ **/
+@Component
+public class RequestCacheMonitor {
+
+    /*
+        Returns "_stats/request_cache" of elasticsearch, parsed.
+    */
+    interface StatsSource {
+        Map<String, Object> stats() throws IOException;
+    }
+
+    private final StatsSource source;
+    private final SearchRouting searchRouting;
+    private Baseline baseline;
+
+    @Autowired
+    public RequestCacheMonitor(RestHighLevelClient restHighLevelClient, SearchRoutingProperties properties,
+                               SearchRouting searchRouting) {
+        this(() -> {
+            String indices = properties.getStatsIndices().isEmpty() ? "_all" : String.join(",", properties.getStatsIndices());
+            Request request = new Request("GET", "/" + indices + "/_stats/request_cache");
+            request.addParameter("filter_path", "indices.*.total.request_cache");
+            Response response = restHighLevelClient.getLowLevelClient().performRequest(request);
+            try (InputStream content = response.getEntity().getContent()) {
+                return XContentHelper.convertToMap(XContentType.JSON.xContent(), content, false);
+            } finally {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }, searchRouting);
+    }
+
+    RequestCacheMonitor(StatsSource source, SearchRouting searchRouting) {
+        this.source = source;
+        this.searchRouting = searchRouting;
+    }
+
+    public synchronized RequestCacheReport report() throws IOException {
+        Map<String, Counters> current = counters(source.stats());
+        if (baseline == null)
+            baseline = new Baseline(Instant.now(), current);
+        List<RequestCacheReport.IndexCache> indices = new ArrayList<>(current.size());
+        for (Map.Entry<String, Counters> index : current.entrySet()) {
+            Counters now = index.getValue();
+            Counters before = baseline.counters.getOrDefault(index.getKey(), Counters.NONE);
+            // Counters go back to 0 when a node restarts; everything then counts as "after".
+            if (now.hits < before.hits || now.misses < before.misses)
+                before = Counters.NONE;
+            indices.add(new RequestCacheReport.IndexCache(index.getKey(), now.memorySizeBytes, now.evictions,
+                    new RequestCacheReport.Rate(before.hits, before.misses),
+                    new RequestCacheReport.Rate(now.hits - before.hits, now.misses - before.misses)));
+        }
+        return new RequestCacheReport(searchRouting.getRoutedBySession(), searchRouting.getRoutedByQuery(),
+                searchRouting.getRequestCached(), baseline.time, indices);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void resetBaseline() {
+        try {
+            baseline = new Baseline(Instant.now(), counters(source.stats()));
+        } catch (IOException | RuntimeException e) {
+            // Next report takes it.
+            baseline = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Counters> counters(Map<String, Object> stats) {
+        Map<String, Counters> counters = new TreeMap<>();
+        Object indices = stats.get("indices");
+        // "filter_path" leaves an empty body when there is no index.
+        if (!(indices instanceof Map))
+            return counters;
+        for (Map.Entry<String, Object> index : ((Map<String, Object>) indices).entrySet()) {
+            Map<String, Object> total = (Map<String, Object>) ((Map<String, Object>) index.getValue()).get("total");
+            Map<String, Object> cache = (Map<String, Object>) total.get("request_cache");
+            counters.put(index.getKey(), new Counters(number(cache, "hit_count"), number(cache, "miss_count"),
+                    number(cache, "evictions"), number(cache, "memory_size_in_bytes")));
+        }
+        return counters;
+    }
+
+    private static long number(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    static class Counters {
+        static final Counters NONE = new Counters(0, 0, 0, 0);
+
+        final long hits;
+        final long misses;
+        final long evictions;
+        final long memorySizeBytes;
+
+        Counters(long hits, long misses, long evictions, long memorySizeBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.memorySizeBytes = memorySizeBytes;
+        }
+    }
+
+    private static class Baseline {
+        private final Instant time;
+        private final Map<String, Counters> counters;
+
+        Baseline(Instant time, Map<String, Counters> counters) {
+            this.time = time;
+            this.counters = counters;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ Collects searches issued at about the same time and sends them as one "_msearch" request.
+
+ - First search of a batch starts the window ("windowMicros"). Searches issued before the
+   window closes join the batch. Batch is sent when the window closes, or straight away
+   once it holds "maxBatchSize" searches.
+ - Response of each search in "_msearch" is handed to the caller which issued it. A failed
+   search fails only its own caller; a failed "_msearch" fails every caller of the batch.
+ - Batch holding a single search is sent as normal "_search".
+ **/
+@Component
+public class SearchBatcher {
+
+    private final BiConsumer<SearchRequest, ActionListener<SearchResponse>> search;
+    private final BiConsumer<MultiSearchRequest, ActionListener<MultiSearchResponse>> msearch;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    // Batch which is collecting searches, null when no search is waiting.
+    private Batch current;
+
+    @Autowired
+    public SearchBatcher(RestHighLevelClient restHighLevelClient, SearchBatchProperties properties) {
+        this((request, listener) -> restHighLevelClient.searchAsync(request, RequestOptions.DEFAULT, listener),
+                (request, listener) -> restHighLevelClient.msearchAsync(request, RequestOptions.DEFAULT, listener),
+                properties.getWindowMicros(), properties.getMaxBatchSize());
+    }
+
+    SearchBatcher(BiConsumer<SearchRequest, ActionListener<SearchResponse>> search,
+                  BiConsumer<MultiSearchRequest, ActionListener<MultiSearchResponse>> msearch,
+                  long windowMicros, int maxBatchSize) {
+        this.search = search;
+        this.msearch = msearch;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "msearch-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (this) {
+            if (current == null) {
+                Batch batch = new Batch();
+                current = batch;
+                scheduler.schedule(() -> windowClosed(batch), windowMicros, TimeUnit.MICROSECONDS);
+            }
+            current.requests.add(request);
+            current.futures.add(future);
+            if (current.requests.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+        if (full != null)
+            send(full);
+        return future;
+    }
+
+    private void windowClosed(Batch batch) {
+        synchronized (this) {
+            // Already sent because it became full.
+            if (current != batch)
+                return;
+            current = null;
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        try {
+            sendOrThrow(batch);
+        } catch (RuntimeException e) {
+            batch.futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void sendOrThrow(Batch batch) {
+        if (batch.requests.size() == 1) {
+            search.accept(batch.requests.get(0), SearchExecutor.listener(batch.futures.get(0)));
+            return;
+        }
+
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        batch.requests.forEach(multiSearchRequest::add);
+        msearch.accept(multiSearchRequest, ActionListener.wrap(response -> {
+            MultiSearchResponse.Item[] items = response.getResponses();
+            for (int i = 0; i < batch.futures.size(); i++) {
+                if (items[i].isFailure())
+                    batch.futures.get(i).completeExceptionally(items[i].getFailure());
+                else
+                    batch.futures.get(i).complete(items[i].getResponse());
+            }
+        }, failure -> batch.futures.forEach(future -> future.completeExceptionally(failure))));
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Batch {
+        private final List<SearchRequest> requests = new ArrayList<>();
+        private final List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.SearchStats;
+import org.apache.http.util.EntityUtils;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.AnalyzeRequest;
+import org.elasticsearch.client.indices.AnalyzeResponse;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsImpl;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.SearchDocument;
+import org.springframework.data.elasticsearch.core.document.SearchDocumentResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ Single place from where DAO classes send search and analyze requests to elasticsearch.
+
+ Requests are sent with async methods of RestHighLevelClient, so no thread is blocked
+ while elasticsearch is working. Response is handed over as CompletableFuture, and
+ hits are mapped into entity classes the same way ElasticsearchOperations does it.
+
+ Searches go through SearchBatcher (when "elasticsearch.msearch.enabled"), so concurrent
+ searches share one "_msearch" request. Before that, identical searches (same indices, same
+ query and options) which are in flight at the same time are collapsed into one search
+ (when "elasticsearch.search.single-flight"), see SingleFlight.
+
+ Hits of entity classes which have a reader in EntityReaders are read straight from
+ "_source" bytes (when "elasticsearch.search.entity-readers"), other hits go through
+ ElasticsearchConverter.
+
+ Every call is timed under the name of the DAO operation which made it (see OperationMetrics).
+ Overloads without an operation name are timed as "search" / "analyze". Searches slower
+ than "elasticsearch.slow-query.threshold-ms" are handed to SlowQueryLog. Latency and
+ overload failures of every call steer the limit of ConcurrencyLimiter. Searches of
+ operations in "elasticsearch.hedge.operations" are hedged instead of batched (see SearchHedger).
+ Before they are sent, searches get their "preference" and "request_cache" from SearchRouting.
+ **/
+@Component
+public class SearchExecutor {
+
+    private static final String RAW_FILTER_PATH = "took,hits.total,hits.hits._id,hits.hits._source";
+    private static final byte[] RAW_TOOK_PREFIX = "{\"took\":".getBytes(StandardCharsets.UTF_8);
+
+    private final RestHighLevelClient restHighLevelClient;
+    private final ElasticsearchConverter elasticsearchConverter;
+    private final SearchBatcher searchBatcher;
+    private final SingleFlight<String, SearchResponse> singleFlight = new SingleFlight<>();
+    private final boolean singleFlightEnabled;
+    private final EntityReaders entityReaders;
+    private final OperationMetrics operationMetrics;
+    private final SlowQueryLog slowQueryLog;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final SearchHedger searchHedger;
+    private final SearchRouting searchRouting;
+
+    @Autowired
+    public SearchExecutor(RestHighLevelClient restHighLevelClient,
+                          ElasticsearchOperations elasticsearchOperations,
+                          SearchBatcher searchBatcher,
+                          SearchBatchProperties searchBatchProperties,
+                          @Value("${elasticsearch.search.single-flight:true}") boolean singleFlightEnabled,
+                          EntityReaders entityReaders,
+                          @Value("${elasticsearch.search.entity-readers:true}") boolean entityReadersEnabled,
+                          OperationMetrics operationMetrics,
+                          SlowQueryLog slowQueryLog,
+                          ConcurrencyLimiter concurrencyLimiter,
+                          SearchHedger searchHedger,
+                          SearchRouting searchRouting) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.elasticsearchConverter = elasticsearchOperations.getElasticsearchConverter();
+        this.searchBatcher = searchBatchProperties.isEnabled() ? searchBatcher : null;
+        this.singleFlightEnabled = singleFlightEnabled;
+        this.entityReaders = entityReadersEnabled ? entityReaders : null;
+        this.operationMetrics = operationMetrics;
+        this.slowQueryLog = slowQueryLog;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.searchHedger = searchHedger;
+        this.searchRouting = searchRouting;
+    }
+
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest searchRequest) {
+        return searchAsync("search", searchRequest);
+    }
+
+    public CompletableFuture<SearchResponse> searchAsync(String operation, SearchRequest searchRequest) {
+        return search(operation, index(searchRequest), searchRequest);
+    }
+
+    /*
+        Searches collapsed by single flight share one response, which is recorded once, by the
+        search which was sent: metrics, limiter sample and slow query check are not counted again
+        for every caller. How many were collapsed is counted by SingleFlight (see stats()).
+    */
+    private CompletableFuture<SearchResponse> search(String operation, String index, SearchRequest searchRequest) {
+        if (!singleFlightEnabled)
+            return sendAndRecord(operation, index, searchRequest);
+        // toString() holds indices, every option and the whole query as JSON.
+        return singleFlight.execute(searchRequest.toString(), () -> sendAndRecord(operation, index, searchRequest));
+    }
+
+    private CompletableFuture<SearchResponse> sendAndRecord(String operation, String index, SearchRequest searchRequest) {
+        long start = System.nanoTime();
+        CompletableFuture<SearchResponse> sent;
+        try {
+            sent = send(operation, searchRequest);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return recordErrors(operation, index, sent.thenApply(response -> {
+            record(operation, index, searchRequest.source(), start, response);
+            return response;
+        }));
+    }
+
+    public SearchStats stats() {
+        return new SearchStats(singleFlight.getCalls(), singleFlight.getCollapsed(), singleFlight.getInFlight());
+    }
+
+    private CompletableFuture<SearchResponse> send(String operation, SearchRequest searchRequest) {
+        // After single flight, so searches of different sessions are still collapsed.
+        searchRouting.route(operation, searchRequest);
+        if (searchHedger.applies(operation))
+            return searchHedger.searchAsync(operation, searchRequest);
+        if (searchBatcher != null)
+            return searchBatcher.searchAsync(searchRequest);
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        restHighLevelClient.searchAsync(searchRequest, RequestOptions.DEFAULT, listener(future));
+        return future;
+    }
+
+    /*
+        Search "index" and map every hit into "entityClass".
+    */
+    public <T> CompletableFuture<SearchHits<T>> searchAsync(String index, SearchSourceBuilder source, Class<T> entityClass) {
+        return searchAsync("search", index, source, entityClass);
+    }
+
+    /*
+        Same as above, timed under "operation". Mapping the hits is done for every caller,
+        it is not part of the time (collapsed searches share the time of one response).
+    */
+    public <T> CompletableFuture<SearchHits<T>> searchAsync(String operation, String index,
+                                                            SearchSourceBuilder source, Class<T> entityClass) {
+        return searchAsync(operation, index, new String[] { index }, source, entityClass);
+    }
+
+    /*
+        Search "indices" (e.g. partitions of a time range), timed under "index" (e.g. their pattern),
+        so each range does not get metrics of its own.
+    */
+    public <T> CompletableFuture<SearchHits<T>> searchAsync(String operation, String index, String[] indices,
+                                                            SearchSourceBuilder source, Class<T> entityClass) {
+        return search(operation, index, new SearchRequest(indices).source(source)).thenApply(response -> {
+            try {
+                return mapHits(response, entityClass);
+            } catch (RuntimeException e) {
+                operationMetrics.recordError(operation, index, e);
+                throw e;
+            }
+        });
+    }
+
+    /*
+        Search "index" with the low level client and return the response body as it came,
+        trimmed by "filter_path" to what RawHitsWriter needs. Nothing is parsed here.
+        Not collapsed or batched with other searches (those work on parsed responses).
+    */
+    public byte[] searchRaw(String index, SearchSourceBuilder source) throws IOException {
+        return searchRaw("search", index, source);
+    }
+
+    public byte[] searchRaw(String operation, String index, SearchSourceBuilder source) throws IOException {
+        long start = System.nanoTime();
+        byte[] body;
+        try {
+            body = sendRaw(operation, index, source);
+        } catch (IOException | RuntimeException e) {
+            operationMetrics.recordError(operation, index, e);
+            concurrencyLimiter.onError(e);
+            throw e;
+        }
+        // Hits are not counted, that would take parsing the body.
+        long took = rawTook(body);
+        operationMetrics.record(operation, index, start, took, -1, -1, body.length);
+        concurrencyLimiter.onSample(System.nanoTime() - start);
+        slowQueryLog.check(operation, index, source, start, took);
+        return body;
+    }
+
+    private byte[] sendRaw(String operation, String index, SearchSourceBuilder source) throws IOException {
+        Request request = new Request("POST", "/" + index + "/_search");
+        request.addParameter("filter_path", RAW_FILTER_PATH);
+        String preference = searchRouting.preference(operation, source);
+        if (preference != null)
+            request.addParameter("preference", preference);
+        if (searchRouting.isCacheable(source))
+            request.addParameter("request_cache", "true");
+        request.setJsonEntity(Strings.toString(source));
+        Response response = restHighLevelClient.getLowLevelClient().performRequest(request);
+        return EntityUtils.toByteArray(response.getEntity());
+    }
+
+    public CompletableFuture<AnalyzeResponse> analyzeAsync(AnalyzeRequest analyzeRequest) {
+        return analyzeAsync("analyze", analyzeRequest);
+    }
+
+    public CompletableFuture<AnalyzeResponse> analyzeAsync(String operation, AnalyzeRequest analyzeRequest) {
+        long start = System.nanoTime();
+        String index = analyzeRequest.index();
+        CompletableFuture<AnalyzeResponse> future = new CompletableFuture<>();
+        restHighLevelClient.indices().analyzeAsync(analyzeRequest, RequestOptions.DEFAULT, listener(future));
+        // "_analyze" reports no "took", all of it is counted as overhead.
+        return recordErrors(operation, index, future.thenApply(response -> {
+            operationMetrics.record(operation, index, start, -1, -1, -1);
+            concurrencyLimiter.onSample(System.nanoTime() - start);
+            return response;
+        }));
+    }
+
+    private void record(String operation, String index, SearchSourceBuilder source, long start, SearchResponse response) {
+        org.elasticsearch.search.SearchHit[] hits = response.getHits().getHits();
+        long bytes = 0;
+        for (org.elasticsearch.search.SearchHit hit : hits) {
+            BytesReference hitSource = hit.getSourceRef();
+            if (hitSource != null)
+                bytes += hitSource.length();
+        }
+        operationMetrics.record(operation, index, start, response.getTook().millis(), hits.length, bytes);
+        concurrencyLimiter.onSample(System.nanoTime() - start);
+        slowQueryLog.check(operation, index, source, start, response.getTook().millis());
+    }
+
+    private <T> CompletableFuture<T> recordErrors(String operation, String index, CompletableFuture<T> future) {
+        return future.whenComplete((result, error) -> {
+            if (error == null)
+                return;
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            operationMetrics.recordError(operation, index, cause);
+            concurrencyLimiter.onError(cause);
+        });
+    }
+
+    private static String index(SearchRequest searchRequest) {
+        String[] indices = searchRequest.indices();
+        if (indices.length == 1)
+            return indices[0];
+        return String.join(",", indices);
+    }
+
+    /*
+        "took" of a raw body, which starts with it: {"took":12,... (-1 when it does not).
+    */
+    static long rawTook(byte[] body) {
+        byte[] prefix = RAW_TOOK_PREFIX;
+        if (body.length <= prefix.length)
+            return -1;
+        for (int i = 0; i < prefix.length; i++)
+            if (body[i] != prefix[i])
+                return -1;
+        long took = 0;
+        int i = prefix.length;
+        for (; i < body.length && body[i] >= '0' && body[i] <= '9'; i++)
+            took = took * 10 + (body[i] - '0');
+        return i == prefix.length ? -1 : took;
+    }
+
+    public <T> SearchHits<T> mapHits(SearchResponse response, Class<T> entityClass) {
+        EntityReader<T> reader = entityReaders == null ? null : entityReaders.get(entityClass);
+        if (reader != null)
+            return readHits(response, reader);
+        SearchDocumentResponse documents = SearchDocumentResponse.from(response);
+        List<SearchHit<T>> hits = new ArrayList<>(documents.getSearchDocuments().size());
+        for (SearchDocument document : documents.getSearchDocuments()) {
+            T entity = elasticsearchConverter.read(entityClass, document);
+            hits.add(new SearchHit<>(document.getIndex(),
+                    document.hasId() ? document.getId() : null,
+                    document.getScore(),
+                    document.getSortValues(),
+                    document.getHighlightFields(),
+                    entity));
+        }
+        return new SearchHitsImpl<>(documents.getTotalHits(),
+                TotalHitsRelation.valueOf(documents.getTotalHitsRelation()),
+                documents.getMaxScore(),
+                documents.getScrollId(),
+                hits,
+                documents.getAggregations());
+    }
+
+    /*
+        Same SearchHits as mapHits() builds with the converter, entities read by "reader".
+    */
+    private static <T> SearchHits<T> readHits(SearchResponse response, EntityReader<T> reader) {
+        org.elasticsearch.search.SearchHits searchHits = response.getHits();
+        org.elasticsearch.search.SearchHit[] responseHits = searchHits.getHits();
+        List<SearchHit<T>> hits = new ArrayList<>(responseHits.length);
+        for (org.elasticsearch.search.SearchHit hit : responseHits) {
+            T entity;
+            try {
+                entity = EntityReaders.read(reader, hit.getSourceRef(), hit.getId());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read hit " + hit.getId() + " of " + hit.getIndex(), e);
+            }
+            hits.add(new SearchHit<>(hit.getIndex(),
+                    hit.getId(),
+                    hit.getScore(),
+                    hit.getSortValues(),
+                    highlightFields(hit),
+                    entity));
+        }
+        TotalHits totalHits = searchHits.getTotalHits();
+        return new SearchHitsImpl<>(totalHits != null ? totalHits.value : responseHits.length,
+                totalHits != null ? TotalHitsRelation.valueOf(totalHits.relation.name()) : TotalHitsRelation.OFF,
+                searchHits.getMaxScore(),
+                response.getScrollId(),
+                hits,
+                response.getAggregations());
+    }
+
+    private static Map<String, List<String>> highlightFields(org.elasticsearch.search.SearchHit hit) {
+        Map<String, HighlightField> fields = hit.getHighlightFields();
+        if (fields.isEmpty())
+            return Collections.emptyMap();
+        Map<String, List<String>> highlights = new LinkedHashMap<>();
+        for (Map.Entry<String, HighlightField> field : fields.entrySet()) {
+            List<String> fragments = new ArrayList<>(field.getValue().fragments().length);
+            for (Text fragment : field.getValue().fragments())
+                fragments.add(fragment.string());
+            highlights.put(field.getKey(), fragments);
+        }
+        return highlights;
+    }
+
+    /*
+        Wait for the result, for callers which still need the blocking API.
+        Failure of request is thrown as it is (not wrapped into CompletionException).
+    */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /*
+        Same as await(), but failure is only printed and null is returned.
+    */
+    public static <T> T awaitOrNull(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
+        }
+        return null;
+    }
+
+    static <T> ActionListener<T> listener(CompletableFuture<T> future) {
+        return ActionListener.wrap(future::complete, future::completeExceptionally);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.HedgeStats;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Hedged searches: when a search has not answered after the usual latency of its operation
+ ("percentile" of it), the same search is sent once more, and whichever answers first is
+ used. The other one is cancelled (closing its HTTP request makes elasticsearch cancel the
+ search task). So a single slow node (GC, merge, cold cache) no longer decides the tail.
+
+ - Second search carries its own "preference", so it is not bound to the shard copies the
+   first one was routed to, and the client sends it to the next node of its round robin.
+   Without node ids, a different copy is likely but not guaranteed.
+ - Hedges are paid from a budget which every search adds "budgetPercent" of one hedge to,
+   so the extra load stays under that share of searches (up to a small burst).
+ - Delay of an operation is its "percentile" latency since the last refresh, taken every
+   "refreshSeconds" once "minSamples" latencies are known; "maxDelayMs" until then.
+ - A failed search fails the caller only when the other one fails too, or was never sent.
+
+ Hedged searches are not batched into "_msearch" (a batch cannot be cancelled search by
+ search); identical searches are still collapsed before they get here (see SingleFlight).
+ **/
+@Component
+public class SearchHedger {
+
+    /*
+        Sends a search, returns what cancels it.
+    */
+    interface Sender {
+        Runnable send(SearchRequest request, ActionListener<SearchResponse> listener);
+    }
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+    // Budget is counted in millionths of a hedge, and at most this many hedges are saved up.
+    private static final long HEDGE = 1_000_000;
+    private static final long MAX_BUDGET = 10 * HEDGE;
+
+    private final Sender sender;
+    private final boolean enabled;
+    private final List<String> operations;
+    private final double percentile;
+    private final long minDelayMicros;
+    private final long maxDelayMicros;
+    private final int minSamples;
+    private final long budgetPerSearch;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicLong hedgeIds = new AtomicLong();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+
+    @Autowired
+    public SearchHedger(RestHighLevelClient restHighLevelClient, HedgeProperties properties) {
+        this((request, listener) -> restHighLevelClient.searchAsync(request, RequestOptions.DEFAULT, listener)::cancel,
+                properties);
+    }
+
+    SearchHedger(Sender sender, HedgeProperties properties) {
+        this.sender = sender;
+        this.enabled = properties.isEnabled();
+        this.operations = properties.getOperations();
+        this.percentile = properties.getPercentile();
+        this.minDelayMicros = TimeUnit.MILLISECONDS.toMicros(properties.getMinDelayMs());
+        this.maxDelayMicros = TimeUnit.MILLISECONDS.toMicros(properties.getMaxDelayMs());
+        this.minSamples = properties.getMinSamples();
+        this.budgetPerSearch = (long) (properties.getBudgetPercent() / 100 * HEDGE);
+        if (!enabled) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-hedger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::refreshDelays, properties.getRefreshSeconds(),
+                properties.getRefreshSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    public boolean applies(String operation) {
+        if (!enabled)
+            return false;
+        for (String prefix : operations)
+            if (operation.startsWith(prefix))
+                return true;
+        return false;
+    }
+
+    public CompletableFuture<SearchResponse> searchAsync(String operation, SearchRequest request) {
+        Latencies operationLatencies = latencies.computeIfAbsent(operation, key -> new Latencies(maxDelayMicros));
+        searches.increment();
+        addBudget();
+        Race race = new Race(request, operationLatencies);
+        race.cancelFirst = sender.send(request, race.listener(false));
+        synchronized (race) {
+            if (!race.future.isDone())
+                race.timer = scheduler.schedule(race::hedge, operationLatencies.delayMicros, TimeUnit.MICROSECONDS);
+        }
+        return race.future;
+    }
+
+    public HedgeStats stats() {
+        Map<String, Long> delays = new TreeMap<>();
+        latencies.forEach((operation, operationLatencies) -> delays.put(operation, operationLatencies.delayMicros));
+        return new HedgeStats(enabled, searches.sum(), hedges.sum(), wins.sum(), overBudget.sum(), delays);
+    }
+
+    void refreshDelays() {
+        for (Latencies operationLatencies : latencies.values()) {
+            operationLatencies.sinceRefresh.add(operationLatencies.recorder.getIntervalHistogram());
+            if (operationLatencies.sinceRefresh.getTotalCount() < minSamples)
+                continue;
+            long delay = operationLatencies.sinceRefresh.getValueAtPercentile(percentile);
+            operationLatencies.delayMicros = Math.max(minDelayMicros, Math.min(maxDelayMicros, delay));
+            operationLatencies.sinceRefresh.reset();
+        }
+    }
+
+    private void addBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current >= MAX_BUDGET)
+                return;
+        } while (!budget.compareAndSet(current, Math.min(MAX_BUDGET, current + budgetPerSearch)));
+    }
+
+    private boolean takeBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE)
+                return false;
+        } while (!budget.compareAndSet(current, current - HEDGE));
+        return true;
+    }
+
+    private static class Latencies {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        // Only touched by refreshDelays().
+        private final Histogram sinceRefresh = new Histogram(SIGNIFICANT_DIGITS);
+        private volatile long delayMicros;
+
+        Latencies(long delayMicros) {
+            this.delayMicros = delayMicros;
+        }
+    }
+
+    /*
+        First search and maybe its hedge; state changes are guarded by "this".
+    */
+    private class Race {
+        private final CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        private final SearchRequest request;
+        private final Latencies latencies;
+        private final long start = System.nanoTime();
+        private volatile Runnable cancelFirst;
+        private volatile Runnable cancelHedge;
+        private ScheduledFuture<?> timer;
+        private boolean hedgeSent;
+        private int failures;
+
+        Race(SearchRequest request, Latencies latencies) {
+            this.request = request;
+            this.latencies = latencies;
+        }
+
+        void hedge() {
+            synchronized (this) {
+                if (future.isDone())
+                    return;
+                if (!takeBudget()) {
+                    overBudget.increment();
+                    return;
+                }
+                hedgeSent = true;
+            }
+            hedges.increment();
+            SearchRequest hedge = new SearchRequest(request).preference("hedge-" + hedgeIds.incrementAndGet());
+            Runnable cancel = sender.send(hedge, listener(true));
+            cancelHedge = cancel;
+            // First search may have answered while the hedge was being sent.
+            if (future.isDone())
+                cancel.run();
+        }
+
+        ActionListener<SearchResponse> listener(boolean isHedge) {
+            return ActionListener.wrap(response -> answered(response, isHedge), e -> failed(e));
+        }
+
+        private void answered(SearchResponse response, boolean isHedge) {
+            synchronized (this) {
+                if (timer != null)
+                    timer.cancel(false);
+            }
+            if (!future.complete(response))
+                return;
+            latencies.recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            Runnable other = isHedge ? cancelFirst : cancelHedge;
+            if (isHedge)
+                wins.increment();
+            if (other != null)
+                other.run();
+        }
+
+        private void failed(Exception e) {
+            synchronized (this) {
+                if (future.isDone())
+                    return;
+                failures++;
+                // Wait for the other search, when there is one still running.
+                if (hedgeSent && failures < 2)
+                    return;
+                if (timer != null)
+                    timer.cancel(false);
+            }
+            future.completeExceptionally(e);
+        }
+    }
+}
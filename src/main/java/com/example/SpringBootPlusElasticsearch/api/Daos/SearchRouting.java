@@ -0,0 +1,127 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ Cache-affine routing of searches. Without a "preference", elasticsearch picks a copy of
+ every shard by its own ranking, so a search which was just answered from the shard
+ request cache (or warm pages of the OS) of one copy is often sent to another, cold one.
+
+ Searches of "operations" get a stable "preference", so elasticsearch keeps sending them
+ to the same copies:
+ - the session key of the HTTP request (header "sessionHeader") when there is one, so one
+   user sees consistent results while paging and keeps hitting the same caches;
+ - otherwise a key of their operation, one of "spread" picked by the query itself. The
+   same query always gets the same key, and a busy operation still uses "spread" copies
+   instead of one.
+ Key is derived from the query JSON, so every instance of the application picks the same
+ copies for the same query. A search which already has a preference is left as it is
+ (e.g. the second search of SearchHedger, which wants another copy on purpose).
+
+ Searches without hits ("size": 0, aggregations) are sent with "request_cache=true",
+ which caches them also where the index setting would not.
+ **/
+@Component
+public class SearchRouting {
+
+    private final boolean enabled;
+    private final List<String> operations;
+    private final int spread;
+    private final boolean requestCache;
+    private final Supplier<String> sessionKey;
+
+    private final LongAdder routedBySession = new LongAdder();
+    private final LongAdder routedByQuery = new LongAdder();
+    private final LongAdder requestCached = new LongAdder();
+
+    @Autowired
+    public SearchRouting(SearchRoutingProperties properties) {
+        this(properties, () -> header(properties.getSessionHeader()));
+    }
+
+    SearchRouting(SearchRoutingProperties properties, Supplier<String> sessionKey) {
+        this.enabled = properties.isEnabled();
+        this.operations = properties.getOperations();
+        this.spread = Math.max(1, properties.getSpread());
+        this.requestCache = properties.isRequestCache();
+        this.sessionKey = sessionKey;
+    }
+
+    /*
+        Set "preference" and "request_cache" of a search of "operation" which has none yet.
+    */
+    public void route(String operation, SearchRequest request) {
+        if (!enabled)
+            return;
+        if (request.requestCache() == null && isCacheable(request.source())) {
+            request.requestCache(true);
+            requestCached.increment();
+        }
+        if (request.preference() == null) {
+            String preference = preference(operation, request.source());
+            if (preference != null)
+                request.preference(preference);
+        }
+    }
+
+    /*
+        Preference for a search of "source" by "operation", null when it is not routed.
+    */
+    public String preference(String operation, SearchSourceBuilder source) {
+        if (!enabled || !applies(operation))
+            return null;
+        String session = sessionKey.get();
+        if (session != null && !session.isEmpty()) {
+            routedBySession.increment();
+            // Hashed, so user ids do not end up in task lists and slowlogs of the cluster.
+            return "session-" + Integer.toHexString(session.hashCode());
+        }
+        routedByQuery.increment();
+        if (spread == 1 || source == null)
+            return operation;
+        return operation + "-" + Math.floorMod(Strings.toString(source).hashCode(), spread);
+    }
+
+    public boolean isCacheable(SearchSourceBuilder source) {
+        return enabled && requestCache && source != null && source.size() == 0;
+    }
+
+    public long getRoutedBySession() {
+        return routedBySession.sum();
+    }
+
+    public long getRoutedByQuery() {
+        return routedByQuery.sum();
+    }
+
+    public long getRequestCached() {
+        return requestCached.sum();
+    }
+
+    private boolean applies(String operation) {
+        for (String prefix : operations)
+            if (operation.startsWith(prefix))
+                return true;
+        return false;
+    }
+
+    // Searches run on the thread of the HTTP request; refreshes in the background have none.
+    private static String header(String name) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes))
+            return null;
+        return ((ServletRequestAttributes) attributes).getRequest().getHeader(name);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ Runs at most one call per key at a time.
+
+ A call made while an identical call (same key) is still in flight does not run, it gets
+ the result of the call in flight. As soon as that call completes its key is forgotten,
+ so the next call runs again: results are shared, never cached.
+ **/
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        calls.increment();
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, leader);
+        if (running != null) {
+            collapsed.increment();
+            // Own future for every caller, so one caller can not complete or cancel it for others.
+            return running.thenApply(value -> value);
+        }
+
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, failure) -> {
+            // Forget the key before completing, so no later caller can join a finished call.
+            inFlight.remove(key, leader);
+            if (failure != null)
+                leader.completeExceptionally(failure);
+            else
+                leader.complete(value);
+        });
+        return leader.thenApply(value -> value);
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getCollapsed() {
+        return collapsed.sum();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.SlowQuery;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.profile.query.CollectorResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ Catches searches slower than "thresholdMs" (whole call, as the DAO saw it).
+
+ Every slow search is kept with its source in a ring buffer of "capacity" entries, read by
+ "/admin/slow-queries". A sampled fraction ("sampleRate") of them is sent again with
+ "profile": true, and the per shard breakdown of that run is added to its entry. So
+ expensive query shapes can be found without turning on slowlogs of the cluster.
+
+ Comparing "total" with "took" of an entry tells whether time went to elasticsearch or
+ to this side (batch window, connection pool, mapping of hits); the profile tells which
+ part of the query elasticsearch spent it on.
+
+ Profiled run is one more search of the same cost, so at most "maxProfilesInFlight" run
+ at the same time, the rest is only logged. It is sent straight to the client, so never
+ collapsed, batched, cached or timed with the searches of the application.
+ **/
+@Component
+public class SlowQueryLog {
+
+    private final BiConsumer<SearchRequest, ActionListener<SearchResponse>> search;
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int maxProfilesInFlight;
+
+    private final AtomicReferenceArray<SlowQuery> ring;
+    // Entries ever added; next one goes to slot "added % capacity".
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong slow = new AtomicLong();
+    private final AtomicInteger profilesInFlight = new AtomicInteger();
+
+    @Autowired
+    public SlowQueryLog(RestHighLevelClient restHighLevelClient, SlowQueryProperties properties) {
+        this((request, listener) -> restHighLevelClient.searchAsync(request, RequestOptions.DEFAULT, listener),
+                properties);
+    }
+
+    SlowQueryLog(BiConsumer<SearchRequest, ActionListener<SearchResponse>> search, SlowQueryProperties properties) {
+        this.search = search;
+        this.enabled = properties.isEnabled();
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getThresholdMs());
+        this.sampleRate = properties.getSampleRate();
+        this.maxProfilesInFlight = properties.getMaxProfilesInFlight();
+        this.ring = new AtomicReferenceArray<>(Math.max(1, properties.getCapacity()));
+    }
+
+    /*
+        Search of "source" on "index" by "operation" has completed, it started at "startNanos"
+        (System.nanoTime()). Nothing is done unless it was slow.
+    */
+    public void check(String operation, String index, SearchSourceBuilder source, long startNanos, long tookMillis) {
+        if (!enabled)
+            return;
+        long totalNanos = System.nanoTime() - startNanos;
+        if (totalNanos < thresholdNanos)
+            return;
+        slow.incrementAndGet();
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(totalNanos);
+        String json = source == null ? "{}" : Strings.toString(source);
+        Instant time = Instant.now();
+
+        if (source == null || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            add(new SlowQuery(operation, index, time, totalMillis, tookMillis, json,
+                    -1, Collections.emptyList(), "Not sampled"));
+            return;
+        }
+        if (profilesInFlight.incrementAndGet() > maxProfilesInFlight) {
+            profilesInFlight.decrementAndGet();
+            add(new SlowQuery(operation, index, time, totalMillis, tookMillis, json,
+                    -1, Collections.emptyList(), "Too many profiles in flight"));
+            return;
+        }
+        SlowQuery unprofiled = new SlowQuery(operation, index, time, totalMillis, tookMillis, json,
+                -1, Collections.emptyList(), null);
+        int slot = add(unprofiled);
+        SearchRequest request = new SearchRequest(index).source(source.shallowCopy().profile(true));
+        search.accept(request, ActionListener.wrap(response -> {
+            profilesInFlight.decrementAndGet();
+            ring.compareAndSet(slot, unprofiled, new SlowQuery(operation, index, time, totalMillis, tookMillis, json,
+                    response.getTook().millis(), shards(response), null));
+        }, e -> {
+            profilesInFlight.decrementAndGet();
+            ring.compareAndSet(slot, unprofiled, new SlowQuery(operation, index, time, totalMillis, tookMillis, json,
+                    -1, Collections.emptyList(), e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }));
+    }
+
+    /*
+        Slow queries, newest first, of "operation" (any when null) which took
+        at least "minMillis", at most "limit" of them.
+    */
+    public List<SlowQuery> recent(String operation, long minMillis, int limit) {
+        List<SlowQuery> queries = new ArrayList<>();
+        long end = added.get();
+        long begin = Math.max(0, end - ring.length());
+        for (long i = end - 1; i >= begin && queries.size() < limit; i--) {
+            SlowQuery query = ring.get((int) (i % ring.length()));
+            // Slot may have just been taken by a newer entry, or not written yet.
+            if (query == null || query.getTotalMillis() < minMillis)
+                continue;
+            if (operation == null || operation.equals(query.getOperation()))
+                queries.add(query);
+        }
+        return queries;
+    }
+
+    public long getSlow() {
+        return slow.get();
+    }
+
+    // Slot of the ring "query" went to; it is replaced there once its profile is known, unless
+    // a newer entry took the slot meanwhile.
+    private int add(SlowQuery query) {
+        int slot = (int) (added.getAndIncrement() % ring.length());
+        ring.set(slot, query);
+        return slot;
+    }
+
+    private static List<SlowQuery.ShardProfile> shards(SearchResponse response) {
+        Map<String, ProfileShardResult> results = response.getProfileResults();
+        if (results == null || results.isEmpty())
+            return Collections.emptyList();
+        List<SlowQuery.ShardProfile> shards = new ArrayList<>(results.size());
+        for (Map.Entry<String, ProfileShardResult> shard : results.entrySet()) {
+            long rewriteNanos = 0;
+            List<SlowQuery.ProfileNode> queries = new ArrayList<>();
+            List<SlowQuery.ProfileNode> collectors = new ArrayList<>();
+            // More than one only with a "global" aggregation.
+            for (QueryProfileShardResult query : shard.getValue().getQueryProfileResults()) {
+                rewriteNanos += query.getRewriteTime();
+                queries.addAll(nodes(query.getQueryResults()));
+                if (query.getCollectorResult() != null)
+                    collectors.add(node(query.getCollectorResult()));
+            }
+            List<SlowQuery.ProfileNode> aggregations = shard.getValue().getAggregationProfileResults() == null
+                    ? Collections.emptyList()
+                    : nodes(shard.getValue().getAggregationProfileResults().getProfileResults());
+            shards.add(new SlowQuery.ShardProfile(shard.getKey(), rewriteNanos, queries, collectors, aggregations));
+        }
+        return shards;
+    }
+
+    private static List<SlowQuery.ProfileNode> nodes(List<ProfileResult> results) {
+        List<SlowQuery.ProfileNode> nodes = new ArrayList<>(results.size());
+        for (ProfileResult result : results)
+            nodes.add(new SlowQuery.ProfileNode(result.getQueryName(), result.getLuceneDescription(),
+                    result.getTime(), breakdown(result.getTimeBreakdown()), nodes(result.getProfiledChildren())));
+        return nodes;
+    }
+
+    /*
+        Parsed breakdown holds Integers under its Long type when times are small, so it is copied.
+    */
+    private static Map<String, Long> breakdown(Map<String, ? extends Number> parsed) {
+        Map<String, Long> breakdown = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Number> time : parsed.entrySet())
+            breakdown.put(time.getKey(), time.getValue().longValue());
+        return breakdown;
+    }
+
+    private static SlowQuery.ProfileNode node(CollectorResult collector) {
+        List<SlowQuery.ProfileNode> children = new ArrayList<>(collector.getProfiledChildren().size());
+        for (CollectorResult child : collector.getProfiledChildren())
+            children.add(node(child));
+        return new SlowQuery.ProfileNode(collector.getName(), collector.getReason(), collector.getTime(),
+                null, children);
+    }
+}
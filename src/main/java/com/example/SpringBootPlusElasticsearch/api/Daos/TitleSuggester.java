@@ -0,0 +1,358 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.TitleSuggestion;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ Title autocomplete served from memory, without a query to elasticsearch.
+
+ - Titles are split into words the same way "title-EdgeNgram" analyzer does it
+   (runs of letters and digits, lowercased). A prefix matches a title when it is the
+   start of any word of the title, e.g. "matr" and "the matr" both match "The Matrix".
+ - Every title is stored once per word it can be matched from, in a weighted FST
+   (Lucene WFSTCompletionLookup), so top-K by popularity is found without looking at
+   every match. Popularity is imdb.votes + AWARD_WEIGHT * awards.wins.
+ - All movies are loaded from the index at start up. insertMovie/deleteData report
+   changes with put()/remove(). FST can not be changed in place, so it is rebuilt in
+   background "rebuild-delay-ms" after a change (many changes share one rebuild).
+   Deleted titles are left out of suggestions straight away.
+ - A load refreshes the index before it scrolls it, so every write made before the load
+   is seen. put()/remove() calls made while it scrolls are kept and replayed over what
+   was loaded, the scroll may be older than them.
+ - Loads and failures of lookups or rebuilds are recorded in OperationMetrics ("TitleSuggester.*").
+ **/
+@Component
+public class TitleSuggester {
+
+    // One award win counts as much as this many imdb votes.
+    static final long AWARD_WEIGHT = 1_000;
+    // Between suffix of title and number of the title in FST keys. Never part of a word.
+    private static final char SEPARATOR = '\u001f';
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final long RELOAD_AFTER_FAILURE_SECONDS = 60;
+    private static final String MOVIES_INDEX = "movies";
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final OperationMetrics operationMetrics;
+    private final long rebuildDelayMs;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    // Movie id -> its title and weight. Source of every rebuild.
+    private final Map<String, Entry> movies = new ConcurrentHashMap<>();
+    // Number of movies with each title, a title which drops to 0 is no longer suggested.
+    private final Map<String, Integer> titleCounts = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new long[0], null);
+    // Movie id -> its entry (null when removed) for every put/remove made while a load runs, null otherwise.
+    private Map<String, Entry> changedDuringLoad;
+
+    @Autowired
+    public TitleSuggester(ElasticsearchOperations elasticsearchOperations, OperationMetrics operationMetrics,
+                          @Value("${movies.suggest.rebuild-delay-ms:1000}") long rebuildDelayMs) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.operationMetrics = operationMetrics;
+        this.rebuildDelayMs = rebuildDelayMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "title-suggester");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (elasticsearchOperations != null)
+            reload();
+    }
+
+    /*
+        Top "size" titles having a word which starts with "prefix", most popular first.
+    */
+    public List<TitleSuggestion> suggest(String prefix, int size) {
+        String key = String.join(" ", words(prefix));
+        Snapshot current = snapshot;
+        if (key.isEmpty() || size <= 0 || current.lookup == null)
+            return Collections.emptyList();
+
+        List<Lookup.LookupResult> results;
+        try {
+            // Same title can match from several words, and some may be deleted: ask for more.
+            results = current.lookup.lookup(key, false, size * 3);
+        } catch (IOException e) {
+            operationMetrics.recordError("TitleSuggester.suggest", null, e);
+            return Collections.emptyList();
+        }
+
+        Set<Integer> seen = new LinkedHashSet<>();
+        List<TitleSuggestion> suggestions = new ArrayList<>(size);
+        for (Lookup.LookupResult result : results) {
+            String matched = result.key.toString();
+            int title = Integer.parseInt(matched.substring(matched.lastIndexOf(SEPARATOR) + 1));
+            if (!seen.add(title) || titleCounts.getOrDefault(current.titles[title], 0) == 0)
+                continue;
+            suggestions.add(new TitleSuggestion(current.titles[title], current.weights[title]));
+            if (suggestions.size() == size)
+                break;
+        }
+        return suggestions;
+    }
+
+    public synchronized void put(Movies movie) {
+        if (movie == null || movie.getId() == null || movie.getTitle() == null)
+            return;
+        change(movie.getId(), new Entry(movie.getTitle(), weight(movie)));
+    }
+
+    public synchronized void remove(String id) {
+        if (id == null)
+            return;
+        change(id, null);
+    }
+
+    // "entry" null removes the movie. Caller holds the lock.
+    private void change(String id, Entry entry) {
+        if (changedDuringLoad != null)
+            changedDuringLoad.put(id, entry);
+        if (apply(id, entry))
+            scheduleRebuild();
+    }
+
+    private boolean apply(String id, Entry entry) {
+        Entry previous = entry == null ? movies.remove(id) : movies.put(id, entry);
+        if (previous != null)
+            titleCounts.computeIfPresent(previous.title, (title, count) -> count - 1);
+        if (entry != null)
+            titleCounts.merge(entry.title, 1, Integer::sum);
+        return previous != null || entry != null;
+    }
+
+    /*
+        Load every movie from the index again, e.g. after a bulk ingestion.
+    */
+    public void reload() {
+        scheduler.execute(this::loadFromIndex);
+    }
+
+    private void loadFromIndex() {
+        Query query = new NativeSearchQuery(QueryBuilders.matchAllQuery())
+                .setPageable(PageRequest.of(0, LOAD_PAGE_SIZE, Sort.by("_doc")));
+        query.addSourceFilter(new FetchSourceFilter(new String[]{"title", "imdb.votes", "awards.wins"}, null));
+        try {
+            operationMetrics.time("TitleSuggester.load", MOVIES_INDEX, () -> {
+                load(() -> {
+                    // Writes whose put() came before the load started must be visible to the scroll.
+                    elasticsearchOperations.indexOps(Movies.class).refresh();
+                    return elasticsearchOperations.searchForStream(query, Movies.class);
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            scheduler.schedule(this::loadFromIndex, RELOAD_AFTER_FAILURE_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /*
+        Replace every movie with those of "source", keeping put()/remove() calls made while it is read.
+    */
+    void load(HitSource source) {
+        synchronized (this) {
+            changedDuringLoad = new HashMap<>();
+        }
+        Map<String, Entry> loaded = new HashMap<>();
+        try (CloseableIterator<SearchHit<Movies>> hits = source.open()) {
+            while (hits.hasNext()) {
+                Movies movie = hits.next().getContent();
+                if (movie.getId() != null && movie.getTitle() != null)
+                    loaded.put(movie.getId(), new Entry(movie.getTitle(), weight(movie)));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changedDuringLoad = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            movies.clear();
+            movies.putAll(loaded);
+            titleCounts.clear();
+            for (Entry entry : loaded.values())
+                titleCounts.merge(entry.title, 1, Integer::sum);
+            changedDuringLoad.forEach(this::apply);
+            changedDuringLoad = null;
+        }
+        rebuild();
+    }
+
+    interface HitSource {
+        CloseableIterator<SearchHit<Movies>> open();
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true))
+            scheduler.schedule(this::rebuild, rebuildDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    void rebuild() {
+        rebuildScheduled.set(false);
+
+        // Same title used by several movies is suggested once, with the highest weight.
+        Map<String, Long> titleWeights = new HashMap<>();
+        for (Entry entry : movies.values())
+            titleWeights.merge(entry.title, entry.weight, Math::max);
+
+        String[] titles = new String[titleWeights.size()];
+        long[] weights = new long[titles.length];
+        List<BytesRef> keys = new ArrayList<>();
+        List<Long> keyWeights = new ArrayList<>();
+        int title = 0;
+        for (Map.Entry<String, Long> entry : titleWeights.entrySet()) {
+            titles[title] = entry.getKey();
+            weights[title] = entry.getValue();
+            List<String> words = words(entry.getKey());
+            for (int start = 0; start < words.size(); start++) {
+                String key = String.join(" ", words.subList(start, words.size())) + SEPARATOR + title;
+                keys.add(new BytesRef(key));
+                keyWeights.add(weights[title]);
+            }
+            title++;
+        }
+
+        try {
+            WFSTCompletionLookup lookup = new WFSTCompletionLookup(new ByteBuffersDirectory(), "title-suggest", false);
+            lookup.build(new KeyIterator(keys, keyWeights));
+            snapshot = new Snapshot(titles, weights, lookup);
+        } catch (IOException e) {
+            operationMetrics.recordError("TitleSuggester.rebuild", null, e);
+        }
+    }
+
+    public int size() {
+        return snapshot.titles.length;
+    }
+
+    static long weight(Movies movie) {
+        long votes = movie.getImdb() != null && movie.getImdb().getVotes() != null ? movie.getImdb().getVotes() : 0;
+        long wins = movie.getAwards() != null && movie.getAwards().getWins() != null ? movie.getAwards().getWins() : 0;
+        // FST stores weights as int.
+        return Math.min(Integer.MAX_VALUE, Math.max(0, votes) + AWARD_WEIGHT * Math.max(0, wins));
+    }
+
+    /*
+        Words of "text" as "title-EdgeNgram" tokenizer sees them: runs of letters and digits, lowercased.
+    */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null)
+            return words;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Entry {
+        private final String title;
+        private final long weight;
+
+        Entry(String title, long weight) {
+            this.title = title;
+            this.weight = weight;
+        }
+    }
+
+    // Titles and FST built from them, replaced as a whole by every rebuild.
+    private static class Snapshot {
+        private final String[] titles;
+        private final long[] weights;
+        private final WFSTCompletionLookup lookup;
+
+        Snapshot(String[] titles, long[] weights, WFSTCompletionLookup lookup) {
+            this.titles = titles;
+            this.weights = weights;
+            this.lookup = lookup;
+        }
+    }
+
+    private static class KeyIterator implements InputIterator {
+        private final List<BytesRef> keys;
+        private final List<Long> weights;
+        private int current = -1;
+
+        KeyIterator(List<BytesRef> keys, List<Long> weights) {
+            this.keys = keys;
+            this.weights = weights;
+        }
+
+        @Override
+        public BytesRef next() {
+            return ++current < keys.size() ? keys.get(current) : null;
+        }
+
+        @Override
+        public long weight() {
+            return weights.get(current);
+        }
+
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
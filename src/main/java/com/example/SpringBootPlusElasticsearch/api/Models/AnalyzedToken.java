@@ -0,0 +1,58 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import org.elasticsearch.client.indices.AnalyzeResponse;
+
+/*
+    One token of analyzed text, same fields as token of "_analyze" response.
+*/
+public class AnalyzedToken {
+    private String term;
+    private int position;
+    private int positionLength;
+    private int startOffset;
+    private int endOffset;
+    private String type;
+
+    public AnalyzedToken(String term, int position, int positionLength, int startOffset, int endOffset, String type) {
+        this.term = term;
+        this.position = position;
+        this.positionLength = positionLength;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.type = type;
+    }
+
+    public AnalyzedToken(AnalyzeResponse.AnalyzeToken token) {
+        this(token.getTerm(), token.getPosition(), token.getPositionLength(),
+                token.getStartOffset(), token.getEndOffset(), token.getType());
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getPositionLength() {
+        return positionLength;
+    }
+
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return term + "[" + position + ", " + startOffset + "-" + endOffset + ", " + type + "]";
+    }
+}
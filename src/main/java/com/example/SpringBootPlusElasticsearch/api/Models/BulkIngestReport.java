@@ -0,0 +1,109 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.util.List;
+
+public class BulkIngestReport {
+    private String index;
+    private long documents;
+    private long failed;
+    private long bytes;
+    private long bulkRequests;
+    private long retries;
+    private long tookMillis;
+    private boolean completed;
+    private List<String> failures;
+
+    @Override
+    public String toString() {
+        return "BulkIngestReport{" +
+                "index='" + index + '\'' +
+                ", documents=" + documents +
+                ", failed=" + failed +
+                ", bytes=" + bytes +
+                ", bulkRequests=" + bulkRequests +
+                ", retries=" + retries +
+                ", tookMillis=" + tookMillis +
+                ", completed=" + completed +
+                '}';
+    }
+
+    public double getDocsPerSecond() {
+        return tookMillis == 0 ? documents : documents * 1000.0 / tookMillis;
+    }
+
+    public double getBytesPerSecond() {
+        return tookMillis == 0 ? bytes : bytes * 1000.0 / tookMillis;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(long documents) {
+        this.documents = documents;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getBulkRequests() {
+        return bulkRequests;
+    }
+
+    public void setBulkRequests(long bulkRequests) {
+        this.bulkRequests = bulkRequests;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public void setRetries(long retries) {
+        this.retries = retries;
+    }
+
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    public void setTookMillis(long tookMillis) {
+        this.tookMillis = tookMillis;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public List<String> getFailures() {
+        return failures;
+    }
+
+    public void setFailures(List<String> failures) {
+        this.failures = failures;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.util.Map;
+
+public class CompositeBucket {
+    // Value of each source of composite aggregation, e.g. {"director": "...", "language": "..."}
+    private Map<String, Object> key;
+    private long docCount;
+    // Value of each metric sub aggregation, by its name.
+    private Map<String, Double> metrics;
+
+    public CompositeBucket(Map<String, Object> key, long docCount, Map<String, Double> metrics) {
+        this.key = key;
+        this.docCount = docCount;
+        this.metrics = metrics;
+    }
+
+    public Map<String, Object> getKey() {
+        return key;
+    }
+
+    public long getDocCount() {
+        return docCount;
+    }
+
+    public Map<String, Double> getMetrics() {
+        return metrics;
+    }
+}
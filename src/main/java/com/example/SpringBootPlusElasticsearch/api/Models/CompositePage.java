@@ -0,0 +1,22 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.util.List;
+
+public class CompositePage {
+    private List<CompositeBucket> buckets;
+    // Cursor of next page, null on the last page.
+    private String after;
+
+    public CompositePage(List<CompositeBucket> buckets, String after) {
+        this.buckets = buckets;
+        this.after = after;
+    }
+
+    public List<CompositeBucket> getBuckets() {
+        return buckets;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.util.List;
+
+public class ElasticsearchClientStats {
+    // Connections in use / requests waiting for a connection / idle connections / pool size.
+    private int leased;
+    private int pending;
+    private int available;
+    private int max;
+    private List<NodeStats> nodes;
+
+    public ElasticsearchClientStats(int leased, int pending, int available, int max, List<NodeStats> nodes) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+        this.nodes = nodes;
+    }
+
+    /*
+        Share of the pool in use. Near 1 with "pending" above 0 means requests are
+        queued for a connection: pool (or the cluster behind it) is too small.
+    */
+    public double getUtilization() {
+        return max == 0 ? 0 : (double) leased / max;
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public List<NodeStats> getNodes() {
+        return nodes;
+    }
+
+    public static class NodeStats {
+        private String host;
+        private boolean up;
+        private long requestFailures;
+        private long failedChecks;
+        private long lastCheck;
+        private int leased;
+        private int pending;
+        private int available;
+        private int max;
+
+        public NodeStats(String host, boolean up, long requestFailures, long failedChecks, long lastCheck,
+                         int leased, int pending, int available, int max) {
+            this.host = host;
+            this.up = up;
+            this.requestFailures = requestFailures;
+            this.failedChecks = failedChecks;
+            this.lastCheck = lastCheck;
+            this.leased = leased;
+            this.pending = pending;
+            this.available = available;
+            this.max = max;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public boolean isUp() {
+            return up;
+        }
+
+        public long getRequestFailures() {
+            return requestFailures;
+        }
+
+        public long getFailedChecks() {
+            return failedChecks;
+        }
+
+        public long getLastCheck() {
+            return lastCheck;
+        }
+
+        public int getLeased() {
+            return leased;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public int getAvailable() {
+            return available;
+        }
+
+        public int getMax() {
+            return max;
+        }
+    }
+}
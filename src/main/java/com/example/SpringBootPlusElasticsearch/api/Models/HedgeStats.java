@@ -0,0 +1,59 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.util.Map;
+
+public class HedgeStats {
+    private boolean enabled;
+    // Searches which could be hedged, hedges sent, and hedges which answered first.
+    private long searches;
+    private long hedges;
+    private long wins;
+    // Hedges not sent because the budget was spent.
+    private long overBudget;
+    // Current delay before hedging, per operation, in microseconds.
+    private Map<String, Long> delayMicros;
+
+    public HedgeStats(boolean enabled, long searches, long hedges, long wins, long overBudget,
+                      Map<String, Long> delayMicros) {
+        this.enabled = enabled;
+        this.searches = searches;
+        this.hedges = hedges;
+        this.wins = wins;
+        this.overBudget = overBudget;
+        this.delayMicros = delayMicros;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getHedges() {
+        return hedges;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getOverBudget() {
+        return overBudget;
+    }
+
+    // Part of searches which were hedged.
+    public double getHedgeRate() {
+        return searches == 0 ? 0 : (double) hedges / searches;
+    }
+
+    // Part of hedges which answered before the first search.
+    public double getWinRate() {
+        return hedges == 0 ? 0 : (double) wins / hedges;
+    }
+
+    public Map<String, Long> getDelayMicros() {
+        return delayMicros;
+    }
+}
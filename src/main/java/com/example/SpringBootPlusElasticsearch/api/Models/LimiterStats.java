@@ -0,0 +1,71 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+public class LimiterStats {
+    // Requests allowed in flight now, and its bounds.
+    private int limit;
+    private int minLimit;
+    private int maxLimit;
+    private int inFlight;
+    private int inFlightLowPriority;
+    private long accepted;
+    // Turned away with 503, in total and of them low priority.
+    private long rejected;
+    private long rejectedLowPriority;
+    // How many times the limit was raised / cut.
+    private long increases;
+    private long decreases;
+
+    public LimiterStats(int limit, int minLimit, int maxLimit, int inFlight, int inFlightLowPriority,
+                        long accepted, long rejected, long rejectedLowPriority, long increases, long decreases) {
+        this.limit = limit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.inFlight = inFlight;
+        this.inFlightLowPriority = inFlightLowPriority;
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.rejectedLowPriority = rejectedLowPriority;
+        this.increases = increases;
+        this.decreases = decreases;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getInFlightLowPriority() {
+        return inFlightLowPriority;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getRejectedLowPriority() {
+        return rejectedLowPriority;
+    }
+
+    public long getIncreases() {
+        return increases;
+    }
+
+    public long getDecreases() {
+        return decreases;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.annotation.Id;
+
+import java.util.List;
+
+/*
+    Small view of a movie for list pages, returned by searches called with "fields=".
+    Large fields of Movies (plot, fullplot, poster, tomatoes, awards) are left out, and
+    fields which were not asked for are null and not written to the response.
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieSummary {
+    @Id
+    private String id;
+
+    private String title;
+    private Integer year;
+    private String rated;
+    private Integer runtime;
+    private String type;
+    private List<String> genres;
+    private List<String> directors;
+    private List<String> cast;
+    private List<String> languages;
+    private List<String> countries;
+    private Integer metacritic;
+    private IMDB imdb;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public String getRated() {
+        return rated;
+    }
+
+    public void setRated(String rated) {
+        this.rated = rated;
+    }
+
+    public Integer getRuntime() {
+        return runtime;
+    }
+
+    public void setRuntime(Integer runtime) {
+        this.runtime = runtime;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    public void setGenres(List<String> genres) {
+        this.genres = genres;
+    }
+
+    public List<String> getDirectors() {
+        return directors;
+    }
+
+    public void setDirectors(List<String> directors) {
+        this.directors = directors;
+    }
+
+    public List<String> getCast() {
+        return cast;
+    }
+
+    public void setCast(List<String> cast) {
+        this.cast = cast;
+    }
+
+    public List<String> getLanguages() {
+        return languages;
+    }
+
+    public void setLanguages(List<String> languages) {
+        this.languages = languages;
+    }
+
+    public List<String> getCountries() {
+        return countries;
+    }
+
+    public void setCountries(List<String> countries) {
+        this.countries = countries;
+    }
+
+    public Integer getMetacritic() {
+        return metacritic;
+    }
+
+    public void setMetacritic(Integer metacritic) {
+        this.metacritic = metacritic;
+    }
+
+    public IMDB getImdb() {
+        return imdb;
+    }
+
+    public void setImdb(IMDB imdb) {
+        this.imdb = imdb;
+    }
+}
@@ -8,7 +8,9 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
 
 import java.util.Date;
 
-@Document(indexName = "news_headlines")
+// Read alias of the monthly partitions (see NewsPartitions), which are created by their template.
+// NewsHeadLineDao does not search by this name but by NewsPartitions.readIndex(), which follows "news.partitions.enabled".
+@Document(indexName = "news_headlines_read", createIndex = false)
 public class NewsHeadLine {
 
     @Id
@@ -0,0 +1,80 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.util.List;
+
+public class NewsHistogram {
+    // False until counters were restored from their checkpoint or counted from the index.
+    private boolean ready;
+    // Last count, checkpoint or restore of the counters which failed, null when none did since start.
+    private String lastFailure;
+    // "yyyy-MM-dd" of first and last day listed, null when there is none.
+    private String from;
+    private String to;
+    // Categories with headlines in the range, by name; counts and totals are in the same order.
+    private List<String> categories;
+    private long[] totals;
+    private long total;
+    private List<Day> days;
+
+    public NewsHistogram(boolean ready, String lastFailure, String from, String to, List<String> categories,
+                         long[] totals, long total, List<Day> days) {
+        this.ready = ready;
+        this.lastFailure = lastFailure;
+        this.from = from;
+        this.to = to;
+        this.categories = categories;
+        this.totals = totals;
+        this.total = total;
+        this.days = days;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getLastFailure() {
+        return lastFailure;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public long[] getTotals() {
+        return totals;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public List<Day> getDays() {
+        return days;
+    }
+
+    public static class Day {
+        private String date;
+        private int[] counts;
+
+        public Day(String date, int[] counts) {
+            this.date = date;
+            this.counts = counts;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public int[] getCounts() {
+            return counts;
+        }
+    }
+}
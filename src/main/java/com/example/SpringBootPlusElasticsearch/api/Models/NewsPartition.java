@@ -0,0 +1,34 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+public class NewsPartition {
+    private String index;
+    // "yyyy-MM" of the headlines it holds.
+    private String month;
+    // Target of the write alias, i.e. the partition of the current month.
+    private boolean writeIndex;
+    // Write blocked and force-merged.
+    private boolean readOnly;
+
+    public NewsPartition(String index, String month, boolean writeIndex, boolean readOnly) {
+        this.index = index;
+        this.month = month;
+        this.writeIndex = writeIndex;
+        this.readOnly = readOnly;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public boolean isWriteIndex() {
+        return writeIndex;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+}
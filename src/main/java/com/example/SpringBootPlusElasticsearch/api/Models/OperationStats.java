@@ -0,0 +1,119 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+public class OperationStats {
+    // DAO operation, e.g. "MovieDao.getMoviesByTitle", and the index it searched.
+    private String operation;
+    private String index;
+    private long calls;
+    private long errors;
+    // Hits returned, bytes of their "_source", and bytes of responses read as a whole (raw searches), over all calls.
+    private long hits;
+    private long sourceBytes;
+    private long responseBytes;
+    private String lastError;
+    // Microseconds: whole call / "took" of elasticsearch / the rest (client side).
+    private Latency total;
+    private Latency took;
+    private Latency overhead;
+
+    public OperationStats(String operation, String index, long calls, long errors, long hits, long sourceBytes,
+                          long responseBytes, String lastError, Latency total, Latency took, Latency overhead) {
+        this.operation = operation;
+        this.index = index;
+        this.calls = calls;
+        this.errors = errors;
+        this.hits = hits;
+        this.sourceBytes = sourceBytes;
+        this.responseBytes = responseBytes;
+        this.lastError = lastError;
+        this.total = total;
+        this.took = took;
+        this.overhead = overhead;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getSourceBytes() {
+        return sourceBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public Latency getTotal() {
+        return total;
+    }
+
+    public Latency getTook() {
+        return took;
+    }
+
+    public Latency getOverhead() {
+        return overhead;
+    }
+
+    public static class Latency {
+        private long count;
+        private long mean;
+        private long p50;
+        private long p99;
+        private long p999;
+        private long max;
+
+        public Latency(long count, long mean, long p50, long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
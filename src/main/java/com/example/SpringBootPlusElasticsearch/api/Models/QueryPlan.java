@@ -0,0 +1,42 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.time.Instant;
+import java.util.List;
+
+public class QueryPlan {
+    private String operation;
+    private Instant time;
+    // Query as the DAO built it, and as it was sent, both as JSON.
+    private String before;
+    private String after;
+    // What the planner changed, one line per change.
+    private List<String> changes;
+
+    public QueryPlan(String operation, Instant time, String before, String after, List<String> changes) {
+        this.operation = operation;
+        this.time = time;
+        this.before = before;
+        this.after = after;
+        this.changes = changes;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Instant getTime() {
+        return time;
+    }
+
+    public String getBefore() {
+        return before;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public List<String> getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.time.Instant;
+import java.util.List;
+
+public class RequestCacheReport {
+    // Searches given a preference by session or by query, and searches sent with "request_cache=true".
+    private long routedBySession;
+    private long routedByQuery;
+    private long requestCached;
+    // When counters of "before" were taken; "after" is everything since.
+    private Instant baselineTime;
+    private List<IndexCache> indices;
+
+    public RequestCacheReport(long routedBySession, long routedByQuery, long requestCached,
+                              Instant baselineTime, List<IndexCache> indices) {
+        this.routedBySession = routedBySession;
+        this.routedByQuery = routedByQuery;
+        this.requestCached = requestCached;
+        this.baselineTime = baselineTime;
+        this.indices = indices;
+    }
+
+    public long getRoutedBySession() {
+        return routedBySession;
+    }
+
+    public long getRoutedByQuery() {
+        return routedByQuery;
+    }
+
+    public long getRequestCached() {
+        return requestCached;
+    }
+
+    public Instant getBaselineTime() {
+        return baselineTime;
+    }
+
+    public List<IndexCache> getIndices() {
+        return indices;
+    }
+
+    /*
+        Shard request cache of one index, summed over all its shard copies.
+    */
+    public static class IndexCache {
+        private String index;
+        private long memorySizeBytes;
+        private long evictions;
+        private Rate before;
+        private Rate after;
+
+        public IndexCache(String index, long memorySizeBytes, long evictions, Rate before, Rate after) {
+            this.index = index;
+            this.memorySizeBytes = memorySizeBytes;
+            this.evictions = evictions;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public long getMemorySizeBytes() {
+            return memorySizeBytes;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public Rate getBefore() {
+            return before;
+        }
+
+        public Rate getAfter() {
+            return after;
+        }
+    }
+
+    public static class Rate {
+        private long hits;
+        private long misses;
+
+        public Rate(long hits, long misses) {
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+}
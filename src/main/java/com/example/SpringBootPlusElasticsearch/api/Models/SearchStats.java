@@ -0,0 +1,27 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+public class SearchStats {
+    // Searches asked for by DAO classes.
+    private long searches;
+    // Searches which joined an identical search already in flight, instead of being sent.
+    private long collapsed;
+    private int inFlight;
+
+    public SearchStats(long searches, long collapsed, int inFlight) {
+        this.searches = searches;
+        this.collapsed = collapsed;
+        this.inFlight = inFlight;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getCollapsed() {
+        return collapsed;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+}
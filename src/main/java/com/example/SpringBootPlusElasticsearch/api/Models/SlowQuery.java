@@ -0,0 +1,150 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public class SlowQuery {
+    private String operation;
+    private String index;
+    private Instant time;
+    // Whole call as the DAO saw it, and "took" of elasticsearch (-1 when not known).
+    private long totalMillis;
+    private long tookMillis;
+    // Search source as JSON.
+    private String source;
+    // Of the profiled run, with its breakdown per shard. Or why it was not profiled; neither is
+    // set while the profiled run has not answered.
+    private long profileTookMillis;
+    private List<ShardProfile> shards;
+    private String profileError;
+
+    public SlowQuery(String operation, String index, Instant time, long totalMillis, long tookMillis, String source,
+                     long profileTookMillis, List<ShardProfile> shards, String profileError) {
+        this.operation = operation;
+        this.index = index;
+        this.time = time;
+        this.totalMillis = totalMillis;
+        this.tookMillis = tookMillis;
+        this.source = source;
+        this.profileTookMillis = profileTookMillis;
+        this.shards = shards;
+        this.profileError = profileError;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public Instant getTime() {
+        return time;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getProfileTookMillis() {
+        return profileTookMillis;
+    }
+
+    public List<ShardProfile> getShards() {
+        return shards;
+    }
+
+    public String getProfileError() {
+        return profileError;
+    }
+
+    public static class ShardProfile {
+        // "[node][index][shard]"
+        private String shard;
+        private long rewriteNanos;
+        private List<ProfileNode> queries;
+        private List<ProfileNode> collectors;
+        private List<ProfileNode> aggregations;
+
+        public ShardProfile(String shard, long rewriteNanos, List<ProfileNode> queries,
+                            List<ProfileNode> collectors, List<ProfileNode> aggregations) {
+            this.shard = shard;
+            this.rewriteNanos = rewriteNanos;
+            this.queries = queries;
+            this.collectors = collectors;
+            this.aggregations = aggregations;
+        }
+
+        public String getShard() {
+            return shard;
+        }
+
+        public long getRewriteNanos() {
+            return rewriteNanos;
+        }
+
+        public List<ProfileNode> getQueries() {
+            return queries;
+        }
+
+        public List<ProfileNode> getCollectors() {
+            return collectors;
+        }
+
+        public List<ProfileNode> getAggregations() {
+            return aggregations;
+        }
+    }
+
+    /*
+        One query, collector or aggregation of the profile tree, e.g. "BooleanQuery" with
+        its Lucene description, time spent in it (children included), and where it went
+        ("breakdown": create_weight, next_doc, score...). Collectors have a reason, no breakdown.
+    */
+    public static class ProfileNode {
+        private String type;
+        private String description;
+        private long timeNanos;
+        private Map<String, Long> breakdown;
+        private List<ProfileNode> children;
+
+        public ProfileNode(String type, String description, long timeNanos,
+                           Map<String, Long> breakdown, List<ProfileNode> children) {
+            this.type = type;
+            this.description = description;
+            this.timeNanos = timeNanos;
+            this.breakdown = breakdown;
+            this.children = children;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public Map<String, Long> getBreakdown() {
+            return breakdown;
+        }
+
+        public List<ProfileNode> getChildren() {
+            return children;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.SpringBootPlusElasticsearch.api.Models;
+
+public class TitleSuggestion {
+    private String title;
+    // Popularity of the title, suggestions are ordered by it.
+    private long weight;
+
+    public TitleSuggestion(String title, long weight) {
+        this.title = title;
+        this.weight = weight;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+}
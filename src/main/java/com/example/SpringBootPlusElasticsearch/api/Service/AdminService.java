@@ -0,0 +1,132 @@
+package com.example.SpringBootPlusElasticsearch.api.Service;
+
+import com.example.SpringBootPlusElasticsearch.Config.ElasticsearchNodeMonitor;
+import com.example.SpringBootPlusElasticsearch.api.Daos.ConcurrencyLimiter;
+import com.example.SpringBootPlusElasticsearch.api.Daos.OperationMetrics;
+import com.example.SpringBootPlusElasticsearch.api.Daos.QueryPlanner;
+import com.example.SpringBootPlusElasticsearch.api.Daos.RequestCacheMonitor;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SearchExecutor;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SearchHedger;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SlowQueryLog;
+import com.example.SpringBootPlusElasticsearch.api.Models.ElasticsearchClientStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.HedgeStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.LimiterStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.OperationStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryPlan;
+import com.example.SpringBootPlusElasticsearch.api.Models.RequestCacheReport;
+import com.example.SpringBootPlusElasticsearch.api.Models.SearchStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.SlowQuery;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Operational information about the application itself (not about any index).
+*/
+@Service
+public class AdminService {
+
+    private final PoolingNHttpClientConnectionManager connectionManager;
+    private final ElasticsearchNodeMonitor nodeMonitor;
+    private final SearchExecutor searchExecutor;
+    private final OperationMetrics operationMetrics;
+    private final SlowQueryLog slowQueryLog;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final SearchHedger searchHedger;
+    private final RequestCacheMonitor requestCacheMonitor;
+    private final QueryPlanner queryPlanner;
+
+    @Autowired
+    public AdminService(PoolingNHttpClientConnectionManager connectionManager,
+                        ElasticsearchNodeMonitor nodeMonitor,
+                        SearchExecutor searchExecutor,
+                        OperationMetrics operationMetrics,
+                        SlowQueryLog slowQueryLog,
+                        ConcurrencyLimiter concurrencyLimiter,
+                        SearchHedger searchHedger,
+                        RequestCacheMonitor requestCacheMonitor,
+                        QueryPlanner queryPlanner)
+    {
+        this.connectionManager = connectionManager;
+        this.nodeMonitor = nodeMonitor;
+        this.searchExecutor = searchExecutor;
+        this.operationMetrics = operationMetrics;
+        this.slowQueryLog = slowQueryLog;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.searchHedger = searchHedger;
+        this.requestCacheMonitor = requestCacheMonitor;
+        this.queryPlanner = queryPlanner;
+    }
+
+    public SearchStats getSearchStats()
+    {
+        return searchExecutor.stats();
+    }
+
+    public List<OperationStats> getOperationStats()
+    {
+        return operationMetrics.stats();
+    }
+
+    public List<SlowQuery> getSlowQueries(String operation, long minMillis, int limit)
+    {
+        return slowQueryLog.recent(operation, minMillis, limit);
+    }
+
+    public LimiterStats getLimiterStats()
+    {
+        return concurrencyLimiter.stats();
+    }
+
+    public HedgeStats getHedgeStats()
+    {
+        return searchHedger.stats();
+    }
+
+    public RequestCacheReport getRequestCacheReport()
+    {
+        try {
+            return requestCacheMonitor.report();
+        } catch (IOException e) {
+            // Without the counters of elasticsearch there is nothing to report.
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                    "Request cache stats of elasticsearch: " + e.getMessage(), e);
+        }
+    }
+
+    public void resetRequestCacheBaseline()
+    {
+        requestCacheMonitor.resetBaseline();
+    }
+
+    public List<QueryPlan> getQueryPlans(String operation)
+    {
+        return queryPlanner.plans(operation);
+    }
+
+    public ElasticsearchClientStats getClientStats()
+    {
+        List<ElasticsearchClientStats.NodeStats> nodes = new ArrayList<>();
+        for (HttpHost host : nodeMonitor.getHosts()) {
+            PoolStats route = connectionManager.getStats(new HttpRoute(host));
+            nodes.add(new ElasticsearchClientStats.NodeStats(host.toURI(),
+                    nodeMonitor.isUp(host),
+                    nodeMonitor.getRequestFailures(host),
+                    nodeMonitor.getFailedChecks(host),
+                    nodeMonitor.getLastCheck(host),
+                    route.getLeased(), route.getPending(), route.getAvailable(), route.getMax()));
+        }
+        PoolStats total = connectionManager.getTotalStats();
+        return new ElasticsearchClientStats(total.getLeased(), total.getPending(),
+                total.getAvailable(), total.getMax(), nodes);
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /*
     Each function in this class is redirected to its Dao class which
@@ -42,11 +43,24 @@ public class BankService {
         return bankDao.getAllByFirstName(name);
     }
 
+    public CompletableFuture<SearchHits<Bank>> getAllByFirstNameAsync(String name)
+    {
+        return bankDao.getAllByFirstNameAsync(name);
+    }
+
     public SearchHits<Bank> getAllByCity(String name) {
         return bankDao.getAllByCity(name);
     }
 
+    public CompletableFuture<SearchHits<Bank>> getAllByCityAsync(String name) {
+        return bankDao.getAllByCityAsync(name);
+    }
+
     public SearchHits<Bank> getAllByState(String name) {
         return bankDao.getAllByState(name);
     }
+
+    public CompletableFuture<SearchHits<Bank>> getAllByStateAsync(String name) {
+        return bankDao.getAllByStateAsync(name);
+    }
 }
@@ -1,14 +1,31 @@
 package com.example.SpringBootPlusElasticsearch.api.Service;
 
+import com.example.SpringBootPlusElasticsearch.api.Daos.BadRequestException;
+import com.example.SpringBootPlusElasticsearch.api.Daos.CompositeCursor;
 import com.example.SpringBootPlusElasticsearch.api.Daos.MovieDao;
+import com.example.SpringBootPlusElasticsearch.api.Daos.MovieProjection;
+import com.example.SpringBootPlusElasticsearch.api.Daos.RefreshAheadValue;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SearchExecutor;
+import com.example.SpringBootPlusElasticsearch.api.Models.AnalyzedToken;
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
+import com.example.SpringBootPlusElasticsearch.api.Models.CompositePage;
+import com.example.SpringBootPlusElasticsearch.api.Models.MovieSummary;
 import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
-import org.elasticsearch.client.indices.AnalyzeResponse;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryCacheStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.TitleSuggestion;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /*
     Each function in this class is redirected to its Dao class which
@@ -18,16 +35,64 @@ import java.util.List;
 public class MovieService {
 
     private final MovieDao movieDao;
+    private final ObjectMapper objectMapper;
+    private final int exportPageSize;
+    private final int suggestSize;
+
+    private static final int MAX_SUGGEST_SIZE = 50;
+    // from + size of one search can not go past index.max_result_window.
+    private static final int MAX_RESULT_WINDOW = 10_000;
 
     @Autowired
-    public MovieService(MovieDao movieDao){
+    public MovieService(MovieDao movieDao,
+                        ObjectMapper objectMapper,
+                        @Value("${movies.export.page-size:1000}") int exportPageSize,
+                        @Value("${movies.suggest.size:10}") int suggestSize){
         this.movieDao = movieDao;
+        this.objectMapper = objectMapper;
+        this.exportPageSize = exportPageSize;
+        this.suggestSize = suggestSize;
+    }
+
+    public QueryCacheStats getCacheStats() {
+        return movieDao.getCacheStats();
     }
 
     public List<Movies> getAllMovies() {
         return movieDao.getAllMovies();
     }
 
+    /*
+        Write every movie to "out" as NDJSON (one JSON document per line).
+        Output is flushed after each page, so client starts receiving data
+        as soon as first page comes back from elasticsearch.
+        A page is at most MAX_RESULT_WINDOW movies, a larger "pageSize" is cut to it.
+    */
+    public long exportAllMovies(OutputStream out, Integer pageSize, String... ListOfFields) throws IOException {
+        int size = Math.min((pageSize == null || pageSize <= 0) ? exportPageSize : pageSize, MAX_RESULT_WINDOW);
+        long[] written = {0};
+        try {
+            movieDao.streamAllMovies(size, ListOfFields, movie -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(movie));
+                    out.write('\n');
+                    if (++written[0] % size == 0)
+                        out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return written[0];
+    }
+
+    public List<TitleSuggestion> suggestTitles(String prefix, Integer size) {
+        return movieDao.suggestTitles(prefix, (size == null || size <= 0) ? suggestSize : Math.min(size, MAX_SUGGEST_SIZE));
+    }
+
     public Movies insertMovie(Movies moviesObj) {
         return movieDao.insertMovie(moviesObj);
     }
@@ -40,63 +105,249 @@ public class MovieService {
         return movieDao.getMoviesByCastMust(cast);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesByCastMustAsync(String... cast) {
+        return movieDao.getMoviesByCastMustAsync(cast);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByCastMustAsync(String[] cast, MovieProjection projection) {
+        return movieDao.getMoviesByCastMustAsync(cast, projection);
+    }
+
+    public void getMoviesByCastMustRaw(String[] cast, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        movieDao.getMoviesByCastMustRaw(cast, projection, from, size, out);
+    }
+
     public SearchHits<Movies> getMoviesByTitle(String movieTitle) {
         return movieDao.getMoviesByTitle(movieTitle);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesByTitleAsync(String movieTitle) {
+        return movieDao.getMoviesByTitleAsync(movieTitle);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByTitleAsync(String movieTitle, MovieProjection projection) {
+        return movieDao.getMoviesByTitleAsync(movieTitle, projection);
+    }
+
+    public void getMoviesByTitleRaw(String movieTitle, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        movieDao.getMoviesByTitleRaw(movieTitle, projection, from, size, out);
+    }
+
     public SearchHits<Movies> getMoviesByCastShould(int minMatch, String[] cast) {
         if(minMatch > cast.length)
             return null;
         return movieDao.getMoviesByCastShould(minMatch,cast);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesByCastShouldAsync(int minMatch, String[] cast) {
+        if(minMatch > cast.length)
+            return CompletableFuture.completedFuture(null);
+        return movieDao.getMoviesByCastShouldAsync(minMatch,cast);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByCastShouldAsync(int minMatch, String[] cast, MovieProjection projection) {
+        if(minMatch > cast.length)
+            return CompletableFuture.completedFuture(null);
+        return movieDao.getMoviesByCastShouldAsync(minMatch, cast, projection);
+    }
+
+    public void getMoviesByCastShouldRaw(int minMatch, String[] cast, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        movieDao.getMoviesByCastShouldRaw(minMatch, cast, projection, from, size, out);
+    }
+
     public SearchHits<Movies> getMoviesOfDirectors(String directorName){
         return movieDao.getMoviesOfDirectors(directorName);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesOfDirectorsAsync(String directorName){
+        return movieDao.getMoviesOfDirectorsAsync(directorName);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesOfDirectorsAsync(String directorName, MovieProjection projection){
+        return movieDao.getMoviesOfDirectorsAsync(directorName, projection);
+    }
+
+    public void getMoviesOfDirectorsRaw(String directorName, MovieProjection projection, int from, int size, OutputStream out) throws IOException{
+        movieDao.getMoviesOfDirectorsRaw(directorName, projection, from, size, out);
+    }
+
     public SearchHits<Movies> getMoviesByFullPlot(String plotData) {
         return movieDao.getMoviesByFullPlot(plotData);
     }
 
-    public List<AnalyzeResponse.AnalyzeToken> trialAnalyzer(String analyzerType, String... textToAnalyze)
+    public CompletableFuture<SearchHits<Movies>> getMoviesByFullPlotAsync(String plotData) {
+        return movieDao.getMoviesByFullPlotAsync(plotData);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByFullPlotAsync(String plotData, MovieProjection projection) {
+        return movieDao.getMoviesByFullPlotAsync(plotData, projection);
+    }
+
+    public void getMoviesByFullPlotRaw(String plotData, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        movieDao.getMoviesByFullPlotRaw(plotData, projection, from, size, out);
+    }
+
+    public List<AnalyzedToken> trialAnalyzer(String analyzerType, String... textToAnalyze)
     {
         return movieDao.TrialAnalyzer(analyzerType, textToAnalyze);
     }
 
+    public CompletableFuture<List<AnalyzedToken>> trialAnalyzerAsync(String analyzerType, String... textToAnalyze)
+    {
+        return movieDao.TrialAnalyzerAsync(analyzerType, textToAnalyze);
+    }
+
     public SearchHits<Movies> getMoviesByTitleUpdated(String movie)
     {
         return movieDao.getMoviesByTitleUpdated(movie);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesByTitleUpdatedAsync(String movie)
+    {
+        return movieDao.getMoviesByTitleUpdatedAsync(movie);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByTitleUpdatedAsync(String movie, MovieProjection projection)
+    {
+        return movieDao.getMoviesByTitleUpdatedAsync(movie, projection);
+    }
+
+    public void getMoviesByTitleUpdatedRaw(String movie, MovieProjection projection, int from, int size, OutputStream out) throws IOException
+    {
+        movieDao.getMoviesByTitleUpdatedRaw(movie, projection, from, size, out);
+    }
+
     public SearchHits<Movies> getMoviesByCastExact(String castName) {
         return movieDao.getMoviesByCastExact(castName);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesByCastExactAsync(String castName) {
+        return movieDao.getMoviesByCastExactAsync(castName);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByCastExactAsync(String castName, MovieProjection projection) {
+        return movieDao.getMoviesByCastExactAsync(castName, projection);
+    }
+
+    public void getMoviesByCastExactRaw(String castName, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        movieDao.getMoviesByCastExactRaw(castName, projection, from, size, out);
+    }
+
     public org.elasticsearch.search.SearchHits getMoviesByCastExact(String castName, String... ListOfFields)
     {
         return movieDao.getMoviesByCastExact(castName,ListOfFields);
     }
 
+    public CompletableFuture<org.elasticsearch.search.SearchHits> getMoviesByCastExactAsync(String castName, String... ListOfFields)
+    {
+        return movieDao.getMoviesByCastExactAsync(castName,ListOfFields);
+    }
+
     public SearchHits<Movies> getMoviesByPlot(String movieDescription) {
         return movieDao.getMoviesByPlot(movieDescription);
     }
+
+    public CompletableFuture<SearchHits<Movies>> getMoviesByPlotAsync(String movieDescription) {
+        return movieDao.getMoviesByPlotAsync(movieDescription);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByPlotAsync(String movieDescription, MovieProjection projection) {
+        return movieDao.getMoviesByPlotAsync(movieDescription, projection);
+    }
+
+    public void getMoviesByPlotRaw(String movieDescription, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        movieDao.getMoviesByPlotRaw(movieDescription, projection, from, size, out);
+    }
     public SearchHits<Movies> getMoviesByPlot_2(String movieDescription) {
         return movieDao.getMoviesByPlot_2(movieDescription);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesByPlot_2Async(String movieDescription) {
+        return movieDao.getMoviesByPlot_2Async(movieDescription);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByPlot_2Async(String movieDescription, MovieProjection projection) {
+        return movieDao.getMoviesByPlot_2Async(movieDescription, projection);
+    }
+
+    public void getMoviesByPlot_2Raw(String movieDescription, MovieProjection projection, int from, int size, OutputStream out) throws IOException {
+        movieDao.getMoviesByPlot_2Raw(movieDescription, projection, from, size, out);
+    }
+
     public SearchHits<Movies> getMoviesByPlot_3(String PlotData)
     {
         return movieDao.getMoviesByPlot_3(PlotData);
     }
 
+    public CompletableFuture<SearchHits<Movies>> getMoviesByPlot_3Async(String PlotData)
+    {
+        return movieDao.getMoviesByPlot_3Async(PlotData);
+    }
+
+    public CompletableFuture<SearchHits<MovieSummary>> getMoviesByPlot_3Async(String PlotData, MovieProjection projection)
+    {
+        return movieDao.getMoviesByPlot_3Async(PlotData, projection);
+    }
+
+    public void getMoviesByPlot_3Raw(String PlotData, MovieProjection projection, int from, int size, OutputStream out) throws IOException
+    {
+        movieDao.getMoviesByPlot_3Raw(PlotData, projection, from, size, out);
+    }
+
     public Aggregations getDirectorsMovieMetric(String... ListOfFields) {
         return movieDao.getDirectorsMovieMetric(ListOfFields);
     }
 
+    public CompletableFuture<RefreshAheadValue.Snapshot<Aggregations>> getDirectorsMovieMetricAsync(String... ListOfFields) {
+        return movieDao.getDirectorsMovieMetricAsync(ListOfFields);
+    }
+
     public Aggregations getLanguageBasedMetric_1()
     {
         return movieDao.getLanguageBasedMetric_1();
     }
+
+    public CompletableFuture<RefreshAheadValue.Snapshot<Aggregations>> getLanguageBasedMetric_1Async()
+    {
+        return movieDao.getLanguageBasedMetric_1Async();
+    }
+    public CompletableFuture<CompositePage> getDirectorsMovieMetricPageAsync(Integer pageSize, String after) {
+        return movieDao.getDirectorsMovieMetricPageAsync(compositePageSize(pageSize), CompositeCursor.decode(after));
+    }
+
+    public CompletableFuture<CompositePage> getLanguageBasedMetricPageAsync(Integer pageSize, String after) {
+        return movieDao.getLanguageBasedMetricPageAsync(compositePageSize(pageSize), CompositeCursor.decode(after));
+    }
+
+    /*
+        Write every page of director (or director x language when "byLanguage") metrics
+        to "out", starting after "afterKey" (cursor of the request decoded by CompositeCursor,
+        before anything is streamed, so that a bad one answers 400). Each page is one line of
+        NDJSON and carries the cursor of next page, so an interrupted export can be resumed
+        from the last line received.
+    */
+    public long exportDirectorMetrics(OutputStream out, boolean byLanguage, Integer pageSize,
+                                      Map<String, Object> afterKey) throws IOException {
+        int size = compositePageSize(pageSize);
+        long buckets = 0;
+        Map<String, Object> cursor = afterKey;
+        do {
+            CompositePage page = SearchExecutor.await(byLanguage
+                    ? movieDao.getLanguageBasedMetricPageAsync(size, cursor)
+                    : movieDao.getDirectorsMovieMetricPageAsync(size, cursor));
+            out.write(objectMapper.writeValueAsBytes(page));
+            out.write('\n');
+            out.flush();
+            buckets += page.getBuckets().size();
+            cursor = CompositeCursor.decode(page.getAfter());
+        } while (cursor != null);
+        return buckets;
+    }
+
+    private int compositePageSize(Integer pageSize) {
+        return (pageSize == null || pageSize <= 0) ? MovieDao.MAX_COMPOSITE_PAGE_SIZE : pageSize;
+    }
+
     public boolean CreateIndexTemplate(String NameOfTemplate){
         return movieDao.CreateIndexTemplate(NameOfTemplate);
     }
@@ -113,9 +364,24 @@ public class MovieService {
         return movieDao.CreatePipeline(pipelineName,fileName);
     }
 
-    public void IndexDocumentWithPipeline(String indexName,
-                                          String indexFilename,
-                                          String pipelineName){
-        movieDao.IndexDocumentWithPipeline(indexName, indexFilename, pipelineName);
+    public BulkIngestReport IndexDocumentWithPipeline(String indexName,
+                                                      String indexFilename,
+                                                      String pipelineName){
+        return movieDao.IndexDocumentWithPipeline(indexName, indexFilename, pipelineName);
+    }
+
+    /*
+        Checks of the parameters of the "...Raw" searches. Those stream their answer, so a
+        controller must call these before it returns the body: once the body is being written,
+        a bad parameter can only end in a truncated response instead of 400.
+    */
+    public static void checkPage(int from, int size) {
+        if (from < 0 || size < 0 || from + size > MAX_RESULT_WINDOW)
+            throw new BadRequestException("from and size must be positive, and from + size at most " + MAX_RESULT_WINDOW);
+    }
+
+    public static void checkMinShouldMatch(int minMatch, String[] cast) {
+        if (minMatch > cast.length)
+            throw new BadRequestException("minShouldMatch is larger than number of cast members");
     }
 }
@@ -1,11 +1,19 @@
 package com.example.SpringBootPlusElasticsearch.api.Service;
 
+import com.example.SpringBootPlusElasticsearch.api.Daos.BadRequestException;
 import com.example.SpringBootPlusElasticsearch.api.Daos.NewsHeadLineDao;
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
 import com.example.SpringBootPlusElasticsearch.api.Models.NewsHeadLine;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHistogram;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsPartition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /*
     Each function in this class is redirected to its Dao class which
@@ -25,4 +33,42 @@ public class NewsHeadLineService {
     public List<NewsHeadLine> getAllDoc() {
         return newsHeadLineDao.getAllDoc();
     }
+
+    public CompletableFuture<List<NewsHeadLine>> getAllDocAsync() {
+        return newsHeadLineDao.getAllDocAsync();
+    }
+
+    public CompletableFuture<List<NewsHeadLine>> getByDateRangeAsync(LocalDate from, LocalDate to) {
+        if (from != null && to != null && to.isBefore(from))
+            throw new BadRequestException("\"to\" must not be before \"from\"");
+        return newsHeadLineDao.getByDateRangeAsync(from, to);
+    }
+
+    public NewsHistogram getHistogram(LocalDate from, LocalDate to) {
+        if (from != null && to != null && to.isBefore(from))
+            throw new BadRequestException("\"to\" must not be before \"from\"");
+        return newsHeadLineDao.getHistogram(from, to);
+    }
+
+    public BulkIngestReport IndexDocs(String indexFilename) {
+        return newsHeadLineDao.IndexDocs(indexFilename);
+    }
+
+    public List<NewsPartition> getPartitions() {
+        return newsHeadLineDao.getPartitions();
+    }
+
+    public void getAllDocRaw(int from, int size, OutputStream out) throws IOException {
+        newsHeadLineDao.getAllDocRaw(from, size, out);
+    }
+
+    /*
+        Check of "from" and "size" of getAllDocRaw(). It streams its answer, so the controller
+        calls this before it returns the body.
+    */
+    public static void checkPage(int from, int size) {
+        if (from < 0 || size < 0 || from + size > NewsHeadLineDao.MAX_RESULT_WINDOW)
+            throw new BadRequestException("from and size must be positive, and from + size at most "
+                    + NewsHeadLineDao.MAX_RESULT_WINDOW);
+    }
 }
@@ -0,0 +1,81 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import com.example.SpringBootPlusElasticsearch.ElasticsearchStandIn;
+import com.example.SpringBootPlusElasticsearch.api.Daos.ConcurrencyLimiter;
+import com.example.SpringBootPlusElasticsearch.api.Daos.EntityReaders;
+import com.example.SpringBootPlusElasticsearch.api.Daos.OperationMetrics;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SearchExecutor;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SearchHedger;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SearchRouting;
+import com.example.SpringBootPlusElasticsearch.api.Daos.SlowQueryLog;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ElasticsearchConfigTests {
+
+	private ElasticsearchStandIn standIn;
+	private RestHighLevelClient client;
+
+	// Client as the application builds it, with "compression" on: responses come gzip compressed.
+	@BeforeEach
+	void start() throws IOException {
+		standIn = new ElasticsearchStandIn();
+		ElasticsearchClientProperties properties = new ElasticsearchClientProperties();
+		properties.setNodes(List.of("localhost:" + standIn.getPort()));
+		properties.setCompression(true);
+		properties.setHealthCheckSeconds(0);
+		ElasticsearchConfig config = new ElasticsearchConfig();
+		ReflectionTestUtils.setField(config, "properties", properties);
+		client = config.elasticsearchClient();
+	}
+
+	@AfterEach
+	void stop() throws IOException {
+		client.close();
+		standIn.close();
+	}
+
+	@Test
+	void compressedResponsesAreParsed() throws IOException {
+		SearchResponse movies = client.search(new SearchRequest("movies"), RequestOptions.DEFAULT);
+
+		assertThat(movies.getHits().getAt(0).getSourceAsMap()).containsEntry("title", "Toy Story");
+		assertThat(standIn.getCompressed()).isEqualTo(1);
+	}
+
+	@Test
+	void compressedResponsesReachRawHitsAndEntityReaders() throws IOException {
+		SearchBatchProperties batching = new SearchBatchProperties();
+		batching.setEnabled(false);
+		SlowQueryProperties slowQueries = new SlowQueryProperties();
+		slowQueries.setEnabled(false);
+		SearchExecutor searchExecutor = new SearchExecutor(client, new ElasticsearchRestTemplate(client), null, batching,
+				false, new EntityReaders(), true, new OperationMetrics(false), new SlowQueryLog(client, slowQueries),
+				new ConcurrencyLimiter(new ConcurrencyLimitProperties()), new SearchHedger(client, new HedgeProperties()),
+				new SearchRouting(new SearchRoutingProperties()));
+
+		byte[] raw = searchExecutor.searchRaw("movies", new SearchSourceBuilder());
+		assertThat(new String(raw, StandardCharsets.UTF_8)).startsWith("{").contains("Toy Story");
+
+		SearchHits<Movies> hits = SearchExecutor.await(
+				searchExecutor.searchAsync("movies", new SearchSourceBuilder(), Movies.class));
+		assertThat(hits.getSearchHit(0).getContent().getTitle()).isEqualTo("Toy Story");
+		assertThat(standIn.getCompressed()).isGreaterThanOrEqualTo(2);
+	}
+}
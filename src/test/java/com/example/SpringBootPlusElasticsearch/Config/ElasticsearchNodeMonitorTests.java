@@ -0,0 +1,43 @@
+package com.example.SpringBootPlusElasticsearch.Config;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ElasticsearchNodeMonitorTests {
+
+	private final HttpHost first = HttpHost.create("es1:9200");
+	private final HttpHost second = HttpHost.create("es2:9200");
+	private final ElasticsearchNodeMonitor monitor = new ElasticsearchNodeMonitor(List.of(first, second), 100);
+
+	@Test
+	void failedNodeIsSkipped() {
+		monitor.onFailure(new Node(first));
+
+		List<Node> nodes = nodes();
+		monitor.select(nodes);
+
+		assertThat(nodes).extracting(Node::getHost).containsExactly(second);
+		assertThat(monitor.getRequestFailures(first)).isEqualTo(1);
+	}
+
+	@Test
+	void allNodesAreKeptWhenAllAreDown() {
+		monitor.onFailure(new Node(first));
+		monitor.onFailure(new Node(second));
+
+		List<Node> nodes = nodes();
+		monitor.select(nodes);
+
+		assertThat(nodes).extracting(Node::getHost).containsExactly(first, second);
+	}
+
+	private List<Node> nodes() {
+		return new ArrayList<>(List.of(new Node(first), new Node(second)));
+	}
+}
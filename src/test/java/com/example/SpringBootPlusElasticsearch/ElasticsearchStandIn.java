@@ -0,0 +1,333 @@
+package com.example.SpringBootPlusElasticsearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+    Local HTTP server answering the requests the application sends to elasticsearch,
+    for tests and load tests which should not need a cluster.
+
+    "_search" (also with "scroll"), "_msearch", "_bulk", "_analyze", indexing of one document,
+    "GET /" of the client and every "HEAD" (node monitor, index exists) are answered. Search responses are
+    replayed from recordings: "<index>.json" for searches of "index", "<index>.<aggregation>.json"
+    for a search asking for that aggregation. Recordings are read from "recordings" directory
+    when given, otherwise from "standin/" on the classpath. A search with no recording gets
+    no hits.
+
+    Every other answer can be delayed by "latencyMs" plus up to "jitterMs", and
+    "errorRate" of them fail with "errorStatus" (429 rejected execution by default).
+    Like elasticsearch, bodies are sent gzip compressed to a request with "Accept-Encoding: gzip".
+    Threads of the server are named "loadtest-standin-*".
+*/
+public class ElasticsearchStandIn implements AutoCloseable {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+	private static final String INFO = "{\"name\":\"standin\",\"cluster_name\":\"standin\",\"cluster_uuid\":\"standin\","
+			+ "\"version\":{\"number\":\"7.9.3\",\"build_flavor\":\"default\",\"build_type\":\"docker\","
+			+ "\"build_hash\":\"c4138e51121ef06a6404866cddc601906fe5c868\",\"build_date\":\"2020-10-16T10:36:16.141335Z\","
+			+ "\"build_snapshot\":false,\"lucene_version\":\"8.6.2\",\"minimum_wire_compatibility_version\":\"6.8.0\","
+			+ "\"minimum_index_compatibility_version\":\"6.0.0-beta1\"},\"tagline\":\"You Know, for Search\"}";
+	private static final String NO_HITS = "{\"took\":1,\"timed_out\":false,"
+			+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+			+ "\"hits\":{\"total\":{\"value\":0,\"relation\":\"eq\"},\"max_score\":null,\"hits\":[]}}";
+	private static final String SHARDS = "\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0}";
+
+	private final Path recordings;
+	private final Map<String, Optional<byte[]>> recorded = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+	private final LongAdder compressed = new LongAdder();
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private volatile long latencyMs;
+	private volatile long jitterMs;
+	private volatile double errorRate;
+	private volatile int errorStatus = 429;
+
+	public ElasticsearchStandIn() throws IOException {
+		this(null);
+	}
+
+	public ElasticsearchStandIn(Path recordings) throws IOException {
+		// Small responses would otherwise wait for delayed ACK of the headers (about 40ms).
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		this.recordings = recordings;
+		AtomicInteger threads = new AtomicInteger();
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "loadtest-standin-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public void setLatency(long latencyMs, long jitterMs) {
+		this.latencyMs = latencyMs;
+		this.jitterMs = jitterMs;
+	}
+
+	public void setErrors(double errorRate, int errorStatus) {
+		this.errorRate = errorRate;
+		this.errorStatus = errorStatus;
+	}
+
+	/*
+		Requests answered so far, by kind ("_search", "_msearch", "_bulk", ...).
+	*/
+	public Map<String, Long> getRequests() {
+		Map<String, Long> counts = new TreeMap<>();
+		requests.forEach((kind, count) -> counts.put(kind, count.sum()));
+		return counts;
+	}
+
+	// Responses sent gzip compressed.
+	public long getCompressed() {
+		return compressed.sum();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			URI uri = exchange.getRequestURI();
+			String method = exchange.getRequestMethod();
+			String path = uri.getPath();
+			String kind = kind(path);
+			requests.computeIfAbsent(kind, k -> new LongAdder()).increment();
+
+			// Node monitor, and "does index exist" of repositories at start up.
+			if (method.equals("HEAD")) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			if (path.equals("/")) {
+				send(exchange, 200, INFO.getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+
+			byte[] body = readBody(exchange);
+			delay();
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				send(exchange, errorStatus, error(errorStatus, "es_rejected_execution_exception", "injected by stand-in"));
+				return;
+			}
+			byte[] response = respond(kind, method, path, uri.getRawQuery(), body);
+			if (response == null)
+				send(exchange, 404, error(404, "resource_not_found_exception", "no stand-in answer for " + method + " " + path));
+			else
+				send(exchange, kind.equals("_doc") ? 201 : 200, response);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			throw e;
+		}
+	}
+
+	private byte[] respond(String kind, String method, String path, String query, byte[] body) throws IOException {
+		switch (kind) {
+			case "_search":
+				byte[] hits = search(index(path), body);
+				return query != null && query.contains("scroll=") ? withScrollId(hits) : hits;
+			case "_search/scroll":
+				return method.equals("DELETE")
+						? "{\"succeeded\":true,\"num_freed\":1}".getBytes(StandardCharsets.UTF_8)
+						: withScrollId(NO_HITS.getBytes(StandardCharsets.UTF_8));
+			case "_msearch":
+				return msearch(index(path), body);
+			case "_bulk":
+				return bulk(body);
+			case "_analyze":
+				return recording("_analyze.json").orElse(null);
+			case "_doc":
+				return indexed(path);
+			case "_refresh":
+				return ("{" + SHARDS + "}").getBytes(StandardCharsets.UTF_8);
+			default:
+				return null;
+		}
+	}
+
+	private static String kind(String path) {
+		if (path.equals("/"))
+			return "/";
+		if (path.startsWith("/_search/scroll"))
+			return "_search/scroll";
+		for (String kind : new String[]{"_search", "_msearch", "_bulk", "_analyze", "_doc", "_refresh"})
+			if (path.endsWith("/" + kind) || path.contains("/" + kind + "/"))
+				return kind;
+		return path.indexOf('/', 1) < 0 ? "index" : "other";
+	}
+
+	private static String index(String path) {
+		int end = path.indexOf('/', 1);
+		String index = end < 0 ? "" : path.substring(1, end);
+		return index.startsWith("_") ? "" : index;
+	}
+
+	private byte[] search(String index, byte[] body) throws IOException {
+		if (body.length > 0) {
+			JsonNode source = JSON.readTree(body);
+			JsonNode aggregations = source.has("aggregations") ? source.get("aggregations") : source.get("aggs");
+			if (aggregations != null) {
+				Iterator<String> names = aggregations.fieldNames();
+				while (names.hasNext()) {
+					Optional<byte[]> aggregation = recording(index + "." + names.next() + ".json");
+					if (aggregation.isPresent())
+						return aggregation.get();
+				}
+			}
+		}
+		return recording(index + ".json").orElse(NO_HITS.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private byte[] msearch(String defaultIndex, byte[] body) throws IOException {
+		String[] lines = new String(body, StandardCharsets.UTF_8).split("\n");
+		StringBuilder response = new StringBuilder("{\"took\":1,\"responses\":[");
+		int searches = 0;
+		for (int i = 0; i + 1 < lines.length; i += 2) {
+			JsonNode header = JSON.readTree(lines[i]);
+			// "index" is an array when the client writes it.
+			JsonNode indices = header.path("index");
+			String index = indices.isArray() ? indices.path(0).asText() : indices.asText(defaultIndex);
+			String hits = new String(search(index, lines[i + 1].getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+			if (searches++ > 0)
+				response.append(',');
+			response.append(hits, 0, hits.lastIndexOf('}')).append(",\"status\":200}");
+		}
+		return response.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] bulk(byte[] body) throws IOException {
+		String[] lines = new String(body, StandardCharsets.UTF_8).split("\n");
+		StringBuilder response = new StringBuilder("{\"took\":1,\"errors\":false,\"items\":[");
+		int items = 0;
+		for (int i = 0; i < lines.length; i++) {
+			if (lines[i].isBlank())
+				continue;
+			JsonNode action = JSON.readTree(lines[i]);
+			String type = action.fieldNames().next();
+			JsonNode meta = action.get(type);
+			String id = meta.has("_id") ? meta.get("_id").asText() : "standin-" + i;
+			if (items++ > 0)
+				response.append(',');
+			response.append("{\"").append(type).append("\":{\"_index\":\"").append(meta.path("_index").asText())
+					.append("\",\"_type\":\"_doc\",\"_id\":\"").append(id).append("\",\"_version\":1,\"result\":\"")
+					.append(type.equals("delete") ? "deleted" : "created").append("\",").append(SHARDS)
+					.append(",\"_seq_no\":").append(i).append(",\"_primary_term\":1,\"status\":")
+					.append(type.equals("delete") ? 200 : 201).append("}}");
+			if (!type.equals("delete"))
+				i++;
+		}
+		return response.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] indexed(String path) {
+		String index = index(path);
+		String id = path.substring(path.lastIndexOf('/') + 1);
+		if (id.equals("_doc"))
+			id = "standin-" + System.nanoTime();
+		return ("{\"_index\":\"" + index + "\",\"_type\":\"_doc\",\"_id\":\"" + id + "\",\"_version\":1,"
+				+ "\"result\":\"created\"," + SHARDS + ",\"_seq_no\":0,\"_primary_term\":1}")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] withScrollId(byte[] response) {
+		String json = new String(response, StandardCharsets.UTF_8);
+		return ("{\"_scroll_id\":\"standin\"," + json.substring(json.indexOf('{') + 1)).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private Optional<byte[]> recording(String name) {
+		return recorded.computeIfAbsent(name, file -> {
+			try {
+				if (recordings != null) {
+					Path path = recordings.resolve(file);
+					return Files.exists(path) ? Optional.of(Files.readAllBytes(path)) : Optional.empty();
+				}
+				try (InputStream in = ElasticsearchStandIn.class.getResourceAsStream("/standin/" + file)) {
+					return in == null ? Optional.empty() : Optional.of(in.readAllBytes());
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private void delay() {
+		long millis = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+		if (millis <= 0)
+			return;
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static byte[] readBody(HttpExchange exchange) throws IOException {
+		InputStream in = exchange.getRequestBody();
+		if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+			in = new GZIPInputStream(in);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		in.transferTo(body);
+		return body.toByteArray();
+	}
+
+	private static byte[] error(int status, String type, String reason) {
+		return ("{\"error\":{\"root_cause\":[{\"type\":\"" + type + "\",\"reason\":\"" + reason + "\"}],"
+				+ "\"type\":\"" + type + "\",\"reason\":\"" + reason + "\"},\"status\":" + status + "}")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+		String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+				out.write(body);
+			}
+			body = compressed.toByteArray();
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			this.compressed.increment();
+		}
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.SpringBootPlusElasticsearch;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.AnalyzeRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ElasticsearchStandInTests {
+
+	private ElasticsearchStandIn standIn;
+	private RestHighLevelClient client;
+
+	@BeforeEach
+	void start() throws IOException {
+		standIn = new ElasticsearchStandIn();
+		client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", standIn.getPort())));
+	}
+
+	@AfterEach
+	void stop() throws IOException {
+		client.close();
+		standIn.close();
+	}
+
+	@Test
+	void replaysRecordedSearches() throws IOException {
+		SearchResponse movies = client.search(new SearchRequest("movies"), RequestOptions.DEFAULT);
+		assertThat(movies.getHits().getHits()).hasSize(10);
+		assertThat(movies.getHits().getAt(0).getSourceAsMap()).containsEntry("title", "Toy Story");
+
+		SearchResponse directors = client.search(new SearchRequest("movies").source(new SearchSourceBuilder().size(0)
+				.aggregation(AggregationBuilders.terms("my-term-agg").field("directors.keyword"))), RequestOptions.DEFAULT);
+		Terms terms = directors.getAggregations().get("my-term-agg");
+		assertThat(terms.getBuckets()).isNotEmpty();
+
+		assertThat(client.search(new SearchRequest("unknown"), RequestOptions.DEFAULT).getHits().getHits()).isEmpty();
+	}
+
+	@Test
+	void answersEverySearchOfMsearch() throws IOException {
+		MultiSearchRequest request = new MultiSearchRequest()
+				.add(new SearchRequest("bank"))
+				.add(new SearchRequest("news_headlines"));
+		MultiSearchResponse response = client.msearch(request, RequestOptions.DEFAULT);
+
+		assertThat(response.getResponses()).hasSize(2);
+		assertThat(response.getResponses()[0].getResponse().getHits().getAt(0).getIndex()).isEqualTo("bank");
+		assertThat(response.getResponses()[1].getResponse().getHits().getAt(0).getIndex()).isEqualTo("news_headlines");
+	}
+
+	@Test
+	void acknowledgesBulkScrollAndAnalyze() throws IOException {
+		BulkResponse bulk = client.bulk(new BulkRequest()
+				.add(new IndexRequest("movies").id("1").source(Map.of("title", "Up")))
+				.add(new IndexRequest("movies").source(Map.of("title", "Cars"))), RequestOptions.DEFAULT);
+		assertThat(bulk.hasFailures()).isFalse();
+		assertThat(bulk.getItems()).hasSize(2);
+
+		SearchResponse scroll = client.search(new SearchRequest("movies").scroll(TimeValue.timeValueMinutes(1)), RequestOptions.DEFAULT);
+		assertThat(scroll.getScrollId()).isNotNull();
+
+		assertThat(client.indices().analyze(AnalyzeRequest.withGlobalAnalyzer("standard", "The Matrix"), RequestOptions.DEFAULT)
+				.getTokens()).isNotEmpty();
+		assertThat(standIn.getRequests()).containsEntry("_bulk", 1L).containsEntry("_search", 1L).containsEntry("_analyze", 1L);
+	}
+
+	@Test
+	void injectsLatencyAndErrors() throws IOException {
+		standIn.setLatency(50, 0);
+		long start = System.nanoTime();
+		client.search(new SearchRequest("movies"), RequestOptions.DEFAULT);
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(50_000_000L);
+
+		standIn.setLatency(0, 0);
+		standIn.setErrors(1.0, 429);
+		assertThatThrownBy(() -> client.search(new SearchRequest("movies"), RequestOptions.DEFAULT))
+				.isInstanceOfSatisfying(ElasticsearchStatusException.class,
+						e -> assertThat(e.status()).isEqualTo(RestStatus.TOO_MANY_REQUESTS));
+	}
+
+	@Test
+	void compressesResponsesWhenAsked() throws IOException {
+		Request request = new Request("GET", "/movies/_search");
+		request.setOptions(RequestOptions.DEFAULT.toBuilder().addHeader("Accept-Encoding", "gzip"));
+		Response response = client.getLowLevelClient().performRequest(request);
+
+		assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+		// RestClient decompresses the body itself.
+		assertThat(response.getEntity()).isInstanceOf(GzipDecompressingEntity.class);
+		assertThat(EntityUtils.toString(response.getEntity())).contains("Toy Story");
+		assertThat(standIn.getCompressed()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,361 @@
+package com.example.SpringBootPlusElasticsearch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Load test of "/movies", "/bank" and "/news" endpoints: the whole application is started
+    against ElasticsearchStandIn, and each endpoint is driven for a while by "concurrency"
+    callers, one endpoint after another. Reported per endpoint: requests, errors (status >= 400
+    or no answer), throughput, p50/p99/p999 latency and heap allocated by the application
+    (every thread except the "loadtest-*" threads of stand-in and load generator).
+
+    With "qps" > 0 requests are started on a fixed schedule (open loop) and latency is counted
+    from the planned start, so a stalled application is not hidden by callers waiting for it.
+    With "qps" 0 every caller sends its next request as soon as it has an answer (closed loop).
+    "{n}" in a path or body is replaced by a random number below "distinct-values", so result
+    cache hits only as often as it would with that many different queries.
+
+    Results are printed and written as JSON to "loadtest.result" (target/loadtest-result.json).
+    Not part of normal build, run with: mvn test -Pbenchmark -Dtest=LoadTestBenchmark
+    Options (-Dloadtest.<name>=...): endpoints (comma separated names, default all), concurrency,
+    qps, warmup-seconds, duration-seconds, distinct-values, latency-ms, jitter-ms, error-rate,
+    error-status, recordings (directory of stand-in recordings), result.
+*/
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext
+class LoadTestBenchmark {
+
+	private static final List<Endpoint> ENDPOINTS = List.of(
+			new Endpoint("movies-title", "/movies/title/Toy%20Story%20{n}"),
+			new Endpoint("movies-title-fields", "/movies/title/Toy%20Story%20{n}?fields=title,year"),
+			new Endpoint("movies-title-raw", "/movies/title/Toy%20Story%20{n}?raw=true"),
+			new Endpoint("movies-castExact", "/movies/castExact/Tom%20Hanks%20{n}"),
+			new Endpoint("movies-fullPlot", "/movies/FullPlotSearch", "text/plain", "toys come to life {n}"),
+			new Endpoint("movies-suggest", "/movies/suggest?prefix=to"),
+			new Endpoint("movies-aggDirLang", "/movies/AggDirLang"),
+			new Endpoint("movies-analyzer", "/movies/Analyzer/standard", "application/json", "[\"The Matrix {n}\"]"),
+			new Endpoint("bank-city", "/bank/city/Brogan{n}"),
+			new Endpoint("bank-state", "/bank/state/IL{n}"),
+			new Endpoint("news-getAll", "/news/getAll"),
+			new Endpoint("news-getAll-raw", "/news/getAll?raw=true&size=10"));
+
+	private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 16);
+	private static final int QPS = Integer.getInteger("loadtest.qps", 0);
+	private static final long WARMUP_SECONDS = Long.getLong("loadtest.warmup-seconds", 5);
+	private static final long DURATION_SECONDS = Long.getLong("loadtest.duration-seconds", 10);
+	private static final int DISTINCT_VALUES = Integer.getInteger("loadtest.distinct-values", 1_000);
+	private static final long LATENCY_MS = Long.getLong("loadtest.latency-ms", 2);
+	private static final long JITTER_MS = Long.getLong("loadtest.jitter-ms", 3);
+	private static final double ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.error-rate", "0"));
+	private static final int ERROR_STATUS = Integer.getInteger("loadtest.error-status", 429);
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final ElasticsearchStandIn STAND_IN = startStandIn();
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void elasticsearch(DynamicPropertyRegistry registry) {
+		registry.add("elasticsearch.client.nodes", () -> "localhost:" + STAND_IN.getPort());
+	}
+
+	@AfterAll
+	static void stopStandIn() {
+		STAND_IN.close();
+	}
+
+	@Test
+	void loadTest() throws Exception {
+		List<String> selected = System.getProperty("loadtest.endpoints") == null ? null
+				: Arrays.asList(System.getProperty("loadtest.endpoints").split(","));
+		AtomicInteger threads = new AtomicInteger();
+		ExecutorService callers = Executors.newFixedThreadPool(CONCURRENCY,
+				runnable -> new Thread(runnable, "loadtest-driver-" + threads.incrementAndGet()));
+		ExecutorService clientExecutor = Executors.newCachedThreadPool(
+				runnable -> new Thread(runnable, "loadtest-client-" + threads.incrementAndGet()));
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.executor(clientExecutor)
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+
+		List<Result> results = new ArrayList<>();
+		try {
+			for (Endpoint endpoint : ENDPOINTS) {
+				if (selected != null && !selected.contains(endpoint.name))
+					continue;
+				drive(client, callers, endpoint, WARMUP_SECONDS);
+				Result result = drive(client, callers, endpoint, DURATION_SECONDS);
+				System.out.println(result);
+				results.add(result);
+			}
+		} finally {
+			callers.shutdownNow();
+			clientExecutor.shutdownNow();
+		}
+		writeResults(results);
+
+		assertThat(results).isNotEmpty();
+		for (Result result : results) {
+			assertThat(result.requests).as(result.endpoint).isPositive();
+			if (ERROR_RATE == 0)
+				assertThat(result.errors).as(result.endpoint).isZero();
+		}
+	}
+
+	private Result drive(HttpClient client, ExecutorService callers, Endpoint endpoint, long seconds) throws Exception {
+		long start = System.nanoTime();
+		long end = start + seconds * 1_000_000_000L;
+		long interval = QPS > 0 ? 1_000_000_000L / QPS : 0;
+		AtomicLong ticket = new AtomicLong();
+		Map<Long, Long> allocatedBefore = applicationAllocatedBytes();
+
+		List<Future<Caller>> futures = new ArrayList<>();
+		for (int i = 0; i < CONCURRENCY; i++) {
+			futures.add(callers.submit(() -> {
+				Caller caller = new Caller();
+				while (true) {
+					long planned;
+					if (interval > 0) {
+						planned = start + ticket.getAndIncrement() * interval;
+						if (planned >= end)
+							break;
+						long wait = planned - System.nanoTime();
+						if (wait > 0)
+							LockSupport.parkNanos(wait);
+					} else {
+						planned = System.nanoTime();
+						if (planned >= end)
+							break;
+					}
+					boolean ok = call(client, endpoint);
+					caller.record((System.nanoTime() - planned) / 1_000, ok);
+				}
+				return caller;
+			}));
+		}
+		Caller all = new Caller();
+		for (Future<Caller> future : futures)
+			all.add(future.get());
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedSince(allocatedBefore);
+		return new Result(endpoint.name, all, elapsed, allocated);
+	}
+
+	private boolean call(HttpClient client, Endpoint endpoint) {
+		String n = Integer.toString(ThreadLocalRandom.current().nextInt(DISTINCT_VALUES));
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + endpoint.path.replace("{n}", n)))
+				.timeout(Duration.ofSeconds(30));
+		if (endpoint.body == null)
+			request.GET();
+		else
+			request.header("Content-Type", endpoint.contentType)
+					.method("GET", HttpRequest.BodyPublishers.ofString(endpoint.body.replace("{n}", n)));
+		try {
+			HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+			return response.statusCode() < 400;
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/*
+		Bytes allocated so far by each live thread of the application. Threads which end during
+		the run take their count with them, so the result is a lower bound.
+	*/
+	private static Map<Long, Long> applicationAllocatedBytes() {
+		Map<Long, Long> allocated = new HashMap<>();
+		long[] ids = THREADS.getAllThreadIds();
+		ThreadInfo[] infos = THREADS.getThreadInfo(ids);
+		long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+		for (int i = 0; i < ids.length; i++) {
+			if (infos[i] != null && bytes[i] >= 0 && !infos[i].getThreadName().startsWith("loadtest-"))
+				allocated.put(ids[i], bytes[i]);
+		}
+		return allocated;
+	}
+
+	private static long allocatedSince(Map<Long, Long> before) {
+		long total = 0;
+		for (Map.Entry<Long, Long> thread : applicationAllocatedBytes().entrySet())
+			total += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+		return total;
+	}
+
+	private static void writeResults(List<Result> results) throws IOException {
+		Map<String, Object> profile = new LinkedHashMap<>();
+		profile.put("concurrency", CONCURRENCY);
+		profile.put("qps", QPS);
+		profile.put("durationSeconds", DURATION_SECONDS);
+		profile.put("distinctValues", DISTINCT_VALUES);
+		profile.put("latencyMs", LATENCY_MS);
+		profile.put("jitterMs", JITTER_MS);
+		profile.put("errorRate", ERROR_RATE);
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("profile", profile);
+		report.put("elasticsearchRequests", STAND_IN.getRequests());
+		List<Map<String, Object>> endpoints = new ArrayList<>();
+		for (Result result : results)
+			endpoints.add(result.toMap());
+		report.put("endpoints", endpoints);
+
+		Path file = Paths.get(System.getProperty("loadtest.result", "target/loadtest-result.json"));
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+		new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+		System.out.println("elasticsearch requests: " + STAND_IN.getRequests() + ", results: " + file.toAbsolutePath());
+	}
+
+	private static ElasticsearchStandIn startStandIn() {
+		try {
+			String recordings = System.getProperty("loadtest.recordings");
+			ElasticsearchStandIn standIn = new ElasticsearchStandIn(recordings == null ? null : Paths.get(recordings));
+			standIn.setLatency(LATENCY_MS, JITTER_MS);
+			standIn.setErrors(ERROR_RATE, ERROR_STATUS);
+			return standIn;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static class Endpoint {
+		private final String name;
+		private final String path;
+		private final String contentType;
+		private final String body;
+
+		Endpoint(String name, String path) {
+			this(name, path, null, null);
+		}
+
+		Endpoint(String name, String path, String contentType, String body) {
+			this.name = name;
+			this.path = path;
+			this.contentType = contentType;
+			this.body = body;
+		}
+	}
+
+	/*
+		Latencies (microseconds) and errors seen by one caller.
+	*/
+	private static class Caller {
+		private long[] micros = new long[1024];
+		private int count;
+		private long errors;
+
+		void record(long latencyMicros, boolean ok) {
+			if (count == micros.length)
+				micros = Arrays.copyOf(micros, count * 2);
+			micros[count++] = latencyMicros;
+			if (!ok)
+				errors++;
+		}
+
+		void add(Caller other) {
+			for (int i = 0; i < other.count; i++)
+				record(other.micros[i], true);
+			errors += other.errors;
+		}
+	}
+
+	private static class Result {
+		private final String endpoint;
+		private final long requests;
+		private final long errors;
+		private final double throughput;
+		private final long p50Micros;
+		private final long p99Micros;
+		private final long p999Micros;
+		private final long maxMicros;
+		private final double allocatedMbPerSecond;
+		private final long allocatedBytesPerRequest;
+
+		Result(String endpoint, Caller all, long elapsedNanos, long allocatedBytes) {
+			long[] sorted = Arrays.copyOf(all.micros, all.count);
+			Arrays.sort(sorted);
+			double seconds = elapsedNanos / 1e9;
+			this.endpoint = endpoint;
+			this.requests = sorted.length;
+			this.errors = all.errors;
+			this.throughput = (requests - errors) / seconds;
+			this.p50Micros = percentile(sorted, 0.50);
+			this.p99Micros = percentile(sorted, 0.99);
+			this.p999Micros = percentile(sorted, 0.999);
+			this.maxMicros = sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+			this.allocatedMbPerSecond = allocatedBytes / seconds / (1024 * 1024);
+			this.allocatedBytesPerRequest = requests == 0 ? 0 : allocatedBytes / requests;
+		}
+
+		private static long percentile(long[] sorted, double quantile) {
+			if (sorted.length == 0)
+				return 0;
+			return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("endpoint", endpoint);
+			map.put("requests", requests);
+			map.put("errors", errors);
+			map.put("throughputPerSecond", Math.round(throughput * 10) / 10.0);
+			map.put("p50Micros", p50Micros);
+			map.put("p99Micros", p99Micros);
+			map.put("p999Micros", p999Micros);
+			map.put("maxMicros", maxMicros);
+			map.put("allocatedMbPerSecond", Math.round(allocatedMbPerSecond * 10) / 10.0);
+			map.put("allocatedBytesPerRequest", allocatedBytesPerRequest);
+			return map;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-20s %8d req %6d err %9.1f req/s  p50=%6.2fms p99=%7.2fms p999=%7.2fms  alloc %7.1f MB/s %8d B/req",
+					endpoint, requests, errors, throughput, p50Micros / 1000.0, p99Micros / 1000.0, p999Micros / 1000.0,
+					allocatedMbPerSecond, allocatedBytesPerRequest);
+		}
+	}
+}
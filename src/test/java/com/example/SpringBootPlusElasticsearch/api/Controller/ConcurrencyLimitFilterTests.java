@@ -0,0 +1,88 @@
+package com.example.SpringBootPlusElasticsearch.api.Controller;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.api.Daos.ConcurrencyLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTests {
+
+	private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+	private final ConcurrencyLimiter limiter;
+	private final ConcurrencyLimitFilter filter;
+
+	ConcurrencyLimitFilterTests() {
+		properties.setInitialLimit(1);
+		properties.setMinLimit(1);
+		properties.setRetryAfterSeconds(2);
+		properties.setLowPriorityPaths(List.of("/movies/CreateIndexTemplate", "/movies/*/export"));
+		properties.setExemptPaths(List.of("/movies/suggest", "/movies/Analyzer/**"));
+		limiter = new ConcurrencyLimiter(properties);
+		filter = new ConcurrencyLimitFilter(limiter, properties);
+	}
+
+	@Test
+	void answers503WithRetryAfterWhenLimitIsTaken() throws ServletException, IOException {
+		assertThat(limiter.tryAcquire(ConcurrencyLimiter.Priority.HIGH)).isTrue();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(new MockHttpServletRequest("GET", "/movies/PlotSearch3"), response, chain);
+
+		assertThat(response.getStatus()).isEqualTo(503);
+		assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+		assertThat(chain.getRequest()).isNull();
+	}
+
+	@Test
+	void adminRequestsAreNeverLimited() throws ServletException, IOException {
+		assertThat(limiter.tryAcquire(ConcurrencyLimiter.Priority.HIGH)).isTrue();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/admin/limiter"), response, new MockFilterChain());
+
+		assertThat(response.getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void requestsAnsweredFromMemoryAreNeverLimited() throws ServletException, IOException {
+		assertThat(limiter.tryAcquire(ConcurrencyLimiter.Priority.HIGH)).isTrue();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/movies/suggest"), response, new MockFilterChain());
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(filter.isExempt("/movies/Analyzer/standard")).isTrue();
+		assertThat(filter.isExempt("/movies/suggestions")).isFalse();
+	}
+
+	@Test
+	void permitIsHeldUntilAsyncResponseCompletes() throws ServletException, IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/titleUp");
+		request.setAsyncSupported(true);
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+		assertThat(limiter.stats().getInFlight()).isEqualTo(1);
+
+		MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+		for (AsyncListener listener : context.getListeners())
+			listener.onComplete(null);
+		assertThat(limiter.stats().getInFlight()).isZero();
+	}
+
+	@Test
+	void matchesLowPriorityPaths() {
+		assertThat(filter.priority("/movies/CreateIndexTemplate")).isEqualTo(ConcurrencyLimiter.Priority.LOW);
+		assertThat(filter.priority("/movies/AggDirector/export")).isEqualTo(ConcurrencyLimiter.Priority.LOW);
+		assertThat(filter.priority("/movies/AggDirector")).isEqualTo(ConcurrencyLimiter.Priority.HIGH);
+	}
+}
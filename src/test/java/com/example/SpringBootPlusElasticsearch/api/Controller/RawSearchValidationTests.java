@@ -0,0 +1,35 @@
+package com.example.SpringBootPlusElasticsearch.api.Controller;
+
+import com.example.SpringBootPlusElasticsearch.api.Daos.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RawSearchValidationTests {
+
+	// No service behind them: a bad parameter must be refused before anything is searched or streamed.
+	private final MovieController movieController = new MovieController(null);
+	private final NewsHeadLineController newsController = new NewsHeadLineController(null);
+
+	@Test
+	void badPageIsRefusedBeforeTheBodyIsReturned() {
+		assertThatThrownBy(() -> movieController.getMoviesByTitleRaw("up", null, -1, 10))
+				.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> movieController.getMoviesByPlot_3Raw("space", null, 9_995, 10))
+				.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> newsController.getAllDocRaw(0, 10_001))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void badExportCursorIsRefusedBeforeTheBodyIsReturned() {
+		assertThatThrownBy(() -> movieController.exportDirectorsMovieMetric(100, "not*base64"))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void minShouldMatchLargerThanCastIsRefusedBeforeTheBodyIsReturned() {
+		assertThatThrownBy(() -> movieController.getMoviesByCastShouldRaw(3, null, new String[]{"a", "b"}, 0, 10))
+				.isInstanceOf(BadRequestException.class);
+	}
+}
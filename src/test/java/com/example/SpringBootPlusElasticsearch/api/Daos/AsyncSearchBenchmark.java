@@ -0,0 +1,152 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Throughput of blocking search() vs searchAsync() with the same number of caller threads
+    (think of them as Tomcat workers), against a local stand-in which answers every "_search"
+    after a fixed latency.
+
+    Not part of normal build, run with: mvn test -Pbenchmark
+*/
+@Tag("benchmark")
+class AsyncSearchBenchmark {
+
+	private static final int CALLER_THREADS = 8;
+	private static final int MAX_IN_FLIGHT = 128;
+	private static final long LATENCY_MS = 20;
+	private static final long DURATION_MS = 5_000;
+
+	private static final byte[] RESPONSE = ("{\"took\":1,\"timed_out\":false,"
+			+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+			+ "\"hits\":{\"total\":{\"value\":1,\"relation\":\"eq\"},\"max_score\":1.0,"
+			+ "\"hits\":[{\"_index\":\"movies\",\"_type\":\"_doc\",\"_id\":\"1\",\"_score\":1.0,"
+			+ "\"_source\":{\"title\":\"Up\",\"year\":2009}}]}}").getBytes(StandardCharsets.UTF_8);
+
+	private static HttpServer server;
+	private static RestHighLevelClient client;
+
+	@BeforeAll
+	static void startServer() throws IOException {
+		// Without Spring Boot, logback logs every http packet at DEBUG.
+		((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+		server.setExecutor(Executors.newFixedThreadPool(MAX_IN_FLIGHT * 2));
+		server.createContext("/", exchange -> {
+			try {
+				Thread.sleep(LATENCY_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, RESPONSE.length);
+			try (OutputStream body = exchange.getResponseBody()) {
+				body.write(RESPONSE);
+			}
+		});
+		server.start();
+
+		client = new RestHighLevelClient(RestClient
+				.builder(new HttpHost("localhost", server.getAddress().getPort()))
+				.setHttpClientConfigCallback(http -> http
+						.setMaxConnTotal(MAX_IN_FLIGHT)
+						.setMaxConnPerRoute(MAX_IN_FLIGHT)));
+	}
+
+	@AfterAll
+	static void stopServer() throws IOException {
+		client.close();
+		server.stop(0);
+	}
+
+	@Test
+	void asyncSearchOutperformsBlockingSearchAtFixedThreadCount() throws Exception {
+		double blocking = run(this::blockingCaller);
+		double async = run(this::asyncCaller);
+
+		System.out.printf("threads=%d latency=%dms blocking=%.0f ops/s async=%.0f ops/s (x%.1f)%n",
+				CALLER_THREADS, LATENCY_MS, blocking, async, async / blocking);
+		assertThat(async).isGreaterThan(blocking);
+	}
+
+	private double run(Caller caller) throws InterruptedException {
+		LongAdder completed = new LongAdder();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MS);
+		Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+		ExecutorService callers = Executors.newFixedThreadPool(CALLER_THREADS);
+		CountDownLatch done = new CountDownLatch(CALLER_THREADS);
+		long start = System.nanoTime();
+		for (int i = 0; i < CALLER_THREADS; i++) {
+			callers.execute(() -> {
+				try {
+					while (System.nanoTime() < deadline)
+						caller.call(completed, inFlight);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		inFlight.acquire(MAX_IN_FLIGHT);
+		long elapsed = System.nanoTime() - start;
+		callers.shutdown();
+		return completed.sum() * 1e9 / elapsed;
+	}
+
+	private void blockingCaller(LongAdder completed, Semaphore inFlight) throws IOException {
+		client.search(new SearchRequest("movies"), RequestOptions.DEFAULT);
+		completed.increment();
+	}
+
+	private void asyncCaller(LongAdder completed, Semaphore inFlight) throws InterruptedException {
+		inFlight.acquire();
+		client.searchAsync(new SearchRequest("movies"), RequestOptions.DEFAULT, new ActionListener<SearchResponse>() {
+			@Override
+			public void onResponse(SearchResponse response) {
+				completed.increment();
+				inFlight.release();
+			}
+
+			@Override
+			public void onFailure(Exception e) {
+				inFlight.release();
+			}
+		});
+	}
+
+	@FunctionalInterface
+	private interface Caller {
+		void call(LongAdder completed, Semaphore inFlight) throws Exception;
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.BulkIngestProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.BulkIngestReport;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkIngesterTests {
+
+	private final BulkIngestProperties properties = new BulkIngestProperties();
+	private final ExecutorService elasticsearch = Executors.newSingleThreadExecutor();
+	// Number of actions of every bulk sent, retries included.
+	private final List<Integer> bulks = new CopyOnWriteArrayList<>();
+	private final AtomicInteger read = new AtomicInteger();
+
+	BulkIngesterTests() {
+		properties.setFlushIntervalSeconds(60);
+		properties.setBackoffInitialDelayMs(1);
+		properties.setAwaitCloseSeconds(10);
+	}
+
+	@AfterEach
+	void stop() {
+		elasticsearch.shutdownNow();
+	}
+
+	@Test
+	void compressedBodyIsNdjsonWithOneLinePerSource() throws IOException {
+		BulkRequest bulk = new BulkRequest()
+				.add(new IndexRequest("movies").setPipeline("p")
+						.source("{\n  \"title\": \"Up\\nDown\"\r\n}", XContentType.JSON))
+				.add(new IndexRequest("movies").id("2")
+						.source("{\"title\":\"Heat\"}", XContentType.JSON));
+
+		byte[] body;
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(BulkIngester.gzipBulkBody(bulk)))) {
+			body = in.readAllBytes();
+		}
+
+		assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo(
+				"{\"index\":{\"_index\":\"movies\",\"pipeline\":\"p\"}}\n"
+						+ "{   \"title\": \"Up\\nDown\"  }\n"
+						+ "{\"index\":{\"_index\":\"movies\",\"_id\":\"2\"}}\n"
+						+ "{\"title\":\"Heat\"}\n");
+	}
+
+	@Test
+	void bulkIsFlushedByCount() {
+		properties.setActions(3);
+
+		BulkIngestReport report = ingest(accepting(), documents(10, 20));
+
+		assertThat(bulks).containsExactly(3, 3, 3, 1);
+		assertThat(report.getDocuments()).isEqualTo(10);
+		assertThat(report.getBulkRequests()).isEqualTo(4);
+		assertThat(report.getFailed()).isZero();
+		assertThat(report.getFailures()).isEmpty();
+		assertThat(report.isCompleted()).isTrue();
+	}
+
+	@Test
+	void bulkIsFlushedBySize() {
+		properties.setActions(1000);
+		properties.setSizeMb(1);
+
+		// Four of them cross 1 MB.
+		BulkIngestReport report = ingest(accepting(), documents(10, 300_000));
+
+		assertThat(bulks).containsExactly(4, 4, 2);
+		assertThat(report.getBytes()).isGreaterThan(10 * 300_000L);
+		assertThat(report.isCompleted()).isTrue();
+	}
+
+	@Test
+	void readingWaitsWhileConcurrentRequestsAreInFlight() {
+		properties.setActions(2);
+		properties.setConcurrentRequests(1);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		List<Integer> readWhenAnswered = new CopyOnWriteArrayList<>();
+
+		BulkIngestReport report = ingest((request, listener) -> {
+			bulks.add(request.numberOfActions());
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			elasticsearch.execute(() -> {
+				sleep(20);
+				readWhenAnswered.add(read.get());
+				inFlight.decrementAndGet();
+				listener.onResponse(response(request, item -> RestStatus.CREATED));
+			});
+		}, documents(10, 20));
+
+		assertThat(report.getBulkRequests()).isEqualTo(5);
+		assertThat(maxInFlight.get()).isEqualTo(1);
+		// Bulk k is answered before documents of bulk k + 2 are read.
+		for (int k = 1; k <= readWhenAnswered.size(); k++)
+			assertThat(readWhenAnswered.get(k - 1)).isLessThanOrEqualTo(2 * (k + 1));
+	}
+
+	@Test
+	void itemsRejectedWith429AreRetried() {
+		properties.setActions(3);
+		AtomicInteger calls = new AtomicInteger();
+
+		BulkIngestReport report = ingest((request, listener) -> {
+			bulks.add(request.numberOfActions());
+			boolean first = calls.getAndIncrement() == 0;
+			listener.onResponse(response(request,
+					item -> first && item > 0 ? RestStatus.TOO_MANY_REQUESTS : RestStatus.CREATED));
+		}, documents(3, 20));
+
+		// Only the two rejected documents are sent again.
+		assertThat(bulks).containsExactly(3, 2);
+		assertThat(report.getRetries()).isEqualTo(1);
+		assertThat(report.getBulkRequests()).isEqualTo(1);
+		assertThat(report.getFailed()).isZero();
+		assertThat(report.isCompleted()).isTrue();
+	}
+
+	@Test
+	void failedItemsAndBulksAreReported() {
+		properties.setActions(2);
+		properties.setMaxReportedFailures(1);
+		AtomicInteger calls = new AtomicInteger();
+
+		BulkIngestReport report = ingest((request, listener) -> {
+			bulks.add(request.numberOfActions());
+			if (calls.getAndIncrement() == 0)
+				listener.onResponse(response(request, item -> item == 1 ? RestStatus.BAD_REQUEST : RestStatus.CREATED));
+			else
+				listener.onFailure(new IOException("connection reset"));
+		}, documents(4, 20));
+
+		// One document of the first bulk, both of the second one.
+		assertThat(report.getFailed()).isEqualTo(3);
+		assertThat(report.getFailures()).hasSize(1);
+		assertThat(report.getFailures().get(0)).startsWith("item 1 of bulk 1: ");
+		assertThat(report.getRetries()).isZero();
+		assertThat(report.isCompleted()).isTrue();
+	}
+
+	@Test
+	void reportIsNotCompletedWhileBulksAreInFlight() {
+		properties.setAwaitCloseSeconds(0);
+
+		BulkIngestReport report = ingest((request, listener) -> bulks.add(request.numberOfActions()), documents(2, 20));
+
+		assertThat(bulks).containsExactly(2);
+		assertThat(report.isCompleted()).isFalse();
+	}
+
+	private BulkIngestReport ingest(BulkIngester.BulkSender sender, Iterator<BytesReference> documents) {
+		return new BulkIngester(properties, sender).ingest("movies", null, documents);
+	}
+
+	private BulkIngester.BulkSender accepting() {
+		return (request, listener) -> {
+			bulks.add(request.numberOfActions());
+			listener.onResponse(response(request, item -> RestStatus.CREATED));
+		};
+	}
+
+	// "count" documents of about "bytes" bytes each.
+	private Iterator<BytesReference> documents(int count, int bytes) {
+		return new Iterator<BytesReference>() {
+			@Override
+			public boolean hasNext() {
+				return read.get() < count;
+			}
+
+			@Override
+			public BytesReference next() {
+				int id = read.incrementAndGet();
+				return new BytesArray("{\"title\":\"" + id + "x".repeat(Math.max(0, bytes - 20)) + "\"}");
+			}
+		};
+	}
+
+	private static BulkResponse response(BulkRequest request, IntFunction<RestStatus> statusOfItem) {
+		List<DocWriteRequest<?>> requests = request.requests();
+		BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+		for (int i = 0; i < items.length; i++) {
+			RestStatus status = statusOfItem.apply(i);
+			items[i] = status == RestStatus.CREATED
+					? new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+							new IndexResponse(new ShardId("movies", "_na_", 0), "_doc", "id" + i, 1, 1, 1, true))
+					: new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+							new BulkItemResponse.Failure("movies", "_doc", "id" + i, new Exception(status.name()), status));
+		}
+		return new BulkResponse(items, 1);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
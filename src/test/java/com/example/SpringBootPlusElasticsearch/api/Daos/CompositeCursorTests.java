@@ -0,0 +1,51 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompositeCursorTests {
+
+	@Test
+	void cursorRoundTripsAfterKey() {
+		Map<String, Object> afterKey = new LinkedHashMap<>();
+		afterKey.put("director", "Jean-Luc Godard");
+		afterKey.put("language", "French/English?&");
+
+		String cursor = CompositeCursor.encode(afterKey);
+
+		assertThat(cursor).matches("[A-Za-z0-9_-]+");
+		assertThat(CompositeCursor.decode(cursor)).isEqualTo(afterKey);
+	}
+
+	@Test
+	void missingCursorMeansFirstPage() {
+		assertThat(CompositeCursor.decode(null)).isNull();
+		assertThat(CompositeCursor.decode("")).isNull();
+		assertThat(CompositeCursor.encode(null)).isNull();
+	}
+
+	@Test
+	void invalidCursorIsRejected() {
+		assertThatThrownBy(() -> CompositeCursor.decode("not*base64")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void invalidCursorIsABadRequest() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		try {
+			CompositeCursor.decode("not*base64");
+		} catch (BadRequestException e) {
+			new ResponseStatusExceptionResolver().resolveException(new MockHttpServletRequest(), response, null, e);
+		}
+
+		assertThat(response.getStatus()).isEqualTo(400);
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.SpringBootPlusElasticsearch.api.Daos.ConcurrencyLimiter.Priority.HIGH;
+import static com.example.SpringBootPlusElasticsearch.api.Daos.ConcurrencyLimiter.Priority.LOW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1000);
+
+	private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+
+	ConcurrencyLimiterTests() {
+		properties.setInitialLimit(4);
+		properties.setMinLimit(2);
+		properties.setMaxLimit(6);
+		properties.setBackoffRatio(0.5);
+		properties.setLowPriorityShare(0.5);
+	}
+
+	@Test
+	void turnsAwayRequestsOverTheLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+		for (int i = 0; i < 4; i++)
+			assertThat(limiter.tryAcquire(HIGH)).isTrue();
+		assertThat(limiter.tryAcquire(HIGH)).isFalse();
+
+		limiter.release(HIGH);
+		assertThat(limiter.tryAcquire(HIGH)).isTrue();
+		assertThat(limiter.stats().getAccepted()).isEqualTo(5);
+		assertThat(limiter.stats().getRejected()).isEqualTo(1);
+	}
+
+	@Test
+	void lowPriorityTakesOnlyItsShare() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+		assertThat(limiter.tryAcquire(LOW)).isTrue();
+		assertThat(limiter.tryAcquire(LOW)).isTrue();
+		assertThat(limiter.tryAcquire(LOW)).isFalse();
+		assertThat(limiter.tryAcquire(HIGH)).isTrue();
+		assertThat(limiter.tryAcquire(HIGH)).isTrue();
+
+		limiter.release(LOW);
+		assertThat(limiter.stats().getInFlightLowPriority()).isEqualTo(1);
+		assertThat(limiter.stats().getRejectedLowPriority()).isEqualTo(1);
+	}
+
+	@Test
+	void fastCallsRaiseUsedLimitOnly() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+		limiter.onSample(FAST);
+		assertThat(limiter.stats().getLimit()).isEqualTo(4);
+
+		limiter.tryAcquire(HIGH);
+		limiter.tryAcquire(HIGH);
+		for (int i = 0; i < 10; i++)
+			limiter.onSample(FAST);
+		// 2 in flight use half of 4, not of 5.
+		assertThat(limiter.stats().getLimit()).isEqualTo(5);
+
+		limiter.tryAcquire(HIGH);
+		for (int i = 0; i < 10; i++)
+			limiter.onSample(FAST);
+		assertThat(limiter.stats().getLimit()).isEqualTo(6);
+	}
+
+	@Test
+	void slowCallsCutLimitDownToMinimum() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+		limiter.onSample(SLOW);
+		assertThat(limiter.stats().getLimit()).isEqualTo(2);
+		limiter.onSample(SLOW);
+		assertThat(limiter.stats().getLimit()).isEqualTo(2);
+		assertThat(limiter.stats().getDecreases()).isEqualTo(1);
+	}
+
+	@Test
+	void onlyOverloadFailuresCutLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+		limiter.onError(new ElasticsearchStatusException("no such index", RestStatus.NOT_FOUND));
+		assertThat(limiter.stats().getLimit()).isEqualTo(4);
+
+		limiter.onError(new CompletionException(new ElasticsearchStatusException("rejected", RestStatus.TOO_MANY_REQUESTS)));
+		assertThat(limiter.stats().getLimit()).isEqualTo(2);
+		assertThat(ConcurrencyLimiter.isOverload(new SocketTimeoutException())).isTrue();
+	}
+}
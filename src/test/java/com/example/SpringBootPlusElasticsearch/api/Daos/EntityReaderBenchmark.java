@@ -0,0 +1,157 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Time and heap allocated to map one search response of 20 whole movies into Movies:
+    through MappingElasticsearchConverter (a Map per "_source" first) vs. EntityReaders.
+    Both start from a freshly parsed SearchResponse, only the mapping is measured.
+
+    Not part of normal build, run with: mvn test -Pbenchmark
+*/
+@Tag("benchmark")
+class EntityReaderBenchmark {
+
+	private static final int HITS = 20;
+	private static final int WARMUP = 5_000;
+	private static final int ITERATIONS = 20_000;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static RestHighLevelClient client;
+	private static SearchExecutor readers;
+	private static SearchExecutor converter;
+	private static String body;
+
+	@BeforeAll
+	static void setUp() throws IOException {
+		// Never connected to, the template is only there for its converter.
+		client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", 9)));
+		SearchBatchProperties batching = new SearchBatchProperties();
+		batching.setEnabled(false);
+		SlowQueryProperties slowQueries = new SlowQueryProperties();
+		slowQueries.setEnabled(false);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimitProperties());
+		SearchHedger hedger = new SearchHedger(client, new HedgeProperties());
+		SearchRouting routing = new SearchRouting(new SearchRoutingProperties());
+		ElasticsearchRestTemplate template = new ElasticsearchRestTemplate(client);
+		readers = new SearchExecutor(client, template, null, batching, false, new EntityReaders(), true,
+				new OperationMetrics(false), new SlowQueryLog(client, slowQueries), limiter, hedger, routing);
+		converter = new SearchExecutor(client, template, null, batching, false, new EntityReaders(), false,
+				new OperationMetrics(false), new SlowQueryLog(client, slowQueries), limiter, hedger, routing);
+		body = body();
+	}
+
+	@AfterAll
+	static void closeClient() throws IOException {
+		client.close();
+	}
+
+	@Test
+	void readerAllocatesLessAndIsFaster() throws IOException {
+		Result converted = run(converter);
+		Result read = run(readers);
+
+		System.out.printf("hits=%d converter: p50=%dns p99=%dns %d bytes/search | reader: p50=%dns p99=%dns %d bytes/search "
+						+ "(x%.1f faster, x%.1f less garbage)%n",
+				HITS, converted.p50Nanos, converted.p99Nanos, converted.bytesPerSearch,
+				read.p50Nanos, read.p99Nanos, read.bytesPerSearch,
+				(double) converted.p50Nanos / read.p50Nanos, (double) converted.bytesPerSearch / read.bytesPerSearch);
+		assertThat(read.p50Nanos).isLessThan(converted.p50Nanos);
+		assertThat(read.bytesPerSearch).isLessThan(converted.bytesPerSearch);
+	}
+
+	private static Result run(SearchExecutor executor) throws IOException {
+		long sink = 0;
+		for (int i = 0; i < WARMUP; i++)
+			sink += executor.mapHits(response(), Movies.class).getSearchHits().size();
+		long[] nanos = new long[ITERATIONS];
+		long thread = Thread.currentThread().getId();
+		long allocated = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			// Fresh response each time: SearchHit caches the Map of "_source" once converted.
+			SearchResponse response = response();
+			long bytes = THREADS.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			SearchHits<Movies> hits = executor.mapHits(response, Movies.class);
+			nanos[i] = System.nanoTime() - start;
+			allocated += THREADS.getThreadAllocatedBytes(thread) - bytes;
+			sink += hits.getSearchHit(HITS - 1).getContent().getCast().size();
+		}
+		assertThat(sink).isPositive();
+		Arrays.sort(nanos);
+		return new Result(nanos[ITERATIONS / 2], nanos[ITERATIONS * 99 / 100], allocated / ITERATIONS);
+	}
+
+	private static String body() {
+		StringBuilder fullplot = new StringBuilder();
+		while (fullplot.length() < 3_000)
+			fullplot.append("A young man discovers that the world he lives in is not what it seems. ");
+		StringBuilder hits = new StringBuilder();
+		for (int i = 0; i < HITS; i++) {
+			if (i > 0)
+				hits.append(',');
+			hits.append("{\"_index\":\"movies\",\"_type\":\"_doc\",\"_id\":\"").append(i).append("\",\"_score\":1.0,\"_source\":")
+					.append("{\"title\":\"Up ").append(i).append("\",\"year\":2009,\"plot\":\"")
+					.append(fullplot, 0, 300).append("\",\"fullplot\":\"").append(fullplot)
+					.append("\",\"genres\":[\"Animation\",\"Adventure\"],\"runtime\":96,")
+					.append("\"cast\":[\"Edward Asner\",\"Jordan Nagai\",\"John Ratzenberger\",\"Christopher Plummer\"],")
+					.append("\"directors\":[\"Pete Docter\",\"Bob Peterson\"],\"countries\":[\"USA\"],")
+					.append("\"languages\":[\"English\"],\"rated\":\"PG\",\"type\":\"movie\",\"metacritic\":88,")
+					.append("\"poster\":\"https://m.media-amazon.com/images/M/MV5BMTk3NDE2NzI4NF5BMl5BanBnXkFtZTgwNzE1MzEyMTE@._V1_SY1000_SX677_AL_.jpg\",")
+					.append("\"num_mflix_comments\":3,\"awards\":{\"wins\":79,\"nominations\":87,\"text\":\"Won 2 Oscars.\"},")
+					.append("\"imdb\":{\"rating\":8.3,\"votes\":716931,\"id\":1049413},")
+					.append("\"tomatoes\":{\"viewer\":{\"rating\":4.0,\"numReviews\":1000000,\"meter\":90},")
+					.append("\"critic\":{\"rating\":8.6,\"numReviews\":280,\"meter\":98},\"rotten\":6,\"fresh\":274}}}");
+		}
+		return "{\"took\":1,\"timed_out\":false,"
+				+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+				+ "\"hits\":{\"total\":{\"value\":" + HITS + ",\"relation\":\"eq\"},\"max_score\":1.0,"
+				+ "\"hits\":[" + hits + "]}}";
+	}
+
+	private static SearchResponse response() throws IOException {
+		try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION, body)) {
+			return SearchResponse.fromXContent(parser);
+		}
+	}
+
+	private static class Result {
+		private final long p50Nanos;
+		private final long p99Nanos;
+		private final long bytesPerSearch;
+
+		Result(long p50Nanos, long p99Nanos, long bytesPerSearch) {
+			this.p50Nanos = p50Nanos;
+			this.p99Nanos = p99Nanos;
+			this.bytesPerSearch = bytesPerSearch;
+		}
+	}
+}
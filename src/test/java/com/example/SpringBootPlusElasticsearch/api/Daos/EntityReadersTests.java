@@ -0,0 +1,163 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.Bank;
+import com.example.SpringBootPlusElasticsearch.api.Models.MovieSummary;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHeadLine;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EntityReadersTests {
+
+	private static final String MOVIE = "{\"title\":\"Up\",\"year\":2009,\"plot\":\"An old man ties balloons to his house.\","
+			+ "\"genres\":[\"Animation\",\"Adventure\"],\"runtime\":\"96\",\"cast\":\"Edward Asner, Jordan Nagai\","
+			+ "\"directors\":[\"Pete Docter\",\"Bob Peterson\"],\"countries\":[\"USA\"],\"rated\":[\"PG\",\"TV-G\"],"
+			+ "\"metacritic\":88.0,\"languages\":null,\"unknown\":{\"a\":[1,{\"b\":2}]},\"num_mflix_comments\":3,"
+			+ "\"awards\":{\"wins\":79,\"nominations\":87,\"text\":\"Won 2 Oscars.\"},"
+			+ "\"imdb\":{\"rating\":8,\"votes\":716931,\"id\":1049413},"
+			+ "\"tomatoes\":{\"viewer\":{\"rating\":4.0,\"numReviews\":1000000,\"meter\":90},"
+			+ "\"critic\":null,\"rotten\":6,\"fresh\":274,\"website\":\"http://disney.go.com/up\"}}";
+	private static final String BANK = "{\"account_number\":25,\"balance\":40540,\"firstname\":\"Virginia\","
+			+ "\"lastname\":\"Ayala\",\"age\":39,\"gender\":\"F\",\"address\":\"171 Putnam Avenue\",\"employer\":\"Filodyne\","
+			+ "\"email\":\"virginiaayala@filodyne.com\",\"city\":\"Nicholson\",\"state\":\"PA\"}";
+	private static final String NEWS = "{\"category\":\"CRIME\",\"headline\":\"There Were 2 Mass Shootings In Texas\","
+			+ "\"authors\":\"Melissa Jeltsen\",\"link\":\"https://www.huffingtonpost.com/entry/texas-amanda-painter\","
+			+ "\"short_description\":\"She left her husband.\",\"date\":\"2018-05-26\",\"@timestamp\":\"2018-05-26T10:15:30.000Z\"}";
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private static RestHighLevelClient client;
+	private static SearchExecutor readers;
+	private static SearchExecutor converter;
+
+	@BeforeAll
+	static void createExecutors() {
+		// Never connected to, the template is only there for its converter.
+		client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", 9)));
+		SearchBatchProperties batching = new SearchBatchProperties();
+		batching.setEnabled(false);
+		SlowQueryProperties slowQueries = new SlowQueryProperties();
+		slowQueries.setEnabled(false);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimitProperties());
+		SearchHedger hedger = new SearchHedger(client, new HedgeProperties());
+		SearchRouting routing = new SearchRouting(new SearchRoutingProperties());
+		ElasticsearchRestTemplate template = new ElasticsearchRestTemplate(client);
+		readers = new SearchExecutor(client, template, null, batching, false, new EntityReaders(), true,
+				new OperationMetrics(false), new SlowQueryLog(client, slowQueries), limiter, hedger, routing);
+		converter = new SearchExecutor(client, template, null, batching, false, new EntityReaders(), false,
+				new OperationMetrics(false), new SlowQueryLog(client, slowQueries), limiter, hedger, routing);
+	}
+
+	@AfterAll
+	static void closeClient() throws IOException {
+		client.close();
+	}
+
+	@Test
+	void readsMovieLikeConverter() throws IOException {
+		assertSameAsConverter(Movies.class, "movies", MOVIE);
+		assertSameAsConverter(MovieSummary.class, "movies", MOVIE);
+
+		Movies movie = readers.mapHits(response("movies", MOVIE), Movies.class).getSearchHit(0).getContent();
+		assertThat(movie.getId()).isEqualTo("1");
+		assertThat(movie.getRuntime()).isEqualTo(96);
+		assertThat(movie.getCast()).containsExactly("Edward Asner", "Jordan Nagai");
+		assertThat(movie.getRated()).isEqualTo("PG,TV-G");
+		assertThat(movie.getImdb().getRating()).isEqualTo(8.0);
+		assertThat(movie.getTomatoes().getCritic()).isNull();
+	}
+
+	@Test
+	void readsBankLikeConverter() throws IOException {
+		assertSameAsConverter(Bank.class, "bank", BANK);
+		assertThat(readers.mapHits(response("bank", BANK), Bank.class).getSearchHit(0).getContent().getAcc_num())
+				.isEqualTo(25);
+	}
+
+	@Test
+	void readsNewsHeadLineLikeConverter() throws IOException {
+		assertSameAsConverter(NewsHeadLine.class, "news_headlines", NEWS);
+	}
+
+	@Test
+	void keepsHitMetadata() throws IOException {
+		SearchHits<Movies> hits = readers.mapHits(response("movies", MOVIE), Movies.class);
+		SearchHits<Movies> expected = converter.mapHits(response("movies", MOVIE), Movies.class);
+
+		assertThat(hits.getTotalHits()).isEqualTo(expected.getTotalHits()).isEqualTo(1);
+		assertThat(hits.getTotalHitsRelation()).isEqualTo(expected.getTotalHitsRelation()).isEqualTo(TotalHitsRelation.EQUAL_TO);
+		assertThat(hits.getMaxScore()).isEqualTo(expected.getMaxScore());
+		SearchHit<Movies> hit = hits.getSearchHit(0);
+		assertThat(hit.getIndex()).isEqualTo("movies");
+		assertThat(hit.getScore()).isEqualTo(2.5f);
+		assertThat(hit.getSortValues()).isEqualTo(expected.getSearchHit(0).getSortValues());
+		assertThat(hit.getHighlightFields())
+				.isEqualTo(expected.getSearchHit(0).getHighlightFields())
+				.containsEntry("title", List.of("<em>Up</em>"));
+	}
+
+	@Test
+	void hitWithoutSourceHasOnlyId() throws IOException {
+		EntityReader<Bank> reader = new EntityReaders().get(Bank.class);
+		Bank bank = EntityReaders.read(reader, null, "7");
+		assertThat(bank.getId()).isEqualTo("7");
+		assertThat(bank.getCity()).isNull();
+	}
+
+	@Test
+	void wrongTypeIsReported() {
+		EntityReader<Movies> reader = new EntityReaders().get(Movies.class);
+		assertThatThrownBy(() -> EntityReaders.read(reader, new BytesArray("{\"imdb\":[8.2]}"), "1"))
+				.isInstanceOf(JsonParseException.class)
+				.hasMessageContaining("imdb");
+	}
+
+	@Test
+	void classWithoutReaderHasNone() {
+		assertThat(new EntityReaders().get(String.class)).isNull();
+	}
+
+	private static <T> void assertSameAsConverter(Class<T> type, String index, String source) throws IOException {
+		T read = readers.mapHits(response(index, source), type).getSearchHit(0).getContent();
+		T converted = converter.mapHits(response(index, source), type).getSearchHit(0).getContent();
+		assertThat(JSON.writeValueAsString(read)).isEqualTo(JSON.writeValueAsString(converted));
+	}
+
+	private static SearchResponse response(String index, String source) throws IOException {
+		String body = "{\"took\":3,\"timed_out\":false,\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+				+ "\"hits\":{\"total\":{\"value\":1,\"relation\":\"eq\"},\"max_score\":2.5,\"hits\":["
+				+ "{\"_index\":\"" + index + "\",\"_type\":\"_doc\",\"_id\":\"1\",\"_score\":2.5,\"_source\":" + source + ","
+				+ "\"highlight\":{\"title\":[\"<em>Up</em>\"]}}]}}";
+		try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION, body)) {
+			return SearchResponse.fromXContent(parser);
+		}
+	}
+}
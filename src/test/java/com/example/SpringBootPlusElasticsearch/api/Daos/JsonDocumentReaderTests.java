@@ -0,0 +1,71 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonDocumentReaderTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsSingleObject() throws IOException {
+		Path file = write("{\n  \"title\": \"Up\",\n  \"imdb\": {\"rating\": 8.2}\n}\n");
+		assertThat(readAll(file)).containsExactly("{\n  \"title\": \"Up\",\n  \"imdb\": {\"rating\": 8.2}\n}");
+	}
+
+	@Test
+	void readsTopLevelArray() throws IOException {
+		Path file = write("[{\"title\":\"A\"}, {\"cast\":[\"x\",\"y\"]}]");
+		assertThat(readAll(file)).containsExactly("{\"title\":\"A\"}", "{\"cast\":[\"x\",\"y\"]}");
+	}
+
+	@Test
+	void readsNdjsonAndIgnoresBracesInsideStrings() throws IOException {
+		Path file = write("{\"plot\":\"a } b { \\\" c\"}\n\n{\"title\":\"B\"}\n");
+		assertThat(readAll(file)).containsExactly("{\"plot\":\"a } b { \\\" c\"}", "{\"title\":\"B\"}");
+	}
+
+	@Test
+	void readsDocumentsLargerThanOneChunk() throws IOException {
+		StringBuilder plot = new StringBuilder();
+		for (int i = 0; i < 100_000; i++)
+			plot.append("word ");
+		String document = "{\"plot\":\"" + plot + "\"}";
+		Path file = write(document + "\n" + document);
+		assertThat(readAll(file)).containsExactly(document, document);
+	}
+
+	@Test
+	void failsOnTruncatedDocument() throws IOException {
+		Path file = write("{\"title\":\"A\"");
+		assertThrows(RuntimeException.class, () -> readAll(file));
+	}
+
+	private Path write(String content) throws IOException {
+		return Files.write(dir.resolve("docs.json"), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private List<String> readAll(Path file) throws IOException {
+		List<String> documents = new ArrayList<>();
+		try (JsonDocumentReader reader = JsonDocumentReader.open(file)) {
+			while (reader.hasNext()) {
+				BytesReference document = reader.next();
+				documents.add(document.utf8ToString());
+			}
+		}
+		return documents;
+	}
+
+}
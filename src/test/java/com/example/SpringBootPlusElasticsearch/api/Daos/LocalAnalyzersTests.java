@@ -0,0 +1,140 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.AnalyzedToken;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.AnalyzeResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class LocalAnalyzersTests {
+
+	private static final String[] TEXTS = {
+			"<p>The Quick Brown-Foxes</p> jumped over 2 lazy dogs!",
+			"Crème Brûlée at 221B Baker Street"
+	};
+
+	private final LocalAnalyzers analyzers = new LocalAnalyzers();
+
+	@AfterEach
+	void close() {
+		analyzers.close();
+	}
+
+	@Test
+	void standardChainStripsHtmlLowercasesAndDropsStopWords() {
+		List<AnalyzedToken> tokens = analyzers.analyze(LocalAnalyzers.TRIAL_STANDARD, "<b>The</b> Matrix and THE Reloaded");
+
+		assertThat(tokens).extracting(AnalyzedToken::getTerm).containsExactly("matrix", "reloaded");
+		// Stop words keep their positions, as in "_analyze".
+		assertThat(tokens).extracting(AnalyzedToken::getPosition).containsExactly(1, 4);
+		assertThat(tokens.get(0).getStartOffset()).isEqualTo(11);
+		assertThat(tokens.get(0).getEndOffset()).isEqualTo(17);
+	}
+
+	@Test
+	void edgeNgramChainBreaksOnTokenChars() {
+		assertThat(analyzers.analyze(LocalAnalyzers.TRIAL_EDGE_NGRAM, "Star-Wars IV"))
+				.extracting(AnalyzedToken::getTerm)
+				.containsExactly("sta", "star", "war", "wars");
+		assertThat(analyzers.analyze("title-EdgeNgram", "Up 2"))
+				.extracting(AnalyzedToken::getTerm)
+				.containsExactly("u", "up", "2");
+	}
+
+	@Test
+	void bankChainFoldsAccentsOfEdgeNgrams() {
+		assertThat(analyzers.analyze("my-standard-analyzer", "Brûlée"))
+				.extracting(AnalyzedToken::getTerm)
+				.containsExactly("br", "bru", "brul", "brule", "brulee");
+	}
+
+	@Test
+	void severalTextsContinuePositionsAndOffsets() {
+		List<AnalyzedToken> tokens = analyzers.analyze(LocalAnalyzers.MOVIES_PLOT, "one two", "three");
+
+		assertThat(tokens).extracting(AnalyzedToken::getTerm).containsExactly("one", "two", "three");
+		assertThat(tokens).extracting(AnalyzedToken::getPosition).containsExactly(0, 1, 102);
+		assertThat(tokens.get(2).getStartOffset()).isEqualTo(8);
+		assertThat(tokens.get(2).getEndOffset()).isEqualTo(13);
+	}
+
+	@Test
+	void equalChainsShareOneAnalyzer() {
+		AnalysisChain copy = new AnalysisChain.Builder(Map.of(
+				"type", "edge_ngram", "min_gram", 3, "max_gram", 6, "token_chars", new String[]{"letter", "digit"}))
+				.addCharFilter("html_strip")
+				.addTokenFilter("lowercase")
+				.build();
+
+		assertThat(copy).isEqualTo(LocalAnalyzers.TRIAL_EDGE_NGRAM);
+		analyzers.analyze(LocalAnalyzers.TRIAL_EDGE_NGRAM, "first");
+		analyzers.analyze(copy, "second");
+		assertThat(analyzers.size()).isEqualTo(1);
+	}
+
+	@Test
+	void consumerGetsTermsWithoutCopies() {
+		AtomicInteger chars = new AtomicInteger();
+		analyzers.analyze(LocalAnalyzers.MOVIES_PLOT,
+				(term, length, position, positionLength, startOffset, endOffset, type) -> chars.addAndGet(length),
+				"Toy Story");
+		assertThat(chars.get()).isEqualTo(8);
+	}
+
+	@Test
+	void unsupportedChainIsRejected() {
+		AnalysisChain chain = new AnalysisChain.Builder("whitespace").build();
+		assertThatThrownBy(() -> analyzers.analyze(chain, "text")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> analyzers.analyze("auto-suggest-analyzer", "text")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/*
+		Same tokens as "_analyze" of elasticsearch, for every chain. Skipped when
+		no cluster is running on localhost:9200.
+	*/
+	@Test
+	void sameTokensAsCluster() throws IOException {
+		assumeTrue(clusterIsUp(), "elasticsearch is not running on localhost:9200");
+
+		try (RestHighLevelClient client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", 9200)))) {
+			for (Map.Entry<String, AnalysisChain> chain : LocalAnalyzers.CHAINS.entrySet()) {
+				AnalyzeResponse response = client.indices()
+						.analyze(chain.getValue().toAnalyzeRequest(TEXTS), RequestOptions.DEFAULT);
+				List<String> expected = response.getTokens().stream()
+						.map(token -> new AnalyzedToken(token).toString())
+						.collect(Collectors.toList());
+				List<String> actual = analyzers.analyze(chain.getValue(), TEXTS).stream()
+						.map(AnalyzedToken::toString)
+						.collect(Collectors.toList());
+				assertThat(actual).as(chain.getKey()).isEqualTo(expected);
+			}
+		}
+	}
+
+	private static boolean clusterIsUp() {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:9200/").openConnection();
+			connection.setConnectTimeout(500);
+			connection.setReadTimeout(500);
+			connection.setRequestMethod("HEAD");
+			return connection.getResponseCode() == 200;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
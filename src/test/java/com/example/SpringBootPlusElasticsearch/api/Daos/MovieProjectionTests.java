@@ -0,0 +1,67 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.MovieSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MovieProjectionTests {
+
+	@Test
+	void fieldsAreSplitOnCommasAndDeduplicated() {
+		assertThat(MovieProjection.of("title, year", "imdb.rating", "title").getIncludes())
+				.containsExactly("title", "year", "imdb.rating");
+	}
+
+	@Test
+	void noFieldsGivesListViewFields() {
+		assertThat(MovieProjection.of().getIncludes()).containsExactly(MovieProjection.DEFAULT_FIELDS);
+		assertThat(MovieProjection.of("").getIncludes()).containsExactly(MovieProjection.DEFAULT_FIELDS);
+	}
+
+	@Test
+	void fieldsOutsideSummaryAreRejected() {
+		assertThatThrownBy(() -> MovieProjection.of("title", "fullplot"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("fullplot");
+		assertThatThrownBy(() -> MovieProjection.of("tomatoes.viewer"))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void onlyKnownLeafPathsAreAccepted() {
+		assertThat(MovieProjection.of("imdb.votes,imdb").getIncludes()).containsExactly("imdb.votes", "imdb");
+		assertThatThrownBy(() -> MovieProjection.of("imdb.nonexistent"))
+				.isInstanceOf(BadRequestException.class)
+				.hasMessageContaining("imdb.nonexistent");
+		assertThatThrownBy(() -> MovieProjection.of("title.foo"))
+				.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> MovieProjection.of("imdb.rating.x"))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void cacheKeyDoesNotDependOnOrder() {
+		assertThat(MovieProjection.of("year,title").cacheKey()).isEqualTo(MovieProjection.of("title,year").cacheKey());
+	}
+
+	@Test
+	void projectedSourceIsReadIntoSummary() {
+		MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext());
+		converter.afterPropertiesSet();
+		Document source = Document.parse("{\"title\":\"Up\",\"year\":2009,\"imdb\":{\"rating\":8.3}}");
+		source.setId("42");
+
+		MovieSummary summary = converter.read(MovieSummary.class, source);
+
+		assertThat(summary.getId()).isEqualTo("42");
+		assertThat(summary.getTitle()).isEqualTo("Up");
+		assertThat(summary.getYear()).isEqualTo(2009);
+		assertThat(summary.getImdb().getRating()).isEqualTo(8.3);
+		assertThat(summary.getGenres()).isNull();
+	}
+}
@@ -0,0 +1,208 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.NewsCounterProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.NewsHistogram;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NewsCountersTests {
+
+	@TempDir
+	Path dir;
+
+	private final Index index = new Index();
+	private final List<NewsCounters> opened = new ArrayList<>();
+
+	@AfterEach
+	void close() {
+		opened.forEach(NewsCounters::close);
+	}
+
+	// Buckets of a pretend index, by "category/yyyy-MM-dd".
+	private static class Index implements NewsCounters.IndexSource {
+		final Map<String, Long> buckets = new TreeMap<>();
+		int counts;
+		boolean down;
+
+		void put(String category, String day, long count) {
+			buckets.put(category + "/" + day, count);
+		}
+
+		@Override
+		public long total() throws IOException {
+			if (down)
+				throw new IOException("Connection refused");
+			return buckets.values().stream().mapToLong(Long::longValue).sum();
+		}
+
+		@Override
+		public void forEachBucket(NewsCounters.BucketConsumer consumer) throws IOException {
+			counts++;
+			buckets.forEach((key, count) -> consumer.accept(key.substring(0, key.indexOf('/')),
+					LocalDate.parse(key.substring(key.indexOf('/') + 1)), count));
+		}
+	}
+
+	private NewsCounters counters() {
+		NewsCounterProperties properties = new NewsCounterProperties();
+		properties.setCheckpointFile(dir.resolve("news-counters.bin").toString());
+		properties.setCheckpointSeconds(3600);
+		NewsCounters counters = new NewsCounters(index, properties);
+		opened.add(counters);
+		return counters;
+	}
+
+	private static BytesReference headline(String category, String date) {
+		return new BytesArray("{\"headline\":\"x\",\"tags\":{\"category\":\"no\"},\"category\":\"" + category
+				+ "\",\"authors\":[\"a\"],\"date\":\"" + date + "\"}");
+	}
+
+	@Test
+	void countsFromIndexWhenThereIsNoCheckpoint() {
+		index.put("CRIME", "2018-05-26", 3);
+		index.put("POLITICS", "2018-05-27", 5);
+		NewsCounters counters = counters();
+		assertThat(counters.histogram(null, null).isReady()).isFalse();
+
+		counters.start();
+		NewsHistogram histogram = counters.histogram(null, null);
+
+		assertThat(histogram.isReady()).isTrue();
+		assertThat(histogram.getFrom()).isEqualTo("2018-05-26");
+		assertThat(histogram.getTo()).isEqualTo("2018-05-27");
+		assertThat(histogram.getCategories()).containsExactly("CRIME", "POLITICS");
+		assertThat(histogram.getTotals()).containsExactly(3, 5);
+		assertThat(histogram.getTotal()).isEqualTo(8);
+		assertThat(histogram.getDays()).extracting(NewsHistogram.Day::getCounts)
+				.containsExactly(new int[] { 3, 0 }, new int[] { 0, 5 });
+		assertThat(index.counts).isEqualTo(1);
+	}
+
+	@Test
+	void ingestedHeadlinesAreCountedAsTheyAreTaken() {
+		NewsCounters counters = counters();
+		counters.start();
+		Iterator<BytesReference> documents = counters.counting(List.of(
+				headline("WELLNESS", "2014-01-31"),
+				headline("WELLNESS", "2014-01-31"),
+				headline("ARTS", "2012-01-28"),
+				new BytesArray("{\"category\":\"ARTS\"}"),
+				new BytesArray("not json")).iterator());
+		while (documents.hasNext())
+			documents.next();
+
+		NewsHistogram histogram = counters.histogram(LocalDate.of(2014, 1, 30), LocalDate.of(2014, 2, 2));
+		// Range is cut to the last day with headlines.
+		assertThat(histogram.getFrom()).isEqualTo("2014-01-30");
+		assertThat(histogram.getTo()).isEqualTo("2014-01-31");
+		assertThat(histogram.getCategories()).containsExactly("WELLNESS");
+		assertThat(histogram.getDays()).extracting(NewsHistogram.Day::getCounts)
+				.containsExactly(new int[] { 0 }, new int[] { 2 });
+		assertThat(counters.histogram(null, null).getTotals()).containsExactly(1, 2);
+	}
+
+	@Test
+	void rangeWithoutHeadlinesIsEmpty() {
+		NewsCounters counters = counters();
+		counters.start();
+		counters.add("CRIME", LocalDate.of(2018, 5, 26));
+
+		NewsHistogram histogram = counters.histogram(LocalDate.of(2019, 1, 1), null);
+		assertThat(histogram.getFrom()).isNull();
+		assertThat(histogram.getDays()).isEmpty();
+		assertThat(histogram.getTotal()).isZero();
+	}
+
+	@Test
+	void daysOutsideTheConfiguredRangeAreNotCounted() {
+		index.put("CRIME", "0001-01-01", 2);
+		index.put("CRIME", "2018-05-26", 1);
+		NewsCounters counters = counters();
+		counters.start();
+		counters.add("CRIME", LocalDate.of(9999, 12, 31));
+		counters.add("CRIME", LocalDate.of(2018, 5, 27));
+
+		NewsHistogram histogram = counters.histogram(null, null);
+		assertThat(histogram.getFrom()).isEqualTo("2018-05-26");
+		assertThat(histogram.getTo()).isEqualTo("2018-05-27");
+		assertThat(histogram.getTotal()).isEqualTo(2);
+	}
+
+	@Test
+	void checkpointIsRestoredWhenItAgreesWithIndex() {
+		index.put("CRIME", "2018-05-26", 1);
+		NewsCounters first = counters();
+		first.start();
+		first.add("CRIME", LocalDate.of(2018, 5, 26));
+		first.add("TRAVEL", LocalDate.of(2013, 2, 1));
+		first.checkpoint();
+		index.put("CRIME", "2018-05-26", 2);
+		index.put("TRAVEL", "2013-02-01", 1);
+
+		NewsCounters restored = counters();
+		restored.start();
+
+		assertThat(index.counts).isEqualTo(1);
+		NewsHistogram histogram = restored.histogram(null, null);
+		assertThat(histogram.isReady()).isTrue();
+		assertThat(histogram.getCategories()).containsExactly("CRIME", "TRAVEL");
+		assertThat(histogram.getTotals()).containsExactly(2, 1);
+		assertThat(histogram.getDays()).hasSize((int) (LocalDate.of(2018, 5, 26).toEpochDay()
+				- LocalDate.of(2013, 2, 1).toEpochDay() + 1));
+	}
+
+	@Test
+	void checkpointBehindIndexIsCountedAgain() {
+		index.put("CRIME", "2018-05-26", 1);
+		NewsCounters first = counters();
+		first.start();
+		first.checkpoint();
+		// Written by another instance after the checkpoint.
+		index.put("CRIME", "2018-05-27", 4);
+
+		NewsCounters restored = counters();
+		restored.start();
+
+		assertThat(index.counts).isEqualTo(2);
+		assertThat(restored.histogram(null, null).getTotal()).isEqualTo(5);
+	}
+
+	@Test
+	void lastFailureIsReported() throws IOException {
+		Files.write(dir.resolve("news-counters.bin"), new byte[] { 1, 2, 3 });
+		index.down = true;
+		NewsCounters counters = counters();
+		counters.start();
+
+		NewsHistogram histogram = counters.histogram(null, null);
+		assertThat(histogram.isReady()).isFalse();
+		assertThat(histogram.getLastFailure()).contains("Count of the index: IOException: Connection refused");
+
+		counters.restore();
+		assertThat(counters.histogram(null, null).getLastFailure()).contains("Restore from");
+	}
+
+	@Test
+	void readsCategoryAndDateOfTopLevelOnly() throws IOException {
+		assertThat(NewsCounters.categoryAndDate(headline("CRIME", "2018-05-26")))
+				.containsExactly("CRIME", "2018-05-26");
+		assertThat(NewsCounters.categoryAndDate(new BytesArray("{\"headline\":\"x\"}"))).containsExactly(null, null);
+		assertThat(NewsCounters.day("2018-05-26T10:00:00Z")).isEqualTo(LocalDate.of(2018, 5, 26));
+		assertThat(NewsCounters.day("26/05/2018")).isNull();
+	}
+}
@@ -0,0 +1,127 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.NewsPartitionProperties;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NewsPartitionsTests {
+
+	private final NewsPartitionProperties properties = new NewsPartitionProperties();
+	private final Clock clock = Clock.fixed(Instant.parse("2018-05-15T10:00:00Z"), ZoneOffset.UTC);
+	private final OperationMetrics metrics = new OperationMetrics(true);
+
+	private NewsPartitions partitions() {
+		return new NewsPartitions(null, null, properties, metrics, clock);
+	}
+
+	@Test
+	void rangeSearchesOnlyItsMonths() {
+		assertThat(partitions().indices(LocalDate.of(2018, 1, 20), LocalDate.of(2018, 3, 2)))
+				.containsExactly("news_headlines-2018.01*", "news_headlines-2018.02*", "news_headlines-2018.03*");
+		assertThat(partitions().indices(LocalDate.of(2018, 4, 1), null))
+				.containsExactly("news_headlines-2018.04*", "news_headlines-2018.05*");
+	}
+
+	@Test
+	void longRangeNamesWholeYears() {
+		assertThat(partitions().indices(LocalDate.of(2015, 11, 1), LocalDate.of(2018, 2, 1)))
+				.containsExactly("news_headlines-2015.11*", "news_headlines-2015.12*",
+						"news_headlines-2016.*", "news_headlines-2017.*",
+						"news_headlines-2018.01*", "news_headlines-2018.02*");
+	}
+
+	@Test
+	void openRangeAndDisabledPartitions() {
+		assertThat(partitions().indices(null, LocalDate.of(2018, 1, 1))).containsExactly("news_headlines_read");
+
+		properties.setEnabled(false);
+		assertThat(partitions().indices(LocalDate.of(2018, 1, 1), null)).containsExactly("news_headlines");
+		assertThat(partitions().readIndex()).isEqualTo("news_headlines");
+		assertThat(partitions().writeIndex()).isEqualTo("news_headlines");
+	}
+
+	@Test
+	void reversedRangeIsRejected() {
+		assertThatThrownBy(() -> partitions().indices(LocalDate.of(2018, 3, 1), LocalDate.of(2018, 1, 1)))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void monthOfPartition() {
+		NewsPartitions partitions = partitions();
+		assertThat(partitions.partition(YearMonth.of(2018, 5))).isEqualTo("news_headlines-2018.05");
+		assertThat(partitions.month("news_headlines-2018.05")).isEqualTo(YearMonth.of(2018, 5));
+		assertThat(partitions.month("news_headlines")).isNull();
+		assertThat(partitions.month("news_headlines-restored")).isNull();
+	}
+
+	@Test
+	void onlyRecentMonthsStayWritable() {
+		NewsPartitions partitions = partitions();
+		assertThat(partitions.isWritable(YearMonth.of(2018, 5))).isTrue();
+		assertThat(partitions.isWritable(YearMonth.of(2018, 4))).isTrue();
+		assertThat(partitions.isWritable(YearMonth.of(2018, 3))).isFalse();
+
+		properties.setWritableMonths(1);
+		assertThat(partitions().isWritable(YearMonth.of(2018, 4))).isFalse();
+	}
+
+	@Test
+	void failedMaintenanceIsRetriedSoon() throws IOException {
+		// Nothing listens on port 9, so every call fails.
+		try (RestHighLevelClient client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", 9)))) {
+			properties.setMaintenanceMinutes(24 * 60);
+			NewsPartitions partitions = new NewsPartitions(client, null, properties, metrics, clock);
+			try {
+				partitions.maintain();
+				assertThat(partitions.isRetryScheduled()).isTrue();
+				assertThat(metrics.stats()).filteredOn(stats -> stats.getOperation().equals("NewsPartitions.maintain"))
+						.singleElement().satisfies(stats -> assertThat(stats.getLastError()).contains("Connection refused"));
+			} finally {
+				partitions.close();
+			}
+		}
+	}
+
+	// Partitions of January to May 2018; January is blocked already.
+	private static GetIndexResponse existing() {
+		GetIndexResponse existing = mock(GetIndexResponse.class);
+		when(existing.getIndices()).thenReturn(new String[] { "news_headlines-2018.01", "news_headlines-2018.02",
+				"news_headlines-2018.03", "news_headlines-2018.04", "news_headlines-2018.05", "news_headlines" });
+		when(existing.getSetting("news_headlines-2018.01", "index.blocks.write")).thenReturn("true");
+		when(existing.getSetting("news_headlines-2018.02", "index.blocks.write")).thenReturn("false");
+		return existing;
+	}
+
+	@Test
+	void oldPartitionsAreClosedUnlessALoadRuns() {
+		NewsPartitions partitions = partitions();
+		assertThat(partitions.toClose(existing()))
+				.containsExactly("news_headlines-2018.02", "news_headlines-2018.03");
+
+		partitions.ingestStarted();
+		assertThat(partitions.toClose(existing())).isEmpty();
+		partitions.ingestFinished();
+		assertThat(partitions.toClose(existing())).hasSize(2);
+	}
+
+	@Test
+	void blockedPartitionsAreOpenedForALoad() {
+		assertThat(partitions().blocked(existing())).containsExactly("news_headlines-2018.01");
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.OperationStats;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OperationMetricsTests {
+
+	private final OperationMetrics metrics = new OperationMetrics(true);
+
+	@Test
+	void separatesTookFromOverhead() {
+		long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(30);
+		metrics.record("MovieDao.getMoviesByTitle", "movies", start, 20, 10, 4096);
+
+		OperationStats stats = metrics.stats().get(0);
+		assertThat(stats.getOperation()).isEqualTo("MovieDao.getMoviesByTitle");
+		assertThat(stats.getIndex()).isEqualTo("movies");
+		assertThat(stats.getCalls()).isEqualTo(1);
+		assertThat(stats.getHits()).isEqualTo(10);
+		assertThat(stats.getSourceBytes()).isEqualTo(4096);
+		assertThat(stats.getResponseBytes()).isZero();
+		assertThat(stats.getTotal().getMax()).isGreaterThanOrEqualTo(29_000);
+		assertThat(stats.getTook().getP50()).isBetween(19_000L, 21_000L);
+		assertThat(stats.getOverhead().getP50()).isGreaterThanOrEqualTo(9_000);
+	}
+
+	@Test
+	void keepsEveryOperationAndIndexApart() {
+		long start = System.nanoTime();
+		metrics.record("BankDao.getAllByCity", "bank", start, 1, 1, 1);
+		metrics.record("BankDao.getAllByCity", "bank", start, 1, 1, 1);
+		metrics.record("search", "movies", start, 1, 1, 1);
+		metrics.record("search", "bank", start, 1, 1, 1);
+
+		List<OperationStats> stats = metrics.stats();
+		assertThat(stats).extracting(OperationStats::getOperation, OperationStats::getIndex)
+				.containsExactly(tuple("BankDao.getAllByCity", "bank"),
+						tuple("search", "bank"),
+						tuple("search", "movies"));
+		assertThat(stats.get(0).getCalls()).isEqualTo(2);
+	}
+
+	@Test
+	void statsAreCumulativeAcrossReads() {
+		metrics.record("search", "movies", System.nanoTime(), 5, 1, 1);
+		metrics.stats();
+		metrics.record("search", "movies", System.nanoTime(), 5, 1, 1);
+
+		OperationStats stats = metrics.stats().get(0);
+		assertThat(stats.getTotal().getCount()).isEqualTo(2);
+		assertThat(stats.getTook().getCount()).isEqualTo(2);
+	}
+
+	@Test
+	void countsErrorsWithoutLatency() {
+		metrics.recordError("NewsHeadLineDao.getAllDoc", "news_headlines", new IllegalStateException("boom"));
+
+		OperationStats stats = metrics.stats().get(0);
+		assertThat(stats.getCalls()).isEqualTo(1);
+		assertThat(stats.getErrors()).isEqualTo(1);
+		assertThat(stats.getLastError()).isEqualTo("IllegalStateException: boom");
+		assertThat(stats.getTotal().getCount()).isZero();
+	}
+
+	@Test
+	void unknownTookIsNotRecorded() {
+		metrics.record("MovieDao.TrialAnalyzer", null, System.nanoTime(), -1, -1, -1);
+
+		OperationStats stats = metrics.stats().get(0);
+		assertThat(stats.getIndex()).isEmpty();
+		assertThat(stats.getTotal().getCount()).isEqualTo(1);
+		assertThat(stats.getTook().getCount()).isZero();
+		assertThat(stats.getHits()).isZero();
+	}
+
+	@Test
+	void timedCallRecordsLatencyOrFailure() throws IOException {
+		assertThat(metrics.time("MovieDao.CreateIndex", "movies", () -> true)).isTrue();
+		assertThatThrownBy(() -> metrics.time("MovieDao.CreateIndex", "movies", () -> {
+			throw new IOException("connection refused");
+		})).isInstanceOf(IOException.class);
+
+		OperationStats stats = metrics.stats().get(0);
+		assertThat(stats.getCalls()).isEqualTo(2);
+		assertThat(stats.getErrors()).isEqualTo(1);
+		assertThat(stats.getLastError()).isEqualTo("IOException: connection refused");
+		assertThat(stats.getTotal().getCount()).isEqualTo(1);
+	}
+
+	@Test
+	void recordsNothingWhenDisabled() {
+		OperationMetrics disabled = new OperationMetrics(false);
+		disabled.record("search", "movies", System.nanoTime(), 1, 1, 1);
+		disabled.recordError("search", "movies", new IllegalStateException());
+
+		assertThat(disabled.stats()).isEmpty();
+	}
+
+	@Test
+	void readsTookOfRawBody() {
+		assertThat(SearchExecutor.rawTook(bytes("{\"took\":123,\"hits\":{}}"))).isEqualTo(123);
+		assertThat(SearchExecutor.rawTook(bytes("{\"hits\":{}}"))).isEqualTo(-1);
+		assertThat(SearchExecutor.rawTook(bytes("{\"took\":"))).isEqualTo(-1);
+	}
+
+	private static byte[] bytes(String body) {
+		return body.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,170 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.MovieSummary;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Payload size and latency of a movie search returning whole Movies vs. the same search
+    with "fields=" (MovieSummary), against a local stand-in. The stand-in honours "_source"
+    includes the way elasticsearch does: without them every hit carries a full movie,
+    with them only title, year and imdb.rating.
+
+    Not part of normal build, run with: mvn test -Pbenchmark
+*/
+@Tag("benchmark")
+class ProjectionBenchmark {
+
+	private static final int HITS = 20;
+	private static final int WARMUP = 300;
+	private static final int ITERATIONS = 2_000;
+
+	private static final AtomicLong lastResponseBytes = new AtomicLong();
+	private static HttpServer server;
+	private static RestHighLevelClient client;
+	private static SearchExecutor searchExecutor;
+
+	@BeforeAll
+	static void startServer() throws IOException {
+		((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+		// Small responses would otherwise wait for delayed ACK of the headers (about 40ms).
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		byte[] full = response(true);
+		byte[] projected = response(false);
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+		server.createContext("/", exchange -> {
+			String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			byte[] body = request.contains("\"includes\"") ? projected : full;
+			lastResponseBytes.set(body.length);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+
+		client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())));
+		SearchBatchProperties batching = new SearchBatchProperties();
+		batching.setEnabled(false);
+		SlowQueryProperties slowQueries = new SlowQueryProperties();
+		slowQueries.setEnabled(false);
+		searchExecutor = new SearchExecutor(client, new ElasticsearchRestTemplate(client), null, batching, false,
+				new EntityReaders(), true, new OperationMetrics(false), new SlowQueryLog(client, slowQueries),
+				new ConcurrencyLimiter(new ConcurrencyLimitProperties()), new SearchHedger(client, new HedgeProperties()),
+				new SearchRouting(new SearchRoutingProperties()));
+	}
+
+	@AfterAll
+	static void stopServer() throws IOException {
+		client.close();
+		server.stop(0);
+	}
+
+	@Test
+	void projectionShrinksPayloadAndLatency() {
+		Result full = run(() -> SearchExecutor.await(searchExecutor.searchAsync("movies", query(), Movies.class)));
+		Result projected = run(() -> {
+			SearchSourceBuilder source = query().fetchSource(MovieProjection.of().getIncludes(), null);
+			SearchHits<MovieSummary> hits = SearchExecutor.await(searchExecutor.searchAsync("movies", source, MovieSummary.class));
+			assertThat(hits.getSearchHit(0).getContent().getTitle()).isNotNull();
+		});
+
+		System.out.printf("hits=%d full: %d bytes, p50=%dus p99=%dus | fields=: %d bytes, p50=%dus p99=%dus (x%.1f smaller)%n",
+				HITS, full.bytes, full.p50Micros, full.p99Micros,
+				projected.bytes, projected.p50Micros, projected.p99Micros, (double) full.bytes / projected.bytes);
+		assertThat(projected.bytes).isLessThan(full.bytes / 5);
+		assertThat(projected.p50Micros).isLessThan(full.p50Micros);
+	}
+
+	private static SearchSourceBuilder query() {
+		return new SearchSourceBuilder().query(QueryBuilders.matchQuery("title", "up")).size(HITS);
+	}
+
+	private static Result run(Runnable search) {
+		for (int i = 0; i < WARMUP; i++)
+			search.run();
+		long[] micros = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			search.run();
+			micros[i] = (System.nanoTime() - start) / 1_000;
+		}
+		Arrays.sort(micros);
+		return new Result(lastResponseBytes.get(), micros[ITERATIONS / 2], micros[ITERATIONS * 99 / 100]);
+	}
+
+	private static byte[] response(boolean fullSource) {
+		StringBuilder fullplot = new StringBuilder();
+		while (fullplot.length() < 3_000)
+			fullplot.append("A young man discovers that the world he lives in is not what it seems. ");
+		StringBuilder hits = new StringBuilder();
+		for (int i = 0; i < HITS; i++) {
+			if (i > 0)
+				hits.append(',');
+			hits.append("{\"_index\":\"movies\",\"_type\":\"_doc\",\"_id\":\"").append(i).append("\",\"_score\":1.0,\"_source\":");
+			if (fullSource) {
+				hits.append("{\"title\":\"Up ").append(i).append("\",\"year\":2009,\"plot\":\"")
+						.append(fullplot, 0, 300).append("\",\"fullplot\":\"").append(fullplot)
+						.append("\",\"genres\":[\"Animation\",\"Adventure\"],\"runtime\":96,")
+						.append("\"cast\":[\"Edward Asner\",\"Jordan Nagai\",\"John Ratzenberger\",\"Christopher Plummer\"],")
+						.append("\"directors\":[\"Pete Docter\",\"Bob Peterson\"],\"countries\":[\"USA\"],")
+						.append("\"languages\":[\"English\"],\"rated\":\"PG\",\"type\":\"movie\",\"metacritic\":88,")
+						.append("\"poster\":\"https://m.media-amazon.com/images/M/MV5BMTk3NDE2NzI4NF5BMl5BanBnXkFtZTgwNzE1MzEyMTE@._V1_SY1000_SX677_AL_.jpg\",")
+						.append("\"num_mflix_comments\":3,\"awards\":{\"wins\":79,\"nominations\":87,\"text\":\"Won 2 Oscars.\"},")
+						.append("\"imdb\":{\"rating\":8.3,\"votes\":716931,\"id\":1049413},")
+						.append("\"tomatoes\":{\"viewer\":{\"rating\":4.0,\"numReviews\":1000000,\"meter\":90},")
+						.append("\"critic\":{\"rating\":8.6,\"numReviews\":280,\"meter\":98},\"rotten\":6,\"fresh\":274}}");
+			} else {
+				hits.append("{\"title\":\"Up ").append(i).append("\",\"year\":2009,\"imdb\":{\"rating\":8.3}}");
+			}
+			hits.append('}');
+		}
+		return ("{\"took\":1,\"timed_out\":false,"
+				+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+				+ "\"hits\":{\"total\":{\"value\":" + HITS + ",\"relation\":\"eq\"},\"max_score\":1.0,"
+				+ "\"hits\":[" + hits + "]}}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static class Result {
+		private final long bytes;
+		private final long p50Micros;
+		private final long p99Micros;
+
+		Result(long bytes, long p50Micros, long p99Micros) {
+			this.bytes = bytes;
+			this.p50Micros = p50Micros;
+			this.p99Micros = p99Micros;
+		}
+	}
+}
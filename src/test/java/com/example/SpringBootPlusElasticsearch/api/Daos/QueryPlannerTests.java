@@ -0,0 +1,180 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.Bank;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.OperationStats;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryPlan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.common.unit.Fuzziness;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class QueryPlannerTests {
+
+	// "bank" as dynamic mapping made it, "movies" as MoviesIndexTemplate.json makes it.
+	private static final String BANK_MAPPING = "{\"properties\":{"
+			+ "\"account_number\":{\"type\":\"long\"},\"age\":{\"type\":\"long\"},"
+			+ "\"firstname\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\",\"ignore_above\":256}}},"
+			+ "\"city\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\",\"ignore_above\":256}}},"
+			+ "\"state\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\",\"ignore_above\":256}}}}}";
+	private static final String MOVIES_MAPPING = "{\"properties\":{"
+			+ "\"title\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\"}}},"
+			+ "\"cast\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\"}}},"
+			+ "\"year\":{\"type\":\"integer\"},\"rated\":{\"type\":\"keyword\"},"
+			+ "\"languages\":{\"type\":\"keyword\"},"
+			+ "\"imdb\":{\"type\":\"object\",\"properties\":{\"rating\":{\"type\":\"double\"}}}}}";
+
+	private final AtomicInteger mappingReads = new AtomicInteger();
+	private final QueryPlanner planner = new QueryPlanner(this::mapping, new OperationMetrics(true), true);
+
+	@Test
+	void fieldKindsFollowIndexMapping() {
+		assertThat(planner.fieldKinds(Bank.class))
+				.containsEntry("account_number", QueryPlanner.Kind.EXACT)
+				.containsEntry("age", QueryPlanner.Kind.EXACT)
+				.containsEntry("state", QueryPlanner.Kind.TEXT)
+				.containsEntry("state.keyword", QueryPlanner.Kind.EXACT);
+		assertThat(planner.fieldKinds(Movies.class))
+				.containsEntry("title", QueryPlanner.Kind.TEXT)
+				.containsEntry("imdb.rating", QueryPlanner.Kind.EXACT)
+				.containsEntry("cast.keyword", QueryPlanner.Kind.EXACT)
+				// A List<String> in Movies, but a keyword in the index.
+				.containsEntry("languages", QueryPlanner.Kind.EXACT)
+				.doesNotContainKey("languages.keyword");
+
+		planner.fieldKinds(Movies.class);
+		assertThat(mappingReads.get()).isEqualTo(2);
+	}
+
+	@Test
+	void nothingMovesWhileMappingCanNotBeRead() {
+		OperationMetrics metrics = new OperationMetrics(true);
+		QueryPlanner unreadable = new QueryPlanner(entityClass -> {
+			throw new IllegalStateException("index_not_found_exception");
+		}, metrics, true);
+		BoolQueryBuilder query = QueryBuilders.boolQuery().must(QueryBuilders.termQuery("state.keyword", "TN"));
+
+		assertThat(unreadable.plan("BankDao.test", Bank.class, query)).isEqualTo(query);
+		assertThat(metrics.stats()).extracting(OperationStats::getOperation, OperationStats::getErrors)
+				.containsExactly(tuple("QueryPlanner.readMapping", 1L));
+	}
+
+	@Test
+	void exactMustClausesMoveToFilterInSelectivityOrder() {
+		BoolQueryBuilder query = QueryBuilders.boolQuery()
+				.must(QueryBuilders.matchQuery("firstname", "Hattie"))
+				.must(QueryBuilders.rangeQuery("age").gt(23).lt(30))
+				.must(QueryBuilders.termQuery("state.keyword", "TN"));
+
+		BoolQueryBuilder planned = (BoolQueryBuilder) planner.plan("BankDao.test", Bank.class, query);
+
+		assertThat(planned.must()).containsExactly(QueryBuilders.matchQuery("firstname", "Hattie"));
+		assertThat(planned.filter()).containsExactly(QueryBuilders.termQuery("state.keyword", "TN"),
+				QueryBuilders.rangeQuery("age").gt(23).lt(30));
+		// Input is left as the DAO built it.
+		assertThat(query.must()).hasSize(3);
+	}
+
+	@Test
+	void optionalShouldClausesStay() {
+		BoolQueryBuilder query = QueryBuilders.boolQuery()
+				.should(QueryBuilders.constantScoreQuery(QueryBuilders.rangeQuery("age").lt(30).gt(23)))
+				.should(QueryBuilders.constantScoreQuery(QueryBuilders.prefixQuery("firstname", "ha")))
+				.filter(QueryBuilders.termQuery("state.keyword", "TN"));
+
+		assertThat(planner.plan("BankDao.getAllByState", Bank.class, query)).isEqualTo(query);
+		assertThat(planner.plans("BankDao.getAllByState").get(0).getChanges()).isEmpty();
+	}
+
+	@Test
+	void redundantClausesAreDropped() {
+		BoolQueryBuilder query = QueryBuilders.boolQuery()
+				.must(QueryBuilders.matchQuery("title", "heat"))
+				.filter(QueryBuilders.matchAllQuery())
+				.filter(QueryBuilders.termQuery("year", 1995))
+				.filter(QueryBuilders.termQuery("year", 1995))
+				.filter(QueryBuilders.matchQuery("title", "heat"))
+				.mustNot(QueryBuilders.termQuery("rated", "R"))
+				.mustNot(QueryBuilders.termQuery("rated", "R"));
+
+		BoolQueryBuilder planned = (BoolQueryBuilder) planner.plan("MovieDao.test", Movies.class, query);
+
+		assertThat(planned.must()).containsExactly(QueryBuilders.matchQuery("title", "heat"));
+		assertThat(planned.filter()).containsExactly(QueryBuilders.termQuery("year", 1995));
+		assertThat(planned.mustNot()).hasSize(1);
+	}
+
+	@Test
+	void onlyMatchAllIsKeptWhenItDecidesShould() {
+		BoolQueryBuilder query = QueryBuilders.boolQuery()
+				.filter(QueryBuilders.matchAllQuery())
+				.should(QueryBuilders.matchQuery("title", "heat"));
+
+		assertThat(planner.plan("MovieDao.test", Movies.class, query)).isEqualTo(query);
+	}
+
+	@Test
+	void singleExactQueryGetsConstantScore() {
+		QueryBuilder planned = planner.plan("BankDao.test", Bank.class, QueryBuilders.termQuery("state.keyword", "TN"));
+		assertThat(planned).isInstanceOf(ConstantScoreQueryBuilder.class);
+
+		QueryBuilder text = QueryBuilders.matchQuery("city", "Nogal");
+		assertThat(planner.plan("BankDao.test", Bank.class, text)).isSameAs(text);
+		QueryBuilder fuzzy = QueryBuilders.matchQuery("state.keyword", "TN").fuzziness(Fuzziness.AUTO);
+		assertThat(planner.plan("BankDao.test", Bank.class, fuzzy)).isSameAs(fuzzy);
+	}
+
+	@Test
+	void everyMustInFilterContextIsFilter() {
+		BoolQueryBuilder query = QueryBuilders.boolQuery()
+				.filter(QueryBuilders.boolQuery().must(QueryBuilders.matchQuery("city", "Nogal")));
+
+		BoolQueryBuilder planned = (BoolQueryBuilder) planner.plan("BankDao.test", Bank.class, query);
+		BoolQueryBuilder inner = (BoolQueryBuilder) planned.filter().get(0);
+
+		assertThat(inner.must()).isEmpty();
+		assertThat(inner.filter()).containsExactly(QueryBuilders.matchQuery("city", "Nogal"));
+	}
+
+	@Test
+	void lastPlanOfOperationIsDumped() {
+		planner.plan("BankDao.getAllByCity", Bank.class, QueryBuilders.boolQuery()
+				.must(QueryBuilders.termQuery("state.keyword", "TN")));
+
+		List<QueryPlan> plans = planner.plans(null);
+		assertThat(plans).extracting(QueryPlan::getOperation).containsExactly("BankDao.getAllByCity");
+		assertThat(plans.get(0).getBefore()).contains("\"must\"");
+		assertThat(plans.get(0).getAfter()).contains("\"filter\"").doesNotContain("\"must\"");
+		assertThat(plans.get(0).getChanges()).containsExactly("must -> filter: term [state.keyword]");
+	}
+
+	@Test
+	void disabledPlannerReturnsQuery() {
+		QueryBuilder query = QueryBuilders.boolQuery().must(QueryBuilders.termQuery("state.keyword", "TN"));
+		QueryPlanner disabled = new QueryPlanner(this::mapping, new OperationMetrics(true), false);
+
+		assertThat(disabled.plan("BankDao.test", Bank.class, query)).isSameAs(query);
+		assertThat(disabled.plans(null)).isEmpty();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> mapping(Class<?> entityClass) {
+		mappingReads.incrementAndGet();
+		try {
+			return new ObjectMapper().readValue(entityClass == Bank.class ? BANK_MAPPING : MOVIES_MAPPING, Map.class);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.QueryCacheStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsImpl;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryResultCacheTests {
+
+	private final AtomicLong now = new AtomicLong();
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void normalizedParametersShareOneEntry() {
+		QueryResultCache cache = cache(100_000);
+		cache.get("movies", "title", this::load, "The  Matrix ");
+		cache.get("movies", "title", this::load, "the matrix");
+
+		QueryCacheStats stats = cache.stats();
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(stats.getHits()).isEqualTo(1);
+		assertThat(stats.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	void entriesExpireAfterTtl() {
+		QueryResultCache cache = cache(100_000);
+		cache.get("movies", "title", this::load, "up");
+		now.addAndGet(1_000);
+		cache.get("movies", "title", this::load, "up");
+
+		assertThat(loads.get()).isEqualTo(2);
+		assertThat(cache.stats().getExpirations()).isEqualTo(1);
+	}
+
+	@Test
+	void leastRecentlyUsedEntryIsEvicted() {
+		// Room for two entries.
+		QueryResultCache cache = cache(2 * bytes("movies|title|a", load()) + 1);
+		loads.set(0);
+		cache.get("movies", "title", this::load, "a");
+		cache.get("movies", "title", this::load, "b");
+		cache.get("movies", "title", this::load, "a");
+		cache.get("movies", "title", this::load, "c");
+		cache.get("movies", "title", this::load, "a");
+
+		assertThat(loads.get()).isEqualTo(3);
+		assertThat(cache.stats().getEvictions()).isEqualTo(1);
+	}
+
+	@Test
+	void invalidateDropsOnlyEntriesOfThatIndex() {
+		QueryResultCache cache = cache(100_000);
+		cache.get("movies", "title", this::load, "a");
+		cache.get("bank", "city", this::load, "a");
+		cache.invalidate("movies");
+		cache.get("movies", "title", this::load, "a");
+		cache.get("bank", "city", this::load, "a");
+
+		assertThat(loads.get()).isEqualTo(3);
+		assertThat(cache.stats().getInvalidations()).isEqualTo(1);
+	}
+
+	@Test
+	void resultLoadedDuringInvalidateIsNotCached() {
+		QueryResultCache cache = cache(100_000);
+		cache.get("movies", "title", () -> {
+			cache.invalidate("movies");
+			return load();
+		}, "a");
+		cache.get("movies", "title", this::load, "a");
+
+		assertThat(loads.get()).isEqualTo(2);
+	}
+
+	@Test
+	void searchBetweenWriteAndRefreshIsNotKeptCached() {
+		QueryResultCache cache = cache(100_000);
+		// What searches see: the write is done, but not refreshed yet.
+		AtomicReference<String> visible = new AtomicReference<>("before write");
+		cache.invalidateAfter("movies", () -> {
+			assertThat(cache.get("movies", "title", visible::get, "a")).isEqualTo("before write");
+			visible.set("after write");
+		});
+
+		assertThat(cache.get("movies", "title", visible::get, "a")).isEqualTo("after write");
+	}
+
+	@Test
+	void largerResultsTakeMoreRoom() {
+		QueryResultCache cache = cache(10 * bytes("movies|title|a", "result-1"));
+		cache.get("movies", "title", this::load, "a");
+		cache.get("movies", "title", () -> "x".repeat(6 * (int) bytes("movies|title|b", "")), "b");
+		cache.get("movies", "title", () -> "y".repeat(6 * (int) bytes("movies|title|c", "")), "c");
+
+		QueryCacheStats stats = cache.stats();
+		assertThat(stats.getEntries()).isEqualTo(1);
+		assertThat(stats.getBytes()).isLessThanOrEqualTo(stats.getMaxBytes());
+		assertThat(stats.getEvictions()).isEqualTo(2);
+	}
+
+	@Test
+	void hitsWeighTheirContentAsJson() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		Movies small = new Movies();
+		small.setTitle("Up");
+		small.setFullplot("");
+		Movies large = new Movies();
+		large.setTitle("Up");
+		large.setFullplot("x".repeat(10_000));
+
+		long smallBytes = QueryResultCache.weigh(objectMapper, hits(small));
+		long largeBytes = QueryResultCache.weigh(objectMapper, hits(large));
+
+		assertThat(smallBytes).isGreaterThan(QueryResultCache.HIT_OVERHEAD_BYTES);
+		assertThat(largeBytes - smallBytes).isEqualTo(10_000);
+		assertThat(QueryResultCache.weigh(objectMapper, hits(small, large))).isEqualTo(smallBytes + largeBytes);
+	}
+
+	private QueryResultCache cache(long maxBytes) {
+		return new QueryResultCache(true, maxBytes, 1_000, now::get, 1, value -> ((String) value).length());
+	}
+
+	// What an entry of "value" under "key" weighs in cache().
+	private static long bytes(String key, String value) {
+		return QueryResultCache.ENTRY_OVERHEAD_BYTES + 2L * key.length() + value.length();
+	}
+
+	private static SearchHits<Movies> hits(Movies... movies) {
+		List<SearchHit<Movies>> hits = new ArrayList<>();
+		for (Movies movie : movies)
+			hits.add(new SearchHit<>("movies", movie.getId(), 1, null, null, movie));
+		return new SearchHitsImpl<>(hits.size(), TotalHitsRelation.EQUAL_TO, 1, null, hits, null);
+	}
+
+	private String load() {
+		return "result-" + loads.incrementAndGet();
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RawHitsWriterTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void sourcesAreCopiedByteForByte() throws IOException {
+		String first = "{ \"title\" : \"Up\",\"plot\":\"a \\\"house\\\" {flies}\",\"year\":2009 }";
+		String second = "{\"title\":\"Ünïcödé\",\"genres\":[\"Drama\",{\"x\":[]}]}";
+		String response = "{\"took\":7,\"hits\":{\"total\":{\"value\":42,\"relation\":\"gte\"},\"hits\":["
+				+ "{\"_id\":\"a\\\"1\",\"_source\":" + first + "},"
+				+ "{\"_source\":" + second + ",\"_id\":\"2\"}]}}";
+
+		String written = write(response, 10, 2);
+
+		assertThat(written).contains(first).contains(second);
+		JsonNode envelope = objectMapper.readTree(written);
+		assertThat(envelope.get("total").asLong()).isEqualTo(42);
+		assertThat(envelope.get("totalRelation").asText()).isEqualTo("gte");
+		assertThat(envelope.get("from").asInt()).isEqualTo(10);
+		assertThat(envelope.get("size").asInt()).isEqualTo(2);
+		assertThat(envelope.get("took").asLong()).isEqualTo(7);
+		assertThat(envelope.get("hits")).hasSize(2);
+		assertThat(envelope.get("hits").get(0).get("_id").asText()).isEqualTo("a\"1");
+		assertThat(envelope.get("hits").get(1).get("_source").get("title").asText()).isEqualTo("Ünïcödé");
+	}
+
+	@Test
+	void emptyResultKeepsEnvelope() throws IOException {
+		// filter_path drops "hits.hits" when nothing matched.
+		JsonNode envelope = objectMapper.readTree(write("{\"took\":1,\"hits\":{\"total\":{\"value\":0,\"relation\":\"eq\"}}}", 0, 10));
+
+		assertThat(envelope.get("total").asLong()).isZero();
+		assertThat(envelope.get("hits")).isEmpty();
+	}
+
+	@Test
+	void missingTotalAndSourceAreNull() throws IOException {
+		JsonNode envelope = objectMapper.readTree(write("{\"took\":1,\"hits\":{\"hits\":[{\"_id\":\"1\"}]}}", 0, 10));
+
+		assertThat(envelope.get("total").isNull()).isTrue();
+		assertThat(envelope.get("totalRelation").isNull()).isTrue();
+		assertThat(envelope.get("hits").get(0).get("_source").isNull()).isTrue();
+	}
+
+	@Test
+	void responseWhichIsNotAnObjectIsRejected() {
+		assertThatThrownBy(() -> write("[]", 0, 10)).isInstanceOf(IOException.class);
+	}
+
+	private static String write(String response, int from, int size) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RawHitsWriter.write(response.getBytes(StandardCharsets.UTF_8), from, size, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshAheadValueTests {
+
+	private final AtomicLong now = new AtomicLong(1_000);
+	private final Deque<CompletableFuture<String>> loads = new ArrayDeque<>();
+	private final RefreshAheadValue<String> value = new RefreshAheadValue<>(this::load, now::get);
+
+	@Test
+	void oldValueIsServedWhileRefreshRuns() {
+		value.get();
+		loads.getLast().complete("first");
+		now.set(2_000);
+		value.recordWrites(3);
+
+		value.refresh();
+		RefreshAheadValue.Snapshot<String> during = value.get().join();
+		loads.getLast().complete("second");
+		RefreshAheadValue.Snapshot<String> after = value.get().join();
+
+		assertThat(during.getValue()).isEqualTo("first");
+		assertThat(during.getComputedAt()).isEqualTo(1_000);
+		assertThat(after.getValue()).isEqualTo("second");
+		assertThat(after.getComputedAt()).isEqualTo(2_000);
+		assertThat(after.getWritesSince()).isZero();
+	}
+
+	@Test
+	void failedRefreshKeepsOldValue() {
+		value.get();
+		loads.getLast().complete("first");
+
+		value.refresh();
+		loads.getLast().completeExceptionally(new IllegalStateException("down"));
+
+		assertThat(value.get().join().getValue()).isEqualTo("first");
+	}
+
+	@Test
+	void onlyOneRefreshRunsAtATime() {
+		value.refresh();
+		value.refresh();
+		value.get();
+
+		assertThat(loads).hasSize(1);
+	}
+
+	private CompletableFuture<String> load() {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		loads.add(future);
+		return future;
+	}
+}
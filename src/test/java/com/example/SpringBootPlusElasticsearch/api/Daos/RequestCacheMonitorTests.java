@@ -0,0 +1,89 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.RequestCacheReport;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCacheMonitorTests {
+
+	private String stats;
+
+	private static String stats(long moviesHits, long moviesMisses) {
+		return "{\"indices\":{"
+				+ "\"movies\":{\"total\":{\"request_cache\":{\"memory_size_in_bytes\":2048,\"evictions\":3,"
+				+ "\"hit_count\":" + moviesHits + ",\"miss_count\":" + moviesMisses + "}}},"
+				+ "\"bank\":{\"total\":{\"request_cache\":{\"memory_size_in_bytes\":0,\"evictions\":0,"
+				+ "\"hit_count\":0,\"miss_count\":4}}}}}";
+	}
+
+	private RequestCacheMonitor monitor() {
+		return new RequestCacheMonitor(() -> XContentHelper.convertToMap(XContentType.JSON.xContent(), stats, false),
+				new SearchRouting(new SearchRoutingProperties()));
+	}
+
+	@Test
+	void firstReportIsTheBaseline() throws Exception {
+		stats = stats(10, 30);
+		RequestCacheReport report = monitor().report();
+
+		assertThat(report.getBaselineTime()).isNotNull();
+		assertThat(report.getIndices()).extracting(RequestCacheReport.IndexCache::getIndex).containsExactly("bank", "movies");
+		RequestCacheReport.IndexCache movies = report.getIndices().get(1);
+		assertThat(movies.getMemorySizeBytes()).isEqualTo(2048);
+		assertThat(movies.getEvictions()).isEqualTo(3);
+		assertThat(movies.getBefore().getHitRate()).isEqualTo(0.25);
+		assertThat(movies.getAfter().getHits() + movies.getAfter().getMisses()).isZero();
+	}
+
+	@Test
+	void laterReportsCountSinceBaseline() throws Exception {
+		RequestCacheMonitor monitor = monitor();
+		stats = stats(10, 30);
+		monitor.report();
+		stats = stats(100, 40);
+		RequestCacheReport.IndexCache movies = monitor.report().getIndices().get(1);
+
+		assertThat(movies.getBefore().getHitRate()).isEqualTo(0.25);
+		assertThat(movies.getAfter().getHits()).isEqualTo(90);
+		assertThat(movies.getAfter().getMisses()).isEqualTo(10);
+		assertThat(movies.getAfter().getHitRate()).isEqualTo(0.9);
+
+		monitor.resetBaseline();
+		assertThat(monitor.report().getIndices().get(1).getBefore().getHits()).isEqualTo(100);
+	}
+
+	@Test
+	void baselineIsTakenBeforeTheFirstReport() throws Exception {
+		RequestCacheMonitor monitor = monitor();
+		stats = stats(10, 30);
+		monitor.resetBaseline();
+		stats = stats(100, 40);
+		RequestCacheReport.IndexCache movies = monitor.report().getIndices().get(1);
+
+		assertThat(movies.getBefore().getHits()).isEqualTo(10);
+		assertThat(movies.getAfter().getHits()).isEqualTo(90);
+	}
+
+	@Test
+	void restartedNodeCountsAllAsAfter() throws Exception {
+		RequestCacheMonitor monitor = monitor();
+		stats = stats(10, 30);
+		monitor.report();
+		stats = stats(5, 5);
+		RequestCacheReport.IndexCache movies = monitor.report().getIndices().get(1);
+
+		assertThat(movies.getBefore().getHits()).isZero();
+		assertThat(movies.getAfter().getHits()).isEqualTo(5);
+	}
+
+	@Test
+	void noIndexGivesEmptyReport() {
+		assertThat(RequestCacheMonitor.counters(Map.of())).isEmpty();
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SearchBatcherTests {
+
+	private final List<SearchRequest> searches = new CopyOnWriteArrayList<>();
+	private final List<MultiSearchRequest> multiSearches = new CopyOnWriteArrayList<>();
+	private final List<SearchResponse> responses = List.of(mock(SearchResponse.class), mock(SearchResponse.class));
+
+	// Answers every search of "_msearch" with responses in order, and fails search of index "bad".
+	private void msearch(MultiSearchRequest request, ActionListener<MultiSearchResponse> listener) {
+		multiSearches.add(request);
+		MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[request.requests().size()];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = request.requests().get(i).indices()[0].equals("bad")
+					? new MultiSearchResponse.Item(null, new IllegalStateException("bad index"))
+					: new MultiSearchResponse.Item(responses.get(i % responses.size()), null);
+		}
+		listener.onResponse(new MultiSearchResponse(items, 1));
+	}
+
+	private void search(SearchRequest request, ActionListener<SearchResponse> listener) {
+		searches.add(request);
+		listener.onResponse(responses.get(0));
+	}
+
+	@Test
+	void searchesWithinWindowShareOneMsearch() throws Exception {
+		SearchBatcher batcher = new SearchBatcher(this::search, this::msearch, 50_000, 10);
+		CompletableFuture<SearchResponse> first = batcher.searchAsync(new SearchRequest("movies"));
+		CompletableFuture<SearchResponse> second = batcher.searchAsync(new SearchRequest("movies"));
+
+		assertThat(first.get(1, TimeUnit.SECONDS)).isSameAs(responses.get(0));
+		assertThat(second.get(1, TimeUnit.SECONDS)).isSameAs(responses.get(1));
+		assertThat(multiSearches).hasSize(1);
+		assertThat(searches).isEmpty();
+		batcher.close();
+	}
+
+	@Test
+	void fullBatchIsSentWithoutWaitingForWindow() {
+		SearchBatcher batcher = new SearchBatcher(this::search, this::msearch, TimeUnit.MINUTES.toMicros(1), 2);
+		CompletableFuture<SearchResponse> first = batcher.searchAsync(new SearchRequest("movies"));
+		CompletableFuture<SearchResponse> second = batcher.searchAsync(new SearchRequest("movies"));
+
+		assertThat(first).isCompleted();
+		assertThat(second).isCompleted();
+		assertThat(multiSearches).hasSize(1);
+		batcher.close();
+	}
+
+	@Test
+	void failedSearchFailsOnlyItsCaller() throws Exception {
+		SearchBatcher batcher = new SearchBatcher(this::search, this::msearch, TimeUnit.MINUTES.toMicros(1), 2);
+		CompletableFuture<SearchResponse> bad = batcher.searchAsync(new SearchRequest("bad"));
+		CompletableFuture<SearchResponse> good = batcher.searchAsync(new SearchRequest("movies"));
+
+		assertThatThrownBy(bad::get).isInstanceOf(ExecutionException.class).hasMessageContaining("bad index");
+		assertThat(good.get()).isSameAs(responses.get(1));
+		batcher.close();
+	}
+
+	@Test
+	void singleSearchIsSentAsSearch() throws Exception {
+		SearchBatcher batcher = new SearchBatcher(this::search, this::msearch, 1_000, 10);
+
+		assertThat(batcher.searchAsync(new SearchRequest("movies")).get(1, TimeUnit.SECONDS)).isSameAs(responses.get(0));
+		assertThat(searches).hasSize(1);
+		assertThat(multiSearches).isEmpty();
+		batcher.close();
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.ConcurrencyLimitProperties;
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchBatchProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.ElasticsearchStandIn;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.OperationStats;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchExecutorTests {
+
+	private ElasticsearchStandIn standIn;
+	private RestHighLevelClient client;
+	private final OperationMetrics operationMetrics = new OperationMetrics(true);
+	private SearchExecutor searchExecutor;
+
+	@BeforeEach
+	void start() throws IOException {
+		standIn = new ElasticsearchStandIn();
+		// Long enough for every search below to join the first one.
+		standIn.setLatency(300, 0);
+		client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", standIn.getPort())));
+		SearchBatchProperties batching = new SearchBatchProperties();
+		batching.setEnabled(false);
+		SlowQueryProperties slowQueries = new SlowQueryProperties();
+		slowQueries.setEnabled(false);
+		searchExecutor = new SearchExecutor(client, new ElasticsearchRestTemplate(client), null, batching, true,
+				new EntityReaders(), true, operationMetrics, new SlowQueryLog(client, slowQueries),
+				new ConcurrencyLimiter(new ConcurrencyLimitProperties()), new SearchHedger(client, new HedgeProperties()),
+				new SearchRouting(new SearchRoutingProperties()));
+	}
+
+	@AfterEach
+	void stop() throws IOException {
+		client.close();
+		standIn.close();
+	}
+
+	@Test
+	void collapsedSearchesAreRecordedOnce() {
+		List<CompletableFuture<SearchHits<Movies>>> searches = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+			searches.add(searchExecutor.searchAsync("MovieDao.getAllMovies", "movies", new SearchSourceBuilder(), Movies.class));
+
+		for (CompletableFuture<SearchHits<Movies>> search : searches)
+			assertThat(SearchExecutor.await(search).getSearchHit(0).getContent().getTitle()).isEqualTo("Toy Story");
+
+		OperationStats stats = operationMetrics.stats().get(0);
+		assertThat(stats.getOperation()).isEqualTo("MovieDao.getAllMovies");
+		assertThat(stats.getCalls()).isEqualTo(1);
+		// Hits of one response, not of five.
+		assertThat(stats.getHits()).isEqualTo(SearchExecutor.await(searches.get(0)).getSearchHits().size());
+		assertThat(searchExecutor.stats().getSearches()).isEqualTo(5);
+		assertThat(searchExecutor.stats().getCollapsed()).isEqualTo(4);
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.HedgeProperties;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SearchHedgerTests {
+
+	private final HedgeProperties properties = new HedgeProperties();
+	private final List<Sent> sent = new CopyOnWriteArrayList<>();
+	private SearchHedger hedger;
+
+	SearchHedgerTests() {
+		properties.setEnabled(true);
+		properties.setOperations(List.of("MovieDao.", "BankDao."));
+		properties.setMaxDelayMs(20);
+		properties.setMinDelayMs(5);
+		properties.setMinSamples(1);
+		properties.setBudgetPercent(100);
+	}
+
+	@AfterEach
+	void close() {
+		if (hedger != null)
+			hedger.close();
+	}
+
+	private static class Sent {
+		final SearchRequest request;
+		final ActionListener<SearchResponse> listener;
+		final AtomicBoolean cancelled = new AtomicBoolean();
+
+		Sent(SearchRequest request, ActionListener<SearchResponse> listener) {
+			this.request = request;
+			this.listener = listener;
+		}
+	}
+
+	private Runnable send(SearchRequest request, ActionListener<SearchResponse> listener) {
+		Sent search = new Sent(request, listener);
+		sent.add(search);
+		return () -> search.cancelled.set(true);
+	}
+
+	@Test
+	void hedgesOnlyConfiguredOperations() {
+		hedger = new SearchHedger(this::send, properties);
+		assertThat(hedger.applies("MovieDao.getMoviesByPlot_3")).isTrue();
+		assertThat(hedger.applies("NewsHeadLineDao.getAllDoc")).isFalse();
+
+		properties.setEnabled(false);
+		assertThat(new SearchHedger(this::send, properties).applies("MovieDao.getMoviesByPlot_3")).isFalse();
+	}
+
+	@Test
+	void fastSearchIsNotHedged() throws Exception {
+		hedger = new SearchHedger(this::send, properties);
+		CompletableFuture<SearchResponse> future = hedger.searchAsync("MovieDao.getMoviesByTitle", new SearchRequest("movies"));
+		SearchResponse response = mock(SearchResponse.class);
+		sent.get(0).listener.onResponse(response);
+
+		assertThat(future.get(1, TimeUnit.SECONDS)).isSameAs(response);
+		Thread.sleep(50);
+		assertThat(sent).hasSize(1);
+		assertThat(hedger.stats().getHedges()).isZero();
+	}
+
+	@Test
+	void hedgeWhichAnswersFirstWinsAndCancelsFirstSearch() throws Exception {
+		hedger = new SearchHedger(this::send, properties);
+		CompletableFuture<SearchResponse> future = hedger.searchAsync("MovieDao.getMoviesByPlot_3", new SearchRequest("movies"));
+		Sent hedge = awaitHedge();
+		assertThat(hedge.request.preference()).startsWith("hedge-");
+		assertThat(hedge.request.indices()).containsExactly("movies");
+
+		SearchResponse response = mock(SearchResponse.class);
+		hedge.listener.onResponse(response);
+
+		assertThat(future.get(1, TimeUnit.SECONDS)).isSameAs(response);
+		assertThat(sent.get(0).cancelled).isTrue();
+		assertThat(hedger.stats().getHedges()).isEqualTo(1);
+		assertThat(hedger.stats().getWins()).isEqualTo(1);
+		assertThat(hedger.stats().getWinRate()).isEqualTo(1.0);
+	}
+
+	@Test
+	void firstSearchWhichAnswersCancelsHedge() throws Exception {
+		hedger = new SearchHedger(this::send, properties);
+		CompletableFuture<SearchResponse> future = hedger.searchAsync("BankDao.getAllByCity", new SearchRequest("bank"));
+		Sent hedge = awaitHedge();
+		sent.get(0).listener.onResponse(mock(SearchResponse.class));
+
+		assertThat(future.get(1, TimeUnit.SECONDS)).isNotNull();
+		assertThat(hedge.cancelled).isTrue();
+		assertThat(hedger.stats().getWins()).isZero();
+	}
+
+	@Test
+	void failureWaitsForTheOtherSearch() throws Exception {
+		hedger = new SearchHedger(this::send, properties);
+		CompletableFuture<SearchResponse> future = hedger.searchAsync("MovieDao.getMoviesByPlot_3", new SearchRequest("movies"));
+		Sent hedge = awaitHedge();
+		sent.get(0).listener.onFailure(new IllegalStateException("node left"));
+		assertThat(future).isNotDone();
+
+		SearchResponse response = mock(SearchResponse.class);
+		hedge.listener.onResponse(response);
+		assertThat(future.get(1, TimeUnit.SECONDS)).isSameAs(response);
+	}
+
+	@Test
+	void noHedgeOverBudget() throws Exception {
+		properties.setBudgetPercent(0);
+		hedger = new SearchHedger(this::send, properties);
+		CompletableFuture<SearchResponse> future = hedger.searchAsync("MovieDao.getMoviesByPlot_3", new SearchRequest("movies"));
+		Thread.sleep(100);
+
+		assertThat(sent).hasSize(1);
+		assertThat(hedger.stats().getOverBudget()).isEqualTo(1);
+		sent.get(0).listener.onFailure(new IllegalStateException("node left"));
+		assertThat(future).isCompletedExceptionally();
+	}
+
+	@Test
+	void delayFollowsPercentileOfLatency() {
+		properties.setMinDelayMs(100);
+		properties.setMaxDelayMs(1000);
+		hedger = new SearchHedger(this::send, properties);
+		SearchResponse response = mock(SearchResponse.class);
+		hedger.searchAsync("MovieDao.getMoviesByTitle", new SearchRequest("movies"));
+		assertThat(hedger.stats().getDelayMicros()).containsEntry("MovieDao.getMoviesByTitle", 1_000_000L);
+
+		sent.get(0).listener.onResponse(response);
+		hedger.refreshDelays();
+		// Answered at once, so delay falls to its minimum.
+		assertThat(hedger.stats().getDelayMicros()).containsEntry("MovieDao.getMoviesByTitle", 100_000L);
+	}
+
+	private Sent awaitHedge() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (sent.size() < 2 && System.nanoTime() < deadline)
+			Thread.sleep(5);
+		assertThat(sent).hasSize(2);
+		return sent.get(1);
+	}
+}
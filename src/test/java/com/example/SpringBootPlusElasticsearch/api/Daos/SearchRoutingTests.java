@@ -0,0 +1,103 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SearchRoutingProperties;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchRoutingTests {
+
+	private final SearchRoutingProperties properties = new SearchRoutingProperties();
+	private String session;
+
+	SearchRoutingTests() {
+		properties.setOperations(List.of("MovieDao.", "BankDao."));
+	}
+
+	private SearchRouting routing() {
+		return new SearchRouting(properties, () -> session);
+	}
+
+	private static SearchRequest search(String title) {
+		return new SearchRequest("movies").source(new SearchSourceBuilder().query(QueryBuilders.matchQuery("Title", title)));
+	}
+
+	@Test
+	void sameQueryGetsSamePreference() {
+		SearchRouting routing = routing();
+		SearchRequest first = search("Heat");
+		SearchRequest second = search("Heat");
+		routing.route("MovieDao.getMoviesByTitle", first);
+		routing.route("MovieDao.getMoviesByTitle", second);
+
+		assertThat(first.preference()).startsWith("MovieDao.getMoviesByTitle-").isEqualTo(second.preference());
+		assertThat(routing.getRoutedByQuery()).isEqualTo(2);
+	}
+
+	@Test
+	void queriesOfOneOperationAreSpread() {
+		SearchRouting routing = routing();
+		Set<String> preferences = new HashSet<>();
+		for (int i = 0; i < 100; i++)
+			preferences.add(routing.preference("MovieDao.getMoviesByTitle", search("title " + i).source()));
+
+		assertThat(preferences).hasSize(properties.getSpread());
+	}
+
+	@Test
+	void sessionKeyWinsOverQuery() {
+		session = "user-42";
+		SearchRouting routing = routing();
+		SearchRequest first = search("Heat");
+		SearchRequest second = search("Alien");
+		routing.route("BankDao.getAllByCity", first);
+		routing.route("MovieDao.getMoviesByTitle", second);
+
+		assertThat(first.preference()).startsWith("session-").doesNotContain("user-42").isEqualTo(second.preference());
+		assertThat(routing.getRoutedBySession()).isEqualTo(2);
+	}
+
+	@Test
+	void otherOperationsAndOwnPreferenceAreLeftAlone() {
+		SearchRouting routing = routing();
+		SearchRequest news = search("Heat");
+		SearchRequest hedge = search("Heat").preference("hedge-1");
+		routing.route("NewsHeadLineDao.getAllDoc", news);
+		routing.route("MovieDao.getMoviesByTitle", hedge);
+
+		assertThat(news.preference()).isNull();
+		assertThat(hedge.preference()).isEqualTo("hedge-1");
+	}
+
+	@Test
+	void onlySearchesWithoutHitsUseRequestCache() {
+		SearchRouting routing = routing();
+		SearchRequest aggregation = new SearchRequest("movies").source(new SearchSourceBuilder().size(0)
+				.aggregation(AggregationBuilders.terms("directors").field("Director.keyword")));
+		SearchRequest hits = search("Heat");
+		routing.route("MovieDao.getDirectorsMovieMetric", aggregation);
+		routing.route("MovieDao.getMoviesByTitle", hits);
+
+		assertThat(aggregation.requestCache()).isTrue();
+		assertThat(hits.requestCache()).isNull();
+		assertThat(routing.getRequestCached()).isEqualTo(1);
+	}
+
+	@Test
+	void disabledRoutingChangesNothing() {
+		properties.setEnabled(false);
+		SearchRequest request = new SearchRequest("movies").source(new SearchSourceBuilder().size(0));
+		routing().route("MovieDao.getDirectorsMovieMetric", request);
+
+		assertThat(request.preference()).isNull();
+		assertThat(request.requestCache()).isNull();
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTests {
+
+	private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@Test
+	void identicalCallsInFlightShareOneCall() {
+		CompletableFuture<String> response = new CompletableFuture<>();
+		CompletableFuture<String> first = singleFlight.execute("q", () -> call(response));
+		CompletableFuture<String> second = singleFlight.execute("q", () -> call(response));
+		response.complete("hits");
+
+		assertThat(first.join()).isEqualTo("hits");
+		assertThat(second.join()).isEqualTo("hits");
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(singleFlight.getCollapsed()).isEqualTo(1);
+		assertThat(singleFlight.getInFlight()).isZero();
+	}
+
+	@Test
+	void completedCallIsNotReused() {
+		singleFlight.execute("q", () -> call(CompletableFuture.completedFuture("first"))).join();
+
+		assertThat(singleFlight.execute("q", () -> call(CompletableFuture.completedFuture("second"))).join())
+				.isEqualTo("second");
+		assertThat(calls.get()).isEqualTo(2);
+		assertThat(singleFlight.getCollapsed()).isZero();
+	}
+
+	@Test
+	void cancelledCallerDoesNotAffectOthers() {
+		CompletableFuture<String> response = new CompletableFuture<>();
+		CompletableFuture<String> first = singleFlight.execute("q", () -> call(response));
+		CompletableFuture<String> second = singleFlight.execute("q", () -> call(response));
+		first.cancel(true);
+		response.complete("hits");
+
+		assertThat(second.join()).isEqualTo("hits");
+	}
+
+	private CompletableFuture<String> call(CompletableFuture<String> response) {
+		calls.incrementAndGet();
+		return response;
+	}
+}
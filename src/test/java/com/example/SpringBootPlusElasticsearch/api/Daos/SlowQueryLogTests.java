@@ -0,0 +1,161 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.Config.SlowQueryProperties;
+import com.example.SpringBootPlusElasticsearch.api.Models.SlowQuery;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowQueryLogTests {
+
+	private static final String PROFILED = "{\"took\":12,\"timed_out\":false,"
+			+ "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+			+ "\"hits\":{\"total\":{\"value\":0,\"relation\":\"eq\"},\"max_score\":null,\"hits\":[]},"
+			+ "\"profile\":{\"shards\":[{\"id\":\"[n1][movies][0]\",\"searches\":[{"
+			+ "\"query\":[{\"type\":\"BooleanQuery\",\"description\":\"plot:matrix~2\",\"time_in_nanos\":1200,"
+			+ "\"breakdown\":{\"create_weight\":500,\"score\":100},"
+			+ "\"children\":[{\"type\":\"TermQuery\",\"description\":\"plot:matrix\",\"time_in_nanos\":700,"
+			+ "\"breakdown\":{\"score\":50}}]}],"
+			+ "\"rewrite_time\":300,"
+			+ "\"collector\":[{\"name\":\"SimpleTopScoreDocCollector\",\"reason\":\"search_top_hits\",\"time_in_nanos\":400}]}],"
+			+ "\"aggregations\":[]}]}}";
+
+	private final SlowQueryProperties properties = new SlowQueryProperties();
+	private final List<SearchRequest> profiled = new ArrayList<>();
+	private final List<ActionListener<SearchResponse>> pending = new ArrayList<>();
+
+	SlowQueryLogTests() {
+		properties.setThresholdMs(10);
+		properties.setSampleRate(1);
+	}
+
+	private void search(SearchRequest request, ActionListener<SearchResponse> listener) {
+		profiled.add(request);
+		pending.add(listener);
+	}
+
+	@Test
+	void fastQueryIsIgnored() {
+		SlowQueryLog log = new SlowQueryLog(this::search, properties);
+		log.check("MovieDao.getMoviesByPlot_3", "movies", source(), System.nanoTime(), 1);
+
+		assertThat(log.getSlow()).isZero();
+		assertThat(profiled).isEmpty();
+	}
+
+	@Test
+	void slowQueryIsProfiledAndKept() {
+		SlowQueryLog log = new SlowQueryLog(this::search, properties);
+		SearchSourceBuilder source = source();
+		log.check("MovieDao.getMoviesByPlot_3", "movies", source, millisAgo(50), 3);
+
+		assertThat(profiled).hasSize(1);
+		assertThat(profiled.get(0).indices()).containsExactly("movies");
+		assertThat(profiled.get(0).source().profile()).isTrue();
+		assertThat(source.profile()).isFalse();
+		pending.get(0).onResponse(parse(PROFILED));
+
+		SlowQuery query = log.recent(null, 0, 10).get(0);
+		assertThat(query.getOperation()).isEqualTo("MovieDao.getMoviesByPlot_3");
+		assertThat(query.getTotalMillis()).isGreaterThanOrEqualTo(50);
+		assertThat(query.getTookMillis()).isEqualTo(3);
+		assertThat(query.getSource()).contains("fuzzy");
+		assertThat(query.getProfileTookMillis()).isEqualTo(12);
+
+		SlowQuery.ShardProfile shard = query.getShards().get(0);
+		assertThat(shard.getShard()).isEqualTo("[n1][movies][0]");
+		assertThat(shard.getRewriteNanos()).isEqualTo(300);
+		assertThat(shard.getQueries().get(0).getType()).isEqualTo("BooleanQuery");
+		assertThat(shard.getQueries().get(0).getBreakdown()).containsEntry("create_weight", 500L);
+		assertThat(shard.getQueries().get(0).getChildren().get(0).getDescription()).isEqualTo("plot:matrix");
+		assertThat(shard.getCollectors().get(0).getDescription()).isEqualTo("search_top_hits");
+	}
+
+	@Test
+	void unsampledQueryIsKeptWithoutProfile() {
+		properties.setSampleRate(0);
+		SlowQueryLog log = new SlowQueryLog(this::search, properties);
+		log.check("MovieDao.getMoviesByTitleUpdated", "movies", source(), millisAgo(50), 3);
+
+		assertThat(log.getSlow()).isEqualTo(1);
+		assertThat(profiled).isEmpty();
+		SlowQuery query = log.recent(null, 0, 10).get(0);
+		assertThat(query.getOperation()).isEqualTo("MovieDao.getMoviesByTitleUpdated");
+		assertThat(query.getSource()).contains("fuzzy");
+		assertThat(query.getShards()).isEmpty();
+		assertThat(query.getProfileError()).isEqualTo("Not sampled");
+	}
+
+	@Test
+	void queryIsKeptWhileItsProfileRuns() {
+		SlowQueryLog log = new SlowQueryLog(this::search, properties);
+		log.check("MovieDao.getMoviesByPlot_3", "movies", source(), millisAgo(50), 3);
+
+		SlowQuery query = log.recent(null, 0, 10).get(0);
+		assertThat(query.getProfileTookMillis()).isEqualTo(-1);
+		assertThat(query.getProfileError()).isNull();
+	}
+
+	@Test
+	void ringKeepsNewestEntries() {
+		properties.setCapacity(2);
+		properties.setMaxProfilesInFlight(10);
+		SlowQueryLog log = new SlowQueryLog(this::search, properties);
+		log.check("first", "movies", source(), millisAgo(50), 1);
+		log.check("second", "movies", source(), millisAgo(50), 1);
+		log.check("third", "movies", source(), millisAgo(50), 1);
+		pending.forEach(listener -> listener.onResponse(parse(PROFILED)));
+
+		assertThat(log.recent(null, 0, 10)).extracting(SlowQuery::getOperation).containsExactly("third", "second");
+		assertThat(log.recent("second", 0, 10)).hasSize(1);
+		assertThat(log.recent(null, 0, 1)).hasSize(1);
+		assertThat(log.recent(null, 10_000, 10)).isEmpty();
+	}
+
+	@Test
+	void profilesInFlightAreCapped() {
+		properties.setMaxProfilesInFlight(1);
+		SlowQueryLog log = new SlowQueryLog(this::search, properties);
+		log.check("MovieDao.getMoviesByPlot_3", "movies", source(), millisAgo(50), 1);
+		log.check("MovieDao.getMoviesByPlot_3", "movies", source(), millisAgo(50), 1);
+		assertThat(profiled).hasSize(1);
+
+		pending.get(0).onFailure(new IllegalStateException("no shards"));
+		log.check("MovieDao.getMoviesByPlot_3", "movies", source(), millisAgo(50), 1);
+		assertThat(profiled).hasSize(2);
+		assertThat(log.recent(null, 0, 10)).extracting(SlowQuery::getProfileError)
+				.containsExactly(null, "Too many profiles in flight", "IllegalStateException: no shards");
+	}
+
+	private static SearchSourceBuilder source() {
+		return new SearchSourceBuilder().query(QueryBuilders.fuzzyQuery("plot", "matrix"));
+	}
+
+	private static long millisAgo(long millis) {
+		return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	private static SearchResponse parse(String body) {
+		try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION, body)) {
+			return SearchResponse.fromXContent(parser);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
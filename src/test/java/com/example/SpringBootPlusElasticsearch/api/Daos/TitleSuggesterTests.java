@@ -0,0 +1,131 @@
+package com.example.SpringBootPlusElasticsearch.api.Daos;
+
+import com.example.SpringBootPlusElasticsearch.api.Models.Awards;
+import com.example.SpringBootPlusElasticsearch.api.Models.IMDB;
+import com.example.SpringBootPlusElasticsearch.api.Models.Movies;
+import com.example.SpringBootPlusElasticsearch.api.Models.TitleSuggestion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TitleSuggesterTests {
+
+	private final TitleSuggester suggester = new TitleSuggester(null, new OperationMetrics(true), 60_000);
+
+	@AfterEach
+	void close() {
+		suggester.close();
+	}
+
+	@Test
+	void prefixOfAnyWordMatchesMostPopularFirst() {
+		suggester.put(movie("1", "The Matrix", 1_500_000, 40));
+		suggester.put(movie("2", "The Matrix Reloaded", 500_000, 5));
+		suggester.put(movie("3", "Mathilde", 100, 0));
+		suggester.put(movie("4", "Up", 900_000, 2));
+		suggester.rebuild();
+
+		assertThat(suggester.suggest("mat", 10)).extracting(TitleSuggestion::getTitle)
+				.containsExactly("The Matrix", "The Matrix Reloaded", "Mathilde");
+		assertThat(suggester.suggest("  THE  matrix r", 10)).extracting(TitleSuggestion::getTitle)
+				.containsExactly("The Matrix Reloaded");
+		assertThat(suggester.suggest("reload", 10)).extracting(TitleSuggestion::getTitle)
+				.containsExactly("The Matrix Reloaded");
+		assertThat(suggester.suggest("mat", 1)).extracting(TitleSuggestion::getWeight)
+				.containsExactly(1_500_000 + 40 * TitleSuggester.AWARD_WEIGHT);
+	}
+
+	@Test
+	void titleOfSeveralMoviesIsSuggestedOnce() {
+		suggester.put(movie("1", "Hamlet", 10, 0));
+		suggester.put(movie("2", "Hamlet", 20, 0));
+		suggester.rebuild();
+
+		assertThat(suggester.suggest("ham", 10)).extracting(TitleSuggestion::getWeight).containsExactly(20L);
+	}
+
+	@Test
+	void deletedMovieIsNotSuggestedBeforeRebuild() {
+		suggester.put(movie("1", "Heat", 10, 0));
+		suggester.put(movie("2", "Heathers", 5, 0));
+		suggester.rebuild();
+
+		suggester.remove("1");
+
+		assertThat(suggester.suggest("hea", 10)).extracting(TitleSuggestion::getTitle).containsExactly("Heathers");
+	}
+
+	@Test
+	void changesMadeWhileLoadingAreKept() {
+		suggester.put(movie("1", "Heat", 10, 0));
+		suggester.put(movie("2", "Heathers", 5, 0));
+		// Index still had "2" and not "3" when it was read, the changes came in between.
+		Iterator<SearchHit<Movies>> hits = List.of(hit(movie("1", "Heat", 10, 0)),
+				hit(movie("2", "Heathers", 5, 0))).iterator();
+		suggester.load(() -> new CloseableIterator<SearchHit<Movies>>() {
+			@Override
+			public boolean hasNext() {
+				return hits.hasNext();
+			}
+
+			@Override
+			public SearchHit<Movies> next() {
+				SearchHit<Movies> hit = hits.next();
+				if (!hits.hasNext()) {
+					suggester.remove("2");
+					suggester.put(movie("3", "Heathrow", 1, 0));
+				}
+				return hit;
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+
+		assertThat(suggester.suggest("hea", 10)).extracting(TitleSuggestion::getTitle)
+				.containsExactly("Heat", "Heathrow");
+		assertThat(suggester.size()).isEqualTo(2);
+
+		// Changes are no longer kept once the load is over.
+		suggester.load(() -> new CloseableIterator<SearchHit<Movies>>() {
+			@Override
+			public boolean hasNext() {
+				return false;
+			}
+
+			@Override
+			public SearchHit<Movies> next() {
+				return null;
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		assertThat(suggester.size()).isZero();
+	}
+
+	private static SearchHit<Movies> hit(Movies movie) {
+		return new SearchHit<>("movies", movie.getId(), 1, null, null, movie);
+	}
+
+	private static Movies movie(String id, String title, int votes, int wins) {
+		Movies movie = new Movies();
+		movie.setId(id);
+		movie.setTitle(title);
+		IMDB imdb = new IMDB();
+		imdb.setVotes(votes);
+		movie.setImdb(imdb);
+		Awards awards = new Awards();
+		awards.setWins(wins);
+		movie.setAwards(awards);
+		return movie;
+	}
+}